@@ -0,0 +1,17 @@
+package de.entwicklertraining.deepseek4j.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+/**
+ * Entry point of {@code benchmarks.jar}. Without arguments, all benchmarks run with the GC profiler (allocation
+ * rate per operation) and the results are written as JSON to {@code jmh-result.json}, so runs of different releases
+ * can be compared. Any arguments are passed to JMH unchanged (see {@code -h}).
+ */
+public class DeepSeekBenchmarks {
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            args = new String[]{"-prof", "gc", "-rf", "json", "-rff", "jmh-result.json"};
+        }
+        Main.main(args);
+    }
+}
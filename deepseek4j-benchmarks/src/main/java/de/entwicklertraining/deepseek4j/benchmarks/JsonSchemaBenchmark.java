@@ -0,0 +1,58 @@
+package de.entwicklertraining.deepseek4j.benchmarks;
+
+import de.entwicklertraining.deepseek4j.DeepSeekJsonSchema;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DeepSeekJsonSchema#toJson()} for nested object schemas: every level has a few scalar properties, an
+ * array and the next level.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JsonSchemaBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int depth;
+
+    private DeepSeekJsonSchema schema;
+
+    @Setup
+    public void setUp() {
+        DeepSeekJsonSchema level = DeepSeekJsonSchema.objectSchema()
+                .property("name", DeepSeekJsonSchema.stringSchema("Name"), true);
+        for (int i = 0; i < depth; i++) {
+            level = DeepSeekJsonSchema.objectSchema()
+                    .description("Level " + i)
+                    .property("id", DeepSeekJsonSchema.integerSchema("Identifier"), true)
+                    .property("label", DeepSeekJsonSchema.stringSchema("Label"), true)
+                    .property("score", DeepSeekJsonSchema.numberSchema("Score"), false)
+                    .property("kind", DeepSeekJsonSchema.enumSchema("Kind", "a", "b", "c"), false)
+                    .property("tags", DeepSeekJsonSchema.arraySchema(DeepSeekJsonSchema.stringSchema("Tag")), false)
+                    .property("child", level, false)
+                    .additionalProperties(false);
+        }
+        schema = level;
+    }
+
+    @Benchmark
+    public JSONObject toJson() {
+        return schema.toJson();
+    }
+}
@@ -0,0 +1,77 @@
+package de.entwicklertraining.deepseek4j.benchmarks;
+
+import de.entwicklertraining.deepseek4j.DeepSeekClient;
+import de.entwicklertraining.deepseek4j.DeepSeekJsonSchema;
+import de.entwicklertraining.deepseek4j.DeepSeekToolDefinition;
+import de.entwicklertraining.deepseek4j.DeepSeekToolResult;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionRequest;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of chat completion requests with a growing history. A request serializes its body only once,
+ * so every invocation builds a fresh request from the same builder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RequestSerializationBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int historySize;
+
+    private DeepSeekCompletionRequest.Builder builder;
+
+    @Setup
+    public void setUp() {
+        DeepSeekToolDefinition tool = DeepSeekToolDefinition.builder("get_weather")
+                .description("Returns the current weather for a city.")
+                .parameter("city", DeepSeekJsonSchema.stringSchema("Name of the city"), true)
+                .parameter("unit", DeepSeekJsonSchema.enumSchema("Temperature unit", "celsius", "fahrenheit"), false)
+                .callback(context -> DeepSeekToolResult.of("sunny"))
+                .build();
+
+        builder = new DeepSeekClient().chat().completion()
+                .model("deepseek-chat")
+                .temperature(0.0)
+                .addSystemMessage("You are a helpful assistant. Answer briefly and precisely.")
+                .addTool(tool);
+        for (int i = 0; i < historySize; i++) {
+            if (i % 2 == 0) {
+                builder.addUserMessage("Question " + i + ": what is the weather like in Berlin, Paris and Rome today? \"Quotes\" and ümlauts included.");
+            } else {
+                builder.addAssistantMessage("Answer " + i + ": it is sunny in Berlin, cloudy in Paris and rainy in Rome, with 18 to 24 degrees.");
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[] getBodyBytes() {
+        return builder.build().getBodyBytes();
+    }
+
+    @Benchmark
+    public String getBody() {
+        return builder.build().getBody();
+    }
+
+    @Benchmark
+    public JSONObject toJson() {
+        return builder.build().toJson();
+    }
+}
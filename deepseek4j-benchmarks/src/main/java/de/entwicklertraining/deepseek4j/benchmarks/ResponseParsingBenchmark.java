@@ -0,0 +1,110 @@
+package de.entwicklertraining.deepseek4j.benchmarks;
+
+import de.entwicklertraining.deepseek4j.DeepSeekClient;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionRequest;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionResponse;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of chat completion responses with a growing number of logprobs (five top logprobs per token).
+ * <p>
+ * Responses are created with {@link DeepSeekCompletionRequest#createResponse(String)}, the path the client takes
+ * for every response body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ResponseParsingBenchmark {
+
+    @Param({"0", "100", "10000"})
+    public int logprobTokens;
+
+    private DeepSeekCompletionRequest request;
+    private String body;
+
+    @Setup
+    public void setUp() {
+        request = new DeepSeekClient().chat().completion().model("deepseek-chat").addUserMessage("Hello").build();
+
+        StringBuilder content = new StringBuilder();
+        JSONArray logprobs = new JSONArray();
+        for (int i = 0; i < Math.max(logprobTokens, 50); i++) {
+            String token = " token" + i;
+            content.append(token);
+            if (i >= logprobTokens) {
+                continue;
+            }
+            JSONArray topLogprobs = new JSONArray();
+            for (int t = 0; t < 5; t++) {
+                topLogprobs.put(new JSONObject().put("token", token + t).put("logprob", -0.5 * t).put("bytes", bytes(token + t)));
+            }
+            logprobs.put(new JSONObject().put("token", token).put("logprob", -0.01).put("bytes", bytes(token)).put("top_logprobs", topLogprobs));
+        }
+        JSONObject choice = new JSONObject()
+                .put("index", 0)
+                .put("finish_reason", "stop")
+                .put("message", new JSONObject().put("role", "assistant").put("content", content.toString()));
+        if (logprobTokens > 0) {
+            choice.put("logprobs", new JSONObject().put("content", logprobs));
+        }
+        body = new JSONObject()
+                .put("id", "benchmark")
+                .put("object", "chat.completion")
+                .put("created", 1_700_000_000L)
+                .put("model", "deepseek-chat")
+                .put("choices", new JSONArray().put(choice))
+                .put("usage", new JSONObject().put("prompt_tokens", 10).put("completion_tokens", 50).put("total_tokens", 60)
+                        .put("prompt_cache_hit_tokens", 0).put("prompt_cache_miss_tokens", 10))
+                .toString();
+    }
+
+    private static JSONArray bytes(String token) {
+        JSONArray bytes = new JSONArray();
+        for (byte b : token.getBytes(java.nio.charset.StandardCharsets.UTF_8)) {
+            bytes.put(b & 0xFF);
+        }
+        return bytes;
+    }
+
+    /** Parse and read the answer; logprobs are only skipped. */
+    @Benchmark
+    public String parse() {
+        return request.createResponse(body).assistantMessage();
+    }
+
+    /** Parse and read every logprob. */
+    @Benchmark
+    public double parseAndReadLogprobs() {
+        DeepSeekCompletionResponse.Logprobs logprobs = request.createResponse(body).getChoices().get(0).getLogprobs();
+        double sum = 0;
+        if (logprobs != null) {
+            for (DeepSeekCompletionResponse.TokenLogprob token : logprobs.getContent()) {
+                sum += token.getLogprob() + token.getTopLogprobs().size();
+            }
+        }
+        return sum;
+    }
+
+    /** Baseline: org.json tree first, as with {@link DeepSeekCompletionResponse#DeepSeekCompletionResponse(JSONObject, DeepSeekCompletionRequest)}. */
+    @Benchmark
+    public String parseViaJsonObject() {
+        return new DeepSeekCompletionResponse(new JSONObject(body), request).assistantMessage();
+    }
+}
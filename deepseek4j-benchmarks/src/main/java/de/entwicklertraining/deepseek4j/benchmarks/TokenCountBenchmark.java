@@ -0,0 +1,61 @@
+package de.entwicklertraining.deepseek4j.benchmarks;
+
+import de.entwicklertraining.deepseek4j.DeepSeekTokenService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token counting of mixed English, Chinese and code text: the native and the Java tokenizer against the heuristic
+ * estimate. The tokenizers need {@code tokenizer.json} on the classpath; without it both fall back to the heuristic,
+ * which is reported at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TokenCountBenchmark {
+
+    private static final String SAMPLE = "DeepSeek4J is a fluent Java client for the DeepSeek API. "
+            + "深度求索专注于研究通用人工智能的底层模型与技术。 "
+            + "for (int i = 0; i < 42; i++) { total += values[i] * 3.14; }\n";
+
+    @Param({"NATIVE", "JAVA", "HEURISTIC"})
+    public String engine;
+
+    @Param({"100", "10000", "1000000"})
+    public int textLength;
+
+    private DeepSeekTokenService tokenService;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        tokenService = "HEURISTIC".equals(engine) ? null : DeepSeekTokenService.getInstance(DeepSeekTokenService.Engine.valueOf(engine));
+        if (tokenService != null && !tokenService.isTokenizerAvailable()) {
+            System.err.println("tokenizer.json is not on the classpath: engine " + engine + " measures the heuristic.");
+        }
+        StringBuilder builder = new StringBuilder(textLength + SAMPLE.length());
+        while (builder.length() < textLength) {
+            builder.append(SAMPLE);
+        }
+        text = builder.substring(0, textLength);
+    }
+
+    @Benchmark
+    public int calculateTokenCount() {
+        return (tokenService != null) ? tokenService.calculateTokenCount(text) : DeepSeekTokenService.estimateTokenCount(text);
+    }
+}
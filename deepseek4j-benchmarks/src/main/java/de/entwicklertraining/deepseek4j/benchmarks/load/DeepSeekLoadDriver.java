@@ -0,0 +1,337 @@
+package de.entwicklertraining.deepseek4j.benchmarks.load;
+
+import de.entwicklertraining.api.base.ApiClientSettings;
+import de.entwicklertraining.deepseek4j.DeepSeekClient;
+import de.entwicklertraining.deepseek4j.DeepSeekJsonSchema;
+import de.entwicklertraining.deepseek4j.DeepSeekMetrics;
+import de.entwicklertraining.deepseek4j.DeepSeekToolDefinition;
+import de.entwicklertraining.deepseek4j.DeepSeekToolResult;
+import de.entwicklertraining.deepseek4j.benchmarks.stub.DeepSeekStubServer;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Closed-loop load test of a {@link DeepSeekClient}: {@code concurrency} workers run the operation back to
+ * back until the configured number of operations is done, and the driver reports throughput and latency
+ * percentiles. Usually run against a {@link DeepSeekStubServer}, so the numbers show the overhead of the
+ * client (serialization, parsing, tool loop, retries) and regressions can be measured offline.
+ * <p>
+ * The warm-up operations run first with the same concurrency and are not reported.
+ */
+public final class DeepSeekLoadDriver {
+
+    /**
+     * Result of a load test run. Latencies cover successful operations only.
+     *
+     * @param operations  Number of measured operations.
+     * @param errors      Number of operations that threw.
+     * @param elapsed     Wall clock time of the measured operations.
+     * @param concurrency Number of workers.
+     */
+    public record Report(int operations, int errors, Duration elapsed, int concurrency,
+                         Duration p50, Duration p99, Duration p999, Duration max) {
+
+        /**
+         * @return Completed operations (successful or not) per second.
+         */
+        public double throughput() {
+            return operations / (elapsed.toNanos() / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d operations (%d errors) in %.2f s with %d workers: %.1f ops/s, "
+                            + "p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, max %.2f ms",
+                    operations, errors, elapsed.toNanos() / 1e9, concurrency, throughput(),
+                    millis(p50), millis(p99), millis(p999), millis(max));
+        }
+
+        private static double millis(Duration duration) {
+            return duration.toNanos() / 1e6;
+        }
+    }
+
+    private final DeepSeekClient client;
+    private final Consumer<DeepSeekClient> operation;
+    private final int concurrency;
+    private final int operations;
+    private final int warmUpOperations;
+
+    private DeepSeekLoadDriver(Builder builder) {
+        this.client = builder.client;
+        this.operation = builder.operation;
+        this.concurrency = builder.concurrency;
+        this.operations = builder.operations;
+        this.warmUpOperations = builder.warmUpOperations;
+    }
+
+    public static Builder builder(DeepSeekClient client) {
+        return new Builder(client);
+    }
+
+    /**
+     * Runs the warm-up and the measured operations. Blocks until all are done.
+     */
+    public Report run() {
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        try {
+            if (warmUpOperations > 0) {
+                runOperations(workers, warmUpOperations);
+            }
+            long start = System.nanoTime();
+            long[] latencies = runOperations(workers, operations);
+            long elapsed = System.nanoTime() - start;
+            return report(latencies, elapsed);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * @return The latency of every operation in nanoseconds, -1 for failed operations.
+     */
+    private long[] runOperations(ExecutorService workers, int count) {
+        long[] latencies = new long[count];
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(workers.submit(() -> {
+                int index;
+                while ((index = next.getAndIncrement()) < count) {
+                    long start = System.nanoTime();
+                    try {
+                        operation.accept(client);
+                        latencies[index] = System.nanoTime() - start;
+                    } catch (RuntimeException e) {
+                        latencies[index] = -1;
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Load test interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Load test worker failed", e.getCause());
+            }
+        }
+        // Future.get() makes the writes of the workers visible
+        return latencies;
+    }
+
+    private Report report(long[] latencies, long elapsedNanos) {
+        long[] succeeded = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+        int errors = latencies.length - succeeded.length;
+        return new Report(latencies.length, errors, Duration.ofNanos(elapsedNanos), concurrency,
+                percentile(succeeded, 0.50), percentile(succeeded, 0.99), percentile(succeeded, 0.999),
+                percentile(succeeded, 1.0));
+    }
+
+    /**
+     * Nearest-rank percentile of sorted values.
+     */
+    private static Duration percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return Duration.ZERO;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return Duration.ofNanos(sorted[Math.max(0, rank - 1)]);
+    }
+
+    public static final class Builder {
+        private final DeepSeekClient client;
+        private Consumer<DeepSeekClient> operation;
+        private int concurrency = 16;
+        private int operations = 1000;
+        private int warmUpOperations = 200;
+
+        private Builder(DeepSeekClient client) {
+            this.client = Objects.requireNonNull(client, "client");
+        }
+
+        /**
+         * The measured operation, e.g. {@code client -> client.chat().completion()...execute()}. An operation
+         * counts as failed if it throws.
+         */
+        public Builder operation(Consumer<DeepSeekClient> operation) {
+            this.operation = Objects.requireNonNull(operation, "operation");
+            return this;
+        }
+
+        /**
+         * Number of workers running operations at the same time (default 16).
+         */
+        public Builder concurrency(int concurrency) {
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("concurrency must be at least 1.");
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * Number of measured operations (default 1000).
+         */
+        public Builder operations(int operations) {
+            if (operations < 1) {
+                throw new IllegalArgumentException("operations must be at least 1.");
+            }
+            this.operations = operations;
+            return this;
+        }
+
+        /**
+         * Number of operations before the measurement, so the JIT has compiled the client (default 200).
+         */
+        public Builder warmUpOperations(int warmUpOperations) {
+            if (warmUpOperations < 0) {
+                throw new IllegalArgumentException("warmUpOperations must not be negative.");
+            }
+            this.warmUpOperations = warmUpOperations;
+            return this;
+        }
+
+        public DeepSeekLoadDriver build() {
+            if (operation == null) {
+                throw new IllegalArgumentException("operation is required.");
+            }
+            return new DeepSeekLoadDriver(this);
+        }
+    }
+
+    /**
+     * Runs a load test against an embedded {@link DeepSeekStubServer} (or a server given with {@code --url})
+     * and prints the report and the {@link DeepSeekMetrics} of the client.
+     * <pre>
+     * --concurrency N        workers (default 16)
+     * --operations N         measured operations (default 1000)
+     * --warmup N             warm-up operations (default 200)
+     * --stream               stream the completions
+     * --tools                one tool call per conversation (two turns)
+     * --latency-ms MEDIAN    log-normal time to first byte with this median (default 0)
+     * --latency-p99-ms P99   99th percentile of the latency (default 4 x median)
+     * --tokens-per-second R  token emission rate (default unlimited)
+     * --completion-tokens N  length of the answers (default 32)
+     * --throttle-rate P      share of requests answered with 429 (default 0)
+     * --overload-rate P      share of requests answered with 503 (default 0)
+     * --url URL              use this server instead of the embedded one
+     * </pre>
+     */
+    public static void main(String[] args) throws Exception {
+        int concurrency = 16;
+        int operations = 1000;
+        int warmUp = 200;
+        boolean stream = false;
+        boolean tools = false;
+        double latencyMs = 0;
+        double latencyP99Ms = -1;
+        double tokensPerSecond = 0;
+        int completionTokens = 32;
+        double throttleRate = 0;
+        double overloadRate = 0;
+        String url = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--concurrency" -> concurrency = Integer.parseInt(args[++i]);
+                case "--operations" -> operations = Integer.parseInt(args[++i]);
+                case "--warmup" -> warmUp = Integer.parseInt(args[++i]);
+                case "--stream" -> stream = true;
+                case "--tools" -> tools = true;
+                case "--latency-ms" -> latencyMs = Double.parseDouble(args[++i]);
+                case "--latency-p99-ms" -> latencyP99Ms = Double.parseDouble(args[++i]);
+                case "--tokens-per-second" -> tokensPerSecond = Double.parseDouble(args[++i]);
+                case "--completion-tokens" -> completionTokens = Integer.parseInt(args[++i]);
+                case "--throttle-rate" -> throttleRate = Double.parseDouble(args[++i]);
+                case "--overload-rate" -> overloadRate = Double.parseDouble(args[++i]);
+                case "--url" -> url = args[++i];
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        DeepSeekStubServer server = null;
+        if (url == null) {
+            DeepSeekStubServer.Builder stub = DeepSeekStubServer.builder()
+                    .tokensPerSecond(tokensPerSecond)
+                    .completionTokens(completionTokens)
+                    .throttleRate(throttleRate)
+                    .overloadRate(overloadRate);
+            if (latencyMs > 0) {
+                Duration median = Duration.ofNanos((long) (latencyMs * 1e6));
+                stub.latency(DeepSeekStubServer.Latency.logNormal(median,
+                        latencyP99Ms > 0 ? Duration.ofNanos((long) (latencyP99Ms * 1e6)) : median.multipliedBy(4)));
+            }
+            if (tools) {
+                stub.script(DeepSeekStubServer.Script.turns(
+                        DeepSeekStubServer.Reply.toolCalls(new DeepSeekStubServer.ToolCall("get_weather", "{\"location\":\"Berlin\"}")),
+                        DeepSeekStubServer.Reply.text("It is sunny in Berlin.")));
+            }
+            server = stub.start();
+            url = server.getBaseUrl();
+        }
+
+        ApiClientSettings settings = ApiClientSettings.builder()
+                .setBearerAuthenticationKey("stub")
+                .initialDelayMs(10)
+                .maxRetries(10)
+                .build();
+        DeepSeekClient client = new DeepSeekClient(settings, url);
+        DeepSeekMetrics metrics = new DeepSeekMetrics();
+        client.setMetricsListener(metrics);
+        DeepSeekToolDefinition weatherTool = DeepSeekToolDefinition.builder("get_weather")
+                .description("Get weather for a location.")
+                .parameter("location", DeepSeekJsonSchema.stringSchema("The city"), true)
+                .callback(context -> DeepSeekToolResult.of("{\"forecast\":\"Sunny\"}"))
+                .build();
+        boolean streaming = stream;
+        boolean withTools = tools;
+
+        try {
+            Report report = DeepSeekLoadDriver.builder(client)
+                    .concurrency(concurrency)
+                    .operations(operations)
+                    .warmUpOperations(warmUp)
+                    .operation(c -> {
+                        DeepSeekCompletionRequest.Builder request = c.chat().completion()
+                                .model("deepseek-chat")
+                                .addSystemMessage("You are a helpful assistant.")
+                                .addUserMessage("What's the weather in Berlin?");
+                        if (withTools) {
+                            request.addTool(weatherTool);
+                        }
+                        if (streaming) {
+                            request.executeStreamingWithExponentialBackoff(chunk -> {
+                            });
+                        } else {
+                            request.executeWithExponentialBackoff();
+                        }
+                    })
+                    .build()
+                    .run();
+            System.out.println(report);
+            // Includes the warm-up
+            System.out.println(metrics);
+            if (server != null) {
+                System.out.printf("Stub server: %d completions, %d throttled (429), %d overloaded (503)%n",
+                        server.getCompletionCount(), server.getThrottledCount(), server.getOverloadedCount());
+            }
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+}
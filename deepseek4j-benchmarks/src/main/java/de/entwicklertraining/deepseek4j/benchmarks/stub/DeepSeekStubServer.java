@@ -0,0 +1,577 @@
+package de.entwicklertraining.deepseek4j.benchmarks.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.entwicklertraining.deepseek4j.DeepSeekTokenService;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Embedded stand-in for the DeepSeek API, for load tests without network access or costs. It serves
+ * {@code /chat/completions} (JSON and Server-Sent Events), {@code /models} and {@code /user/balance} on the
+ * loopback interface; point a client at it with {@code new DeepSeekClient(settings, server.getBaseUrl())}.
+ * <p>
+ * Every chat completion waits for the configured {@link Latency} (time to first byte) and then emits the
+ * answer at the configured token rate: streamed responses chunk by chunk, other responses in one piece once
+ * all tokens are "generated". A share of the requests can be rejected with 429 or 503 to exercise the retry
+ * paths. The answers come from a {@link Script}, so tool-call loops can be scripted.
+ * <p>
+ * Requests are handled on virtual threads, so the server itself does not limit the concurrency.
+ */
+public final class DeepSeekStubServer implements AutoCloseable {
+
+    /**
+     * Time between the arrival of a chat completion request and its first byte.
+     */
+    @FunctionalInterface
+    public interface Latency {
+        long nextNanos(ThreadLocalRandom random);
+
+        static Latency none() {
+            return random -> 0;
+        }
+
+        static Latency fixed(Duration latency) {
+            long nanos = latency.toNanos();
+            return random -> nanos;
+        }
+
+        static Latency uniform(Duration min, Duration max) {
+            long minNanos = min.toNanos();
+            long maxNanos = max.toNanos();
+            if (maxNanos < minNanos) {
+                throw new IllegalArgumentException("max must not be smaller than min.");
+            }
+            return random -> minNanos + (long) (random.nextDouble() * (maxNanos - minNanos));
+        }
+
+        /**
+         * Log-normal latency with the given median and 99th percentile: most requests are fast,
+         * a few are much slower, as with a real API.
+         */
+        static Latency logNormal(Duration median, Duration p99) {
+            double mu = Math.log(median.toNanos());
+            // 2.326 is the 99% quantile of the standard normal distribution
+            double sigma = (Math.log(p99.toNanos()) - mu) / 2.326;
+            if (median.isNegative() || median.isZero() || sigma < 0) {
+                throw new IllegalArgumentException("median must be positive and p99 must not be smaller than median.");
+            }
+            return random -> (long) Math.exp(mu + sigma * random.nextGaussian());
+        }
+    }
+
+    /**
+     * A tool call of a scripted answer.
+     */
+    public record ToolCall(String name, String arguments) {
+        public ToolCall {
+            Objects.requireNonNull(name, "name");
+            Objects.requireNonNull(arguments, "arguments");
+        }
+    }
+
+    /**
+     * The assistant message of a scripted answer: either text or tool calls.
+     */
+    public record Reply(String content, List<ToolCall> toolCalls) {
+        public Reply {
+            toolCalls = List.copyOf(toolCalls);
+        }
+
+        public static Reply text(String content) {
+            return new Reply(Objects.requireNonNull(content, "content"), List.of());
+        }
+
+        public static Reply toolCalls(ToolCall... toolCalls) {
+            if (toolCalls.length == 0) {
+                throw new IllegalArgumentException("At least one tool call is required.");
+            }
+            return new Reply(null, Arrays.asList(toolCalls));
+        }
+
+        private boolean hasToolCalls() {
+            return !toolCalls.isEmpty();
+        }
+    }
+
+    /**
+     * Chooses the answer to a chat completion request (the parsed request body).
+     * Called concurrently, so implementations must be thread-safe.
+     */
+    @FunctionalInterface
+    public interface Script {
+        Reply reply(JSONObject request);
+
+        /**
+         * Answers every request with the same reply.
+         */
+        static Script always(Reply reply) {
+            Objects.requireNonNull(reply, "reply");
+            return request -> reply;
+        }
+
+        /**
+         * Answers the turns of a conversation one after another: the first request of a conversation gets the
+         * first reply, the request after one assistant message the second, and so on (the last reply repeats).
+         * The turn is taken from the request, so concurrent conversations do not interfere.
+         * <p>
+         * Example of a tool loop: {@code turns(Reply.toolCalls(new ToolCall("get_weather", "{\"location\":\"Berlin\"}")), Reply.text("Sunny."))}.
+         */
+        static Script turns(Reply... replies) {
+            if (replies.length == 0) {
+                throw new IllegalArgumentException("At least one reply is required.");
+            }
+            List<Reply> turns = List.of(replies);
+            return request -> {
+                JSONArray messages = request.optJSONArray("messages");
+                int turn = 0;
+                for (int i = 0; messages != null && i < messages.length(); i++) {
+                    JSONObject message = messages.optJSONObject(i);
+                    if (message != null && "assistant".equals(message.optString("role"))) {
+                        turn++;
+                    }
+                }
+                return turns.get(Math.min(turn, turns.size() - 1));
+            };
+        }
+    }
+
+    private static final String WORD = "lorem ";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Latency latency;
+    private final double tokensPerSecond;
+    private final double throttleRate;
+    private final double overloadRate;
+    private final Script script;
+
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicLong completions = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong overloaded = new AtomicLong();
+
+    private DeepSeekStubServer(Builder builder) throws IOException {
+        this.latency = builder.latency;
+        this.tokensPerSecond = builder.tokensPerSecond;
+        this.throttleRate = builder.throttleRate;
+        this.overloadRate = builder.overloadRate;
+        this.script = (builder.script != null)
+                ? builder.script
+                : Script.always(Reply.text(WORD.repeat(builder.completionTokens).stripTrailing()));
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), builder.port), builder.backlog);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/chat/completions", exchange -> handle(exchange, "POST", this::chatCompletion));
+        server.createContext("/models", exchange -> handle(exchange, "GET", this::models));
+        server.createContext("/user/balance", exchange -> handle(exchange, "GET", this::balance));
+        server.start();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The base URL of the server, e.g. {@code http://127.0.0.1:54321}.
+     */
+    public String getBaseUrl() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return Number of chat completions answered (not counting injected errors).
+     */
+    public long getCompletionCount() {
+        return completions.get();
+    }
+
+    /**
+     * @return Number of requests rejected with 429.
+     */
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    /**
+     * @return Number of requests rejected with 503.
+     */
+    public long getOverloadedCount() {
+        return overloaded.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    private static void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+        try (exchange) {
+            if (!method.equalsIgnoreCase(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Method " + exchange.getRequestMethod() + " not allowed");
+                return;
+            }
+            handler.handle(exchange);
+        } catch (RuntimeException e) {
+            // The response may already have been started; the client then sees a broken stream
+            try {
+                sendError(exchange, 500, e.toString());
+            } catch (IOException | RuntimeException ignored) {
+                // nothing more to do
+            }
+        }
+    }
+
+    private void chatCompletion(HttpExchange exchange) throws IOException {
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double roll = random.nextDouble();
+        if (roll < throttleRate) {
+            throttled.incrementAndGet();
+            sendError(exchange, 429, "Rate limit reached for requests");
+            return;
+        }
+        if (roll < throttleRate + overloadRate) {
+            overloaded.incrementAndGet();
+            sendError(exchange, 503, "The server is overloaded, please try again later");
+            return;
+        }
+
+        JSONObject request = new JSONObject(body);
+        Reply reply = Objects.requireNonNull(script.reply(request), "The script returned no reply");
+        List<String> tokens = tokens(reply);
+        String model = request.optString("model", "deepseek-chat");
+        String id = "stub-" + ids.incrementAndGet();
+        int promptTokens = DeepSeekTokenService.estimateTokenCount(body);
+
+        long start = System.nanoTime();
+        sleepUntil(start + latency.nextNanos(random));
+        if (request.optBoolean("stream", false)) {
+            JSONObject streamOptions = request.optJSONObject("stream_options");
+            boolean includeUsage = streamOptions != null && streamOptions.optBoolean("include_usage", false);
+            stream(exchange, id, model, reply, tokens, promptTokens, includeUsage);
+        } else {
+            // Without streaming, the response is sent once all tokens are generated
+            sleepUntil(System.nanoTime() + generationNanos(tokens.size()));
+            sendJson(exchange, 200, completion(id, model, reply, promptTokens, tokens.size()));
+        }
+        completions.incrementAndGet();
+    }
+
+    /**
+     * Sends the answer as Server-Sent Events: the role, one chunk per token (or per tool call), the
+     * finish_reason, the usage if requested and {@code [DONE]}.
+     */
+    private void stream(HttpExchange exchange, String id, String model, Reply reply, List<String> tokens,
+                        int promptTokens, boolean includeUsage) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+
+        writeEvent(out, chunk(id, model, new JSONObject().put("role", "assistant").put("content", ""), null));
+        long start = System.nanoTime();
+        if (reply.hasToolCalls()) {
+            int emitted = 0;
+            for (int i = 0; i < reply.toolCalls().size(); i++) {
+                ToolCall toolCall = reply.toolCalls().get(i);
+                emitted += toolCallTokens(toolCall);
+                sleepUntil(start + generationNanos(emitted));
+                JSONObject delta = new JSONObject().put("tool_calls", new JSONArray().put(toolCallJson(id, i, toolCall).put("index", i)));
+                writeEvent(out, chunk(id, model, delta, null));
+            }
+        } else {
+            for (int i = 0; i < tokens.size(); i++) {
+                sleepUntil(start + generationNanos(i + 1));
+                writeEvent(out, chunk(id, model, new JSONObject().put("content", tokens.get(i)), null));
+            }
+        }
+        JSONObject last = chunk(id, model, new JSONObject(), finishReason(reply));
+        if (includeUsage) {
+            last.put("usage", usage(promptTokens, tokens.size()));
+        }
+        writeEvent(out, last);
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private void models(HttpExchange exchange) throws IOException {
+        JSONArray data = new JSONArray();
+        for (String model : List.of("deepseek-chat", "deepseek-reasoner")) {
+            data.put(new JSONObject().put("id", model).put("object", "model").put("owned_by", "deepseek"));
+        }
+        sendJson(exchange, 200, new JSONObject().put("object", "list").put("data", data));
+    }
+
+    private void balance(HttpExchange exchange) throws IOException {
+        JSONObject balanceInfo = new JSONObject()
+                .put("currency", "CNY")
+                .put("total_balance", "100.00")
+                .put("granted_balance", "0.00")
+                .put("topped_up_balance", "100.00");
+        sendJson(exchange, 200, new JSONObject().put("is_available", true).put("balance_infos", new JSONArray().put(balanceInfo)));
+    }
+
+    private static JSONObject completion(String id, String model, Reply reply, int promptTokens, int completionTokens) {
+        JSONObject message = new JSONObject().put("role", "assistant").put("content", reply.hasToolCalls() ? "" : reply.content());
+        if (reply.hasToolCalls()) {
+            JSONArray toolCalls = new JSONArray();
+            for (int i = 0; i < reply.toolCalls().size(); i++) {
+                toolCalls.put(toolCallJson(id, i, reply.toolCalls().get(i)));
+            }
+            message.put("tool_calls", toolCalls);
+        }
+        JSONObject choice = new JSONObject()
+                .put("index", 0)
+                .put("message", message)
+                .put("logprobs", JSONObject.NULL)
+                .put("finish_reason", finishReason(reply));
+        return envelope(id, model, "chat.completion")
+                .put("choices", new JSONArray().put(choice))
+                .put("usage", usage(promptTokens, completionTokens));
+    }
+
+    private static JSONObject chunk(String id, String model, JSONObject delta, String finishReason) {
+        JSONObject choice = new JSONObject()
+                .put("index", 0)
+                .put("delta", delta)
+                .put("logprobs", JSONObject.NULL)
+                .put("finish_reason", finishReason != null ? finishReason : JSONObject.NULL);
+        return envelope(id, model, "chat.completion.chunk").put("choices", new JSONArray().put(choice));
+    }
+
+    private static JSONObject envelope(String id, String model, String object) {
+        return new JSONObject()
+                .put("id", id)
+                .put("object", object)
+                .put("created", System.currentTimeMillis() / 1000)
+                .put("model", model)
+                .put("system_fingerprint", "fp_stub");
+    }
+
+    private static JSONObject toolCallJson(String id, int index, ToolCall toolCall) {
+        return new JSONObject()
+                .put("id", "call_" + id + "_" + index)
+                .put("type", "function")
+                .put("function", new JSONObject().put("name", toolCall.name()).put("arguments", toolCall.arguments()));
+    }
+
+    private static JSONObject usage(int promptTokens, int completionTokens) {
+        return new JSONObject()
+                .put("prompt_tokens", promptTokens)
+                .put("completion_tokens", completionTokens)
+                .put("total_tokens", promptTokens + completionTokens)
+                .put("prompt_cache_hit_tokens", 0)
+                .put("prompt_cache_miss_tokens", promptTokens);
+    }
+
+    private static String finishReason(Reply reply) {
+        return reply.hasToolCalls() ? "tool_calls" : "stop";
+    }
+
+    /**
+     * Splits the answer into the tokens that are emitted: the words of a text (with their trailing spaces),
+     * tool calls as estimated by the heuristic.
+     */
+    private static List<String> tokens(Reply reply) {
+        List<String> tokens = new ArrayList<>();
+        if (reply.hasToolCalls()) {
+            for (ToolCall toolCall : reply.toolCalls()) {
+                for (int i = toolCallTokens(toolCall); i > 0; i--) {
+                    tokens.add("");
+                }
+            }
+            return tokens;
+        }
+        String content = reply.content();
+        int start = 0;
+        for (int i = 0; i < content.length(); i++) {
+            if (content.charAt(i) == ' ') {
+                tokens.add(content.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < content.length()) {
+            tokens.add(content.substring(start));
+        }
+        return tokens;
+    }
+
+    private static int toolCallTokens(ToolCall toolCall) {
+        return Math.max(1, DeepSeekTokenService.estimateTokenCount(toolCall.name() + toolCall.arguments()));
+    }
+
+    private long generationNanos(int tokens) {
+        return (tokensPerSecond > 0) ? (long) (tokens * 1_000_000_000.0 / tokensPerSecond) : 0;
+    }
+
+    private static void sleepUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void writeEvent(OutputStream out, JSONObject data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void sendError(HttpExchange exchange, int statusCode, String message) throws IOException {
+        JSONObject error = new JSONObject().put("message", message).put("type", "stub_error").put("code", statusCode);
+        sendJson(exchange, statusCode, new JSONObject().put("error", error));
+    }
+
+    private static void sendJson(HttpExchange exchange, int statusCode, JSONObject json) throws IOException {
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static final class Builder {
+        private int port;
+        private int backlog = 1024;
+        private Latency latency = Latency.none();
+        private double tokensPerSecond;
+        private int completionTokens = 32;
+        private double throttleRate;
+        private double overloadRate;
+        private Script script;
+
+        private Builder() {
+        }
+
+        /**
+         * Port to listen on (default 0: a free port is chosen, see {@link #getBaseUrl()}).
+         */
+        public Builder port(int port) {
+            if (port < 0 || port > 65535) {
+                throw new IllegalArgumentException("port must be between 0 and 65535.");
+            }
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Maximum number of pending connections (default 1024).
+         */
+        public Builder backlog(int backlog) {
+            if (backlog < 1) {
+                throw new IllegalArgumentException("backlog must be at least 1.");
+            }
+            this.backlog = backlog;
+            return this;
+        }
+
+        /**
+         * Time to first byte of every chat completion (default none).
+         */
+        public Builder latency(Latency latency) {
+            this.latency = Objects.requireNonNull(latency, "latency");
+            return this;
+        }
+
+        /**
+         * Rate at which the tokens of an answer are generated (default 0: unlimited).
+         */
+        public Builder tokensPerSecond(double tokensPerSecond) {
+            if (tokensPerSecond < 0) {
+                throw new IllegalArgumentException("tokensPerSecond must not be negative.");
+            }
+            this.tokensPerSecond = tokensPerSecond;
+            return this;
+        }
+
+        /**
+         * Length in tokens of the default answer (default 32). Not used with a {@link #script(Script)}.
+         */
+        public Builder completionTokens(int completionTokens) {
+            if (completionTokens < 1) {
+                throw new IllegalArgumentException("completionTokens must be at least 1.");
+            }
+            this.completionTokens = completionTokens;
+            return this;
+        }
+
+        /**
+         * Share of chat completion requests rejected with 429 (default 0).
+         */
+        public Builder throttleRate(double throttleRate) {
+            this.throttleRate = rate(throttleRate, "throttleRate");
+            return this;
+        }
+
+        /**
+         * Share of chat completion requests rejected with 503 (default 0).
+         */
+        public Builder overloadRate(double overloadRate) {
+            this.overloadRate = rate(overloadRate, "overloadRate");
+            return this;
+        }
+
+        /**
+         * Chooses the answers (default: a text of {@link #completionTokens(int)} tokens).
+         */
+        public Builder script(Script script) {
+            this.script = Objects.requireNonNull(script, "script");
+            return this;
+        }
+
+        /**
+         * Starts the server.
+         */
+        public DeepSeekStubServer start() throws IOException {
+            if (throttleRate + overloadRate > 1) {
+                throw new IllegalArgumentException("throttleRate and overloadRate must not add up to more than 1.");
+            }
+            return new DeepSeekStubServer(this);
+        }
+
+        private static double rate(double rate, String name) {
+            if (rate < 0 || rate > 1) {
+                throw new IllegalArgumentException(name + " must be between 0 and 1.");
+            }
+            return rate;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package de.entwicklertraining.deepseek4j.examples;
+
+import de.entwicklertraining.deepseek4j.DeepSeekClient;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekBatchExecutor;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Demonstrates the batch executor: several prompts are answered with bounded concurrency.
+ * If the program is interrupted and started again, the already answered prompts are restored from the checkpoint.
+ */
+public class DeepSeekBatchExample {
+    public static void main(String[] args) {
+        DeepSeekClient client = new DeepSeekClient();
+
+        List<String> prompts = List.of(
+                "What is the capital of France?",
+                "What is the capital of Japan?",
+                "What is the capital of Brazil?",
+                "What is the capital of Kenya?"
+        );
+
+        DeepSeekBatchExecutor executor = client.chat().batch()
+                .maxConcurrency(2)
+                .order(DeepSeekBatchExecutor.Order.INPUT)
+                .checkpointFile(Path.of("deepseek-batch-example.checkpoint"))
+                .build();
+
+        DeepSeekBatchExecutor.Summary summary = executor.execute(
+                prompts.stream().map(prompt -> client.chat().completion()
+                        .model("deepseek-chat")
+                        .addUserMessage(prompt)
+                        .build()),
+                result -> {
+                    if (result.isSuccess()) {
+                        System.out.println(result.index() + (result.restored() ? " (restored): " : ": ") + result.response().assistantMessage());
+                    } else {
+                        System.out.println(result.index() + " failed: " + result.error().getMessage());
+                    }
+                });
+
+        System.out.println(summary);
+    }
+}
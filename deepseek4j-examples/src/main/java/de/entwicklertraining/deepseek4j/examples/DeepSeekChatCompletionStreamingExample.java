@@ -0,0 +1,33 @@
+package de.entwicklertraining.deepseek4j.examples;
+
+import de.entwicklertraining.deepseek4j.DeepSeekClient;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionRequest;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionResponse;
+
+/**
+ * Demonstrates streaming a chat completion: the tokens are printed as soon as they arrive.
+ */
+public class DeepSeekChatCompletionStreamingExample {
+    public static void main(String[] args) {
+        DeepSeekClient client = new DeepSeekClient();
+
+        DeepSeekCompletionResponse response = client.chat().completion()
+                .model("deepseek-chat")
+                .addSystemMessage("You are a helpful assistant.")
+                .addUserMessage("Write a short poem about the sea.")
+                .streamOptions(DeepSeekCompletionRequest.DeepSeekStreamOptions.withUsage(true))
+                .executeStreaming(chunk -> {
+                    String delta = chunk.contentDelta();
+                    if (delta != null) {
+                        System.out.print(delta);
+                        System.out.flush();
+                    }
+                });
+
+        System.out.println();
+        System.out.println("finish_reason: " + response.finishReason());
+        if (response.getUsage() != null) {
+            System.out.println("Total tokens: " + response.getUsage().getTotalTokens());
+        }
+    }
+}
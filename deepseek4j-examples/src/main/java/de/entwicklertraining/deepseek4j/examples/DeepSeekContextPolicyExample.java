@@ -0,0 +1,52 @@
+package de.entwicklertraining.deepseek4j.examples;
+
+import de.entwicklertraining.deepseek4j.DeepSeekClient;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionResponse;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekContextPolicy;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Demonstrates the context policy: a long chat history is trimmed to a (deliberately small) context window
+ * before it is sent. The dropped messages are summarized by another DeepSeek call.
+ */
+public class DeepSeekContextPolicyExample {
+    public static void main(String[] args) {
+        DeepSeekClient client = new DeepSeekClient();
+
+        DeepSeekContextPolicy policy = DeepSeekContextPolicy.builder()
+                .contextWindow("deepseek-chat", 4096 + 1500)
+                .summarizer(dropped -> {
+                    StringBuilder transcript = new StringBuilder();
+                    for (JSONObject message : dropped) {
+                        transcript.append(message.optString("role")).append(": ").append(message.optString("content")).append('\n');
+                    }
+                    return client.chat().completion()
+                            .model("deepseek-chat")
+                            .addSystemMessage("Summarize the conversation in at most five sentences. Keep names and numbers.")
+                            .addUserMessage(transcript.toString())
+                            .execute()
+                            .assistantMessage();
+                })
+                .build();
+
+        List<JSONObject> history = new ArrayList<>();
+        history.add(new JSONObject().put("role", "system").put("content", "You are a helpful travel assistant."));
+        for (int day = 1; day <= 30; day++) {
+            history.add(new JSONObject().put("role", "user").put("content", "What should I do on day " + day + " of my trip to Japan?"));
+            history.add(new JSONObject().put("role", "assistant").put("content",
+                    "On day " + day + " you could visit a temple in the morning, try local food for lunch and explore a museum in the afternoon."));
+        }
+
+        DeepSeekCompletionResponse response = client.chat().completion()
+                .model("deepseek-chat")
+                .addAllMessages(history)
+                .addUserMessage("Which city did I plan to visit, and how long is my trip?")
+                .contextPolicy(policy)
+                .execute();
+
+        System.out.println(response.assistantMessage());
+    }
+}
@@ -2,11 +2,15 @@ package de.entwicklertraining.deepseek4j.examples;
 
 import de.entwicklertraining.deepseek4j.DeepSeekTokenService;
 
+import java.util.Arrays;
+import java.util.List;
+
 public class DeepSeekTokenServiceExample {
     public static void main(String[] args) {
         System.out.println("Testing DeepSeekTokenService with HuggingFace tokenizer...");
         
-        DeepSeekTokenService service = new DeepSeekTokenService();
+        DeepSeekTokenService service = DeepSeekTokenService.getInstance();
+        System.out.println("Tokenizer available: " + service.isTokenizerAvailable());
         
         // Test verschiedene Texte
         String[] testTexts = {
@@ -27,5 +31,9 @@ public class DeepSeekTokenServiceExample {
                 tokenCount
             );
         }
+
+        // Alle Texte in einem Aufruf zählen
+        int[] tokenCounts = service.calculateTokenCounts(List.of(testTexts));
+        System.out.println("Batch: " + Arrays.toString(tokenCounts));
     }
 }
@@ -0,0 +1,728 @@
+package de.entwicklertraining.deepseek4j;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Byte-level BPE tokenizer in pure Java. It reads the same {@code tokenizer.json} as the native HuggingFace
+ * tokenizer and produces the same token counts, without JNI and with a fast cold start.
+ * <p>
+ * Supported are the building blocks DeepSeek's tokenizer uses: added (special) tokens, Split and ByteLevel
+ * pre-tokenizers, a BPE model and TemplateProcessing/ByteLevel post-processors. Any other configuration is
+ * rejected when loading, so the counts never silently differ from the native tokenizer.
+ * <p>
+ * The merge ranks are kept in an open-addressing table keyed by the packed id pair, in primitive arrays.
+ * Counting uses per-thread scratch buffers and reused regex matchers, so it does not allocate once the
+ * buffers have grown to the size of the longest piece.
+ */
+final class DeepSeekBpeTokenizer implements DeepSeekTokenizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeepSeekBpeTokenizer.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    // Split pattern of a ByteLevel pre-tokenizer with use_regex (GPT-2)
+    private static final String BYTE_LEVEL_PATTERN = "'s|'t|'re|'ve|'m|'ll|'d| ?\\p{L}+| ?\\p{N}+| ?[^\\s\\p{L}\\p{N}]+|\\s+(?!\\S)|\\s+";
+    private static final int PARALLEL_THRESHOLD = 64;
+    private static final char[] BYTE_LEVEL_ALPHABET = byteLevelAlphabet();
+
+    private final int[] byteIds;
+    private final MergeTable merges;
+    private final Pattern[] splitPatterns;
+    private final boolean[] removeMatches;
+    private final AddedTokens addedTokens;
+    private final int templateTokenCount;
+    // Only needed with ignore_merges: pieces that are in the vocabulary are one token
+    private final Map<String, Integer> vocab;
+    private final ThreadLocal<Scratch> scratch;
+
+    private DeepSeekBpeTokenizer(int[] byteIds, MergeTable merges, Pattern[] splitPatterns, boolean[] removeMatches,
+                                 AddedTokens addedTokens, int templateTokenCount, Map<String, Integer> vocab) {
+        this.byteIds = byteIds;
+        this.merges = merges;
+        this.splitPatterns = splitPatterns;
+        this.removeMatches = removeMatches;
+        this.addedTokens = addedTokens;
+        this.templateTokenCount = templateTokenCount;
+        this.vocab = vocab;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(splitPatterns));
+    }
+
+    /**
+     * @return The tokenizer, or null if the vocabulary is not available or uses unsupported features.
+     */
+    static DeepSeekBpeTokenizer load() {
+        try (InputStream in = DeepSeekBpeTokenizer.class.getClassLoader().getResourceAsStream(DeepSeekTokenService.TOKENIZER_RESOURCE)) {
+            if (in == null) {
+                logger.warn("{} not found on the classpath, token counts are estimated heuristically.", DeepSeekTokenService.TOKENIZER_RESOURCE);
+                return null;
+            }
+            return parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not load {}, token counts are estimated heuristically: {}", DeepSeekTokenService.TOKENIZER_RESOURCE, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Reads a HuggingFace {@code tokenizer.json}. The large vocabulary and merge list are streamed;
+     * only the small configuration sections are read into JSON objects.
+     */
+    static DeepSeekBpeTokenizer parse(String json) throws IOException {
+        JSONArray addedTokensJson = null;
+        JSONObject normalizer = null;
+        JSONObject preTokenizer = null;
+        JSONObject postProcessor = null;
+        Map<String, Integer> vocab = null;
+        List<String[]> mergePairs = null;
+        boolean ignoreMerges = false;
+
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            expect(parser.nextToken() == JsonToken.START_OBJECT, "tokenizer.json is not a JSON object");
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "added_tokens" -> addedTokensJson = (JSONArray) readSection(parser, json);
+                    case "normalizer" -> normalizer = (JSONObject) readSection(parser, json);
+                    case "pre_tokenizer" -> preTokenizer = (JSONObject) readSection(parser, json);
+                    case "post_processor" -> postProcessor = (JSONObject) readSection(parser, json);
+                    case "model" -> {
+                        expect(parser.currentToken() == JsonToken.START_OBJECT, "model is not an object");
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String modelField = parser.currentName();
+                            JsonToken value = parser.nextToken();
+                            switch (modelField) {
+                                case "type" -> expect("BPE".equals(parser.getText()), "Unsupported model type " + parser.getText());
+                                case "vocab" -> vocab = readVocab(parser);
+                                case "merges" -> mergePairs = readMerges(parser);
+                                case "ignore_merges" -> ignoreMerges = value == JsonToken.VALUE_TRUE;
+                                case "continuing_subword_prefix", "end_of_word_suffix" ->
+                                        expect(value == JsonToken.VALUE_NULL || parser.getText().isEmpty(), "Unsupported model option " + modelField);
+                                case "dropout" ->
+                                        expect(value == JsonToken.VALUE_NULL || parser.getDoubleValue() == 0.0, "BPE dropout is not supported");
+                                default -> parser.skipChildren();
+                            }
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        expect(vocab != null && mergePairs != null, "tokenizer.json has no BPE vocabulary");
+        expect(normalizer == null || isEmptySequence(normalizer, "normalizers"), "Normalizers are not supported");
+
+        List<Pattern> patterns = new ArrayList<>();
+        List<Boolean> removes = new ArrayList<>();
+        if (preTokenizer != null) {
+            addPreTokenizer(preTokenizer, patterns, removes, true);
+        }
+        boolean[] removeMatches = new boolean[removes.size()];
+        for (int i = 0; i < removeMatches.length; i++) {
+            removeMatches[i] = removes.get(i);
+        }
+
+        return new DeepSeekBpeTokenizer(
+                byteIds(vocab),
+                mergeTable(vocab, mergePairs),
+                patterns.toArray(new Pattern[0]),
+                removeMatches,
+                AddedTokens.of(addedTokensJson),
+                (postProcessor != null) ? templateTokenCount(postProcessor) : 0,
+                ignoreMerges ? vocab : null);
+    }
+
+    @Override
+    public int countTokens(String text, boolean addSpecialTokens) {
+        Scratch s = scratch.get();
+        int count = addSpecialTokens ? templateTokenCount : 0;
+        int segmentStart = 0;
+        int position = 0;
+        while (position < text.length()) {
+            int length = addedTokens.matchAt(text, position);
+            if (length > 0) {
+                // An added token is one token; the text before it is tokenized on its own
+                count += countSegment(text, segmentStart, position, s) + 1;
+                position += length;
+                segmentStart = position;
+            } else {
+                position++;
+            }
+        }
+        return count + countSegment(text, segmentStart, text.length(), s);
+    }
+
+    /**
+     * Counts large batches on all cores of the common pool; every worker uses its own scratch buffers.
+     */
+    @Override
+    public int[] countTokens(List<String> texts) {
+        int[] counts = new int[texts.size()];
+        IntStream indices = IntStream.range(0, counts.length);
+        if (counts.length >= PARALLEL_THRESHOLD) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> counts[i] = countTokens(texts.get(i)));
+        return counts;
+    }
+
+    private int countSegment(String text, int start, int end, Scratch s) {
+        if (start == end) {
+            return 0;
+        }
+        s.ranges[0] = start;
+        s.ranges[1] = end;
+        int rangeCount = 1;
+        for (int p = 0; p < splitPatterns.length; p++) {
+            rangeCount = s.split(p, text, rangeCount, removeMatches[p]);
+        }
+        int count = 0;
+        for (int r = 0; r < rangeCount; r++) {
+            count += countPiece(text, s.ranges[2 * r], s.ranges[2 * r + 1], s);
+        }
+        return count;
+    }
+
+    /**
+     * Applies the BPE merges to the UTF-8 bytes of one piece and returns the number of resulting tokens.
+     * Pairs are merged lowest rank first, leftmost first among equal ranks, like the HuggingFace implementation.
+     */
+    private int countPiece(String text, int start, int end, Scratch s) {
+        int n = s.encodeUtf8(text, start, end, byteIds);
+        if (n <= 1) {
+            return n;
+        }
+        if (vocab != null && vocab.containsKey(byteLevelString(text.substring(start, end)))) {
+            return 1;
+        }
+
+        int[] ids = s.symbols;
+        int[] prev = s.prev;
+        int[] next = s.next;
+        for (int i = 0; i < n; i++) {
+            prev[i] = i - 1;
+            next[i] = (i + 1 < n) ? i + 1 : -1;
+        }
+        s.heapSize = 0;
+        for (int i = 0; i + 1 < n; i++) {
+            long merge = merges.get(ids[i], ids[i + 1]);
+            if (merge >= 0) {
+                s.push((merge & 0xFFFFFFFF00000000L) | i);
+            }
+        }
+
+        int count = n;
+        while (s.heapSize > 0) {
+            long top = s.pop();
+            int pos = (int) top;
+            int right = next[pos];
+            if (ids[pos] < 0 || right < 0) {
+                continue;
+            }
+            long merge = merges.get(ids[pos], ids[right]);
+            // Stale entry: one of the symbols was merged with another neighbor in the meantime
+            if (merge < 0 || (merge >>> 32) != (top >>> 32)) {
+                continue;
+            }
+            ids[pos] = (int) merge;
+            ids[right] = -1;
+            next[pos] = next[right];
+            if (next[pos] >= 0) {
+                prev[next[pos]] = pos;
+            }
+            count--;
+
+            if (prev[pos] >= 0) {
+                long left = merges.get(ids[prev[pos]], ids[pos]);
+                if (left >= 0) {
+                    s.push((left & 0xFFFFFFFF00000000L) | prev[pos]);
+                }
+            }
+            if (next[pos] >= 0) {
+                long following = merges.get(ids[pos], ids[next[pos]]);
+                if (following >= 0) {
+                    s.push((following & 0xFFFFFFFF00000000L) | pos);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The vocabulary form of a piece (only needed with ignore_merges, so allocating is fine).
+     */
+    private static String byteLevelString(String piece) {
+        byte[] bytes = piece.getBytes(StandardCharsets.UTF_8);
+        char[] chars = new char[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i] = BYTE_LEVEL_ALPHABET[bytes[i] & 0xFF];
+        }
+        return new String(chars);
+    }
+
+    // --- Loading ---
+
+    private static Object readSection(JsonParser parser, String json) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token != JsonToken.START_OBJECT && token != JsonToken.START_ARRAY) {
+            return null;
+        }
+        int start = (int) parser.currentTokenLocation().getCharOffset();
+        parser.skipChildren();
+        int end = (int) parser.currentLocation().getCharOffset();
+        String section = json.substring(start, end);
+        return (token == JsonToken.START_OBJECT) ? new JSONObject(section) : new JSONArray(section);
+    }
+
+    private static Map<String, Integer> readVocab(JsonParser parser) throws IOException {
+        expect(parser.currentToken() == JsonToken.START_OBJECT, "vocab is not an object");
+        Map<String, Integer> vocab = new HashMap<>(1 << 18);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String token = parser.currentName();
+            parser.nextToken();
+            vocab.put(token, parser.getIntValue());
+        }
+        return vocab;
+    }
+
+    /**
+     * Merges are either "left right" strings or [left, right] arrays (newer format).
+     */
+    private static List<String[]> readMerges(JsonParser parser) throws IOException {
+        expect(parser.currentToken() == JsonToken.START_ARRAY, "merges is not an array");
+        List<String[]> merges = new ArrayList<>(1 << 17);
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.VALUE_STRING) {
+                String merge = parser.getText();
+                int space = merge.indexOf(' ');
+                expect(space > 0, "Invalid merge: " + merge);
+                merges.add(new String[]{merge.substring(0, space), merge.substring(space + 1)});
+            } else {
+                expect(token == JsonToken.START_ARRAY, "Invalid merge entry");
+                parser.nextToken();
+                String left = parser.getText();
+                parser.nextToken();
+                String right = parser.getText();
+                expect(parser.nextToken() == JsonToken.END_ARRAY, "Invalid merge entry");
+                merges.add(new String[]{left, right});
+            }
+        }
+        return merges;
+    }
+
+    private static int[] byteIds(Map<String, Integer> vocab) {
+        int[] ids = new int[256];
+        for (int b = 0; b < 256; b++) {
+            Integer id = vocab.get(String.valueOf(BYTE_LEVEL_ALPHABET[b]));
+            expect(id != null, "Vocabulary has no token for byte " + b + ", not a byte-level BPE");
+            ids[b] = id;
+        }
+        return ids;
+    }
+
+    private static MergeTable mergeTable(Map<String, Integer> vocab, List<String[]> mergePairs) {
+        MergeTable table = new MergeTable(mergePairs.size());
+        for (int rank = 0; rank < mergePairs.size(); rank++) {
+            String[] pair = mergePairs.get(rank);
+            Integer left = vocab.get(pair[0]);
+            Integer right = vocab.get(pair[1]);
+            Integer merged = vocab.get(pair[0] + pair[1]);
+            expect(left != null && right != null && merged != null, "Merge " + pair[0] + " " + pair[1] + " uses unknown tokens");
+            table.put(left, right, rank, merged);
+        }
+        return table;
+    }
+
+    /**
+     * The mapping of bytes to printable characters used by byte-level BPE (as in GPT-2).
+     */
+    private static char[] byteLevelAlphabet() {
+        char[] alphabet = new char[256];
+        int shifted = 0;
+        for (int b = 0; b < 256; b++) {
+            boolean printable = (b >= '!' && b <= '~') || (b >= 0xA1 && b <= 0xAC) || (b >= 0xAE && b <= 0xFF);
+            alphabet[b] = printable ? (char) b : (char) (256 + shifted++);
+        }
+        return alphabet;
+    }
+
+    private static void addPreTokenizer(JSONObject preTokenizer, List<Pattern> patterns, List<Boolean> removes, boolean last) {
+        String type = preTokenizer.optString("type");
+        switch (type) {
+            case "Sequence" -> {
+                JSONArray steps = preTokenizer.getJSONArray("pretokenizers");
+                for (int i = 0; i < steps.length(); i++) {
+                    addPreTokenizer(steps.getJSONObject(i), patterns, removes, last && i == steps.length() - 1);
+                }
+            }
+            case "Split" -> {
+                expect(!preTokenizer.optBoolean("invert", false), "Inverted Split pre-tokenizers are not supported");
+                String behavior = preTokenizer.optString("behavior");
+                expect("Isolated".equals(behavior) || "Removed".equals(behavior), "Unsupported Split behavior " + behavior);
+                JSONObject pattern = preTokenizer.getJSONObject("pattern");
+                String regex = pattern.has("Regex") ? pattern.getString("Regex") : Pattern.quote(pattern.getString("String"));
+                patterns.add(Pattern.compile(regex, Pattern.UNICODE_CHARACTER_CLASS));
+                removes.add("Removed".equals(behavior));
+            }
+            case "ByteLevel" -> {
+                // The byte mapping itself is applied in countPiece, so it has to be the final step
+                expect(last, "A ByteLevel pre-tokenizer is only supported as the last step");
+                expect(!preTokenizer.optBoolean("add_prefix_space", false), "add_prefix_space is not supported");
+                if (preTokenizer.optBoolean("use_regex", true)) {
+                    patterns.add(Pattern.compile(BYTE_LEVEL_PATTERN, Pattern.UNICODE_CHARACTER_CLASS));
+                    removes.add(false);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unsupported pre-tokenizer " + type);
+        }
+    }
+
+    /**
+     * @return The number of special tokens the post-processor adds to a single sequence.
+     */
+    private static int templateTokenCount(JSONObject postProcessor) {
+        String type = postProcessor.optString("type");
+        switch (type) {
+            case "ByteLevel":
+                return 0;
+            case "Sequence": {
+                JSONArray processors = postProcessor.getJSONArray("processors");
+                int count = 0;
+                for (int i = 0; i < processors.length(); i++) {
+                    count += templateTokenCount(processors.getJSONObject(i));
+                }
+                return count;
+            }
+            case "TemplateProcessing": {
+                JSONArray single = postProcessor.getJSONArray("single");
+                JSONObject specialTokens = postProcessor.optJSONObject("special_tokens");
+                int count = 0;
+                for (int i = 0; i < single.length(); i++) {
+                    JSONObject piece = single.getJSONObject(i);
+                    if (piece.has("SpecialToken")) {
+                        String id = piece.getJSONObject("SpecialToken").getString("id");
+                        JSONObject specialToken = (specialTokens != null) ? specialTokens.optJSONObject(id) : null;
+                        expect(specialToken != null, "Template uses unknown special token " + id);
+                        count += specialToken.getJSONArray("ids").length();
+                    }
+                }
+                return count;
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported post-processor " + type);
+        }
+    }
+
+    private static boolean isEmptySequence(JSONObject component, String listField) {
+        return "Sequence".equals(component.optString("type")) && component.optJSONArray(listField) != null
+                && component.getJSONArray(listField).isEmpty();
+    }
+
+    private static void expect(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    // --- Data structures ---
+
+    /**
+     * Open-addressing hash table from a packed (left, right) id pair to the packed (rank, merged id).
+     */
+    private static final class MergeTable {
+        private static final long EMPTY = -1L;
+
+        private final long[] keys;
+        private final long[] values;
+        private final int mask;
+
+        private MergeTable(int size) {
+            // At most half full, so that probe sequences stay short
+            int capacity = Integer.highestOneBit(Math.max(2, size * 2 - 1)) << 1;
+            this.keys = new long[capacity];
+            this.values = new long[capacity];
+            this.mask = capacity - 1;
+            Arrays.fill(keys, EMPTY);
+        }
+
+        private static long key(int left, int right) {
+            return ((long) left << 32) | (right & 0xFFFFFFFFL);
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        /**
+         * Like the HuggingFace implementation, a later duplicate of a pair replaces the earlier one.
+         */
+        private void put(int left, int right, int rank, int mergedId) {
+            long key = key(left, right);
+            int index = hash(key) & mask;
+            while (keys[index] != EMPTY && keys[index] != key) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = ((long) rank << 32) | mergedId;
+        }
+
+        /**
+         * @return (rank &lt;&lt; 32 | merged id), or -1 if the pair is not merged.
+         */
+        private long get(int left, int right) {
+            long key = key(left, right);
+            int index = hash(key) & mask;
+            long candidate;
+            while ((candidate = keys[index]) != EMPTY) {
+                if (candidate == key) {
+                    return values[index];
+                }
+                index = (index + 1) & mask;
+            }
+            return -1L;
+        }
+    }
+
+    /**
+     * The added tokens, matched leftmost-longest. Tokens are grouped by their first character and sorted by
+     * second character and descending length, so a position is checked against few candidates.
+     */
+    private static final class AddedTokens {
+        private static final AddedTokens NONE = new AddedTokens(new char[0], new String[0][]);
+
+        private final char[] firstChars;
+        private final String[][] groups;
+
+        private AddedTokens(char[] firstChars, String[][] groups) {
+            this.firstChars = firstChars;
+            this.groups = groups;
+        }
+
+        private static AddedTokens of(JSONArray addedTokens) {
+            if (addedTokens == null || addedTokens.isEmpty()) {
+                return NONE;
+            }
+            Map<Character, List<String>> byFirstChar = new HashMap<>();
+            for (int i = 0; i < addedTokens.length(); i++) {
+                JSONObject token = addedTokens.getJSONObject(i);
+                expect(!token.optBoolean("lstrip") && !token.optBoolean("rstrip") && !token.optBoolean("single_word"),
+                        "Added tokens with lstrip, rstrip or single_word are not supported");
+                String content = token.getString("content");
+                if (!content.isEmpty()) {
+                    byFirstChar.computeIfAbsent(content.charAt(0), c -> new ArrayList<>()).add(content);
+                }
+            }
+            char[] firstChars = new char[byFirstChar.size()];
+            int i = 0;
+            for (Character c : byFirstChar.keySet()) {
+                firstChars[i++] = c;
+            }
+            Arrays.sort(firstChars);
+            String[][] groups = new String[firstChars.length][];
+            Comparator<String> order = Comparator.comparingInt(AddedTokens::secondChar)
+                    .thenComparing(Comparator.comparingInt(String::length).reversed());
+            for (i = 0; i < firstChars.length; i++) {
+                List<String> group = byFirstChar.get(firstChars[i]);
+                group.sort(order);
+                groups[i] = group.toArray(new String[0]);
+            }
+            return new AddedTokens(firstChars, groups);
+        }
+
+        private static int secondChar(String token) {
+            return (token.length() > 1) ? token.charAt(1) : -1;
+        }
+
+        /**
+         * @return The length of the longest added token starting at the position, or 0.
+         */
+        private int matchAt(String text, int position) {
+            int groupIndex = Arrays.binarySearch(firstChars, text.charAt(position));
+            if (groupIndex < 0) {
+                return 0;
+            }
+            String[] group = groups[groupIndex];
+            int second = (position + 1 < text.length()) ? text.charAt(position + 1) : -1;
+            // First candidate with the same second character
+            int low = 0;
+            int high = group.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (secondChar(group[mid]) < second) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (int i = low; i < group.length && secondChar(group[i]) == second; i++) {
+                if (text.startsWith(group[i], position)) {
+                    return group[i].length();
+                }
+            }
+            // A single-character token sorts first (second character -1)
+            return (group[0].length() == 1) ? 1 : 0;
+        }
+    }
+
+    /**
+     * Per-thread buffers. They only grow, so counting allocates nothing once they fit the longest piece.
+     */
+    private static final class Scratch {
+        private final Matcher[] matchers;
+        private int[] ranges = new int[64];
+        private int[] nextRanges = new int[64];
+        private int[] symbols = new int[64];
+        private int[] prev = new int[64];
+        private int[] next = new int[64];
+        private long[] heap = new long[192];
+        private int heapSize;
+
+        private Scratch(Pattern[] patterns) {
+            matchers = new Matcher[patterns.length];
+            for (int i = 0; i < patterns.length; i++) {
+                matchers[i] = patterns[i].matcher("");
+            }
+        }
+
+        /**
+         * Splits every current range with the pattern; matches become ranges of their own (or are dropped),
+         * and so do the gaps between them.
+         */
+        private int split(int patternIndex, String text, int rangeCount, boolean removeMatches) {
+            Matcher matcher = matchers[patternIndex].reset(text);
+            int out = 0;
+            for (int r = 0; r < rangeCount; r++) {
+                int start = ranges[2 * r];
+                int end = ranges[2 * r + 1];
+                // Default (opaque, anchoring) bounds: the range is matched like a separate string
+                matcher.region(start, end);
+                int last = start;
+                while (matcher.find()) {
+                    int matchStart = matcher.start();
+                    int matchEnd = matcher.end();
+                    if (matchStart == matchEnd) {
+                        continue;
+                    }
+                    if (matchStart > last) {
+                        out = addRange(out, last, matchStart);
+                    }
+                    if (!removeMatches) {
+                        out = addRange(out, matchStart, matchEnd);
+                    }
+                    last = matchEnd;
+                }
+                if (last < end) {
+                    out = addRange(out, last, end);
+                }
+            }
+            int[] swap = ranges;
+            ranges = nextRanges;
+            nextRanges = swap;
+            return out;
+        }
+
+        private int addRange(int count, int start, int end) {
+            if (2 * count + 2 > nextRanges.length) {
+                nextRanges = Arrays.copyOf(nextRanges, nextRanges.length * 2);
+            }
+            nextRanges[2 * count] = start;
+            nextRanges[2 * count + 1] = end;
+            return count + 1;
+        }
+
+        /**
+         * Writes the token ids of the UTF-8 bytes of text[start, end) to {@link #symbols}.
+         * Lone surrogates are encoded as '?', like {@link String#getBytes}.
+         */
+        private int encodeUtf8(String text, int start, int end, int[] byteIds) {
+            ensureCapacity(4 * (end - start));
+            int[] out = symbols;
+            int n = 0;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    out[n++] = byteIds[c];
+                } else if (c < 0x800) {
+                    out[n++] = byteIds[0xC0 | (c >> 6)];
+                    out[n++] = byteIds[0x80 | (c & 0x3F)];
+                } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, text.charAt(++i));
+                    out[n++] = byteIds[0xF0 | (cp >> 18)];
+                    out[n++] = byteIds[0x80 | ((cp >> 12) & 0x3F)];
+                    out[n++] = byteIds[0x80 | ((cp >> 6) & 0x3F)];
+                    out[n++] = byteIds[0x80 | (cp & 0x3F)];
+                } else if (Character.isSurrogate(c)) {
+                    out[n++] = byteIds['?'];
+                } else {
+                    out[n++] = byteIds[0xE0 | (c >> 12)];
+                    out[n++] = byteIds[0x80 | ((c >> 6) & 0x3F)];
+                    out[n++] = byteIds[0x80 | (c & 0x3F)];
+                }
+            }
+            return n;
+        }
+
+        private void ensureCapacity(int n) {
+            if (symbols.length < n) {
+                int capacity = Math.max(n, symbols.length * 2);
+                symbols = new int[capacity];
+                prev = new int[capacity];
+                next = new int[capacity];
+                heap = new long[3 * capacity];
+            }
+        }
+
+        private void push(long entry) {
+            long[] h = heap;
+            int i = heapSize++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (h[parent] <= entry) {
+                    break;
+                }
+                h[i] = h[parent];
+                i = parent;
+            }
+            h[i] = entry;
+        }
+
+        private long pop() {
+            long[] h = heap;
+            long top = h[0];
+            long last = h[--heapSize];
+            int i = 0;
+            int half = heapSize >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < heapSize && h[child + 1] < h[child]) {
+                    child++;
+                }
+                if (last <= h[child]) {
+                    break;
+                }
+                h[i] = h[child];
+                i = child;
+            }
+            h[i] = last;
+            return top;
+        }
+    }
+}
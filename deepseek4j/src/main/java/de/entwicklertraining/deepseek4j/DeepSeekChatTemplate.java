@@ -0,0 +1,195 @@
+package de.entwicklertraining.deepseek4j;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Renders chat messages into the prompt text the model sees, following the chat template of
+ * {@code tokenizer_config.json} (DeepSeek V3.1): system prompt, role markers, tool calls and tool outputs with
+ * their special tokens, and the generation prompt. Tool definitions are rendered into the system prompt in
+ * the format DeepSeek documents for tool calling.
+ * <p>
+ * Used for counting prompt tokens, so the result only has to match the server's prompt token for token.
+ */
+final class DeepSeekChatTemplate {
+
+    static final String BOS = "<｜begin▁of▁sentence｜>";
+    static final String EOS = "<｜end▁of▁sentence｜>";
+    private static final String USER = "<｜User｜>";
+    private static final String ASSISTANT = "<｜Assistant｜>";
+    private static final String THINK = "<think>";
+    private static final String END_THINK = "</think>";
+    private static final String TOOL_CALLS_BEGIN = "<｜tool▁calls▁begin｜>";
+    private static final String TOOL_CALLS_END = "<｜tool▁calls▁end｜>";
+    private static final String TOOL_CALL_BEGIN = "<｜tool▁call▁begin｜>";
+    private static final String TOOL_CALL_END = "<｜tool▁call▁end｜>";
+    private static final String TOOL_SEP = "<｜tool▁sep｜>";
+    private static final String TOOL_OUTPUT_BEGIN = "<｜tool▁output▁begin｜>";
+    private static final String TOOL_OUTPUT_END = "<｜tool▁output▁end｜>";
+
+    private static final String TOOLS_HEADER = "## Tools\nYou have access to the following tools:\n";
+    private static final String TOOLS_FOOTER = "\nIMPORTANT: ALWAYS adhere to this exact format for tool use:\n"
+            + TOOL_CALLS_BEGIN + TOOL_CALL_BEGIN + "tool_call_name" + TOOL_SEP + "tool_call_arguments" + TOOL_CALL_END
+            + "{{additional_tool_calls}}" + TOOL_CALLS_END + "\n\n"
+            + "Where:\n\n"
+            + "- `tool_call_name` must be an exact match to one of the available tools\n"
+            + "- `tool_call_arguments` must be valid JSON that strictly follows the tool's Parameters Schema\n"
+            + "- For multiple tool calls, chain them directly without separators or spaces\n";
+
+    private DeepSeekChatTemplate() {
+    }
+
+    /**
+     * @return The start of the prompt: the BOS token and the system prompt (system messages and tool definitions).
+     */
+    static String systemPrompt(List<String> systemContents, List<DeepSeekToolDefinition> tools) {
+        // All system messages form one system prompt in front of the conversation
+        String systemPrompt = systemContents.isEmpty() ? null : String.join("\n\n", systemContents);
+        String toolsPrompt = toolsPrompt(tools);
+        if (toolsPrompt != null) {
+            systemPrompt = (systemPrompt == null) ? toolsPrompt : systemPrompt + "\n\n" + toolsPrompt;
+        }
+        return (systemPrompt != null) ? BOS + systemPrompt : BOS;
+    }
+
+    /**
+     * Renders the non-system messages one after another. How a message is rendered depends on the messages
+     * before it, so the renderer keeps the state of the template.
+     * <p>
+     * Every fragment starts or ends next to a special token, so the tokens of the whole prompt are the sum of
+     * the tokens of its fragments.
+     */
+    static final class MessageRenderer {
+        private final boolean thinking;
+        private boolean isLastUser;
+        private boolean isTool;
+
+        MessageRenderer(String model) {
+            this.thinking = "deepseek-reasoner".equals(model);
+        }
+
+        /**
+         * @return The fragment of the message; empty for system messages, which belong to the system prompt.
+         */
+        String render(JSONObject message) {
+            StringBuilder prompt = new StringBuilder();
+            switch (message.optString("role")) {
+                case "user" -> {
+                    isTool = false;
+                    isLastUser = true;
+                    prompt.append(USER).append(content(message));
+                }
+                case "assistant" -> {
+                    JSONArray toolCalls = message.optJSONArray("tool_calls");
+                    if (toolCalls != null) {
+                        if (isLastUser) {
+                            prompt.append(ASSISTANT).append(END_THINK);
+                        }
+                        isTool = false;
+                        for (int i = 0; i < toolCalls.length(); i++) {
+                            JSONObject function = toolCalls.getJSONObject(i).optJSONObject("function");
+                            if (i == 0) {
+                                if (!message.isNull("content")) {
+                                    prompt.append(content(message));
+                                }
+                                prompt.append(TOOL_CALLS_BEGIN);
+                            }
+                            prompt.append(TOOL_CALL_BEGIN)
+                                    .append(function != null ? function.optString("name") : "")
+                                    .append(TOOL_SEP)
+                                    .append(function != null ? function.optString("arguments") : "")
+                                    .append(TOOL_CALL_END);
+                        }
+                        prompt.append(TOOL_CALLS_END).append(EOS);
+                    } else {
+                        if (isLastUser) {
+                            boolean prefix = message.optBoolean("prefix", false);
+                            prompt.append(ASSISTANT).append(prefix && thinking ? THINK : END_THINK);
+                        }
+                        String content = content(message);
+                        if (!isTool) {
+                            // Reasoning of earlier turns is not part of the prompt
+                            int endThink = content.indexOf(END_THINK);
+                            if (endThink >= 0) {
+                                content = content.substring(endThink + END_THINK.length());
+                            }
+                        }
+                        isTool = false;
+                        prompt.append(content).append(EOS);
+                    }
+                    isLastUser = false;
+                }
+                case "tool" -> {
+                    isLastUser = false;
+                    isTool = true;
+                    prompt.append(TOOL_OUTPUT_BEGIN).append(content(message)).append(TOOL_OUTPUT_END);
+                }
+                default -> {
+                    // system messages are part of the system prompt
+                }
+            }
+            return prompt.toString();
+        }
+
+        /**
+         * @return The generation prompt after the current messages (empty after tool outputs).
+         */
+        String generationPrompt() {
+            return (isLastUser && !isTool) ? ASSISTANT + (thinking ? THINK : END_THINK) : "";
+        }
+    }
+
+    static String content(JSONObject message) {
+        return message.isNull("content") ? "" : message.optString("content");
+    }
+
+    private static String toolsPrompt(List<DeepSeekToolDefinition> tools) {
+        if (tools == null || tools.isEmpty()) {
+            return null;
+        }
+        StringBuilder prompt = new StringBuilder(TOOLS_HEADER);
+        for (DeepSeekToolDefinition tool : tools) {
+            JSONObject function = tool.toJson().getJSONObject("function");
+            prompt.append("\n### ").append(function.optString("name"))
+                    .append("\nDescription: ").append(function.optString("description", ""))
+                    .append("\n\nParameters: ");
+            appendJson(prompt, function.opt("parameters"));
+            prompt.append('\n');
+        }
+        return prompt.append(TOOLS_FOOTER).toString();
+    }
+
+    /**
+     * Writes JSON like Python's json.dumps with ensure_ascii=False (", " and ": " separators). Keys are sorted,
+     * as in the serialized request body.
+     */
+    private static void appendJson(StringBuilder out, Object value) {
+        if (value instanceof JSONObject object) {
+            String[] keys = object.keySet().toArray(new String[0]);
+            Arrays.sort(keys);
+            out.append('{');
+            for (int i = 0; i < keys.length; i++) {
+                if (i > 0) out.append(", ");
+                out.append(JSONObject.quote(keys[i])).append(": ");
+                appendJson(out, object.opt(keys[i]));
+            }
+            out.append('}');
+        } else if (value instanceof JSONArray array) {
+            out.append('[');
+            for (int i = 0; i < array.length(); i++) {
+                if (i > 0) out.append(", ");
+                appendJson(out, array.opt(i));
+            }
+            out.append(']');
+        } else if (value instanceof String string) {
+            out.append(JSONObject.quote(string));
+        } else if (value == null || JSONObject.NULL.equals(value)) {
+            out.append("null");
+        } else {
+            out.append(value);
+        }
+    }
+}
@@ -1,10 +1,48 @@
 package de.entwicklertraining.deepseek4j;
 
+import de.entwicklertraining.api.base.ApiCallCaptureInput;
 import de.entwicklertraining.api.base.ApiClient;
 import de.entwicklertraining.api.base.ApiClientSettings;
+import de.entwicklertraining.api.base.ApiRequest;
+import de.entwicklertraining.api.base.ApiRequestExecutionContext;
+import de.entwicklertraining.api.base.ApiResponse;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekBatchExecutor;
 import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionRequest;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekResponseCache;
+import de.entwicklertraining.deepseek4j.jfr.DeepSeekHttpAttemptEvent;
 import de.entwicklertraining.deepseek4j.models.DeepSeekModelsRequest;
+import de.entwicklertraining.deepseek4j.transport.DeepSeekTransport;
 import de.entwicklertraining.deepseek4j.user.balance.DeepSeekUserBalanceRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * DeepSeekClient handles HTTP requests to the DeepSeek Chat Completion API,
@@ -19,11 +57,57 @@ import de.entwicklertraining.deepseek4j.user.balance.DeepSeekUserBalanceRequest;
  *  - 500 -> throw HTTP_500_ServerErrorException
  *  - 503 -> attempt exponential backoff; if still not resolved after max tries -> throw HTTP_503_ServerUnavailableException
  *  - else -> throw ApiClientException
+ * <p>
+ * All requests can also be sent asynchronously ({@link #sendRequestAsync(ApiRequest)}), in which case no thread
+ * is blocked while waiting for the server and backoff delays are scheduled instead of slept.
+ * <p>
+ * Besides the regular request/response cycle, the client can execute streaming requests
+ * (Server-Sent Events). The same error behavior applies to them, as long as the error is
+ * reported before the first event has been received.
+ * <p>
+ * The before-send action of the {@link ApiClientSettings} runs once per logical request, before its first
+ * attempt, on the blocking, asynchronous and streaming paths alike; retries after 429 or 503 do not run it again.
+ * <p>
+ * An optional {@link DeepSeekRateLimiter} ({@link #setRateLimiter(DeepSeekRateLimiter)}) throttles all
+ * requests of the client on the client side, before DeepSeek has to answer with 429 or 503.
+ * <p>
+ * An optional {@link DeepSeekMetricsListener} ({@link #setMetricsListener(DeepSeekMetricsListener)}) receives
+ * the phases (queue wait, serialization, time to first byte, transfer, parsing) of every HTTP attempt.
+ * Every attempt is also recorded as a {@link DeepSeekHttpAttemptEvent} if a Java Flight Recorder recording
+ * enables it.
+ * <p>
+ * The HTTP exchanges go through a {@link DeepSeekTransport} ({@link #setTransport(DeepSeekTransport)}), by default
+ * the JDK {@link java.net.http.HttpClient} of the client. {@link #warmUp()} opens its connections and compiles the
+ * request and response paths at startup.
  */
 public final class DeepSeekClient extends ApiClient {
 
     private static DeepSeekClient instance;
 
+    private static final Logger logger = LoggerFactory.getLogger(DeepSeekClient.class);
+
+    /**
+     * The retry state of the blocking request on this thread. It is set on the thread that runs the retry loop
+     * (and sleeps) as well as on the thread that runs each attempt, see {@link #executeWithRetry(Supplier, ApiRequest)}.
+     */
+    private static final ThreadLocal<RetryState> RETRY_STATE = new ThreadLocal<>();
+
+    private final Map<Integer, StatusCodeMapping> statusCodeMappings = new HashMap<>();
+
+    private volatile DeepSeekRateLimiter rateLimiter;
+
+    private final DeepSeekPromptCacheStats promptCacheStats = new DeepSeekPromptCacheStats();
+
+    private volatile DeepSeekTokenCalibrator tokenCalibrator;
+
+    private volatile DeepSeekResponseCache responseCache;
+
+    private volatile DeepSeekMetricsListener metricsListener;
+
+    private final DeepSeekTransport defaultTransport;
+
+    private volatile DeepSeekTransport transport;
+
     public DeepSeekClient() {
         this(ApiClientSettings.builder().build(), "https://api.deepseek.com");
     }
@@ -37,18 +121,928 @@ public final class DeepSeekClient extends ApiClient {
 
         setBaseUrl(customBaseUrl);
 
+        this.defaultTransport = DeepSeekTransport.of(httpClient);
+        this.transport = defaultTransport;
+
         // if no API key is provided, try to read it from the environment variable
         if(settings.getBearerAuthenticationKey().isEmpty() && System.getenv("DEEPSEEK_API_KEY")!=null) {
             this.settings = this.settings.toBuilder().setBearerAuthenticationKey(System.getenv("DEEPSEEK_API_KEY")).build();
         }
 
-        registerStatusCodeException(400, HTTP_400_RequestRejectedException.class, "Invalid format (HTTP 400):", false);
-        registerStatusCodeException(401, HTTP_401_AuthorizationException.class, "Authentication failed (HTTP 401):", false);
-        registerStatusCodeException(402, HTTP_402_PaymentRequiredException.class, "Insufficient balance (HTTP 402):", false);
-        registerStatusCodeException(422, HTTP_422_UnprocessableEntityException.class, "Invalid parameters (HTTP 422):", false);
-        registerStatusCodeException(429, HTTP_429_RateLimitOrQuotaException.class, "Rate limit or quota exceeded (HTTP 429):", true);
-        registerStatusCodeException(500, HTTP_500_ServerErrorException.class, "Server encountered an issue (HTTP 500):", false);
-        registerStatusCodeException(503, HTTP_503_ServerUnavailableException.class, "Server overloaded (HTTP 503):", true);
+        registerStatusCode(400, HTTP_400_RequestRejectedException.class, "Invalid format (HTTP 400):", false);
+        registerStatusCode(401, HTTP_401_AuthorizationException.class, "Authentication failed (HTTP 401):", false);
+        registerStatusCode(402, HTTP_402_PaymentRequiredException.class, "Insufficient balance (HTTP 402):", false);
+        registerStatusCode(422, HTTP_422_UnprocessableEntityException.class, "Invalid parameters (HTTP 422):", false);
+        registerStatusCode(429, HTTP_429_RateLimitOrQuotaException.class, "Rate limit or quota exceeded (HTTP 429):", true);
+        registerStatusCode(500, HTTP_500_ServerErrorException.class, "Server encountered an issue (HTTP 500):", false);
+        registerStatusCode(503, HTTP_503_ServerUnavailableException.class, "Server overloaded (HTTP 503):", true);
+    }
+
+    private void registerStatusCode(int statusCode, Class<? extends RuntimeException> exceptionClass, String message, boolean retry) {
+        registerStatusCodeException(statusCode, exceptionClass, message, retry);
+        statusCodeMappings.put(statusCode, new StatusCodeMapping(exceptionClass, message, retry));
+    }
+
+    /**
+     * Sets the rate limiter that every HTTP attempt of this client has to pass (including retries and
+     * streaming requests). A limiter may be shared by several clients. null disables rate limiting.
+     */
+    public void setRateLimiter(DeepSeekRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public DeepSeekRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Sets the local cache for the responses of deterministic chat completions (temperature 0).
+     * null (default) disables the cache.
+     */
+    public void setResponseCache(DeepSeekResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    public DeepSeekResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Sets the listener that receives the timings of every HTTP attempt, tool call and the token usage of this
+     * client, e.g. a {@link DeepSeekMetrics}. null (default) disables the reporting.
+     */
+    public void setMetricsListener(DeepSeekMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    public DeepSeekMetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * Sets the transport that carries the HTTP exchanges of this client, e.g. a
+     * {@link de.entwicklertraining.deepseek4j.transport.DeepSeekHttpClientTransport} with several HTTP/2
+     * connections, or a {@link de.entwicklertraining.deepseek4j.transport.DeepSeekInProcessTransport} in tests.
+     * A transport may be shared by several clients and is not closed by the client. null restores the default.
+     */
+    public void setTransport(DeepSeekTransport transport) {
+        this.transport = (transport != null) ? transport : defaultTransport;
+    }
+
+    public DeepSeekTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Warms up the client with the default {@link DeepSeekWarmUp} options before real traffic arrives: opens the
+     * connections of its transport and runs the request and response paths against canned responses.
+     * Blocks until the warm-up is done.
+     */
+    public DeepSeekWarmUp.Result warmUp() {
+        return warmUp(DeepSeekWarmUp.builder().build());
+    }
+
+    public DeepSeekWarmUp.Result warmUp(DeepSeekWarmUp warmUp) {
+        return warmUp.run(this, getBaseUrl());
+    }
+
+    /**
+     * Closes the JDK HttpClient of the default transport, for clients that only live for one task (e.g. the
+     * scratch client of a warm-up). Its selector thread would otherwise stay alive until the client is collected.
+     */
+    void closeHttpClient() {
+        httpClient.close();
+    }
+
+    /**
+     * The prompt cache statistics of all chat completions sent by this client.
+     */
+    public DeepSeekPromptCacheStats getPromptCacheStats() {
+        return promptCacheStats;
+    }
+
+    /**
+     * Sets the calibrator that records the reported prompt tokens of every chat completion of this client. Recording
+     * renders the prompt of each request once more, so it is off by default; null disables it.
+     */
+    public void setTokenCalibrator(DeepSeekTokenCalibrator tokenCalibrator) {
+        this.tokenCalibrator = tokenCalibrator;
+    }
+
+    /**
+     * Prompt token estimates calibrated with the usage of all chat completions sent by this client, or null
+     * (default) if no calibrator is set.
+     */
+    public DeepSeekTokenCalibrator getTokenCalibrator() {
+        return tokenCalibrator;
+    }
+
+    /**
+     * Called for every attempt of {@link #sendRequest(ApiRequest)} and {@link #sendRequestWithExponentialBackoff(ApiRequest)}.
+     */
+    @Override
+    protected <T extends ApiRequest<U>, U extends ApiResponse<T>> U runRequest(T request, ApiRequestExecutionContext<T, U> context) {
+        AttemptTimer timer = newAttemptTimer(request, false);
+        try {
+            U response = withPermit(request, timer, () -> send(request, context, timer));
+            finishAttempt(timer, null);
+            return response;
+        } catch (RuntimeException e) {
+            finishAttempt(timer, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Numbers the attempts of the inherited retry loop and notes its backoff delays, so that each attempt can report
+     * them. The loop sleeps on the calling thread but runs the attempts on other threads, so the state is passed to both.
+     */
+    @Override
+    protected <U extends ApiResponse<?>> U executeWithRetry(Supplier<U> attempt, ApiRequest<?> request) {
+        RetryState retryState = new RetryState();
+        RetryState outer = RETRY_STATE.get();
+        RETRY_STATE.set(retryState);
+        try {
+            return super.executeWithRetry(() -> {
+                RetryState previous = RETRY_STATE.get();
+                RETRY_STATE.set(retryState);
+                try {
+                    return attempt.get();
+                } finally {
+                    RETRY_STATE.set(previous);
+                }
+            }, request);
+        } finally {
+            RETRY_STATE.set(outer);
+        }
+    }
+
+    @Override
+    protected void applySleep(long sleepMs, long remainingMs) {
+        RetryState retryState = RETRY_STATE.get();
+        if (retryState != null) {
+            retryState.backoffMs = sleepMs;
+        }
+        super.applySleep(sleepMs, remainingMs);
+    }
+
+    private static AttemptTimer newAttemptTimer(ApiRequest<?> request, boolean streaming) {
+        RetryState retryState = RETRY_STATE.get();
+        if (retryState == null) {
+            return new AttemptTimer(request, streaming, 1, 0);
+        }
+        return new AttemptTimer(request, streaming, retryState.attempts.incrementAndGet(), retryState.backoffMs);
+    }
+
+    private static final class RetryState {
+        private final AtomicInteger attempts = new AtomicInteger();
+        private volatile long backoffMs;
+    }
+
+    private <R> R withPermit(ApiRequest<?> request, AttemptTimer timer, Supplier<R> attempt) {
+        DeepSeekRateLimiter limiter = rateLimiter;
+        if (limiter == null) {
+            return attempt.get();
+        }
+        long waitStart = System.nanoTime();
+        DeepSeekRateLimiter.Permit permit = limiter.acquire(request);
+        timer.queueWaitNanos = System.nanoTime() - waitStart;
+        try {
+            R result = attempt.get();
+            permit.release(DeepSeekRateLimiter.Outcome.SUCCESS);
+            return result;
+        } catch (RuntimeException e) {
+            permit.release(rateLimiterOutcome(e));
+            throw e;
+        }
+    }
+
+    private DeepSeekRateLimiter.Outcome rateLimiterOutcome(Throwable error) {
+        if (error == null) {
+            return DeepSeekRateLimiter.Outcome.SUCCESS;
+        }
+        return isRetryable(unwrap(error)) ? DeepSeekRateLimiter.Outcome.THROTTLED : DeepSeekRateLimiter.Outcome.FAILED;
+    }
+
+    /**
+     * Sends the request without blocking the calling thread. The returned future completes with the
+     * response, or exceptionally with the same exceptions {@link #sendRequest(ApiRequest)} would throw.
+     */
+    public <T extends ApiRequest<U>, U extends ApiResponse<T>> CompletableFuture<U> sendRequestAsync(T request) {
+        try {
+            applyBeforeSendAction(request);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Instant startTime = Instant.now();
+        ApiRequestExecutionContext<T, U> context = new ApiRequestExecutionContext<>();
+        return withCapture(request, context, startTime, withMaxExecutionTime(request, exchangeAsync(request, context, 1, 0)));
+    }
+
+    /**
+     * Non-blocking variant of {@link #sendRequestWithExponentialBackoff(ApiRequest)}. Retries on
+     * retryable status codes (429, 503) are scheduled with a delay instead of sleeping on a thread.
+     */
+    public <T extends ApiRequest<U>, U extends ApiResponse<T>> CompletableFuture<U> sendRequestWithExponentialBackoffAsync(T request) {
+        try {
+            applyBeforeSendAction(request);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Instant startTime = Instant.now();
+        ApiRequestExecutionContext<T, U> context = new ApiRequestExecutionContext<>();
+        long maxExecutionTimeMs = request.getMaxExecutionTimeInSeconds() * 1000L;
+        long deadlineMs = maxExecutionTimeMs > 0 ? System.currentTimeMillis() + maxExecutionTimeMs : Long.MAX_VALUE;
+        AtomicReference<CompletableFuture<U>> currentAttempt = new AtomicReference<>();
+        CompletableFuture<U> result = retryAsync(request, context, 1, 0, settings.getInitialDelayMs(), deadlineMs, currentAttempt);
+        // Canceling the request cancels its running attempt (and so releases or withdraws its rate limiter permit)
+        result.whenComplete((response, error) -> {
+            if (error instanceof CancellationException) {
+                currentAttempt.get().cancel(true);
+            }
+        });
+        return withCapture(request, context, startTime, withMaxExecutionTime(request, result));
+    }
+
+    private <T extends ApiRequest<U>, U extends ApiResponse<T>> CompletableFuture<U> retryAsync(T request, ApiRequestExecutionContext<T, U> context, int attempt, long backoffMs, long sleepMs, long deadlineMs,
+                                                                                             AtomicReference<CompletableFuture<U>> currentAttempt) {
+        CompletableFuture<U> exchange = exchangeAsync(request, context, attempt, backoffMs);
+        currentAttempt.set(exchange);
+        return exchange.handle((response, error) -> {
+            if (error == null) {
+                return CompletableFuture.completedFuture(response);
+            }
+            Throwable cause = unwrap(error);
+            if (!isRetryable(cause)) {
+                return CompletableFuture.<U>failedFuture(cause);
+            }
+            if (attempt >= settings.getMaxRetries()) {
+                return CompletableFuture.<U>failedFuture(createRetriesExhaustedException("Retriable error: " + cause.getMessage(), cause));
+            }
+            if (System.currentTimeMillis() + sleepMs >= deadlineMs) {
+                return CompletableFuture.<U>failedFuture(new ApiTimeoutException("Maximum execution time of " + request.getMaxExecutionTimeInSeconds() + "s reached!", cause));
+            }
+            Executor delayed = CompletableFuture.delayedExecutor(sleepMs, TimeUnit.MILLISECONDS);
+            return CompletableFuture.supplyAsync(() -> null, delayed)
+                    .thenCompose(ignored -> retryAsync(request, context, attempt + 1, sleepMs, calculateNextSleep(sleepMs), deadlineMs, currentAttempt));
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * Performs a single HTTP exchange without blocking and maps the status code to a response or an exception.
+     *
+     * @param attempt   The number of the attempt, starting at 1.
+     * @param backoffMs The delay before this attempt.
+     */
+    private <T extends ApiRequest<U>, U extends ApiResponse<T>> CompletableFuture<U> exchangeAsync(T request, ApiRequestExecutionContext<T, U> context, int attempt, long backoffMs) {
+        if (Boolean.TRUE.equals(request.getIsCanceledSupplier().get())) {
+            return CompletableFuture.failedFuture(new ApiTimeoutException("Request was canceled"));
+        }
+        AttemptTimer timer = new AttemptTimer(request, false, attempt, backoffMs);
+        CompletableFuture<U> result = new CompletableFuture<>();
+        result.whenComplete((response, error) -> finishAttempt(timer, error));
+        DeepSeekRateLimiter limiter = rateLimiter;
+        if (limiter == null) {
+            startExchange(request, context, timer, null, result);
+            return result;
+        }
+        long waitStart = System.nanoTime();
+        CompletableFuture<DeepSeekRateLimiter.Permit> acquired = limiter.acquireAsync(request);
+        // Canceling the attempt (or its timeout) withdraws it from the queue of the limiter
+        result.whenComplete((response, error) -> acquired.cancel(false));
+        acquired.whenComplete((permit, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            timer.queueWaitNanos = System.nanoTime() - waitStart;
+            startExchange(request, context, timer, permit, result);
+        });
+        return result;
+    }
+
+    /**
+     * Starts the HTTP exchange of an attempt and completes the result with it. The permit (if any) is released
+     * when the exchange has finished, could not be started, or the attempt was canceled while waiting for it.
+     */
+    private <T extends ApiRequest<U>, U extends ApiResponse<T>> void startExchange(T request, ApiRequestExecutionContext<T, U> context, AttemptTimer timer,
+                                                                                  DeepSeekRateLimiter.Permit permit, CompletableFuture<U> result) {
+        if (result.isDone()) {
+            release(permit, DeepSeekRateLimiter.Outcome.FAILED);
+            return;
+        }
+        CompletableFuture<U> exchange;
+        try {
+            exchange = sendAsync(request, context, timer);
+        } catch (RuntimeException e) {
+            release(permit, DeepSeekRateLimiter.Outcome.FAILED);
+            result.completeExceptionally(e);
+            return;
+        }
+        exchange.whenComplete((response, error) -> {
+            release(permit, rateLimiterOutcome(error));
+            if (error == null) {
+                result.complete(response);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+        result.whenComplete((response, error) -> {
+            if (error != null) {
+                exchange.cancel(true);
+            }
+        });
+    }
+
+    private static void release(DeepSeekRateLimiter.Permit permit, DeepSeekRateLimiter.Outcome outcome) {
+        if (permit != null) {
+            permit.release(outcome);
+        }
+    }
+
+    private <T extends ApiRequest<U>, U extends ApiResponse<T>> CompletableFuture<U> sendAsync(T request, ApiRequestExecutionContext<T, U> context, AttemptTimer timer) {
+        HttpRequest httpRequest = buildHttpRequest(request, "application/json", timer);
+        timer.sentNanos = System.nanoTime();
+        return transport.sendAsync(httpRequest, timer.bodyHandler())
+                .handle((httpResponse, error) -> {
+                    if (error != null) {
+                        Throwable cause = unwrap(error);
+                        throw new ApiClientException("Request failed: " + cause.getMessage(), cause);
+                    }
+                    return toResponse(request, context, httpResponse, timer);
+                });
+    }
+
+    /**
+     * Blocking variant of {@link #sendAsync(ApiRequest, ApiRequestExecutionContext, AttemptTimer)}: a single HTTP
+     * exchange. The before-send action has already been applied by {@link #sendRequest(ApiRequest)}. As in {@link ApiClient#runRequest(ApiRequest, ApiRequestExecutionContext)}, the exchange is aborted
+     * when the request is canceled or the attempt exceeds the maximum execution time.
+     */
+    private <T extends ApiRequest<U>, U extends ApiResponse<T>> U send(T request, ApiRequestExecutionContext<T, U> context, AttemptTimer timer) {
+        if (Boolean.TRUE.equals(request.getIsCanceledSupplier().get())) {
+            throw new ApiTimeoutException("Request was canceled");
+        }
+        CompletableFuture<U> future = sendAsync(request, context, timer);
+        watchCancellation(request, future);
+        int maxExecutionTimeInSeconds = request.getMaxExecutionTimeInSeconds();
+        try {
+            return maxExecutionTimeInSeconds > 0
+                    ? future.get(maxExecutionTimeInSeconds, TimeUnit.SECONDS)
+                    : future.get();
+        } catch (CancellationException e) {
+            throw new ApiTimeoutException("Request was canceled", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ApiClientException("Request interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new ApiClientException("Request failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ApiTimeoutException("Maximum execution time of " + maxExecutionTimeInSeconds + "s reached!", e);
+        }
+    }
+
+    /**
+     * Cancels the future as soon as the cancel supplier of the request returns true. The supplier is polled every
+     * 100 ms on the scheduler of {@link CompletableFuture#delayedExecutor}, so no thread is held while waiting.
+     */
+    private static void watchCancellation(ApiRequest<?> request, CompletableFuture<?> future) {
+        if (future.isDone()) {
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getIsCanceledSupplier().get())) {
+            future.cancel(true);
+            return;
+        }
+        CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS).execute(() -> watchCancellation(request, future));
+    }
+
+    /**
+     * Maps the status code of a received response to the response object or an exception.
+     */
+    private <T extends ApiRequest<U>, U extends ApiResponse<T>> U toResponse(T request, ApiRequestExecutionContext<T, U> context, HttpResponse<byte[]> httpResponse, AttemptTimer timer) {
+        timer.bodyReceived(httpResponse.body().length);
+        String body = new String(httpResponse.body(), StandardCharsets.UTF_8);
+        context.setResponseBody(body);
+        int statusCode = httpResponse.statusCode();
+        if (statusCode < 200 || statusCode >= 300) {
+            throw createStatusCodeException(statusCode, body);
+        }
+        long parseStart = System.nanoTime();
+        U response = request.createResponse(body);
+        timer.parsingNanos = System.nanoTime() - parseStart;
+        return response;
+    }
+
+    private <U> CompletableFuture<U> withMaxExecutionTime(ApiRequest<?> request, CompletableFuture<U> future) {
+        int maxExecutionTimeInSeconds = request.getMaxExecutionTimeInSeconds();
+        if (maxExecutionTimeInSeconds <= 0) {
+            return future;
+        }
+        CompletableFuture<U> result = new CompletableFuture<>();
+        future.whenComplete((response, error) -> {
+            if (error == null) {
+                result.complete(response);
+            } else {
+                result.completeExceptionally(unwrap(error));
+            }
+        });
+        cancelWith(result, future);
+        CompletableFuture.delayedExecutor(maxExecutionTimeInSeconds, TimeUnit.SECONDS).execute(() -> {
+            if (result.completeExceptionally(new ApiTimeoutException("Maximum execution timeout of " + maxExecutionTimeInSeconds + " seconds has been reached!"))) {
+                future.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private <T extends ApiRequest<U>, U extends ApiResponse<T>> CompletableFuture<U> withCapture(T request, ApiRequestExecutionContext<T, U> context, Instant startTime, CompletableFuture<U> future) {
+        if (!request.hasCaptureOnSuccess() && !request.hasCaptureOnError()) {
+            return future;
+        }
+        return cancelWith(future.whenComplete((response, error) -> {
+            Instant endTime = Instant.now();
+            if (error == null && request.hasCaptureOnSuccess()) {
+                request.getCaptureOnSuccess().accept(new ApiCallCaptureInput(startTime, endTime, true,
+                        null, null, null, request.getBody(), context.getResponseBody()));
+            } else if (error != null && request.hasCaptureOnError()) {
+                Throwable cause = unwrap(error);
+                StringWriter stackTrace = new StringWriter();
+                cause.printStackTrace(new PrintWriter(stackTrace));
+                request.getCaptureOnError().accept(new ApiCallCaptureInput(startTime, endTime, false,
+                        cause.getClass().getName(), cause.getMessage(), stackTrace.toString(), request.getBody(), context.getResponseBody()));
+            }
+        }), future);
+    }
+
+    /**
+     * Cancels the source future when the dependent future is canceled by the caller.
+     */
+    private static <U> CompletableFuture<U> cancelWith(CompletableFuture<U> dependent, CompletableFuture<?> source) {
+        dependent.whenComplete((response, error) -> {
+            if (error instanceof CancellationException) {
+                source.cancel(true);
+            }
+        });
+        return dependent;
+    }
+
+    private boolean isRetryable(Throwable throwable) {
+        for (StatusCodeMapping mapping : statusCodeMappings.values()) {
+            if (mapping.retry() && mapping.exceptionClass().isInstance(throwable)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        while ((throwable instanceof CompletionException || throwable instanceof ExecutionException) && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        return throwable;
+    }
+
+    private HttpRequest buildHttpRequest(ApiRequest<?> request, String accept, AttemptTimer timer) {
+        HttpRequest.Builder httpRequestBuilder = HttpRequest.newBuilder()
+                .uri(URI.create(getBaseUrl() + request.getRelativeUrl()))
+                .header("Content-Type", request.getContentType())
+                .header("Accept", accept);
+        settings.getBearerAuthenticationKey().ifPresent(key -> httpRequestBuilder.header("Authorization", "Bearer " + key));
+        request.getAdditionalHeaders().forEach(httpRequestBuilder::header);
+
+        switch (request.getHttpMethod().toUpperCase()) {
+            case "POST" -> {
+                long serializationStart = System.nanoTime();
+                byte[] body = request instanceof DeepSeekRequest<?>
+                        ? request.getBodyBytes()
+                        : request.getBody().getBytes(StandardCharsets.UTF_8);
+                timer.serializationNanos = System.nanoTime() - serializationStart;
+                timer.requestBytes = body.length;
+                httpRequestBuilder.POST(HttpRequest.BodyPublishers.ofByteArray(body));
+            }
+            case "GET" -> httpRequestBuilder.GET();
+            case "DELETE" -> httpRequestBuilder.DELETE();
+            default -> throw new ApiClientException("Unsupported HTTP method: " + request.getHttpMethod());
+        }
+        return httpRequestBuilder.build();
+    }
+
+    /**
+     * Sends a streaming request and passes the payload of every Server-Sent Event ("data:" lines)
+     * to the given consumer as soon as it has been received. The terminating "[DONE]" event is not forwarded.
+     * <p>
+     * The events are read on a virtual thread and passed to the consumer there, while the calling thread waits
+     * for the end of the stream. When {@code maxExecutionTimeInSeconds} has passed or the cancel supplier of the
+     * request returns true (polled every 100 ms), the response body is closed and an {@link ApiTimeoutException}
+     * is thrown; the consumer is not called anymore after that.
+     */
+    public void sendStreamingRequest(ApiRequest<?> request, Consumer<String> eventDataConsumer) {
+        applyBeforeSendAction(request);
+        streamEvents(request, eventDataConsumer, deadlineMs(request));
+    }
+
+    /**
+     * Like {@link #sendStreamingRequest(ApiRequest, Consumer)}, but retries with exponential backoff
+     * on retryable status codes (429, 503). Retries only happen before the first event was delivered,
+     * because the server reports these errors instead of opening the stream. {@code maxExecutionTimeInSeconds}
+     * bounds all attempts and backoff delays together.
+     */
+    public void sendStreamingRequestWithExponentialBackoff(ApiRequest<?> request, Consumer<String> eventDataConsumer) {
+        applyBeforeSendAction(request);
+        long deadlineMs = deadlineMs(request);
+        RetryState retryState = new RetryState();
+        RetryState outer = RETRY_STATE.get();
+        RETRY_STATE.set(retryState);
+        try {
+            long sleepMs = settings.getInitialDelayMs();
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    streamEvents(request, eventDataConsumer, deadlineMs);
+                    return;
+                } catch (RuntimeException e) {
+                    if (!isRetryable(e)) {
+                        throw e;
+                    }
+                    if (attempt >= settings.getMaxRetries()) {
+                        throw createRetriesExhaustedException("Retriable error: " + e.getMessage(), e);
+                    }
+                    long remainingMs = deadlineMs - System.currentTimeMillis();
+                    if (sleepMs >= remainingMs) {
+                        throw createTimeoutException("Retriable error: " + e.getMessage(), request.getMaxExecutionTimeInSeconds(), e);
+                    }
+                    applySleep(sleepMs, (deadlineMs == Long.MAX_VALUE) ? 0 : remainingMs);
+                    sleepMs = calculateNextSleep(sleepMs);
+                }
+            }
+        } finally {
+            RETRY_STATE.set(outer);
+        }
+    }
+
+    /**
+     * Applies the before-send action of the settings, once per logical request like the inherited
+     * {@link #sendRequest(ApiRequest)}; retries do not apply it again.
+     */
+    private void applyBeforeSendAction(ApiRequest<?> request) {
+        if (settings.getBeforeSendAction() != null) {
+            settings.getBeforeSendAction().accept(request);
+        }
+    }
+
+    private static long deadlineMs(ApiRequest<?> request) {
+        long maxExecutionTimeMs = request.getMaxExecutionTimeInSeconds() * 1000L;
+        return maxExecutionTimeMs > 0 ? System.currentTimeMillis() + maxExecutionTimeMs : Long.MAX_VALUE;
+    }
+
+    private void streamEvents(ApiRequest<?> request, Consumer<String> eventDataConsumer, long deadlineMs) {
+        AttemptTimer timer = newAttemptTimer(request, true);
+        try {
+            // The permit is held until the stream is finished
+            withPermit(request, timer, () -> {
+                readEvents(request, eventDataConsumer, timer, deadlineMs);
+                return null;
+            });
+            finishAttempt(timer, null);
+        } catch (RuntimeException e) {
+            finishAttempt(timer, e);
+            throw e;
+        }
+    }
+
+    private void readEvents(ApiRequest<?> request, Consumer<String> eventDataConsumer, AttemptTimer timer, long deadlineMs) {
+        if (Boolean.TRUE.equals(request.getIsCanceledSupplier().get())) {
+            throw new ApiTimeoutException("Request was canceled");
+        }
+
+        HttpRequest httpRequest = buildHttpRequest(request, "text/event-stream", timer);
+        timer.sentNanos = System.nanoTime();
+        CompletableFuture<HttpResponse<InputStream>> exchange = transport.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+        HttpResponse<InputStream> httpResponse = awaitStream(request, exchange, deadlineMs, () -> {
+            // The headers may have arrived in the meantime
+            exchange.cancel(true);
+            exchange.thenAccept(response -> closeQuietly(response.body()));
+        });
+        timer.headersReceived(httpResponse.statusCode());
+
+        // The transfer ends when the stream is closed, however the reading ends
+        timer.streamBody = new CountingInputStream(httpResponse.body());
+        EventReader reader = new EventReader(httpResponse.statusCode(), timer.streamBody, eventDataConsumer);
+        reader.start();
+        awaitStream(request, reader.done, deadlineMs, reader::stop);
+    }
+
+    /**
+     * Waits on the calling thread until the future of a streaming attempt is done, the deadline has passed or
+     * the cancel supplier of the request returns true. In the latter two cases the attempt is stopped first.
+     */
+    private <R> R awaitStream(ApiRequest<?> request, CompletableFuture<R> future, long deadlineMs, Runnable stop) {
+        try {
+            while (true) {
+                long remainingMs = deadlineMs - System.currentTimeMillis();
+                if (remainingMs <= 0) {
+                    stop.run();
+                    throw new ApiTimeoutException("Maximum execution time of " + request.getMaxExecutionTimeInSeconds() + "s reached!");
+                }
+                try {
+                    return future.get(Math.min(remainingMs, 100), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (Boolean.TRUE.equals(request.getIsCanceledSupplier().get())) {
+                        stop.run();
+                        throw new ApiTimeoutException("Request was canceled", e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            stop.run();
+            Thread.currentThread().interrupt();
+            throw new ApiClientException("Request interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new ApiClientException("Request failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            logger.debug("Closing the event stream failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the events of one streaming attempt on a virtual thread, so that the calling thread stays free to
+     * enforce the deadline and the cancel supplier. {@link #stop()} waits for an event that is being delivered,
+     * then closes the body and interrupts the reader; no event is delivered after it.
+     */
+    private final class EventReader {
+        private final int statusCode;
+        private final CountingInputStream body;
+        private final Consumer<String> eventDataConsumer;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private boolean stopped;
+        private Thread thread;
+
+        private EventReader(int statusCode, CountingInputStream body, Consumer<String> eventDataConsumer) {
+            this.statusCode = statusCode;
+            this.body = body;
+            this.eventDataConsumer = eventDataConsumer;
+        }
+
+        private void start() {
+            thread = Thread.ofVirtual().name("deepseek-event-stream").start(() -> {
+                try {
+                    read();
+                    done.complete(null);
+                } catch (Throwable e) {
+                    done.completeExceptionally(e);
+                }
+            });
+        }
+
+        private void stop() {
+            lock.lock();
+            try {
+                stopped = true;
+            } finally {
+                lock.unlock();
+            }
+            thread.interrupt();
+            closeQuietly(body);
+        }
+
+        private void read() {
+            try (body) {
+                if (statusCode < 200 || statusCode >= 300) {
+                    throw createStatusCodeException(statusCode, new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                }
+
+                BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+                StringBuilder data = new StringBuilder();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        // An empty line terminates the current event
+                        if (!dispatchEvent(data)) {
+                            return;
+                        }
+                    } else if (line.startsWith("data:")) {
+                        if (!data.isEmpty()) {
+                            data.append('\n');
+                        }
+                        data.append(line.startsWith("data: ") ? line.substring(6) : line.substring(5));
+                    }
+                    // Comments (": keep-alive") and other fields (event:, id:, retry:) are not used by DeepSeek
+                }
+                dispatchEvent(data);
+            } catch (IOException e) {
+                throw new ApiClientException("Reading the event stream failed: " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Passes the collected event data on and resets the buffer.
+         * Returns false if the event marks the end of the stream or the reader was stopped.
+         */
+        private boolean dispatchEvent(StringBuilder data) {
+            if (data.isEmpty()) {
+                return true;
+            }
+            String eventData = data.toString();
+            data.setLength(0);
+            if ("[DONE]".equals(eventData)) {
+                return false;
+            }
+            lock.lock();
+            try {
+                if (stopped) {
+                    return false;
+                }
+                eventDataConsumer.accept(eventData);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private RuntimeException createStatusCodeException(int statusCode, String responseBody) {
+        StatusCodeMapping mapping = statusCodeMappings.get(statusCode);
+        if (mapping == null) {
+            return new ApiClientException("Unexpected HTTP status " + statusCode + " - " + responseBody);
+        }
+        try {
+            return mapping.exceptionClass().getConstructor(String.class).newInstance(mapping.message() + ": " + responseBody);
+        } catch (ReflectiveOperationException e) {
+            return new ApiClientException(mapping.message() + ": " + responseBody, e);
+        }
+    }
+
+    private record StatusCodeMapping(Class<? extends RuntimeException> exceptionClass, String message, boolean retry) {}
+
+    /**
+     * Reports a finished attempt to the metrics listener and the flight recorder.
+     */
+    private void finishAttempt(AttemptTimer timer, Throwable error) {
+        DeepSeekMetricsListener listener = metricsListener;
+        DeepSeekHttpAttemptEvent event = timer.event;
+        if (listener == null && event == null) {
+            return;
+        }
+        Throwable cause = (error != null) ? unwrap(error) : null;
+        boolean retryable = cause != null && isRetryable(cause);
+        timer.finish();
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = timer.request.getHttpMethod();
+                event.path = timer.request.getRelativeUrl();
+                event.streaming = timer.streaming;
+                event.attempt = timer.attempt;
+                event.backoffDelay = timer.backoffMs;
+                event.statusCode = timer.statusCode;
+                event.requestBytes = timer.requestBytes;
+                event.responseBytes = timer.responseBytes;
+                event.queueWait = timer.queueWaitNanos;
+                event.timeToFirstByte = timer.timeToFirstByteNanos();
+                event.error = (cause != null) ? cause.getClass().getName() : null;
+                event.retryable = retryable;
+                event.commit();
+            }
+        }
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.onAttempt(new DeepSeekMetricsListener.Attempt(timer.request, timer.streaming, timer.attempt,
+                    timer.backoffMs, timer.statusCode, timer.requestBytes, timer.responseBytes, timer.queueWaitNanos,
+                    timer.serializationNanos, timer.timeToFirstByteNanos(), timer.transferNanos(), timer.parsingNanos,
+                    cause, retryable));
+        } catch (RuntimeException e) {
+            logger.warn("Metrics listener failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The timestamps and sizes of one HTTP attempt. Each field is written by one phase only; the phases are
+     * ordered by the blocking calls or the future chain, so the values are visible when the attempt is finished.
+     */
+    private static final class AttemptTimer {
+        private final ApiRequest<?> request;
+        private final boolean streaming;
+        private final int attempt;
+        private final long backoffMs;
+        // Only created while a recording enables the event
+        private final DeepSeekHttpAttemptEvent event;
+        private long queueWaitNanos;
+        private long serializationNanos;
+        private long requestBytes;
+        private long sentNanos;
+        private long headersNanos;
+        private long bodyNanos;
+        private int statusCode;
+        private long responseBytes;
+        private long parsingNanos;
+        private CountingInputStream streamBody;
+
+        private AttemptTimer(ApiRequest<?> request, boolean streaming, int attempt, long backoffMs) {
+            this.request = request;
+            this.streaming = streaming;
+            this.attempt = attempt;
+            this.backoffMs = backoffMs;
+            DeepSeekHttpAttemptEvent attemptEvent = new DeepSeekHttpAttemptEvent();
+            if (attemptEvent.isEnabled()) {
+                attemptEvent.begin();
+                this.event = attemptEvent;
+            } else {
+                this.event = null;
+            }
+        }
+
+        /**
+         * Reads the whole body and notes when the headers arrived.
+         */
+        private HttpResponse.BodyHandler<byte[]> bodyHandler() {
+            return responseInfo -> {
+                headersReceived(responseInfo.statusCode());
+                return HttpResponse.BodyHandlers.ofByteArray().apply(responseInfo);
+            };
+        }
+
+        private void headersReceived(int statusCode) {
+            this.headersNanos = System.nanoTime();
+            this.statusCode = statusCode;
+        }
+
+        private void bodyReceived(long bytes) {
+            this.bodyNanos = System.nanoTime();
+            this.responseBytes = bytes;
+        }
+
+        private void finish() {
+            if (streamBody != null) {
+                bodyNanos = streamBody.closedNanos;
+                responseBytes = streamBody.count;
+            }
+        }
+
+        private long timeToFirstByteNanos() {
+            return (headersNanos > 0) ? headersNanos - sentNanos : 0;
+        }
+
+        private long transferNanos() {
+            return (headersNanos > 0 && bodyNanos > 0) ? bodyNanos - headersNanos : 0;
+        }
+    }
+
+    /**
+     * Counts the bytes of an event stream and notes when it was closed.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+        private long closedNanos;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closedNanos == 0) {
+                closedNanos = System.nanoTime();
+            }
+            super.close();
+        }
     }
 
     public DeepSeekChat chat() {
@@ -65,6 +1059,10 @@ public final class DeepSeekClient extends ApiClient {
         public DeepSeekCompletionRequest.Builder completion() {
             return DeepSeekCompletionRequest.builder(client);
         }
+
+        public DeepSeekBatchExecutor.Builder batch() {
+            return DeepSeekBatchExecutor.builder(client);
+        }
     }
 
     public DeepSeekModelsRequest.Builder models() {
@@ -0,0 +1,127 @@
+package de.entwicklertraining.deepseek4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations in nanoseconds with a fixed relative precision, in the style of an HDR histogram:
+ * every power of two is split into 32 linear sub-buckets, so a recorded value is off by at most ~3% and the
+ * whole range from 1 ns to centuries fits into 1888 counters (15 KB).
+ * <p>
+ * Recording is lock-free and does not allocate, so the histogram can stay enabled in production. Reads are not
+ * atomic snapshots: values recorded concurrently may or may not be included.
+ */
+public final class DeepSeekLatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+    // Values up to Long.MAX_VALUE (highest bit 62) have a shift of at most 62 - SUB_BUCKET_BITS
+    private static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a duration. Negative values are recorded as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return The exact mean in nanoseconds, or 0 if nothing was recorded.
+     */
+    public double getMeanNanos() {
+        long n = count.sum();
+        return n > 0 ? (double) sum.sum() / n : 0.0;
+    }
+
+    /**
+     * @return The exact maximum in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * @param quantile Between 0 and 1, e.g. 0.99 for the 99th percentile.
+     * @return The highest value that falls into the same bucket as the value at the given quantile
+     * (never more than the maximum), or 0 if nothing was recorded.
+     */
+    public long getValueAtQuantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("quantile must be between 0 and 1.");
+        }
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    public double getValueAtQuantile(double quantile, TimeUnit unit) {
+        return (double) getValueAtQuantile(quantile) / unit.toNanos(1);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.3f ms, p50=%.3f ms, p99=%.3f ms, p999=%.3f ms, max=%.3f ms",
+                getCount(), getMeanNanos() / 1e6,
+                getValueAtQuantile(0.5, TimeUnit.MILLISECONDS), getValueAtQuantile(0.99, TimeUnit.MILLISECONDS),
+                getValueAtQuantile(0.999, TimeUnit.MILLISECONDS), getMaxNanos() / 1e6);
+    }
+
+    /**
+     * Values below 32 get a bucket each. Above, the bucket is given by the position of the highest bit (the shift)
+     * and the next 5 bits (the sub-bucket); the buckets of one shift therefore cover the same relative range.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) | (int) ((value >>> shift) & SUB_BUCKET_MASK);
+    }
+
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        long lowest = (long) (SUB_BUCKET_COUNT | (bucket & SUB_BUCKET_MASK)) << shift;
+        return lowest + ((1L << shift) - 1);
+    }
+}
@@ -0,0 +1,230 @@
+package de.entwicklertraining.deepseek4j;
+
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionRequest;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionResponse;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link DeepSeekMetricsListener} that aggregates the timings of all requests into one
+ * {@link DeepSeekLatencyHistogram} per {@link Phase} and per tool, and the sizes, retries and token usage into
+ * counters. It has no dependencies and recording does not lock or allocate (except for the first call of a
+ * new tool or status code), so it can stay enabled in production:
+ * <pre>{@code
+ * DeepSeekMetrics metrics = new DeepSeekMetrics();
+ * client.setMetricsListener(metrics);
+ * // ... later
+ * System.out.println(metrics.getHistogram(DeepSeekMetrics.Phase.TIME_TO_FIRST_BYTE));
+ * }</pre>
+ * To export the values to a monitoring system, read them periodically, or implement
+ * {@link DeepSeekMetricsListener} directly.
+ */
+public final class DeepSeekMetrics implements DeepSeekMetricsListener {
+
+    public enum Phase {
+        /** Waiting for the rate limiter. */
+        QUEUE_WAIT,
+        /** Serializing the request body. */
+        SERIALIZATION,
+        /** From sending the request until the response headers arrived. */
+        TIME_TO_FIRST_BYTE,
+        /** From the response headers until the body was read completely. */
+        TRANSFER,
+        /** Parsing the response body (not recorded for streams). */
+        PARSING,
+        /** All phases of an attempt. */
+        ATTEMPT,
+        /** Executing a tool callback. */
+        TOOL_CALL
+    }
+
+    private final Map<Phase, DeepSeekLatencyHistogram> histograms = new EnumMap<>(Phase.class);
+    private final ConcurrentHashMap<String, DeepSeekLatencyHistogram> toolHistograms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder failedAttempts = new LongAdder();
+    private final LongAdder retryableFailures = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+    private final LongAdder toolCalls = new LongAdder();
+    private final LongAdder failedToolCalls = new LongAdder();
+    private final LongAdder responsesWithUsage = new LongAdder();
+    private final LongAdder promptTokens = new LongAdder();
+    private final LongAdder promptCacheHitTokens = new LongAdder();
+    private final LongAdder completionTokens = new LongAdder();
+    private final LongAdder reasoningTokens = new LongAdder();
+
+    public DeepSeekMetrics() {
+        for (Phase phase : Phase.values()) {
+            histograms.put(phase, new DeepSeekLatencyHistogram());
+        }
+    }
+
+    @Override
+    public void onAttempt(Attempt attempt) {
+        attempts.increment();
+        if (!attempt.succeeded()) {
+            failedAttempts.increment();
+            if (attempt.retryable()) {
+                retryableFailures.increment();
+            }
+        }
+        if (attempt.statusCode() > 0) {
+            statusCodes.computeIfAbsent(attempt.statusCode(), code -> new LongAdder()).increment();
+            histograms.get(Phase.TIME_TO_FIRST_BYTE).record(attempt.timeToFirstByteNanos());
+            histograms.get(Phase.TRANSFER).record(attempt.transferNanos());
+        }
+        if (attempt.succeeded() && !attempt.streaming()) {
+            histograms.get(Phase.PARSING).record(attempt.parsingNanos());
+        }
+        histograms.get(Phase.QUEUE_WAIT).record(attempt.queueWaitNanos());
+        histograms.get(Phase.SERIALIZATION).record(attempt.serializationNanos());
+        histograms.get(Phase.ATTEMPT).record(attempt.totalNanos());
+        requestBytes.add(attempt.requestBytes());
+        responseBytes.add(attempt.responseBytes());
+    }
+
+    @Override
+    public void onToolCall(String toolName, long durationNanos, boolean failed) {
+        toolCalls.increment();
+        if (failed) {
+            failedToolCalls.increment();
+        }
+        histograms.get(Phase.TOOL_CALL).record(durationNanos);
+        toolHistograms.computeIfAbsent(toolName, name -> new DeepSeekLatencyHistogram()).record(durationNanos);
+    }
+
+    @Override
+    public void onUsage(DeepSeekCompletionRequest request, DeepSeekCompletionResponse.Usage usage) {
+        responsesWithUsage.increment();
+        promptTokens.add(usage.getPromptTokens());
+        promptCacheHitTokens.add(usage.getPromptCacheHitTokens());
+        completionTokens.add(usage.getCompletionTokens());
+        if (usage.getCompletionTokensDetails() != null) {
+            reasoningTokens.add(usage.getCompletionTokensDetails().getReasoningTokens());
+        }
+    }
+
+    public DeepSeekLatencyHistogram getHistogram(Phase phase) {
+        return histograms.get(phase);
+    }
+
+    /**
+     * @return The histogram of the calls of the given tool, or null if it was never called.
+     */
+    public DeepSeekLatencyHistogram getToolHistogram(String toolName) {
+        return toolHistograms.get(toolName);
+    }
+
+    /**
+     * @return The number of HTTP attempts, including retries.
+     */
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    public long getFailedAttempts() {
+        return failedAttempts.sum();
+    }
+
+    /**
+     * @return The number of attempts that failed with a retryable status code (429, 503). With exponential
+     * backoff, each of them is followed by a retry unless the maximum number of retries has been reached.
+     */
+    public long getRetries() {
+        return retryableFailures.sum();
+    }
+
+    /**
+     * @return The number of attempts that received the given HTTP status code.
+     */
+    public long getStatusCodeCount(int statusCode) {
+        LongAdder adder = statusCodes.get(statusCode);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    public long getRequestBytes() {
+        return requestBytes.sum();
+    }
+
+    public long getResponseBytes() {
+        return responseBytes.sum();
+    }
+
+    public long getToolCalls() {
+        return toolCalls.sum();
+    }
+
+    public long getFailedToolCalls() {
+        return failedToolCalls.sum();
+    }
+
+    /**
+     * @return The number of responses whose usage was recorded.
+     */
+    public long getResponsesWithUsage() {
+        return responsesWithUsage.sum();
+    }
+
+    public long getPromptTokens() {
+        return promptTokens.sum();
+    }
+
+    public long getPromptCacheHitTokens() {
+        return promptCacheHitTokens.sum();
+    }
+
+    public long getCompletionTokens() {
+        return completionTokens.sum();
+    }
+
+    public long getReasoningTokens() {
+        return reasoningTokens.sum();
+    }
+
+    public void reset() {
+        histograms.values().forEach(DeepSeekLatencyHistogram::reset);
+        toolHistograms.clear();
+        statusCodes.clear();
+        attempts.reset();
+        failedAttempts.reset();
+        retryableFailures.reset();
+        requestBytes.reset();
+        responseBytes.reset();
+        toolCalls.reset();
+        failedToolCalls.reset();
+        responsesWithUsage.reset();
+        promptTokens.reset();
+        promptCacheHitTokens.reset();
+        completionTokens.reset();
+        reasoningTokens.reset();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("DeepSeekMetrics[attempts=").append(getAttempts())
+                .append(", failed=").append(getFailedAttempts())
+                .append(", retries=").append(getRetries())
+                .append(", requestBytes=").append(getRequestBytes())
+                .append(", responseBytes=").append(getResponseBytes())
+                .append(", toolCalls=").append(getToolCalls())
+                .append(", failedToolCalls=").append(getFailedToolCalls())
+                .append(", promptTokens=").append(getPromptTokens())
+                .append(", promptCacheHitTokens=").append(getPromptCacheHitTokens())
+                .append(", completionTokens=").append(getCompletionTokens())
+                .append(", reasoningTokens=").append(getReasoningTokens());
+        Map<Integer, Long> sortedStatusCodes = new TreeMap<>();
+        statusCodes.forEach((code, adder) -> sortedStatusCodes.put(code, adder.sum()));
+        sb.append(", statusCodes=").append(sortedStatusCodes).append(']');
+        for (Phase phase : Phase.values()) {
+            sb.append("\n  ").append(phase).append(": ").append(histograms.get(phase));
+        }
+        new TreeMap<>(toolHistograms).forEach((name, histogram) -> sb.append("\n  tool ").append(name).append(": ").append(histogram));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,74 @@
+package de.entwicklertraining.deepseek4j;
+
+import de.entwicklertraining.api.base.ApiRequest;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionRequest;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionResponse;
+
+/**
+ * Receives the timings of the requests of a {@link DeepSeekClient} (see
+ * {@link DeepSeekClient#setMetricsListener(DeepSeekMetricsListener)}). {@link DeepSeekMetrics} is a ready-made
+ * implementation that aggregates them into histograms and counters.
+ * <p>
+ * The callbacks run on the threads that execute the requests (including the threads of the HTTP client and of
+ * the tool executor), so implementations must be thread-safe and fast. Exceptions thrown by a listener are
+ * logged and otherwise ignored.
+ */
+public interface DeepSeekMetricsListener {
+
+    /**
+     * Called once per HTTP attempt, i.e. once per retry, after the attempt has succeeded or failed.
+     */
+    default void onAttempt(Attempt attempt) {
+    }
+
+    /**
+     * Called after a {@link DeepSeekToolsCallback} has returned or thrown.
+     *
+     * @param durationNanos Time spent in the callback, without the wait for a free executor thread.
+     */
+    default void onToolCall(String toolName, long durationNanos, boolean failed) {
+    }
+
+    /**
+     * Called for every chat completion response with usage statistics received from DeepSeek
+     * (once per turn of the tool loop; responses from the local response cache are not reported).
+     */
+    default void onUsage(DeepSeekCompletionRequest request, DeepSeekCompletionResponse.Usage usage) {
+    }
+
+    /**
+     * The phases of one HTTP attempt. Durations are in nanoseconds and 0 if a phase did not take place,
+     * e.g. the body transfer of a request that failed to connect.
+     *
+     * @param request                The request.
+     * @param streaming              Whether the response was read as a stream of events. For streams the transfer
+     *                               lasts until the last event was consumed, including the parsing of the chunks.
+     * @param attempt                1 for the first attempt of a request, 2 for the first retry, ...
+     * @param backoffMillis          Time slept before this attempt because the previous one was rejected.
+     * @param statusCode             The HTTP status code, or 0 if no response was received.
+     * @param requestBytes           Size of the request body.
+     * @param responseBytes          Size of the response body (as far as it was read).
+     * @param queueWaitNanos         Time spent waiting for the {@link DeepSeekRateLimiter}.
+     * @param serializationNanos     Time to serialize the request body (cached bodies of retries cost almost nothing).
+     * @param timeToFirstByteNanos   Time from sending the request until the response headers arrived.
+     * @param transferNanos          Time from the response headers until the body was read completely.
+     * @param parsingNanos           Time to parse the response body into the response object.
+     * @param error                  The exception the attempt failed with, or null.
+     * @param retryable              Whether the error is one that is retried with exponential backoff (429, 503).
+     */
+    record Attempt(ApiRequest<?> request, boolean streaming, int attempt, long backoffMillis, int statusCode,
+                   long requestBytes, long responseBytes, long queueWaitNanos, long serializationNanos,
+                   long timeToFirstByteNanos, long transferNanos, long parsingNanos, Throwable error, boolean retryable) {
+
+        public boolean succeeded() {
+            return error == null;
+        }
+
+        /**
+         * @return The sum of all phases.
+         */
+        public long totalNanos() {
+            return queueWaitNanos + serializationNanos + timeToFirstByteNanos + transferNanos + parsingNanos;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package de.entwicklertraining.deepseek4j;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tokenizer engine backed by the native HuggingFace tokenizer of DJL.
+ * This is the only class that references DJL, so the library is not loaded for the pure-Java engine.
+ */
+final class DeepSeekNativeTokenizer implements DeepSeekTokenizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeepSeekNativeTokenizer.class);
+
+    private final HuggingFaceTokenizer tokenizer;
+
+    private DeepSeekNativeTokenizer(HuggingFaceTokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * @return The tokenizer, or null if the vocabulary or the native library is not available.
+     */
+    static DeepSeekNativeTokenizer load() {
+        // Read as a stream: getResource(...).getPath() does not point to a file inside a jar
+        try (InputStream in = DeepSeekNativeTokenizer.class.getClassLoader().getResourceAsStream(DeepSeekTokenService.TOKENIZER_RESOURCE)) {
+            if (in == null) {
+                logger.warn("{} not found on the classpath, token counts are estimated heuristically.", DeepSeekTokenService.TOKENIZER_RESOURCE);
+                return null;
+            }
+            Map<String, String> options = new HashMap<>();
+            options.put("trust_remote_code", "true");
+            // Otherwise batchEncode pads all texts to the length of the longest one
+            options.put("padding", "false");
+            options.put("truncation", "false");
+            return new DeepSeekNativeTokenizer(HuggingFaceTokenizer.newInstance(new BufferedInputStream(in), options));
+        } catch (Exception | UnsatisfiedLinkError e) {
+            logger.warn("Could not load {}, token counts are estimated heuristically: {}", DeepSeekTokenService.TOKENIZER_RESOURCE, e.toString());
+            return null;
+        }
+    }
+
+    @Override
+    public int countTokens(String text, boolean addSpecialTokens) {
+        return tokenizer.encode(text, addSpecialTokens, false).getIds().length;
+    }
+
+    /**
+     * Encodes all texts in one native call, which distributes them across all cores.
+     */
+    @Override
+    public int[] countTokens(List<String> texts) {
+        Encoding[] encodings = tokenizer.batchEncode(texts);
+        int[] counts = new int[encodings.length];
+        for (int i = 0; i < encodings.length; i++) {
+            counts[i] = encodings[i].getIds().length;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,90 @@
+package de.entwicklertraining.deepseek4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates the prompt cache statistics (prompt_cache_hit_tokens / prompt_cache_miss_tokens) of all chat
+ * completions of a {@link DeepSeekClient}. Besides the totals, it keeps an exponentially weighted moving average
+ * of the hit ratio, which shows how well the cache works for the recent requests.
+ * <p>
+ * All methods are thread-safe and lock-free.
+ */
+public final class DeepSeekPromptCacheStats {
+
+    /** Weight of the newest request in the moving average. */
+    private static final double RECENT_WEIGHT = 0.1;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hitTokens = new LongAdder();
+    private final LongAdder missTokens = new LongAdder();
+    // Moving average of the hit ratio, stored as raw double bits; NaN as long as nothing was recorded
+    private final AtomicLong recentHitRatioBits = new AtomicLong(Double.doubleToRawLongBits(Double.NaN));
+
+    /**
+     * Records the usage of one response.
+     */
+    public void record(long promptCacheHitTokens, long promptCacheMissTokens) {
+        long promptTokens = promptCacheHitTokens + promptCacheMissTokens;
+        if (promptTokens <= 0) {
+            return;
+        }
+        requests.increment();
+        hitTokens.add(promptCacheHitTokens);
+        missTokens.add(promptCacheMissTokens);
+
+        double ratio = (double) promptCacheHitTokens / promptTokens;
+        long current;
+        long updated;
+        do {
+            current = recentHitRatioBits.get();
+            double recent = Double.longBitsToDouble(current);
+            updated = Double.doubleToRawLongBits(Double.isNaN(recent) ? ratio : recent + RECENT_WEIGHT * (ratio - recent));
+        } while (!recentHitRatioBits.compareAndSet(current, updated));
+    }
+
+    /**
+     * @return The number of recorded responses.
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getHitTokens() {
+        return hitTokens.sum();
+    }
+
+    public long getMissTokens() {
+        return missTokens.sum();
+    }
+
+    /**
+     * @return The share of prompt tokens served from the cache since the start (or the last reset), or 0 if nothing was recorded.
+     */
+    public double getHitRatio() {
+        long hits = hitTokens.sum();
+        long total = hits + missTokens.sum();
+        return total > 0 ? (double) hits / total : 0.0;
+    }
+
+    /**
+     * @return The moving average of the per-request hit ratio, dominated by the last ~10 requests, or 0 if nothing was recorded.
+     */
+    public double getRecentHitRatio() {
+        double recent = Double.longBitsToDouble(recentHitRatioBits.get());
+        return Double.isNaN(recent) ? 0.0 : recent;
+    }
+
+    public void reset() {
+        requests.reset();
+        hitTokens.reset();
+        missTokens.reset();
+        recentHitRatioBits.set(Double.doubleToRawLongBits(Double.NaN));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DeepSeekPromptCacheStats[requests=%d, hitTokens=%d, missTokens=%d, hitRatio=%.3f, recentHitRatio=%.3f]",
+                getRequests(), getHitTokens(), getMissTokens(), getHitRatio(), getRecentHitRatio());
+    }
+}
@@ -0,0 +1,68 @@
+package de.entwicklertraining.deepseek4j;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Running prompt token total of a growing conversation, created with
+ * {@link DeepSeekTokenService#newPromptTokenCounter(String, List)}.
+ * <p>
+ * Every message is rendered in the chat template and counted once, when it is added; {@link #getPromptTokens()}
+ * costs nothing after that. The {@link DeepSeekTokenService} memoizes the token counts of the messages, so e.g. a
+ * system prompt that many conversations share is only tokenized once. Thread-safe.
+ */
+public final class DeepSeekPromptTokenCounter {
+
+    private final DeepSeekTokenService tokenService;
+    private final List<DeepSeekToolDefinition> tools;
+    private final List<String> systemContents = new ArrayList<>();
+    private final DeepSeekChatTemplate.MessageRenderer renderer;
+    private int systemTokens;
+    private int messageTokens;
+    private int generationPromptTokens;
+    private int messageCount;
+
+    DeepSeekPromptTokenCounter(DeepSeekTokenService tokenService, String model, List<DeepSeekToolDefinition> tools) {
+        this.tokenService = tokenService;
+        this.tools = (tools != null) ? List.copyOf(tools) : List.of();
+        this.renderer = new DeepSeekChatTemplate.MessageRenderer(model);
+        this.systemTokens = tokenService.countPromptFragment(DeepSeekChatTemplate.systemPrompt(systemContents, this.tools));
+    }
+
+    /**
+     * Adds a message (in the format of the request's {@code messages()}) and counts only this one.
+     */
+    public synchronized DeepSeekPromptTokenCounter add(JSONObject message) {
+        if ("system".equals(message.optString("role"))) {
+            // All system messages together form the system prompt at the beginning
+            systemContents.add(DeepSeekChatTemplate.content(message));
+            systemTokens = tokenService.countPromptFragment(DeepSeekChatTemplate.systemPrompt(systemContents, tools));
+        } else {
+            messageTokens += tokenService.countPromptFragment(renderer.render(message));
+            generationPromptTokens = tokenService.countPromptFragment(renderer.generationPrompt());
+        }
+        messageCount++;
+        return this;
+    }
+
+    public synchronized DeepSeekPromptTokenCounter addAll(List<JSONObject> messages) {
+        for (JSONObject message : messages) {
+            add(message);
+        }
+        return this;
+    }
+
+    /**
+     * @return The prompt tokens of a request with all messages added so far, like
+     * {@link DeepSeekTokenService#countPromptTokens(de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionRequest)}.
+     */
+    public synchronized int getPromptTokens() {
+        return systemTokens + messageTokens + generationPromptTokens;
+    }
+
+    public synchronized int getMessageCount() {
+        return messageCount;
+    }
+}
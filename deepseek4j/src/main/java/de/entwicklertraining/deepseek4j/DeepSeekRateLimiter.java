@@ -0,0 +1,345 @@
+package de.entwicklertraining.deepseek4j;
+
+import de.entwicklertraining.api.base.ApiClient;
+import de.entwicklertraining.api.base.ApiRequest;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionRequest;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToIntFunction;
+
+/**
+ * Client-side rate limiter that is shared by all requests of a {@link DeepSeekClient}
+ * (see {@link DeepSeekClient#setRateLimiter(DeepSeekRateLimiter)}).
+ * <p>
+ * Every HTTP attempt needs a permit. A permit is granted if
+ * <ul>
+ *   <li>the requests-per-second bucket holds at least one request,</li>
+ *   <li>the tokens-per-minute bucket holds the estimated prompt tokens of the request, and</li>
+ *   <li>fewer requests are in flight than the current concurrency limit.</li>
+ * </ul>
+ * The concurrency limit adapts AIMD-style: it is halved when DeepSeek answers with 429 or 503 and grows by
+ * one per window of successful requests. This keeps the throughput at the sustained limit of the server
+ * instead of letting every worker run into it on its own. Waiting requests are admitted in FIFO order.
+ */
+public final class DeepSeekRateLimiter {
+
+    /**
+     * How a request that held a permit ended. Only throttled and successful requests adapt the concurrency limit.
+     */
+    enum Outcome { SUCCESS, THROTTLED, FAILED }
+
+    private final double requestsPerSecond;
+    private final long tokensPerMinute;
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private final ToIntFunction<ApiRequest<?>> tokenEstimator;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private double requestBucket;
+    private double tokenBucket;
+    private long lastRefillNanos;
+    private double concurrencyLimit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+    private boolean drainScheduled;
+
+    private DeepSeekRateLimiter(Builder builder) {
+        this.requestsPerSecond = builder.requestsPerSecond;
+        this.tokensPerMinute = builder.tokensPerMinute;
+        this.minConcurrency = builder.minConcurrency;
+        this.maxConcurrency = builder.maxConcurrency;
+        this.tokenEstimator = (builder.tokenEstimator != null) ? builder.tokenEstimator : new PromptTokenEstimator();
+        this.requestBucket = Math.max(1.0, requestsPerSecond);
+        this.tokenBucket = tokensPerMinute;
+        this.concurrencyLimit = builder.initialConcurrency;
+        this.lastRefillNanos = System.nanoTime();
+        this.lastDecreaseNanos = lastRefillNanos;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The current (adaptive) concurrency limit.
+     */
+    public int getConcurrencyLimit() {
+        synchronized (lock) {
+            return (int) concurrencyLimit;
+        }
+    }
+
+    /**
+     * @return The number of requests currently holding a permit.
+     */
+    public int getInFlight() {
+        synchronized (lock) {
+            return inFlight;
+        }
+    }
+
+    /**
+     * @return The number of requests waiting for a permit.
+     */
+    public int getQueueLength() {
+        synchronized (lock) {
+            return waiters.size();
+        }
+    }
+
+    /**
+     * Waits until the request may be sent.
+     */
+    Permit acquire(ApiRequest<?> request) {
+        CompletableFuture<Permit> future = acquireAsync(request);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            if (!future.cancel(false)) {
+                // The permit was granted in the meantime
+                future.join().release(Outcome.FAILED);
+            }
+            Thread.currentThread().interrupt();
+            throw new ApiClient.ApiClientException("Interrupted while waiting for the rate limiter", e);
+        } catch (ExecutionException e) {
+            throw new ApiClient.ApiClientException("Waiting for the rate limiter failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Returns a future that completes with a permit as soon as the request may be sent.
+     * Cancelling the future withdraws the request from the queue.
+     */
+    CompletableFuture<Permit> acquireAsync(ApiRequest<?> request) {
+        int tokens = (tokensPerMinute > 0) ? Math.max(0, tokenEstimator.applyAsInt(request)) : 0;
+        Waiter waiter = new Waiter((int) Math.min(tokens, tokensPerMinute), new CompletableFuture<>());
+        synchronized (lock) {
+            waiters.addLast(waiter);
+        }
+        waiter.future().whenComplete((permit, error) -> {
+            if (error != null) {
+                // Cancelled: leave the queue now instead of when the waiter reaches its head
+                synchronized (lock) {
+                    waiters.remove(waiter);
+                }
+                drain();
+            }
+        });
+        drain();
+        return waiter.future();
+    }
+
+    /**
+     * Grants permits to the waiting requests in FIFO order for as long as the budgets allow it.
+     */
+    private void drain() {
+        List<Waiter> granted = new ArrayList<>();
+        List<Permit> permits = new ArrayList<>();
+        synchronized (lock) {
+            long now = System.nanoTime();
+            refill(now);
+            while (!waiters.isEmpty()) {
+                Waiter waiter = waiters.peekFirst();
+                if (waiter.future().isDone()) {
+                    waiters.pollFirst(); // cancelled while waiting
+                    continue;
+                }
+                if (inFlight >= (int) concurrencyLimit) {
+                    break; // the next release drains again
+                }
+                long waitNanos = nanosUntilAvailable(waiter.tokens());
+                if (waitNanos > 0) {
+                    scheduleDrain(waitNanos);
+                    break;
+                }
+                if (requestsPerSecond > 0) {
+                    requestBucket -= 1.0;
+                }
+                tokenBucket -= waiter.tokens();
+                inFlight++;
+                waiters.pollFirst();
+                granted.add(waiter);
+                permits.add(new Permit(now));
+            }
+        }
+        // Complete outside the lock, because dependent stages run synchronously
+        for (int i = 0; i < granted.size(); i++) {
+            if (!granted.get(i).future().complete(permits.get(i))) {
+                permits.get(i).release(Outcome.FAILED);
+            }
+        }
+    }
+
+    private void refill(long now) {
+        double elapsedSeconds = (now - lastRefillNanos) / 1_000_000_000.0;
+        lastRefillNanos = now;
+        if (requestsPerSecond > 0) {
+            requestBucket = Math.min(Math.max(1.0, requestsPerSecond), requestBucket + elapsedSeconds * requestsPerSecond);
+        }
+        if (tokensPerMinute > 0) {
+            tokenBucket = Math.min(tokensPerMinute, tokenBucket + elapsedSeconds * tokensPerMinute / 60.0);
+        }
+    }
+
+    private long nanosUntilAvailable(int tokens) {
+        double waitSeconds = 0;
+        if (requestsPerSecond > 0 && requestBucket < 1.0) {
+            waitSeconds = (1.0 - requestBucket) / requestsPerSecond;
+        }
+        if (tokensPerMinute > 0 && tokenBucket < tokens) {
+            waitSeconds = Math.max(waitSeconds, (tokens - tokenBucket) * 60.0 / tokensPerMinute);
+        }
+        return (long) Math.ceil(waitSeconds * 1_000_000_000.0);
+    }
+
+    private void scheduleDrain(long delayNanos) {
+        if (drainScheduled) {
+            return;
+        }
+        drainScheduled = true;
+        CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS).execute(() -> {
+            synchronized (lock) {
+                drainScheduled = false;
+            }
+            drain();
+        });
+    }
+
+    private void onRelease(Permit permit, Outcome outcome) {
+        synchronized (lock) {
+            inFlight--;
+            if (outcome == Outcome.THROTTLED) {
+                // Multiplicative decrease, but only once per congestion event: requests that were already
+                // in flight when the limit was decreased do not decrease it again
+                if (permit.acquiredNanos - lastDecreaseNanos >= 0) {
+                    concurrencyLimit = Math.max(minConcurrency, concurrencyLimit / 2);
+                    lastDecreaseNanos = System.nanoTime();
+                }
+            } else if (outcome == Outcome.SUCCESS) {
+                // Additive increase: +1 after a full window of successful requests
+                concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1.0 / concurrencyLimit);
+            }
+        }
+        drain();
+    }
+
+    private record Waiter(int tokens, CompletableFuture<Permit> future) {}
+
+    /**
+     * The permission to send one HTTP attempt. Must be released exactly once when the attempt is finished.
+     */
+    final class Permit {
+        private final long acquiredNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long acquiredNanos) {
+            this.acquiredNanos = acquiredNanos;
+        }
+
+        void release(Outcome outcome) {
+            if (released.compareAndSet(false, true)) {
+                onRelease(this, outcome);
+            }
+        }
+    }
+
+    /**
+     * Default token estimate: the prompt tokens of chat completions (other POST requests: their body), counted
+     * with the shared {@link DeepSeekTokenService}. The tokenizer is only loaded when the first estimate is needed.
+     */
+    private static final class PromptTokenEstimator implements ToIntFunction<ApiRequest<?>> {
+        @Override
+        public int applyAsInt(ApiRequest<?> request) {
+            if (request instanceof DeepSeekCompletionRequest completionRequest) {
+                return DeepSeekTokenService.getInstance().countPromptTokens(completionRequest);
+            }
+            if (!"POST".equalsIgnoreCase(request.getHttpMethod())) {
+                return 0;
+            }
+            return DeepSeekTokenService.getInstance().calculateTokenCount(request.getBody());
+        }
+    }
+
+    public static final class Builder {
+        private double requestsPerSecond;
+        private long tokensPerMinute;
+        private int initialConcurrency = 8;
+        private int minConcurrency = 1;
+        private int maxConcurrency = 64;
+        private ToIntFunction<ApiRequest<?>> tokenEstimator;
+
+        private Builder() {
+        }
+
+        /**
+         * Maximum number of requests per second. 0 (default) means unlimited.
+         */
+        public Builder requestsPerSecond(double requestsPerSecond) {
+            if (requestsPerSecond < 0) {
+                throw new IllegalArgumentException("requestsPerSecond must not be negative.");
+            }
+            this.requestsPerSecond = requestsPerSecond;
+            return this;
+        }
+
+        /**
+         * Maximum number of estimated prompt tokens per minute. 0 (default) means unlimited.
+         */
+        public Builder tokensPerMinute(long tokensPerMinute) {
+            if (tokensPerMinute < 0) {
+                throw new IllegalArgumentException("tokensPerMinute must not be negative.");
+            }
+            this.tokensPerMinute = tokensPerMinute;
+            return this;
+        }
+
+        /**
+         * Concurrency limit to start with (default 8).
+         */
+        public Builder initialConcurrency(int initialConcurrency) {
+            this.initialConcurrency = initialConcurrency;
+            return this;
+        }
+
+        /**
+         * Lower bound of the adaptive concurrency limit (default 1).
+         */
+        public Builder minConcurrency(int minConcurrency) {
+            this.minConcurrency = minConcurrency;
+            return this;
+        }
+
+        /**
+         * Upper bound of the adaptive concurrency limit (default 64).
+         */
+        public Builder maxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * Replaces the default token estimate (prompt tokens counted with the {@link DeepSeekTokenService}).
+         */
+        public Builder tokenEstimator(ToIntFunction<ApiRequest<?>> tokenEstimator) {
+            this.tokenEstimator = tokenEstimator;
+            return this;
+        }
+
+        public DeepSeekRateLimiter build() {
+            if (minConcurrency < 1 || maxConcurrency < minConcurrency) {
+                throw new IllegalArgumentException("Concurrency bounds must satisfy 1 <= minConcurrency <= maxConcurrency.");
+            }
+            if (initialConcurrency < minConcurrency || initialConcurrency > maxConcurrency) {
+                throw new IllegalArgumentException("initialConcurrency must be between minConcurrency and maxConcurrency.");
+            }
+            return new DeepSeekRateLimiter(this);
+        }
+    }
+}
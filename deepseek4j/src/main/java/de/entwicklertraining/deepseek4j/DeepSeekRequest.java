@@ -3,6 +3,8 @@ package de.entwicklertraining.deepseek4j;
 import de.entwicklertraining.api.base.ApiRequest;
 import de.entwicklertraining.api.base.ApiRequestBuilderBase;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * A generic request abstraction for DeepSeek calls (chat completions, etc.).
  *
@@ -58,10 +60,14 @@ public abstract class DeepSeekRequest<T extends DeepSeekResponse<?>> extends Api
     }
 
     /**
-     * If there's a binary body, override this. Here it's unsupported.
+     * Returns the body as UTF-8 bytes. Requests that can serialize directly into bytes override this.
      */
     @Override
     public byte[] getBodyBytes() {
-        throw new UnsupportedOperationException("No binary body by default.");
+        String body = getBody();
+        if (body == null) {
+            throw new UnsupportedOperationException("This request has no body.");
+        }
+        return body.getBytes(StandardCharsets.UTF_8);
     }
 }
@@ -3,6 +3,8 @@ package de.entwicklertraining.deepseek4j;
 import de.entwicklertraining.api.base.ApiResponse;
 import org.json.JSONObject;
 
+import java.util.function.Supplier;
+
 /**
  * A generic response abstraction from DeepSeek calls (chat completions, etc.).
  *
@@ -11,17 +13,43 @@ import org.json.JSONObject;
  */
 public abstract class DeepSeekResponse<T extends DeepSeekRequest<?>> extends ApiResponse<T> {
 
-    protected final JSONObject json;
+    private final Supplier<JSONObject> jsonSupplier;
+    /**
+     * The raw JSON. Set by {@link #DeepSeekResponse(JSONObject, DeepSeekRequest)}; for responses created with a
+     * supplier it stays null until {@link #getJson()} is called, so subclasses should read it through
+     * {@link #getJson()}.
+     */
+    protected volatile JSONObject json;
     private final T request;
 
     protected DeepSeekResponse(JSONObject json, T request) {
         super(request);
+        this.jsonSupplier = null;
         this.json = json;
         this.request = request;
     }
 
+    /**
+     * For responses that read their data without a JSONObject tree: the tree is only built
+     * (once) if {@link #getJson()} is called.
+     */
+    protected DeepSeekResponse(Supplier<JSONObject> jsonSupplier, T request) {
+        super(request);
+        this.jsonSupplier = jsonSupplier;
+        this.request = request;
+    }
+
     public JSONObject getJson() {
-        return json;
+        JSONObject result = json;
+        if (result == null && jsonSupplier != null) {
+            synchronized (this) {
+                if (json == null) {
+                    json = jsonSupplier.get();
+                }
+                result = json;
+            }
+        }
+        return result;
     }
 
     public T getRequest() {
@@ -0,0 +1,181 @@
+package de.entwicklertraining.deepseek4j;
+
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionRequest;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Prompt token estimates that calibrate themselves from the usage the server reports. Once set on a
+ * {@link DeepSeekClient} ({@link DeepSeekClient#setTokenCalibrator(DeepSeekTokenCalibrator)}), every chat completion
+ * of the client records the true {@code prompt_tokens} of its request. A calibrator may be shared by several clients.
+ * <p>
+ * The estimate is linear in the number of characters per {@link CharClass} of the rendered prompt plus a constant
+ * per message. The coefficients (tokens per character) start at the values of
+ * {@link DeepSeekTokenService#estimateTokenCount(String)} and are learned per model: every observation moves them
+ * by a fixed share of the error, distributed over the classes in proportion to their character counts
+ * (normalized least mean squares). Old observations therefore fade out exponentially.
+ * <p>
+ * Estimating needs one pass over the characters and no tokenizer. All methods are thread-safe and lock-free.
+ */
+public final class DeepSeekTokenCalibrator {
+
+    /**
+     * The character classes that are calibrated separately.
+     */
+    public enum CharClass {
+        /** Letters of the Latin script. */
+        LATIN(DeepSeekTokenEstimator.LATIN),
+        DIGIT(DeepSeekTokenEstimator.DIGIT),
+        WHITESPACE(DeepSeekTokenEstimator.WHITESPACE),
+        /** Punctuation and symbols. */
+        PUNCTUATION(DeepSeekTokenEstimator.PUNCTUATION),
+        /** Han, Hiragana, Katakana, Hangul and Bopomofo. */
+        CJK(DeepSeekTokenEstimator.CJK),
+        /** Letters of all other scripts. */
+        OTHER(DeepSeekTokenEstimator.OTHER),
+        /** Characters outside the Basic Multilingual Plane, e.g. emojis (counted per UTF-16 char). */
+        SUPPLEMENTARY(DeepSeekTokenEstimator.SUPPLEMENTARY);
+
+        private final int index;
+
+        CharClass(int index) {
+            this.index = index;
+        }
+    }
+
+    /** Share of the error an observation corrects. */
+    private static final double LEARNING_RATE = 0.1;
+    /** Index of the per-message constant, after the character classes. */
+    private static final int MESSAGE_FEATURE = DeepSeekTokenEstimator.CLASS_COUNT;
+    private static final int FEATURE_COUNT = MESSAGE_FEATURE + 1;
+    private static final double MIN_TOKENS_PER_CHAR = 1.0 / 64;
+    private static final double MAX_TOKENS_PER_CHAR = 4.0;
+    private static final double MAX_TOKENS_PER_MESSAGE = 16.0;
+
+    private static final Model DEFAULT_MODEL = new Model(defaultWeights(), 0);
+
+    /**
+     * Immutable coefficients of one model; replaced as a whole by compare-and-set.
+     */
+    private record Model(double[] weights, long observations) {}
+
+    private final Map<String, AtomicReference<Model>> models = new ConcurrentHashMap<>();
+
+    /**
+     * Records the prompt tokens the server reported for a request.
+     */
+    public void record(DeepSeekCompletionRequest request, int promptTokens) {
+        if (promptTokens <= 0 || request.model() == null) {
+            return;
+        }
+        double[] features = features(request);
+        double norm = 0;
+        for (double feature : features) {
+            norm += feature * feature;
+        }
+        if (norm == 0) {
+            return;
+        }
+
+        AtomicReference<Model> reference = models.computeIfAbsent(request.model(), model -> new AtomicReference<>(DEFAULT_MODEL));
+        Model current;
+        Model updated;
+        do {
+            current = reference.get();
+            double error = promptTokens - predict(current.weights(), features);
+            double[] weights = current.weights().clone();
+            for (int i = 0; i < FEATURE_COUNT; i++) {
+                weights[i] = clamp(i, weights[i] + LEARNING_RATE * error * features[i] / norm);
+            }
+            updated = new Model(weights, current.observations() + 1);
+        } while (!reference.compareAndSet(current, updated));
+    }
+
+    /**
+     * @return The estimated prompt tokens of the request, with the coefficients learned for its model.
+     */
+    public int estimatePromptTokens(DeepSeekCompletionRequest request) {
+        return (int) Math.ceil(Math.max(0, predict(model(request.model()).weights(), features(request))));
+    }
+
+    /**
+     * @return The learned characters per token of a character class for the model.
+     */
+    public double getCharsPerToken(String model, CharClass charClass) {
+        return 1.0 / model(model).weights()[Objects.requireNonNull(charClass, "charClass").index];
+    }
+
+    /**
+     * @return The number of observations recorded for the model.
+     */
+    public long getObservations(String model) {
+        return model(model).observations();
+    }
+
+    /**
+     * Forgets everything learned; estimates start again from the default coefficients.
+     */
+    public void reset() {
+        models.clear();
+    }
+
+    private Model model(String model) {
+        AtomicReference<Model> reference = (model != null) ? models.get(model) : null;
+        return (reference != null) ? reference.get() : DEFAULT_MODEL;
+    }
+
+    /**
+     * Character counts per class of the prompt the template renders, plus the number of messages.
+     */
+    private static double[] features(DeepSeekCompletionRequest request) {
+        int[] counts = new int[DeepSeekTokenEstimator.CLASS_COUNT];
+        List<String> systemContents = new ArrayList<>();
+        DeepSeekChatTemplate.MessageRenderer renderer = new DeepSeekChatTemplate.MessageRenderer(request.model());
+        for (JSONObject message : request.messages()) {
+            if ("system".equals(message.optString("role"))) {
+                systemContents.add(DeepSeekChatTemplate.content(message));
+            } else {
+                DeepSeekTokenEstimator.countClasses(renderer.render(message), counts);
+            }
+        }
+        DeepSeekTokenEstimator.countClasses(DeepSeekChatTemplate.systemPrompt(systemContents, request.tools()), counts);
+        DeepSeekTokenEstimator.countClasses(renderer.generationPrompt(), counts);
+
+        double[] features = new double[FEATURE_COUNT];
+        for (int i = 0; i < counts.length; i++) {
+            features[i] = counts[i];
+        }
+        features[MESSAGE_FEATURE] = request.messages().size();
+        return features;
+    }
+
+    private static double predict(double[] weights, double[] features) {
+        double tokens = 0;
+        for (int i = 0; i < FEATURE_COUNT; i++) {
+            tokens += weights[i] * features[i];
+        }
+        return tokens;
+    }
+
+    private static double clamp(int feature, double weight) {
+        if (feature == MESSAGE_FEATURE) {
+            // The characters of the role markers are part of the classes, so the correction may be negative
+            return Math.max(-MAX_TOKENS_PER_MESSAGE, Math.min(MAX_TOKENS_PER_MESSAGE, weight));
+        }
+        return Math.max(MIN_TOKENS_PER_CHAR, Math.min(MAX_TOKENS_PER_CHAR, weight));
+    }
+
+    private static double[] defaultWeights() {
+        double[] weights = new double[FEATURE_COUNT];
+        for (int i = 0; i < DeepSeekTokenEstimator.CLASS_COUNT; i++) {
+            weights[i] = 1.0 / DeepSeekTokenEstimator.DEFAULT_CHARS_PER_TOKEN[i];
+        }
+        return weights;
+    }
+}
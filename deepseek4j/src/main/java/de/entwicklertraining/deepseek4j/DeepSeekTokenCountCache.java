@@ -0,0 +1,79 @@
+package de.entwicklertraining.deepseek4j;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded store of token counts, keyed by a 64-bit hash of the text.
+ * <p>
+ * Every hash has exactly one slot (direct-mapped like a CPU cache); a new entry evicts the old one. The memory is
+ * therefore fixed (8 bytes per slot), however many texts are counted. A slot holds the upper 40 bits of the hash
+ * and the count (24 bits) in one long, so reads and writes need no locks.
+ */
+final class DeepSeekTokenCountCache {
+
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long TAG_MASK = ~COUNT_MASK;
+
+    private final int mask;
+    private volatile AtomicLongArray slots;
+
+    /**
+     * @param capacity The number of slots, rounded up to a power of two.
+     */
+    DeepSeekTokenCountCache(int capacity) {
+        this.mask = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) - 1;
+    }
+
+    /**
+     * @return The stored count, or -1 if the hash is not (or no longer) present.
+     */
+    int get(long hash) {
+        AtomicLongArray table = slots;
+        if (table == null) {
+            return -1;
+        }
+        long slot = table.getOpaque((int) hash & mask);
+        if (slot == 0 || (slot & TAG_MASK) != (hash & TAG_MASK)) {
+            return -1;
+        }
+        return (int) (slot & COUNT_MASK);
+    }
+
+    void put(long hash, int count) {
+        if (count < 0 || count > COUNT_MASK) {
+            return;
+        }
+        table().setOpaque((int) hash & mask, (hash & TAG_MASK) | count);
+    }
+
+    // The table is only allocated with the first entry
+    private AtomicLongArray table() {
+        AtomicLongArray table = slots;
+        if (table == null) {
+            synchronized (this) {
+                table = slots;
+                if (table == null) {
+                    slots = table = new AtomicLongArray(mask + 1);
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 64-bit hash (FNV-1a over the chars, then mixed); the lower bits select the slot.
+     */
+    static long hash(String text) {
+        long h = 0xcbf29ce484222325L ^ text.length();
+        for (int i = 0; i < text.length(); i++) {
+            h = (h ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -1,71 +1,183 @@
 package de.entwicklertraining.deepseek4j;
 
-import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
-import ai.djl.huggingface.tokenizers.Encoding;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionRequest;
 
-import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Tokenzähler für DeepSeek-Modelle (Byte-Level BPE).
+ * Token counter for DeepSeek models (byte-level BPE).
+ * <p>
+ * The tokenizer is read from the classpath resource {@value #TOKENIZER_RESOURCE} (which also works from inside a
+ * jar) and loaded only once per JVM and {@link Engine}; all instances share it. The service is thread-safe, and
+ * {@link #getInstance()} returns a shared instance. Without the resource, token counts are estimated heuristically.
  */
 public final class DeepSeekTokenService {
 
-    private static final double AVG_LATIN_CHARS_PER_TOKEN = 3.3; // 1 / 0.3  ➜ konservativ
-    private static final double AVG_CJK_CHARS_PER_TOKEN   = 1.7; // 1 / 0.6
-    private final HuggingFaceTokenizer tokenizer;
+    /**
+     * The implementation that counts. Both return the same results.
+     */
+    public enum Engine {
+        /** HuggingFace tokenizer of DJL (native library). */
+        NATIVE,
+        /** Byte-level BPE in pure Java: no native library, fast startup. */
+        JAVA
+    }
+
+    static final String TOKENIZER_RESOURCE = "tokenizer.json";
+
+    // 2^20 slots = 8 MB, enough for about a million messages
+    private static final int PROMPT_CACHE_CAPACITY = 1 << 20;
+    private final DeepSeekTokenizer tokenizer;
+    private final DeepSeekTokenCountCache promptCache = new DeepSeekTokenCountCache(PROMPT_CACHE_CAPACITY);
 
     public DeepSeekTokenService() {
-        tokenizer = loadTokenizer();
+        this(Engine.NATIVE);
     }
 
-    private HuggingFaceTokenizer loadTokenizer() {
-        try {
-            // Lädt lokalen Tokenizer aus resources
-            String resourcePath = getClass().getClassLoader().getResource("tokenizer.json").getPath();
-            Path tokenizerPath = Paths.get(resourcePath).getParent();
-            
-            Map<String, String> options = new HashMap<>();
-            options.put("trust_remote_code", "true");
-            
-            return HuggingFaceTokenizer.newInstance(tokenizerPath, options);
-        } catch (Exception e) {
-            // Fallback: versuche relativen Pfad für Entwicklung
-            try {
-                Path tokenizerPath = Paths.get("src/main/resources/");
-                Map<String, String> options = new HashMap<>();
-                options.put("trust_remote_code", "true");
-                return HuggingFaceTokenizer.newInstance(tokenizerPath, options);
-            } catch (IOException fallbackEx) {
-                return null; // Fallback aktiviert
-            }
-        }
+    public DeepSeekTokenService(Engine engine) {
+        tokenizer = (engine == Engine.JAVA) ? JavaTokenizerHolder.TOKENIZER : NativeTokenizerHolder.TOKENIZER;
+    }
+
+    /**
+     * Shared instance (native engine) for the whole application.
+     */
+    public static DeepSeekTokenService getInstance() {
+        return NativeInstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Shared instance with the given engine.
+     */
+    public static DeepSeekTokenService getInstance(Engine engine) {
+        return (engine == Engine.JAVA) ? JavaInstanceHolder.INSTANCE : NativeInstanceHolder.INSTANCE;
+    }
+
+    /**
+     * @return true if the real tokenizer counts, false for the heuristic estimate.
+     */
+    public boolean isTokenizerAvailable() {
+        return tokenizer != null;
+    }
+
+    // Lazy holders: a tokenizer is only loaded when its engine is first used.
+    // The native library (DJL) is never loaded for the Java engine.
+    private static final class NativeTokenizerHolder {
+        private static final DeepSeekTokenizer TOKENIZER = DeepSeekNativeTokenizer.load();
+    }
+
+    private static final class JavaTokenizerHolder {
+        private static final DeepSeekTokenizer TOKENIZER = DeepSeekBpeTokenizer.load();
+    }
+
+    private static final class NativeInstanceHolder {
+        private static final DeepSeekTokenService INSTANCE = new DeepSeekTokenService(Engine.NATIVE);
+    }
+
+    private static final class JavaInstanceHolder {
+        private static final DeepSeekTokenService INSTANCE = new DeepSeekTokenService(Engine.JAVA);
     }
 
     public int calculateTokenCount(String text) {
+        return calculateTokenCount(text, true);
+    }
+
+    /**
+     * Counts the prompt tokens of a chat request before it is sent: all messages in the chat template of the model
+     * (roles and special tokens) and the tool definitions. The result approximates
+     * {@code Usage#getPromptTokens()} of the response, so oversized prompts can be detected locally.
+     */
+    public int countPromptTokens(DeepSeekCompletionRequest request) {
+        return newPromptTokenCounter(request.model(), request.tools()).addAll(request.messages()).getPromptTokens();
+    }
+
+    /**
+     * New counter for a growing conversation: added messages are counted one by one and summed up, instead of
+     * tokenizing the whole history again on every turn.
+     *
+     * @param model The model (determines the generation prompt, e.g. {@code <think>} for deepseek-reasoner).
+     * @param tools The tool definitions of the request, or null.
+     */
+    public DeepSeekPromptTokenCounter newPromptTokenCounter(String model, List<DeepSeekToolDefinition> tools) {
+        return new DeepSeekPromptTokenCounter(this, model, tools);
+    }
+
+    /**
+     * Counts a piece of the rendered prompt, with a cache (keyed by the hash of the text, bounded in size).
+     * Every piece borders on a special token, so the sum of the pieces is the count of the whole prompt.
+     */
+    int countPromptFragment(String fragment) {
+        if (fragment.isEmpty()) return 0;
+
+        long hash = DeepSeekTokenCountCache.hash(fragment);
+        int count = promptCache.get(hash);
+        if (count < 0) {
+            // The template already contains the BOS token
+            count = calculateTokenCount(fragment, false);
+            promptCache.put(hash, count);
+        }
+        return count;
+    }
+
+    private int calculateTokenCount(String text, boolean addSpecialTokens) {
         if (text == null || text.isEmpty()) return 0;
 
         try {
             if (tokenizer != null) {
-                return tokenizer.encode(text).getIds().length;
+                return tokenizer.countTokens(text, addSpecialTokens);
             }
         } catch (Exception ignored) {
-            // gehe zur Heuristik
+            // Fall back to the heuristic
         }
 
-        long latin = text.codePoints()
-                .filter(cp -> Character.UnicodeScript.of(cp)
-                        .equals(Character.UnicodeScript.LATIN))
-                .count();
+        return estimateTokenCount(text);
+    }
 
-        long cjk   = text.length() - latin;
+    /**
+     * Counts the tokens of several texts in one call, spread over all cores.
+     *
+     * @return The token count of each text, in the order of the input (0 for null or empty texts).
+     */
+    public int[] calculateTokenCounts(List<String> texts) {
+        int[] counts = new int[texts.size()];
+        List<String> nonEmptyTexts = new ArrayList<>(texts.size());
+        int[] positions = new int[texts.size()];
+        for (int i = 0; i < texts.size(); i++) {
+            String text = texts.get(i);
+            if (text != null && !text.isEmpty()) {
+                positions[nonEmptyTexts.size()] = i;
+                nonEmptyTexts.add(text);
+            }
+        }
+        if (nonEmptyTexts.isEmpty()) {
+            return counts;
+        }
+
+        try {
+            if (tokenizer != null) {
+                int[] tokenCounts = tokenizer.countTokens(nonEmptyTexts);
+                for (int i = 0; i < tokenCounts.length; i++) {
+                    counts[positions[i]] = tokenCounts[i];
+                }
+                return counts;
+            }
+        } catch (Exception ignored) {
+            // Fall back to the heuristic
+        }
 
-        double estimate = latin  / AVG_LATIN_CHARS_PER_TOKEN
-                + cjk    / AVG_CJK_CHARS_PER_TOKEN;
+        for (int i = 0; i < nonEmptyTexts.size(); i++) {
+            counts[positions[i]] = estimateTokenCount(nonEmptyTexts.get(i));
+        }
+        return counts;
+    }
 
-        return (int) Math.ceil(estimate);
+    /**
+     * Fast estimate without a tokenizer (one pass over the characters that tells Latin letters, digits, whitespace,
+     * punctuation, CJK and other scripts apart). Suitable as a cheap pre-filter, e.g. for routing and budget
+     * decisions; the same estimate is used when no tokenizer is available.
+     */
+    public static int estimateTokenCount(String text) {
+        if (text == null || text.isEmpty()) return 0;
+        return DeepSeekTokenEstimator.estimate(text);
     }
 }
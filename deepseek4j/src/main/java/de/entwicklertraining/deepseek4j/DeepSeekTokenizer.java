@@ -0,0 +1,25 @@
+package de.entwicklertraining.deepseek4j;
+
+import java.util.List;
+
+/**
+ * Engine behind {@link DeepSeekTokenService}. Implementations are thread-safe.
+ * Texts passed in are never null or empty.
+ */
+interface DeepSeekTokenizer {
+
+    /**
+     * @param addSpecialTokens Whether the special tokens of the post-processor (e.g. BOS) are added, like
+     *                         {@code add_special_tokens} of HuggingFace. Special tokens in the text are always counted.
+     */
+    int countTokens(String text, boolean addSpecialTokens);
+
+    default int countTokens(String text) {
+        return countTokens(text, true);
+    }
+
+    /**
+     * @return The token count of every text, in the order of the input.
+     */
+    int[] countTokens(List<String> texts);
+}
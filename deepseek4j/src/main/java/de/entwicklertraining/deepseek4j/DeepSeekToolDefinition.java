@@ -14,12 +14,14 @@ public final class DeepSeekToolDefinition {
     private final String description;
     private final JSONObject parameters;
     private final DeepSeekToolsCallback callback;
+    private final int timeoutInSeconds;
 
-    private DeepSeekToolDefinition(String name, String description, JSONObject parameters, DeepSeekToolsCallback callback) {
+    private DeepSeekToolDefinition(String name, String description, JSONObject parameters, DeepSeekToolsCallback callback, int timeoutInSeconds) {
         this.name = name;
         this.description = description;
         this.parameters = parameters;
         this.callback = callback;
+        this.timeoutInSeconds = timeoutInSeconds;
     }
 
     public String name() {
@@ -38,6 +40,13 @@ public final class DeepSeekToolDefinition {
         return callback;
     }
 
+    /**
+     * Maximum time a single invocation of the callback may take, or 0 if it is not limited.
+     */
+    public int timeoutInSeconds() {
+        return timeoutInSeconds;
+    }
+
     /**
      * Produces the JSON structure needed by the DeepSeek API to describe this tool as a "function".
      */
@@ -67,6 +76,7 @@ public final class DeepSeekToolDefinition {
         private final JSONArray required = new JSONArray();
         private DeepSeekToolsCallback callback;
         private boolean areAdditionalPropertiesAllowed = false;
+        private int timeoutInSeconds = 0;
 
         private Builder(String name) {
             this.name = name;
@@ -91,6 +101,18 @@ public final class DeepSeekToolDefinition {
             return this;
         }
 
+        /**
+         * Limits how long a single invocation of the callback may take. If the limit is exceeded,
+         * the callback thread is interrupted and the request fails with an ApiTimeoutException.
+         */
+        public Builder timeoutInSeconds(int seconds) {
+            if (seconds < 0) {
+                throw new IllegalArgumentException("Tool timeout must not be negative.");
+            }
+            this.timeoutInSeconds = seconds;
+            return this;
+        }
+
         public Builder allowAdditionalProperties() {
             this.areAdditionalPropertiesAllowed = true;
             return this;
@@ -105,7 +127,7 @@ public final class DeepSeekToolDefinition {
             }
             schema.put("additionalProperties", areAdditionalPropertiesAllowed);
 
-            return new DeepSeekToolDefinition(name, description, schema, callback);
+            return new DeepSeekToolDefinition(name, description, schema, callback, timeoutInSeconds);
         }
     }
 }
@@ -0,0 +1,258 @@
+package de.entwicklertraining.deepseek4j;
+
+import de.entwicklertraining.api.base.ApiClientSettings;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionRequest;
+import de.entwicklertraining.deepseek4j.transport.DeepSeekHttpClientTransport;
+import de.entwicklertraining.deepseek4j.transport.DeepSeekInProcessTransport;
+import de.entwicklertraining.deepseek4j.transport.DeepSeekTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Options of {@link DeepSeekClient#warmUp(DeepSeekWarmUp)}, which moves the one-time costs of a new process (DNS
+ * lookup, TCP and TLS handshakes, class loading and JIT compilation of the request and response paths) from the
+ * first real requests to startup:
+ * <ol>
+ *   <li>It opens {@link Builder#connections(int) connections} connections to the base URL with as many concurrent
+ *       requests through the {@link DeepSeekTransport} of the client, which keeps them for the following
+ *       requests. These are {@code GET /models} requests with {@link Builder#fetchModels(boolean) fetchModels},
+ *       otherwise unauthenticated {@code HEAD} requests whose response does not matter.</li>
+ *   <li>It runs {@link Builder#iterations(int) iterations} chat completions, alternately with a tool call and
+ *       streaming, against canned responses in the same JVM, so serialization, response and stream parsing and
+ *       the tool loop are compiled before real traffic arrives. This costs no tokens.</li>
+ * </ol>
+ * Connections that cannot be opened are logged and counted in the {@link Result}, but do not fail the warm-up.
+ * <p>
+ * With HTTP/2, an {@link java.net.http.HttpClient} sends concurrent requests over a single connection; to keep
+ * several, use a {@link DeepSeekHttpClientTransport} with as many connections, whose count is then the default.
+ */
+public final class DeepSeekWarmUp {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeepSeekWarmUp.class);
+
+    private static final String TOOL_CALL_RESPONSE = """
+            {"id":"warm-up-1","object":"chat.completion","created":0,"model":"deepseek-chat","choices":[{"index":0,\
+            "message":{"role":"assistant","content":null,"tool_calls":[{"id":"call_0","type":"function",\
+            "function":{"name":"warm_up","arguments":"{\\"city\\":\\"Berlin\\"}"}}]},"finish_reason":"tool_calls"}],\
+            "usage":{"prompt_tokens":64,"completion_tokens":16,"total_tokens":80,"prompt_cache_hit_tokens":0,\
+            "prompt_cache_miss_tokens":64}}""";
+
+    private static final String FINAL_RESPONSE = """
+            {"id":"warm-up-2","object":"chat.completion","created":0,"model":"deepseek-chat","choices":[{"index":0,\
+            "message":{"role":"assistant","content":"It is sunny in Berlin."},"finish_reason":"stop"}],\
+            "usage":{"prompt_tokens":96,"completion_tokens":8,"total_tokens":104,"prompt_cache_hit_tokens":64,\
+            "prompt_cache_miss_tokens":32}}""";
+
+    private static final List<String> STREAM_EVENTS = List.of(
+            "{\"id\":\"warm-up-3\",\"object\":\"chat.completion.chunk\",\"created\":0,\"model\":\"deepseek-chat\",\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"It is \"},\"finish_reason\":null}]}",
+            "{\"id\":\"warm-up-3\",\"object\":\"chat.completion.chunk\",\"created\":0,\"model\":\"deepseek-chat\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"sunny.\"},\"finish_reason\":\"stop\"}]}",
+            "{\"id\":\"warm-up-3\",\"object\":\"chat.completion.chunk\",\"created\":0,\"model\":\"deepseek-chat\",\"choices\":[],\"usage\":{\"prompt_tokens\":32,\"completion_tokens\":4,\"total_tokens\":36}}");
+
+    /**
+     * The outcome of a warm-up.
+     *
+     * @param duration          The time of the whole warm-up.
+     * @param connectDuration   The time until all connections were open (or had failed).
+     * @param codecDuration     The time of the in-process chat completions.
+     * @param connections       The number of connection requests that succeeded.
+     * @param failedConnections The number of connection requests that failed or timed out.
+     * @param iterations        The number of in-process chat completions.
+     * @param modelsFetched     Whether at least one {@code GET /models} succeeded.
+     */
+    public record Result(Duration duration, Duration connectDuration, Duration codecDuration, int connections,
+                         int failedConnections, int iterations, boolean modelsFetched) {
+    }
+
+    private final int connections;
+    private final int iterations;
+    private final boolean fetchModels;
+    private final String model;
+    private final Duration timeout;
+
+    private DeepSeekWarmUp(Builder builder) {
+        this.connections = builder.connections;
+        this.iterations = builder.iterations;
+        this.fetchModels = builder.fetchModels;
+        this.model = builder.model;
+        this.timeout = builder.timeout;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    Result run(DeepSeekClient client, String baseUrl) {
+        long start = System.nanoTime();
+        DeepSeekTransport transport = client.getTransport();
+        int connectionCount = connections;
+        if (connectionCount == 0) {
+            connectionCount = (transport instanceof DeepSeekHttpClientTransport httpClientTransport) ? httpClientTransport.getHttpClients().size() : 1;
+        }
+
+        List<CompletableFuture<?>> requests = new ArrayList<>(connectionCount);
+        for (int i = 0; i < connectionCount; i++) {
+            if (fetchModels) {
+                requests.add(client.models().executeAsync());
+            } else {
+                HttpRequest ping = HttpRequest.newBuilder(URI.create(baseUrl))
+                        .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                        .timeout(timeout)
+                        .build();
+                requests.add(transport.sendAsync(ping, HttpResponse.BodyHandlers.discarding()));
+            }
+        }
+        int opened = 0;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (CompletableFuture<?> request : requests) {
+            try {
+                request.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                opened++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                requests.forEach(r -> r.cancel(true));
+                break;
+            } catch (Exception e) {
+                request.cancel(true);
+                logger.warn("Warm-up request to {} failed: {}", baseUrl, e.toString());
+            }
+        }
+        long connected = System.nanoTime();
+
+        int completed = runCompletions(baseUrl);
+        long end = System.nanoTime();
+
+        Result result = new Result(Duration.ofNanos(end - start), Duration.ofNanos(connected - start), Duration.ofNanos(end - connected),
+                opened, connectionCount - opened, completed, fetchModels && opened > 0);
+        logger.info("Warm-up took {} ms: {} of {} connections in {} ms, {} chat completions in {} ms.",
+                result.duration().toMillis(), opened, connectionCount, result.connectDuration().toMillis(),
+                completed, result.codecDuration().toMillis());
+        return result;
+    }
+
+    /**
+     * Runs the chat completions on a separate client, so that they neither go over the network nor show up in the
+     * metrics, cache statistics and token calibration of the client that is warmed up.
+     */
+    private int runCompletions(String baseUrl) {
+        if (iterations == 0) {
+            return 0;
+        }
+        DeepSeekClient scratchClient = new DeepSeekClient(ApiClientSettings.builder().setBearerAuthenticationKey("warm-up").build(), baseUrl);
+        try (DeepSeekInProcessTransport transport = new DeepSeekInProcessTransport(request -> {
+            String body = request.bodyAsString();
+            if (body.contains("\"stream\":true")) {
+                return DeepSeekInProcessTransport.Response.eventStream(STREAM_EVENTS);
+            }
+            return DeepSeekInProcessTransport.Response.json(200, body.contains("\"role\":\"tool\"") ? FINAL_RESPONSE : TOOL_CALL_RESPONSE);
+        })) {
+            scratchClient.setTransport(transport);
+            DeepSeekToolDefinition tool = DeepSeekToolDefinition.builder("warm_up")
+                    .description("Get the weather of a city.")
+                    .parameter("city", DeepSeekJsonSchema.stringSchema("Name of the city"), true)
+                    .callback(context -> DeepSeekToolResult.of("Sunny in " + context.arguments().getString("city") + "."))
+                    .build();
+            int completed = 0;
+            for (int i = 0; i < iterations && !Thread.currentThread().isInterrupted(); i++) {
+                DeepSeekCompletionRequest.Builder builder = DeepSeekCompletionRequest.builder(scratchClient)
+                        .model(model)
+                        .addSystemMessage("You are a helpful assistant.")
+                        .addUserMessage("What is the weather in Berlin? (" + i + ")")
+                        .temperature(0.7)
+                        .maxTokens(256);
+                try {
+                    if (i % 2 == 0) {
+                        builder.addTool(tool).execute();
+                    } else {
+                        builder.stream(true)
+                                .streamOptions(DeepSeekCompletionRequest.DeepSeekStreamOptions.withUsage(true))
+                                .executeStreaming(chunk -> {
+                                });
+                    }
+                    completed++;
+                } catch (RuntimeException e) {
+                    logger.warn("Warm-up chat completion failed: {}", e.toString());
+                    break;
+                }
+            }
+            return completed;
+        } finally {
+            scratchClient.closeHttpClient();
+        }
+    }
+
+    public static final class Builder {
+        private int connections;
+        private int iterations = 500;
+        private boolean fetchModels;
+        private String model = "deepseek-chat";
+        private Duration timeout = Duration.ofSeconds(10);
+
+        private Builder() {
+        }
+
+        /**
+         * Number of concurrent requests that open connections. 0 (default) uses the number of connections of a
+         * {@link DeepSeekHttpClientTransport}, or 1 for other transports.
+         */
+        public Builder connections(int connections) {
+            if (connections < 0) {
+                throw new IllegalArgumentException("connections must not be negative.");
+            }
+            this.connections = connections;
+            return this;
+        }
+
+        /**
+         * Number of in-process chat completions (default 500). 0 skips them.
+         */
+        public Builder iterations(int iterations) {
+            if (iterations < 0) {
+                throw new IllegalArgumentException("iterations must not be negative.");
+            }
+            this.iterations = iterations;
+            return this;
+        }
+
+        /**
+         * Whether connections are opened with authenticated {@code GET /models} requests instead of {@code HEAD}
+         * requests (default false), which also verifies the API key and warms up the models response.
+         */
+        public Builder fetchModels(boolean fetchModels) {
+            this.fetchModels = fetchModels;
+            return this;
+        }
+
+        /**
+         * Model of the in-process chat completions (default deepseek-chat).
+         */
+        public Builder model(String model) {
+            this.model = Objects.requireNonNull(model, "model");
+            return this;
+        }
+
+        /**
+         * How long to wait for the connections (default 10 seconds).
+         */
+        public Builder timeout(Duration timeout) {
+            if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+                throw new IllegalArgumentException("timeout must be positive.");
+            }
+            this.timeout = timeout;
+            return this;
+        }
+
+        public DeepSeekWarmUp build() {
+            return new DeepSeekWarmUp(this);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Append-only checkpoint file of a batch run. Every finished item is written as one line
+ * "index TAB request-hash TAB response-JSON", where the request hash is the SHA-256 hash of the request body and
+ * the response is re-serialized JSON without line breaks (the HTTP body may contain keep-alive blank lines and a
+ * trailing newline). On resume, only the positions of the finished responses are kept in memory; a response is
+ * read from the file again when it is re-emitted, and only if the request at that index has the same hash.
+ * <p>
+ * An incomplete last line (the run crashed while writing it) is cut off when the file is opened. If an index occurs
+ * more than once (its request changed between runs), the last line wins.
+ */
+final class DeepSeekBatchCheckpoint implements Closeable {
+
+    private static final int HASH_LENGTH = 64;
+
+    private record Entry(String requestHash, long offset, int length) {}
+
+    private final FileChannel channel;
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private long size;
+
+    private DeepSeekBatchCheckpoint(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    static DeepSeekBatchCheckpoint open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        DeepSeekBatchCheckpoint checkpoint = new DeepSeekBatchCheckpoint(channel);
+        try {
+            checkpoint.load();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return checkpoint;
+    }
+
+    /**
+     * @return The SHA-256 hash of the request body, in hex.
+     */
+    static String hashOf(DeepSeekCompletionRequest request) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(request.getBodyBytes()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private void load() throws IOException {
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(0)));
+        long position = 0;
+        long lineStart = 0;
+        long index = 0;
+        StringBuilder hash = new StringBuilder(HASH_LENGTH);
+        int field = 0; // 0: index, 1: request hash, 2: response
+        long jsonStart = -1;
+        int b;
+        while ((b = in.read()) != -1) {
+            if (field == 0) {
+                if (b == '\t' && position > lineStart) {
+                    field = 1;
+                } else if (b >= '0' && b <= '9') {
+                    index = index * 10 + (b - '0');
+                } else {
+                    throw new IOException("Corrupt checkpoint line at byte " + lineStart);
+                }
+            } else if (field == 1) {
+                if (b == '\t' && hash.length() == HASH_LENGTH) {
+                    field = 2;
+                    jsonStart = position + 1;
+                } else if (hash.length() < HASH_LENGTH && ((b >= '0' && b <= '9') || (b >= 'a' && b <= 'f'))) {
+                    hash.append((char) b);
+                } else {
+                    throw new IOException("Corrupt checkpoint line at byte " + lineStart);
+                }
+            } else if (b == '\n') {
+                entries.put(index, new Entry(hash.toString(), jsonStart, (int) (position - jsonStart)));
+                lineStart = position + 1;
+                index = 0;
+                hash.setLength(0);
+                field = 0;
+            }
+            position++;
+        }
+        // Everything after the last complete line was not fully written
+        channel.truncate(lineStart);
+        size = lineStart;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return true if a response for the request at the index is recorded and the request has not changed.
+     */
+    boolean contains(long index, String requestHash) {
+        Entry entry = entries.get(index);
+        return entry != null && entry.requestHash().equals(requestHash);
+    }
+
+    String read(long index) throws IOException {
+        Entry entry = entries.get(index);
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length());
+        long position = entry.offset();
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of checkpoint file");
+            }
+            position += read;
+        }
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends a finished item. The line is written with a single positional write, so a crash leaves at most
+     * one incomplete line behind. The data reaches the operating system immediately, so it survives a crash of the JVM.
+     *
+     * @param response The response as JSON on a single line.
+     */
+    synchronized void append(long index, String requestHash, String response) throws IOException {
+        if (response.indexOf('\n') >= 0 || response.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Checkpoint entries must not contain line breaks.");
+        }
+        byte[] json = response.getBytes(StandardCharsets.UTF_8);
+        byte[] prefix = (index + "\t" + requestHash + "\t").getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buffer = ByteBuffer.allocate(prefix.length + json.length + 1);
+        buffer.put(prefix).put(json).put((byte) '\n').flip();
+        long position = size;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        size = position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,290 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import de.entwicklertraining.api.base.ApiClient;
+import de.entwicklertraining.deepseek4j.DeepSeekClient;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Executes a large number of independent chat completion requests, e.g. for nightly bulk jobs.
+ * <p>
+ * At most {@code maxConcurrency} requests are in flight; the next request is only taken from the iterator
+ * when a slot is free, so the input may be a lazily generated stream of any length. Every result is passed
+ * to the consumer tagged with the position of its request in the input, either in completion order or in
+ * input order. The consumer is never called concurrently. A failed request does not abort the batch.
+ * <p>
+ * With a checkpoint file, every finished response is appended to that file together with a hash of its request
+ * body. If a run is repeated with the same input (in the same order), finished items are not sent again: their
+ * responses are read from the checkpoint and re-emitted with {@link Result#restored()} set. An item whose request
+ * differs from the recorded one (the input was changed or reordered) is sent again.
+ */
+public final class DeepSeekBatchExecutor {
+
+    /**
+     * The order in which results are passed to the consumer.
+     */
+    public enum Order {
+        /** As soon as a request is finished. */
+        COMPLETION,
+        /** In the order of the input. A slow request holds back the results after it (but never more than maxConcurrency). */
+        INPUT
+    }
+
+    /**
+     * The result of one request of the batch: either a response or the error of the request.
+     *
+     * @param index    Position of the request in the input (starting at 0).
+     * @param response The response, or null if the request failed.
+     * @param error    The error, or null if the request succeeded.
+     * @param restored true if the response was read from the checkpoint instead of being requested again.
+     */
+    public record Result(long index, DeepSeekCompletionResponse response, Throwable error, boolean restored) {
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    /**
+     * Counts of a finished batch run.
+     */
+    public record Summary(long total, long succeeded, long failed, long restored) {}
+
+    private final DeepSeekClient client;
+    private final int maxConcurrency;
+    private final Order order;
+    private final Path checkpointFile;
+    private final boolean useExponentialBackoff;
+
+    private DeepSeekBatchExecutor(Builder builder) {
+        this.client = builder.client;
+        this.maxConcurrency = builder.maxConcurrency;
+        this.order = builder.order;
+        this.checkpointFile = builder.checkpointFile;
+        this.useExponentialBackoff = builder.useExponentialBackoff;
+    }
+
+    public static Builder builder(DeepSeekClient client) {
+        return new Builder(client);
+    }
+
+    /**
+     * Executes all requests of the stream. Blocks until every result has been passed to the consumer.
+     */
+    public Summary execute(Stream<DeepSeekCompletionRequest> requests, Consumer<Result> resultConsumer) {
+        return execute(requests.iterator(), resultConsumer);
+    }
+
+    /**
+     * Executes all requests of the iterator. Blocks until every result has been passed to the consumer.
+     * If the consumer throws, no further requests are started and the exception is rethrown at the end.
+     */
+    public Summary execute(Iterator<DeepSeekCompletionRequest> requests, Consumer<Result> resultConsumer) {
+        Objects.requireNonNull(requests, "requests");
+        Objects.requireNonNull(resultConsumer, "resultConsumer");
+
+        DeepSeekBatchCheckpoint checkpoint = openCheckpoint();
+        Semaphore slots = new Semaphore(maxConcurrency);
+        Emitter emitter = new Emitter(order, resultConsumer, slots);
+        DeepSeekCompletionCallHandler handler = new DeepSeekCompletionCallHandler(client);
+        try {
+            long index = 0;
+            while (emitter.consumerFailure == null && requests.hasNext()) {
+                slots.acquireUninterruptibly();
+                DeepSeekCompletionRequest request = requests.next();
+                long itemIndex = index++;
+
+                String requestHash = null;
+                if (checkpoint != null) {
+                    try {
+                        requestHash = DeepSeekBatchCheckpoint.hashOf(request);
+                    } catch (RuntimeException e) {
+                        emitter.emit(new Result(itemIndex, null, e, false));
+                        continue;
+                    }
+                    if (checkpoint.contains(itemIndex, requestHash)) {
+                        emitter.emit(restore(checkpoint, itemIndex, request));
+                        continue;
+                    }
+                }
+                String hash = requestHash;
+
+                CompletableFuture<DeepSeekCompletionResponse> future;
+                try {
+                    future = handler.handleRequestAsync(request, useExponentialBackoff);
+                } catch (RuntimeException e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+                future.whenComplete((response, error) -> {
+                    Throwable cause = unwrap(error);
+                    if (cause == null && checkpoint != null) {
+                        try {
+                            // Re-serialized: the HTTP body may contain line breaks
+                            checkpoint.append(itemIndex, hash, response.getJson().toString());
+                        } catch (IOException | RuntimeException e) {
+                            cause = new ApiClient.ApiClientException("Could not write checkpoint for item " + itemIndex + ": " + e.getMessage(), e);
+                        }
+                    }
+                    emitter.emit(new Result(itemIndex, cause == null ? response : null, cause, false));
+                });
+            }
+            // Wait until all results have been emitted
+            slots.acquireUninterruptibly(maxConcurrency);
+        } finally {
+            closeCheckpoint(checkpoint);
+        }
+
+        if (emitter.consumerFailure != null) {
+            throw emitter.consumerFailure;
+        }
+        return new Summary(emitter.total, emitter.succeeded, emitter.total - emitter.succeeded, emitter.restored);
+    }
+
+    private DeepSeekBatchCheckpoint openCheckpoint() {
+        if (checkpointFile == null) {
+            return null;
+        }
+        try {
+            return DeepSeekBatchCheckpoint.open(checkpointFile);
+        } catch (IOException e) {
+            throw new ApiClient.ApiClientException("Could not open checkpoint file " + checkpointFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void closeCheckpoint(DeepSeekBatchCheckpoint checkpoint) {
+        if (checkpoint == null) {
+            return;
+        }
+        try {
+            checkpoint.close();
+        } catch (IOException e) {
+            throw new ApiClient.ApiClientException("Could not close checkpoint file: " + e.getMessage(), e);
+        }
+    }
+
+    private static Result restore(DeepSeekBatchCheckpoint checkpoint, long index, DeepSeekCompletionRequest request) {
+        try {
+            return new Result(index, new DeepSeekCompletionResponse(checkpoint.read(index), request), null, true);
+        } catch (IOException | RuntimeException e) {
+            return new Result(index, null, new ApiClient.ApiClientException("Could not read checkpoint for item " + index + ": " + e.getMessage(), e), true);
+        }
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        while (throwable instanceof CompletionException && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        return throwable;
+    }
+
+    /**
+     * Passes the results to the consumer (one at a time) and frees a slot for every emitted result.
+     * Slots are only freed on emission, so the reorder buffer of {@link Order#INPUT} never holds more
+     * than maxConcurrency results.
+     */
+    private static final class Emitter {
+        private final Order order;
+        private final Consumer<Result> resultConsumer;
+        private final Semaphore slots;
+        private final Map<Long, Result> pending = new TreeMap<>();
+        private long nextIndex;
+        private long total;
+        private long succeeded;
+        private long restored;
+        private volatile RuntimeException consumerFailure;
+
+        private Emitter(Order order, Consumer<Result> resultConsumer, Semaphore slots) {
+            this.order = order;
+            this.resultConsumer = resultConsumer;
+            this.slots = slots;
+        }
+
+        private synchronized void emit(Result result) {
+            if (order == Order.COMPLETION) {
+                deliver(result);
+                return;
+            }
+            pending.put(result.index(), result);
+            Result next;
+            while ((next = pending.remove(nextIndex)) != null) {
+                nextIndex++;
+                deliver(next);
+            }
+        }
+
+        private void deliver(Result result) {
+            total++;
+            if (result.isSuccess()) succeeded++;
+            if (result.restored()) restored++;
+            try {
+                if (consumerFailure == null) {
+                    resultConsumer.accept(result);
+                }
+            } catch (RuntimeException e) {
+                consumerFailure = e;
+            } finally {
+                slots.release();
+            }
+        }
+    }
+
+    public static final class Builder {
+        private final DeepSeekClient client;
+        private int maxConcurrency = 16;
+        private Order order = Order.COMPLETION;
+        private Path checkpointFile;
+        private boolean useExponentialBackoff = true;
+
+        private Builder(DeepSeekClient client) {
+            this.client = Objects.requireNonNull(client, "client");
+        }
+
+        /**
+         * Maximum number of requests in flight (default 16).
+         */
+        public Builder maxConcurrency(int maxConcurrency) {
+            if (maxConcurrency < 1) {
+                throw new IllegalArgumentException("maxConcurrency must be at least 1.");
+            }
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * Order in which results are emitted (default {@link Order#COMPLETION}).
+         */
+        public Builder order(Order order) {
+            this.order = Objects.requireNonNull(order, "order");
+            return this;
+        }
+
+        /**
+         * File to record finished items in. A run with an existing checkpoint skips the items recorded in it.
+         */
+        public Builder checkpointFile(Path checkpointFile) {
+            this.checkpointFile = checkpointFile;
+            return this;
+        }
+
+        /**
+         * Whether requests are retried with exponential backoff on 429/503 (default true).
+         */
+        public Builder useExponentialBackoff(boolean useExponentialBackoff) {
+            this.useExponentialBackoff = useExponentialBackoff;
+            return this;
+        }
+
+        public DeepSeekBatchExecutor build() {
+            return new DeepSeekBatchExecutor(this);
+        }
+    }
+}
@@ -2,29 +2,42 @@ package de.entwicklertraining.deepseek4j.chat.completion;
 
 import de.entwicklertraining.api.base.ApiClient;
 import de.entwicklertraining.deepseek4j.*;
+import de.entwicklertraining.deepseek4j.jfr.DeepSeekTurnEvent;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger; // Import Logger [cite: 38]
 import org.slf4j.LoggerFactory; // Import LoggerFactory [cite: 38]
 
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * DeepSeekCompletionCallHandler orchestrates sending a DeepSeekCompletionRequest,
  * handling any tool calls (function calls), and continuing the conversation until
- * a final answer is reached or the max turns is exceeded.
+ * a final answer is reached or the {@link DeepSeekLoopPolicy} of the request ends the loop.
  *
  * Supports:
- * - Parallel tool calls if the server chooses (though the doc says we must handle them).
+ * - Parallel tool calls if the server chooses: they are executed concurrently on the request's tool executor
+ *   (virtual threads by default) and their results are appended in the original order.
+ * - Streaming: a tool is started as soon as its streamed arguments form a complete JSON object,
+ *   so tool latency overlaps with the generation of the rest of the turn.
  * - Structured outputs (response_format) if the user set that in the request.
  * - "finish_reason" like "stop", "length", "content_filter", "tool_calls", "insufficient_system_resource"
+ *
+ * Each turn is recorded as a {@link DeepSeekTurnEvent} if a Java Flight Recorder recording enables it.
  */
 public final class DeepSeekCompletionCallHandler {
 
     private final DeepSeekClient client;
 
-    private static final int MAX_TURNS = 4;
     // Logger hinzufügen [cite: 38]
     private static final Logger logger = LoggerFactory.getLogger(DeepSeekCompletionCallHandler.class);
 
@@ -37,160 +50,567 @@ public final class DeepSeekCompletionCallHandler {
      * until a final response is reached or an error occurs.
      */
     public DeepSeekCompletionResponse handleRequest(DeepSeekCompletionRequest initialRequest, boolean useExponentialBackoff) {
+        return handleRequest(new DeepSeekConversation(client, initialRequest), useExponentialBackoff);
+    }
+
+    /**
+     * Like {@link #handleRequest(DeepSeekCompletionRequest, boolean)}, but continues the given conversation and
+     * appends the messages of the tool loop to it.
+     */
+    public DeepSeekCompletionResponse handleRequest(DeepSeekConversation conversation, boolean useExponentialBackoff) {
         // Streaming-Unterstützung prüfen [cite: 57, 58]
-        if (Boolean.TRUE.equals(initialRequest.stream())) {
-            throw new UnsupportedOperationException("Streaming responses are not currently supported by this handler.");
+        if (Boolean.TRUE.equals(conversation.template().stream())) {
+            throw new UnsupportedOperationException("Streaming requests must be executed via executeStreaming(listener).");
         }
 
-        // Modell-spezifische Validierung [cite: 39]
-        validateRequestForModel(initialRequest);
+        return runConversation(new ToolLoop(conversation, client.getMetricsListener()), withResponseCache(request -> recordUsage(useExponentialBackoff
+                ? client.sendRequestWithExponentialBackoff(request)
+                : client.sendRequest(request))));
+    }
+
+    /**
+     * Streaming variant of {@link #handleRequest(DeepSeekCompletionRequest, boolean)}: every chunk is passed to
+     * the listener as soon as it arrives. Each turn is assembled into a regular response, so tool calls are
+     * handled the same way as for non-streaming requests. The returned response is the assembled final turn.
+     */
+    public DeepSeekCompletionResponse handleStreamingRequest(DeepSeekCompletionRequest initialRequest, DeepSeekCompletionStreamListener listener, boolean useExponentialBackoff) {
+        return handleStreamingRequest(new DeepSeekConversation(client, initialRequest), listener, useExponentialBackoff);
+    }
+
+    public DeepSeekCompletionResponse handleStreamingRequest(DeepSeekConversation conversation, DeepSeekCompletionStreamListener listener, boolean useExponentialBackoff) {
+        if (!Boolean.TRUE.equals(conversation.template().stream())) {
+            throw new IllegalArgumentException("Streaming requests require 'stream' to be true.");
+        }
+        Objects.requireNonNull(listener, "listener");
+
+        ToolLoop loop = new ToolLoop(conversation, client.getMetricsListener());
+        return runConversation(loop, request -> {
+            DeepSeekCompletionStreamAccumulator accumulator = new DeepSeekCompletionStreamAccumulator();
+            // Starts each tool as soon as its arguments are complete, while the rest of the turn is still streamed
+            DeepSeekToolCallAssembler toolCallAssembler = new DeepSeekToolCallAssembler(loop.toolMap, loop.toolCallExecutor);
+            Consumer<String> eventConsumer = data -> {
+                DeepSeekCompletionChunk chunk = new DeepSeekCompletionChunk(new JSONObject(data));
+                accumulator.accept(chunk);
+                listener.onChunk(chunk);
+                toolCallAssembler.accept(chunk);
+            };
+            try {
+                if (useExponentialBackoff) {
+                    client.sendStreamingRequestWithExponentialBackoff(request, eventConsumer);
+                } else {
+                    client.sendStreamingRequest(request, eventConsumer);
+                }
+            } catch (RuntimeException e) {
+                loop.toolCallExecutor.cancelStarted();
+                throw e;
+            }
+            return recordUsage(new DeepSeekCompletionResponse(accumulator.toJson(), request));
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #handleRequest(DeepSeekCompletionRequest, boolean)}. The turns of the
+     * tool loop are chained on the returned future; no thread is blocked while waiting for DeepSeek.
+     * Tool callbacks run on the request's tool executor.
+     */
+    public CompletableFuture<DeepSeekCompletionResponse> handleRequestAsync(DeepSeekCompletionRequest initialRequest, boolean useExponentialBackoff) {
+        DeepSeekConversation conversation;
+        try {
+            conversation = new DeepSeekConversation(client, initialRequest);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return handleRequestAsync(conversation, useExponentialBackoff);
+    }
+
+    public CompletableFuture<DeepSeekCompletionResponse> handleRequestAsync(DeepSeekConversation conversation, boolean useExponentialBackoff) {
+        if (Boolean.TRUE.equals(conversation.template().stream())) {
+            return CompletableFuture.failedFuture(new UnsupportedOperationException("Streaming requests must be executed via executeStreaming(listener)."));
+        }
+        try {
+            validateRequestForModel(conversation.template());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        ToolLoop loop = new ToolLoop(conversation, client.getMetricsListener());
+        List<JSONObject> start = conversation.messages();
+        loop.start();
+        CompletableFuture<DeepSeekCompletionResponse> result = runTurnAsync(loop, 1, withResponseCacheAsync(request -> {
+            CompletableFuture<DeepSeekCompletionResponse> sent = useExponentialBackoff
+                    ? client.sendRequestWithExponentialBackoffAsync(request)
+                    : client.sendRequestAsync(request);
+            return cancelWith(sent.thenApply(this::recordUsage), sent);
+        })).whenComplete((response, error) -> {
+            loop.finish();
+            if (error != null) {
+                conversation.restore(start);
+            }
+        });
+        // Canceling the returned future cancels the running call and tool calls, and no further turn is started
+        result.whenComplete((response, error) -> {
+            if (error instanceof CancellationException) {
+                loop.cancel();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Cancels the source future when the dependent future is canceled.
+     */
+    private static <T> CompletableFuture<T> cancelWith(CompletableFuture<T> dependent, CompletableFuture<?> source) {
+        dependent.whenComplete((response, error) -> {
+            if (error instanceof CancellationException) {
+                source.cancel(true);
+            }
+        });
+        return dependent;
+    }
 
-        List<JSONObject> messages = new ArrayList<>(initialRequest.messages());
-        Map<String, DeepSeekToolDefinition> toolMap = new HashMap<>();
-        if (initialRequest.tools() != null) { // Null check added for safety
-            for (var t : initialRequest.tools()) {
-                toolMap.put(t.name(), t);
+    private CompletableFuture<DeepSeekCompletionResponse> runTurnAsync(ToolLoop loop, int turnCount,
+                                                                      Function<DeepSeekCompletionRequest, CompletableFuture<DeepSeekCompletionResponse>> sender) {
+        DeepSeekCompletionRequest request;
+        List<JSONObject> beforeTurn;
+        try {
+            request = fitToContext(loop.conversation);
+            beforeTurn = loop.conversation.messages();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (loop.canceled) {
+            return CompletableFuture.failedFuture(new CancellationException("Tool loop was canceled"));
+        }
+        DeepSeekTurnEvent turnEvent = beginTurn();
+        CompletableFuture<DeepSeekCompletionResponse> call = sender.apply(request);
+        loop.runningCall = call;
+        return loop.withTimeout(call).handle((response, error) -> {
+            if (error == null) {
+                return continueAfterTurnAsync(loop, turnCount, request, beforeTurn, turnEvent, response, sender);
             }
+            commitTurn(turnEvent, request, turnCount, null, null, error);
+            try {
+                return CompletableFuture.completedFuture(loop.afterFailure(error));
+            } catch (RuntimeException e) {
+                return CompletableFuture.<DeepSeekCompletionResponse>failedFuture(e);
+            }
+        }).thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<DeepSeekCompletionResponse> continueAfterTurnAsync(ToolLoop loop, int turnCount, DeepSeekCompletionRequest request,
+                                                                                List<JSONObject> beforeTurn, DeepSeekTurnEvent turnEvent, DeepSeekCompletionResponse response,
+                                                                                Function<DeepSeekCompletionRequest, CompletableFuture<DeepSeekCompletionResponse>> sender) {
+        JSONArray toolCallsArray;
+        try {
+            toolCallsArray = loop.appendAssistantMessage(response, request);
+        } catch (RuntimeException e) {
+            commitTurn(turnEvent, request, turnCount, response, null, e);
+            throw e;
+        }
+        commitTurn(turnEvent, request, turnCount, response, toolCallsArray, null);
+        if (toolCallsArray == null) {
+            return CompletableFuture.completedFuture(response);
         }
+        DeepSeekCompletionResponse stopResponse = loop.afterToolCallTurn(turnCount, response, beforeTurn);
+        if (stopResponse != null) {
+            return CompletableFuture.completedFuture(stopResponse);
+        }
+        List<DeepSeekToolCallExecutor.PendingToolCall> pendingToolCalls = DeepSeekToolCallExecutor.parseAll(toolCallsArray, loop.toolMap);
+        return loop.toolCallExecutor.executeAllAsync(pendingToolCalls).thenCompose(toolMessages -> {
+            loop.conversation.appendAll(toolMessages);
+            return runTurnAsync(loop, turnCount + 1, sender);
+        });
+    }
+
+    private DeepSeekCompletionResponse runConversation(ToolLoop loop, Function<DeepSeekCompletionRequest, DeepSeekCompletionResponse> sender) {
+        DeepSeekConversation conversation = loop.conversation;
+        // Modell-spezifische Validierung [cite: 39]
+        validateRequestForModel(conversation.template());
 
-        DeepSeekCompletionRequest currentRequest = initialRequest;
+        List<JSONObject> start = conversation.messages();
+        loop.start();
         int turnCount = 0;
+        try {
+            while (true) {
+                turnCount++;
+
+                // Send the request
+                DeepSeekCompletionRequest currentRequest = fitToContext(conversation);
+                List<JSONObject> beforeTurn = conversation.messages();
+                DeepSeekTurnEvent turnEvent = beginTurn();
+                DeepSeekCompletionResponse response;
+                JSONArray toolCallsArray;
+                try {
+                    response = sender.apply(currentRequest);
+                } catch (RuntimeException e) {
+                    commitTurn(turnEvent, currentRequest, turnCount, null, null, e);
+                    return loop.afterFailure(e);
+                }
+                try {
+                    toolCallsArray = loop.appendAssistantMessage(response, currentRequest);
+                } catch (RuntimeException e) {
+                    commitTurn(turnEvent, currentRequest, turnCount, response, null, e);
+                    throw e;
+                }
+                commitTurn(turnEvent, currentRequest, turnCount, response, toolCallsArray, null);
+                if (toolCallsArray == null) {
+                    return response;
+                }
+
+                // Stop here if the loop policy says so
+                DeepSeekCompletionResponse stopResponse = loop.afterToolCallTurn(turnCount, response, beforeTurn);
+                if (stopResponse != null) {
+                    return stopResponse;
+                }
+
+                // Otherwise, execute the tool calls (concurrently if there are several) and append their results
+                // in the original order; the next turn sends the grown conversation.
+                // Tool calls already started during streaming are reused.
+                List<DeepSeekToolCallExecutor.PendingToolCall> pendingToolCalls = DeepSeekToolCallExecutor.parseAll(toolCallsArray, loop.toolMap);
+                conversation.appendAll(loop.toolCallExecutor.executeAll(pendingToolCalls));
+            }
+        } catch (RuntimeException e) {
+            conversation.restore(start);
+            throw e;
+        } finally {
+            loop.finish();
+        }
+    }
+
+    /**
+     * @return A started turn event, or null if no recording enables it.
+     */
+    private static DeepSeekTurnEvent beginTurn() {
+        DeepSeekTurnEvent event = new DeepSeekTurnEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    private static void commitTurn(DeepSeekTurnEvent event, DeepSeekCompletionRequest request, int turn,
+                                   DeepSeekCompletionResponse response, JSONArray toolCallsArray, Throwable error) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.model = request.model();
+        event.turn = turn;
+        event.streaming = Boolean.TRUE.equals(request.stream());
+        event.toolCalls = (toolCallsArray != null) ? toolCallsArray.length() : 0;
+        if (response != null) {
+            List<DeepSeekCompletionResponse.Choice> choices = response.getChoices();
+            event.finishReason = choices.isEmpty() ? null : choices.get(0).getFinishReason();
+            DeepSeekCompletionResponse.Usage usage = response.getUsage();
+            if (usage != null) {
+                event.promptTokens = usage.getPromptTokens();
+                event.promptCacheHitTokens = usage.getPromptCacheHitTokens();
+                event.completionTokens = usage.getCompletionTokens();
+            }
+        }
+        if (error != null) {
+            Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+            event.error = cause.getClass().getName();
+        }
+        event.commit();
+    }
+
+    private DeepSeekCompletionResponse recordUsage(DeepSeekCompletionResponse response) {
+        DeepSeekCompletionResponse.Usage usage = response.getUsage();
+        if (usage != null) {
+            client.getPromptCacheStats().record(usage.getPromptCacheHitTokens(), usage.getPromptCacheMissTokens());
+            DeepSeekTokenCalibrator tokenCalibrator = client.getTokenCalibrator();
+            if (tokenCalibrator != null) {
+                tokenCalibrator.record(response.getRequest(), usage.getPromptTokens());
+            }
+            DeepSeekMetricsListener metricsListener = client.getMetricsListener();
+            if (metricsListener != null) {
+                try {
+                    metricsListener.onUsage(response.getRequest(), usage);
+                } catch (RuntimeException e) {
+                    logger.warn("Metrics listener failed: {}", e.getMessage(), e);
+                }
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Applies the context policy of the request, if any, and returns the request to send. A trimmed history
+     * replaces the conversation's history, so messages summarized once are not summarized again in the next turn.
+     */
+    private DeepSeekCompletionRequest fitToContext(DeepSeekConversation conversation) {
+        DeepSeekCompletionRequest request = conversation.request();
+        DeepSeekContextPolicy contextPolicy = request.contextPolicy();
+        if (contextPolicy == null) {
+            return request;
+        }
+        List<JSONObject> fitted = contextPolicy.apply(request);
+        if (fitted == request.messages()) {
+            return request;
+        }
+        conversation.replaceMessages(fitted);
+        return conversation.request();
+    }
 
-        while (true) {
-            turnCount++;
-            if (turnCount > MAX_TURNS) {
-                throw new ApiClient.ApiClientException("Exceeded maximum of " + MAX_TURNS + " DeepSeek call iterations without final stop.");
+    /**
+     * Answers cacheable requests from the client's response cache, if one is set, and stores the responses of misses.
+     */
+    private Function<DeepSeekCompletionRequest, DeepSeekCompletionResponse> withResponseCache(Function<DeepSeekCompletionRequest, DeepSeekCompletionResponse> sender) {
+        DeepSeekResponseCache cache = client.getResponseCache();
+        if (cache == null) {
+            return sender;
+        }
+        return request -> {
+            String key = cache.keyOf(request);
+            if (key == null) {
+                return sender.apply(request);
+            }
+            DeepSeekCompletionResponse cached = cache.get(key, request);
+            if (cached != null) {
+                return cached;
+            }
+            DeepSeekCompletionResponse response = sender.apply(request);
+            cache.put(key, response);
+            return response;
+        };
+    }
+
+    private Function<DeepSeekCompletionRequest, CompletableFuture<DeepSeekCompletionResponse>> withResponseCacheAsync(Function<DeepSeekCompletionRequest, CompletableFuture<DeepSeekCompletionResponse>> sender) {
+        DeepSeekResponseCache cache = client.getResponseCache();
+        if (cache == null) {
+            return sender;
+        }
+        return request -> {
+            String key = cache.keyOf(request);
+            if (key == null) {
+                return sender.apply(request);
             }
+            DeepSeekCompletionResponse cached = cache.get(key, request);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            CompletableFuture<DeepSeekCompletionResponse> sent = sender.apply(request);
+            return cancelWith(sent.thenApply(response -> {
+                cache.put(key, response);
+                return response;
+            }), sent);
+        };
+    }
 
-            // Send the request
-            DeepSeekCompletionResponse response;
-            if(useExponentialBackoff) {
-                // Assuming DeepSeekClient handles its own exponential backoff logic or this method is deprecated/internal
-                response = client.sendRequest(currentRequest);
-            } else {
-                response = client.sendRequestWithExponentialBackoff(currentRequest);
+    /**
+     * The state of one tool loop: the conversation it appends to, the tools that may be called, and the time
+     * and tokens used so far, which the loop policy limits.
+     */
+    private static final class ToolLoop {
+        private final DeepSeekConversation conversation;
+        private final Map<String, DeepSeekToolDefinition> toolMap = new HashMap<>();
+        private final DeepSeekToolCallExecutor toolCallExecutor;
+        private final DeepSeekLoopPolicy policy;
+        private final long startNanos = System.nanoTime();
+        private int turns;
+        private long totalTokens;
+        private double totalCost;
+        private DeepSeekCompletionResponse bestResponse;
+        private volatile CompletableFuture<?> runningCall; // the call of the current turn (async only)
+        private volatile boolean canceled;
+
+        private ToolLoop(DeepSeekConversation conversation, DeepSeekMetricsListener metricsListener) {
+            this.conversation = conversation;
+            DeepSeekCompletionRequest initialRequest = conversation.template();
+            this.policy = (initialRequest.loopPolicy() != null) ? initialRequest.loopPolicy() : DeepSeekLoopPolicy.DEFAULT;
+            if (initialRequest.tools() != null) { // Null check added for safety
+                for (var t : initialRequest.tools()) {
+                    toolMap.put(t.name(), t);
+                }
             }
+            this.toolCallExecutor = new DeepSeekToolCallExecutor(initialRequest.toolExecutor(), metricsListener);
+        }
 
+        /**
+         * Validates the response and appends the assistant message to the history.
+         * Returns the tool calls to execute, or null if the response is final.
+         */
+        private JSONArray appendAssistantMessage(DeepSeekCompletionResponse response, DeepSeekCompletionRequest currentRequest) {
             // Check if there's an "error" field in the JSON (rare)
-            if (response.getJson().has("error")) {
+            if (response.hasError()) {
                 throw new ApiClient.ApiResponseUnusableException(
-                        "DeepSeek API returned an error: " + response.getJson().toString()
+                        "DeepSeek API returned an error: " + response.toJsonString()
                 );
             }
 
             // Extract the first choice and message
-            JSONObject firstChoice = response.getJson().optJSONArray("choices").optJSONObject(0);
+            List<DeepSeekCompletionResponse.Choice> choices = response.getChoices();
+            DeepSeekCompletionResponse.Choice firstChoice = choices.isEmpty() ? null : choices.get(0);
             if (firstChoice == null) {
                 throw new ApiClient.ApiResponseUnusableException(
-                        "DeepSeek API response missing 'choices' array or first choice object. Response: " + response.getJson().toString()
+                        "DeepSeek API response missing 'choices' array or first choice object. Response: " + response.toJsonString()
                 );
             }
-            JSONObject assistantMessage = firstChoice.optJSONObject("message");
+            DeepSeekCompletionResponse.Message assistantMessage = firstChoice.getMessage();
             if (assistantMessage == null) {
                 throw new ApiClient.ApiResponseUnusableException(
-                        "DeepSeek API response missing 'message' object in first choice. Response: " + response.getJson().toString()
+                        "DeepSeek API response missing 'message' object in first choice. Response: " + response.toJsonString()
                 );
             }
 
-            String finishReason = firstChoice.optString("finish_reason", null);
+            String finishReason = firstChoice.getFinishReason();
 
 
             // Add the assistant message to the conversation
             // NEU: Entferne reasoning_content für deepseek-reasoner, bevor es zur Historie hinzugefügt wird [cite: 54, 55]
-            JSONObject messageToAdd = new JSONObject(assistantMessage.toString()); // Kopie erstellen
+            JSONObject messageToAdd = assistantMessage.toJson(); // Kopie erstellen
             if ("deepseek-reasoner".equals(currentRequest.model())) {
                 messageToAdd.remove("reasoning_content");
             }
-            messages.add(messageToAdd); // [cite: 56]
+            conversation.append(messageToAdd); // [cite: 56]
 
 
             // Extract tool_calls if any
-            JSONArray toolCallsArray = assistantMessage.optJSONArray("tool_calls");
+            JSONArray toolCallsArray = messageToAdd.optJSONArray("tool_calls");
 
 
             if (toolCallsArray == null || toolCallsArray.isEmpty()) {
                 // No further tool calls -> final
                 if ("tool_calls".equals(finishReason)) {
                     // This case might indicate an API inconsistency, but we handle it gracefully.
-                    logger.warn("DeepSeek finish_reason is 'tool_calls' but no 'tool_calls' array found in the message. Returning current response. Response: {}", response.getJson());
+                    logger.warn("DeepSeek finish_reason is 'tool_calls' but no 'tool_calls' array found in the message. Returning current response. Response: {}", response.toJsonString());
                 }
-                return response;
+                return null;
             } else if (!"tool_calls".equals(finishReason)) {
                 // Log a warning if tools are present but finish_reason isn't 'tool_calls'
-                logger.warn("DeepSeek response contains 'tool_calls' but finish_reason is '{}'. Processing tool calls anyway. Response: {}", finishReason, response.getJson());
+                logger.warn("DeepSeek response contains 'tool_calls' but finish_reason is '{}'. Processing tool calls anyway. Response: {}", finishReason, response.toJsonString());
             }
+            return toolCallsArray;
+        }
 
+        /**
+         * With a timeout, cancels the requests of the conversation once it has expired.
+         */
+        private void start() {
+            if (policy.timeout() != null) {
+                Supplier<Boolean> canceled = conversation.template().getIsCanceledSupplier();
+                conversation.setCancelSupplier(() -> isExpired() || Boolean.TRUE.equals(canceled.get()));
+            }
+        }
 
-            // Otherwise, process each tool call
-            for (int i = 0; i < toolCallsArray.length(); i++) {
-                JSONObject toolCallObj = toolCallsArray.optJSONObject(i);
-                if (toolCallObj == null) continue; // Skip invalid entries
-
-                String toolCallId = toolCallObj.optString("id", null);
-                JSONObject functionObj = toolCallObj.optJSONObject("function");
+        private void finish() {
+            conversation.setCancelSupplier(null);
+        }
 
-                if (toolCallId == null || functionObj == null) {
-                    logger.error("Invalid tool_call entry missing 'id' or 'function': {}", toolCallObj);
-                    // Decide whether to throw or continue; continuing might be more robust
-                    continue;
-                    // throw new ApiClient.ApiResponseUnusableException("Invalid 'tool_call' object missing 'id' or 'function'. " + toolCallObj);
-                }
+        /**
+         * Cancels an asynchronous loop: its running call and tool calls, and every later turn.
+         */
+        private void cancel() {
+            canceled = true;
+            CompletableFuture<?> call = runningCall;
+            if (call != null) {
+                call.cancel(true);
+            }
+            toolCallExecutor.cancelStarted();
+        }
 
-                String toolName = functionObj.optString("name", null);
+        private boolean isExpired() {
+            return policy.timeout() != null && System.nanoTime() - startNanos >= policy.timeout().toNanos();
+        }
 
-                if (toolName == null || toolName.isBlank()) {
-                    throw new ApiClient.ApiResponseUnusableException(
-                            "Missing 'name' in tool call function object. " + toolCallObj
-                    );
+        /**
+         * Completes the future of a call exceptionally when the timeout expires (the client only checks the cancel
+         * supplier of asynchronous requests before each attempt).
+         */
+        private CompletableFuture<DeepSeekCompletionResponse> withTimeout(CompletableFuture<DeepSeekCompletionResponse> future) {
+            if (policy.timeout() == null || future.isDone()) {
+                return future;
+            }
+            CompletableFuture<DeepSeekCompletionResponse> result = new CompletableFuture<>();
+            future.whenComplete((response, error) -> {
+                if (error == null) {
+                    result.complete(response);
+                } else {
+                    result.completeExceptionally(error);
                 }
-                if (!toolMap.containsKey(toolName)) {
-                    throw new ApiClient.ApiResponseUnusableException(
-                            "Unknown tool call name referenced by model: " + toolName
-                    );
+            });
+            long remainingNanos = policy.timeout().toNanos() - (System.nanoTime() - startNanos);
+            CompletableFuture.delayedExecutor(Math.max(0, remainingNanos), TimeUnit.NANOSECONDS).execute(() -> {
+                if (result.completeExceptionally(new ApiClient.ApiTimeoutException("Request was canceled"))) {
+                    future.cancel(true);
                 }
+            });
+            return result;
+        }
 
-                // Parse arguments
-                JSONObject args;
-                String argsString = functionObj.optString("arguments", null);
-                if (argsString == null) {
-                    // Some functions might not require arguments
-                    args = new JSONObject();
-                    logger.warn("Missing 'arguments' string for tool call '{}'. Assuming empty arguments.", toolName);
-                } else {
-                    try {
-                        args = new JSONObject(argsString);
-                    } catch (Exception e) {
-                        throw new ApiClient.ApiResponseUnusableException(
-                                "Failed to parse arguments JSON string for tool call '" + toolName + "'. " +
-                                        "Arguments: '" + argsString + "' Error: " + e.getMessage()
-                        );
-                    }
-                }
+        /**
+         * Records a turn that asked for tool calls and applies the loop policy.
+         *
+         * @param beforeTurn The messages before the assistant message of the turn.
+         * @return The response to end the loop with, or null to execute the tool calls and continue.
+         * @throws ApiClient.ApiClientException if a limit has been reached and partial results are not returned.
+         */
+        private DeepSeekCompletionResponse afterToolCallTurn(int turn, DeepSeekCompletionResponse response, List<JSONObject> beforeTurn) {
+            turns = turn;
+            DeepSeekCompletionResponse.Usage usage = response.getUsage();
+            if (usage != null) {
+                totalTokens += (long) usage.getPromptTokens() + usage.getCompletionTokens();
+                totalCost += policy.costOf(usage);
+            }
+            if (hasContent(response) || bestResponse == null || !hasContent(bestResponse)) {
+                bestResponse = response;
+            }
 
-                // Invoke the tool callback
-                DeepSeekToolDefinition toolDef = toolMap.get(toolName);
-                DeepSeekToolResult toolResult;
-                try {
-                    toolResult = toolDef.callback().handle(new DeepSeekToolCallContext(args));
-                    if(toolResult == null || toolResult.content() == null) {
-                        throw new IllegalStateException("Tool callback for '" + toolName + "' returned null result or null content.");
-                    }
-                } catch (Exception e) {
-                    // Catch exceptions from the tool implementation itself
-                    logger.error("Exception occurred during execution of tool '{}': {}", toolName, e.getMessage(), e);
-                    throw new ApiClient.ApiClientException("Error executing tool '" + toolName + "': " + e.getMessage(), e);
+            DeepSeekLoopPolicy.Progress progress = progress(response);
+            if (policy.shouldStop(progress)) {
+                logger.debug("Stop condition ended the tool loop after {} turns.", turn);
+                return stopEarly(beforeTurn);
+            }
+            DeepSeekLoopPolicy.Limit limit = policy.reachedLimit(progress);
+            if (limit == null) {
+                return null;
+            }
+            if (!policy.returnPartialResult()) {
+                throw policy.limitException(limit, progress, null);
+            }
+            logger.debug("Tool loop reached its {} limit after {} turns, returning the best response so far.", limit, turn);
+            return stopEarly(beforeTurn);
+        }
+
+        /**
+         * Maps a failed call to a timeout of the loop if it has expired.
+         *
+         * @return The best response so far, if the loop has expired and partial results are returned.
+         */
+        private DeepSeekCompletionResponse afterFailure(Throwable error) {
+            Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+            if (!isExpired()) {
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
                 }
+                throw new CompletionException(cause);
+            }
+            if (policy.returnPartialResult() && bestResponse != null) {
+                logger.debug("Tool loop reached its timeout after {} turns, returning the best response so far.", turns);
+                return bestResponse;
+            }
+            throw policy.limitException(DeepSeekLoopPolicy.Limit.TIMEOUT, progress(bestResponse), cause);
+        }
 
+        private DeepSeekCompletionResponse stopEarly(List<JSONObject> beforeTurn) {
+            // The tool calls of the turn remain unanswered, so the assistant message is not kept
+            conversation.restore(beforeTurn);
+            toolCallExecutor.cancelStarted();
+            return bestResponse;
+        }
 
-                // Append a new "tool" role message
-                messages.add(new JSONObject()
-                        .put("role", "tool")
-                        .put("tool_call_id", toolCallId) // Use the parsed toolCallId
-                        .put("content", toolResult.content()));
-            }
+        private DeepSeekLoopPolicy.Progress progress(DeepSeekCompletionResponse lastResponse) {
+            return new DeepSeekLoopPolicy.Progress(turns, Duration.ofNanos(System.nanoTime() - startNanos), totalTokens, totalCost, lastResponse);
+        }
 
-            // Build a new request with updated messages
-            currentRequest = buildNextRequest(initialRequest, messages);
+        private static boolean hasContent(DeepSeekCompletionResponse response) {
+            String content = response.assistantMessage();
+            return content != null && !content.isBlank();
         }
     }
 
@@ -253,40 +673,4 @@ public final class DeepSeekCompletionCallHandler {
         // Add checks for deepseek-chat if needed, though fewer restrictions apply.
         // else if ("deepseek-chat".equals(model)) { ... }
     }
-
-    // parallelToolCalls Parameter entfernt [cite: 59]
-    private DeepSeekCompletionRequest buildNextRequest(DeepSeekCompletionRequest initialReq, List<JSONObject> messages) {
-        var builder = DeepSeekCompletionRequest.builder(client)
-                .model(initialReq.model())
-                .maxExecutionTimeInSeconds(initialReq.getMaxExecutionTimeInSeconds())
-                .setCancelSupplier(initialReq.getIsCanceledSupplier())
-                .addAllMessages(messages)
-                // tools might be needed for subsequent calls if tool_choice wasn't 'none'
-                .addAllTools(initialReq.tools())
-                .responseFormat(initialReq.responseFormat())
-                // .parallelToolCalls(initialReq.parallelToolCalls()) // Entfernt [cite: 59]
-                .frequencyPenalty(initialReq.frequencyPenalty())
-                .presencePenalty(initialReq.presencePenalty())
-                .maxTokens(initialReq.maxTokens())
-                .temperature(initialReq.temperature())
-                .topP(initialReq.topP())
-                .stop(initialReq.stop())
-                .stream(initialReq.stream()) // Should be false based on earlier check, but pass it along
-                .logprobs(initialReq.logprobs())
-                .topLogprobs(initialReq.topLogprobs())
-                // Pass tool_choice along for the next turn, model might decide differently
-                .toolChoice(initialReq.toolChoice())
-                // Pass streamOptions along as well
-                .streamOptions(initialReq.streamOptions());
-
-
-        if (initialReq.hasCaptureOnSuccess()) {
-            builder.captureOnSuccess(initialReq.getCaptureOnSuccess());
-        }
-        if (initialReq.hasCaptureOnError()) {
-            builder.captureOnError(initialReq.getCaptureOnError());
-        }
-
-        return builder.build();
-    }
-}
\ No newline at end of file
+}
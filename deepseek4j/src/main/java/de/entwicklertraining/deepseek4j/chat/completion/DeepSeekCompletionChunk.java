@@ -0,0 +1,246 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents a single chunk ("chat.completion.chunk") of a streamed DeepSeek Chat Completion.
+ * Each chunk carries the delta that was generated since the previous chunk.
+ * If stream_options.include_usage is set, the last chunk has no choices but carries the usage statistics.
+ */
+public final class DeepSeekCompletionChunk {
+
+    private final JSONObject json;
+
+    /**
+     * Constructs a DeepSeekCompletionChunk.
+     *
+     * @param json The raw JSON object of a single Server-Sent Event.
+     */
+    public DeepSeekCompletionChunk(JSONObject json) {
+        this.json = (json != null) ? json : new JSONObject();
+    }
+
+    public JSONObject getJson() {
+        return json;
+    }
+
+    /**
+     * Gets the unique identifier of the chat completion. All chunks of a stream share the same ID.
+     * @return The ID string, or null if not present.
+     */
+    public String getId() {
+        return json.optString("id", null);
+    }
+
+    /**
+     * Gets the object type, which is always "chat.completion.chunk".
+     * @return The object type string, or null if not present.
+     */
+    public String getObject() {
+        return json.optString("object", null);
+    }
+
+    /**
+     * Gets the Unix timestamp (in seconds) of when the chat completion was created.
+     * @return The creation timestamp, or 0 if not present.
+     */
+    public long getCreated() {
+        return json.optLong("created", 0L);
+    }
+
+    /**
+     * Gets the model used for the chat completion.
+     * @return The model ID string, or null if not present.
+     */
+    public String getModel() {
+        return json.optString("model", null);
+    }
+
+    /**
+     * Gets the system fingerprint representing the backend configuration used for the request.
+     * @return The system fingerprint string, or null if not present.
+     */
+    public String getSystemFingerprint() {
+        return json.optString("system_fingerprint", null);
+    }
+
+    /**
+     * Gets the list of choice deltas contained in this chunk.
+     * @return A list of Choice objects, or an empty list (e.g. for the final usage chunk).
+     */
+    public List<Choice> getChoices() {
+        JSONArray choicesArray = json.optJSONArray("choices");
+        if (choicesArray == null) {
+            return Collections.emptyList();
+        }
+        List<Choice> choices = new ArrayList<>();
+        for (int i = 0; i < choicesArray.length(); i++) {
+            JSONObject choiceJson = choicesArray.optJSONObject(i);
+            if (choiceJson != null) {
+                choices.add(new Choice(choiceJson));
+            }
+        }
+        return choices;
+    }
+
+    /**
+     * Gets the usage statistics. Only present in the final chunk if stream_options.include_usage was requested.
+     * @return A Usage object, or null if not present.
+     */
+    public DeepSeekCompletionResponse.Usage getUsage() {
+        JSONObject usageJson = json.optJSONObject("usage");
+        return (usageJson != null) ? new DeepSeekCompletionResponse.Usage(usageJson) : null;
+    }
+
+    /**
+     * Convenience method to get the content delta of the first choice.
+     * @return The content fragment, or null if this chunk carries no content.
+     */
+    public String contentDelta() {
+        Delta delta = firstDelta();
+        return (delta != null) ? delta.getContent() : null;
+    }
+
+    /**
+     * Convenience method to get the reasoning content delta of the first choice (deepseek-reasoner).
+     * @return The reasoning content fragment, or null if this chunk carries no reasoning content.
+     */
+    public String reasoningContentDelta() {
+        Delta delta = firstDelta();
+        return (delta != null) ? delta.getReasoningContent() : null;
+    }
+
+    /**
+     * Convenience method to get the finish reason of the first choice.
+     * @return The finish reason, or null as long as the choice is not finished.
+     */
+    public String finishReason() {
+        JSONArray choicesArray = json.optJSONArray("choices");
+        JSONObject firstChoice = (choicesArray != null) ? choicesArray.optJSONObject(0) : null;
+        return (firstChoice != null) ? firstChoice.optString("finish_reason", null) : null;
+    }
+
+    private Delta firstDelta() {
+        JSONArray choicesArray = json.optJSONArray("choices");
+        JSONObject firstChoice = (choicesArray != null) ? choicesArray.optJSONObject(0) : null;
+        return (firstChoice != null) ? new Choice(firstChoice).getDelta() : null;
+    }
+
+    // --- Helper Classes ---
+
+    /**
+     * Represents the delta of a single choice within a chunk.
+     */
+    public static class Choice {
+        private final JSONObject json;
+
+        Choice(JSONObject json) {
+            this.json = (json != null) ? json : new JSONObject();
+        }
+
+        public int getIndex() {
+            return json.optInt("index", 0);
+        }
+
+        /**
+         * Gets the finish reason. It is null for all chunks except the last one of a choice.
+         */
+        public String getFinishReason() {
+            return json.optString("finish_reason", null);
+        }
+
+        public Delta getDelta() {
+            JSONObject deltaJson = json.optJSONObject("delta");
+            return (deltaJson != null) ? new Delta(deltaJson) : null;
+        }
+
+        public DeepSeekCompletionResponse.Logprobs getLogprobs() {
+            JSONObject logprobsJson = json.optJSONObject("logprobs");
+            return (logprobsJson != null) ? new DeepSeekCompletionResponse.Logprobs(logprobsJson) : null;
+        }
+    }
+
+    /**
+     * Represents the message fragment generated since the previous chunk.
+     */
+    public static class Delta {
+        private final JSONObject json;
+
+        Delta(JSONObject json) {
+            this.json = (json != null) ? json : new JSONObject();
+        }
+
+        /**
+         * Gets the role. Usually only present in the first chunk.
+         */
+        public String getRole() {
+            return json.optString("role", null);
+        }
+
+        public String getContent() {
+            return json.optString("content", null);
+        }
+
+        /**
+         * Gets the reasoning content fragment (specific to deepseek-reasoner).
+         */
+        public String getReasoningContent() {
+            return json.optString("reasoning_content", null);
+        }
+
+        public List<ToolCallDelta> getToolCalls() {
+            JSONArray toolCallsArray = json.optJSONArray("tool_calls");
+            if (toolCallsArray == null) {
+                return Collections.emptyList();
+            }
+            List<ToolCallDelta> toolCalls = new ArrayList<>();
+            for (int i = 0; i < toolCallsArray.length(); i++) {
+                JSONObject toolCallJson = toolCallsArray.optJSONObject(i);
+                if (toolCallJson != null) {
+                    toolCalls.add(new ToolCallDelta(toolCallJson));
+                }
+            }
+            return toolCalls;
+        }
+    }
+
+    /**
+     * Represents a fragment of a tool call. Fragments belonging to the same tool call share the same index;
+     * the id and function name are only sent with the first fragment, the arguments are split across fragments.
+     */
+    public static class ToolCallDelta {
+        private final JSONObject json;
+
+        ToolCallDelta(JSONObject json) {
+            this.json = (json != null) ? json : new JSONObject();
+        }
+
+        public int getIndex() {
+            return json.optInt("index", 0);
+        }
+
+        public String getId() {
+            return json.optString("id", null);
+        }
+
+        public String getType() {
+            return json.optString("type", null);
+        }
+
+        public String getFunctionName() {
+            JSONObject function = json.optJSONObject("function");
+            return (function != null) ? function.optString("name", null) : null;
+        }
+
+        /** The fragment of the arguments JSON string carried by this chunk. */
+        public String getFunctionArguments() {
+            JSONObject function = json.optJSONObject("function");
+            return (function != null) ? function.optString("arguments", null) : null;
+        }
+    }
+}
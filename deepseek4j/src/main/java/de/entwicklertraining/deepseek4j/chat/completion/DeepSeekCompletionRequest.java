@@ -8,8 +8,13 @@ import de.entwicklertraining.deepseek4j.DeepSeekToolDefinition;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 /**
  * Represents a request to the DeepSeek Chat Completion API.
@@ -50,6 +55,12 @@ public final class DeepSeekCompletionRequest extends DeepSeekRequest<DeepSeekCom
     // Removed parallelToolCalls field [cite: 17]
     private final Boolean logprobs; // optional
     private final Integer topLogprobs; // optional
+    private final ExecutorService toolExecutor; // not serialized, used to run tool callbacks
+    private final boolean cacheFriendlyLayout; // not serialized, orders messages and tools for a stable prefix
+    private final DeepSeekContextPolicy contextPolicy; // not serialized, trims the history before each send
+    private final DeepSeekLoopPolicy loopPolicy; // not serialized, bounds the tool loop
+    private final DeepSeekConversation conversation; // not serialized, supplies the pre-serialized messages, or null
+    private volatile byte[] bodyBytes; // serialized lazily, at most once
 
     DeepSeekCompletionRequest(
             Builder builder,
@@ -69,7 +80,11 @@ public final class DeepSeekCompletionRequest extends DeepSeekRequest<DeepSeekCom
             Object toolChoice,
             // Removed parallelToolCalls parameter [cite: 17]
             Boolean logprobs,
-            Integer topLogprobs
+            Integer topLogprobs,
+            ExecutorService toolExecutor,
+            boolean cacheFriendlyLayout,
+            DeepSeekContextPolicy contextPolicy,
+            DeepSeekLoopPolicy loopPolicy
     ) {
         super(builder);
         this.model = model;
@@ -88,6 +103,71 @@ public final class DeepSeekCompletionRequest extends DeepSeekRequest<DeepSeekCom
         // Removed parallelToolCalls assignment [cite: 17]
         this.logprobs = logprobs;
         this.topLogprobs = topLogprobs;
+        this.toolExecutor = toolExecutor;
+        this.cacheFriendlyLayout = cacheFriendlyLayout;
+        this.contextPolicy = contextPolicy;
+        this.loopPolicy = loopPolicy;
+        this.conversation = null;
+    }
+
+    /**
+     * A request with the parameters of the template and the messages of a conversation. The parameters are shared,
+     * not copied or validated again.
+     */
+    private DeepSeekCompletionRequest(DeepSeekCompletionRequest template, List<JSONObject> messages,
+                                      DeepSeekConversation conversation, Supplier<Boolean> cancelSupplier) {
+        super(settingsOf(template, cancelSupplier));
+        this.model = template.model;
+        this.messages = messages;
+        this.frequencyPenalty = template.frequencyPenalty;
+        this.maxTokens = template.maxTokens;
+        this.presencePenalty = template.presencePenalty;
+        this.responseFormat = template.responseFormat;
+        this.stop = template.stop;
+        this.stream = template.stream;
+        this.streamOptions = template.streamOptions;
+        this.temperature = template.temperature;
+        this.topP = template.topP;
+        this.tools = template.tools;
+        this.toolChoice = template.toolChoice;
+        this.logprobs = template.logprobs;
+        this.topLogprobs = template.topLogprobs;
+        this.toolExecutor = template.toolExecutor;
+        this.cacheFriendlyLayout = template.cacheFriendlyLayout;
+        this.contextPolicy = template.contextPolicy;
+        this.loopPolicy = template.loopPolicy;
+        this.conversation = conversation;
+        template.getAdditionalHeaders().forEach(this::setHeader);
+    }
+
+    private static Builder settingsOf(DeepSeekCompletionRequest template, Supplier<Boolean> cancelSupplier) {
+        Builder builder = new Builder(null)
+                .maxExecutionTimeInSeconds(template.getMaxExecutionTimeInSeconds())
+                .setCancelSupplier((cancelSupplier != null) ? cancelSupplier : template.getIsCanceledSupplier());
+        if (template.hasCaptureOnSuccess()) {
+            builder.captureOnSuccess(template.getCaptureOnSuccess());
+        }
+        if (template.hasCaptureOnError()) {
+            builder.captureOnError(template.getCaptureOnError());
+        }
+        return builder;
+    }
+
+    /**
+     * Returns a request with the same parameters and settings and the given messages (used as they are, without
+     * copying or reordering). If a conversation is given, the body is assembled from its serialized messages.
+     *
+     * @param cancelSupplier Replaces the cancel supplier of this request, or null to keep it.
+     */
+    DeepSeekCompletionRequest withMessages(List<JSONObject> messages, DeepSeekConversation conversation, Supplier<Boolean> cancelSupplier) {
+        return new DeepSeekCompletionRequest(this, messages, conversation, cancelSupplier);
+    }
+
+    /**
+     * @return The conversation whose messages this request sends, or null.
+     */
+    DeepSeekConversation conversation() {
+        return conversation;
     }
 
     public String model() {
@@ -153,6 +233,34 @@ public final class DeepSeekCompletionRequest extends DeepSeekRequest<DeepSeekCom
         return topLogprobs;
     }
 
+    /**
+     * The executor used to run tool callbacks, or null to use the default (one virtual thread per tool call).
+     */
+    public ExecutorService toolExecutor() {
+        return toolExecutor;
+    }
+
+    /**
+     * Whether the request uses the cache-friendly layout (see {@link Builder#cacheFriendlyLayout(boolean)}).
+     */
+    public boolean cacheFriendlyLayout() {
+        return cacheFriendlyLayout;
+    }
+
+    /**
+     * The policy that fits the history into the context window before each send, or null.
+     */
+    public DeepSeekContextPolicy contextPolicy() {
+        return contextPolicy;
+    }
+
+    /**
+     * The policy that bounds the tool loop, or null for {@link DeepSeekLoopPolicy#DEFAULT}.
+     */
+    public DeepSeekLoopPolicy loopPolicy() {
+        return loopPolicy;
+    }
+
     @Override
     public String getRelativeUrl() {
         return "/chat/completions";
@@ -165,11 +273,26 @@ public final class DeepSeekCompletionRequest extends DeepSeekRequest<DeepSeekCom
 
     @Override
     public String getBody() {
-        return toJson().toString();
+        return new String(getBodyBytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the UTF-8 encoded JSON body. It is written once with a streaming generator, with sorted keys and
+     * without an intermediate JSON tree, and then reused for every send attempt. The returned array must not be modified.
+     */
+    @Override
+    public byte[] getBodyBytes() {
+        byte[] bytes = bodyBytes;
+        if (bytes == null) {
+            bytes = (conversation != null) ? conversation.writeBody(messages) : DeepSeekCompletionRequestWriter.write(this);
+            bodyBytes = bytes;
+        }
+        return bytes;
     }
 
     /**
-     * Constructs the JSON body with all relevant fields.
+     * Constructs the JSON body with all relevant fields as a JSONObject.
+     * The body that is sent is produced by {@link #getBodyBytes()} and has the same content.
      */
     public JSONObject toJson() {
         JSONObject body = new JSONObject();
@@ -232,7 +355,7 @@ public final class DeepSeekCompletionRequest extends DeepSeekRequest<DeepSeekCom
 
     @Override
     public DeepSeekCompletionResponse createResponse(String responseBody) {
-        return new DeepSeekCompletionResponse(new JSONObject(responseBody), this);
+        return new DeepSeekCompletionResponse(responseBody, this);
     }
 
     public static Builder builder(DeepSeekClient client) {
@@ -288,6 +411,10 @@ public final class DeepSeekCompletionRequest extends DeepSeekRequest<DeepSeekCom
         // Removed parallelToolCalls field [cite: 17]
         private Boolean logprobs;
         private Integer topLogprobs;
+        private ExecutorService toolExecutor;
+        private boolean cacheFriendlyLayout;
+        private DeepSeekContextPolicy contextPolicy;
+        private DeepSeekLoopPolicy loopPolicy;
 
         public Builder(DeepSeekClient client) {
             this.client = client;
@@ -440,10 +567,58 @@ public final class DeepSeekCompletionRequest extends DeepSeekRequest<DeepSeekCom
             return this;
         }
 
+        /**
+         * Sets the executor that runs the tool callbacks. If the model requests several tool calls
+         * in one turn, they are executed concurrently on this executor. Defaults to virtual threads.
+         */
+        public Builder toolExecutor(ExecutorService executor) {
+            this.toolExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Keeps the beginning of the prompt identical across requests, so that DeepSeek's context cache can reuse it
+         * (see {@link DeepSeekCompletionResponse.Usage#getPromptCacheHitTokens()}): system messages are moved in front
+         * of all other messages and tools are ordered by name. The body itself is always serialized with sorted keys.
+         */
+        public Builder cacheFriendlyLayout(boolean enabled) {
+            this.cacheFriendlyLayout = enabled;
+            return this;
+        }
+
+        /**
+         * Trims or compacts the history to the model's token budget before each send, including every turn of
+         * the tool loop. null (default) sends the history unchanged.
+         */
+        public Builder contextPolicy(DeepSeekContextPolicy contextPolicy) {
+            this.contextPolicy = contextPolicy;
+            return this;
+        }
+
+        /**
+         * Bounds the tool loop in turns, total time and token or cost budget. null (default) uses
+         * {@link DeepSeekLoopPolicy#DEFAULT}, which allows 4 turns.
+         */
+        public Builder loopPolicy(DeepSeekLoopPolicy loopPolicy) {
+            this.loopPolicy = loopPolicy;
+            return this;
+        }
+
         public DeepSeekCompletionRequest build() {
+            return build(stream);
+        }
+
+        /**
+         * Builds the request with the given stream flag, without changing the one of the builder.
+         */
+        private DeepSeekCompletionRequest build(Boolean stream) {
             // Ensure tools is not null before passing to List.copyOf
             List<DeepSeekToolDefinition> finalTools = tools == null ? List.of() : List.copyOf(tools);
             List<JSONObject> finalMessages = messages == null ? List.of() : List.copyOf(messages);
+            if (cacheFriendlyLayout) {
+                finalMessages = systemMessagesFirst(finalMessages);
+                finalTools = finalTools.stream().sorted(Comparator.comparing(DeepSeekToolDefinition::name)).toList();
+            }
 
             return new DeepSeekCompletionRequest(
                     this,
@@ -462,10 +637,29 @@ public final class DeepSeekCompletionRequest extends DeepSeekRequest<DeepSeekCom
                     toolChoice,
                     // Removed parallelToolCalls from build() call [cite: 17]
                     logprobs,
-                    topLogprobs
+                    topLogprobs,
+                    toolExecutor,
+                    cacheFriendlyLayout,
+                    contextPolicy,
+                    loopPolicy
             );
         }
 
+        private static List<JSONObject> systemMessagesFirst(List<JSONObject> messages) {
+            List<JSONObject> ordered = new ArrayList<>(messages.size());
+            for (JSONObject message : messages) {
+                if ("system".equals(message.optString("role"))) {
+                    ordered.add(message);
+                }
+            }
+            for (JSONObject message : messages) {
+                if (!"system".equals(message.optString("role"))) {
+                    ordered.add(message);
+                }
+            }
+            return List.copyOf(ordered);
+        }
+
         @Override
         public DeepSeekCompletionResponse executeWithExponentialBackoff() {
             return new DeepSeekCompletionCallHandler(client).handleRequest(build(), true);
@@ -475,5 +669,46 @@ public final class DeepSeekCompletionRequest extends DeepSeekRequest<DeepSeekCom
         public DeepSeekCompletionResponse execute() {
             return new DeepSeekCompletionCallHandler(client).handleRequest(build(), false);
         }
+
+        /**
+         * Executes the request without blocking the calling thread. The tool loop is chained asynchronously,
+         * so no thread is held while waiting for DeepSeek; tool callbacks run on the tool executor.
+         */
+        public CompletableFuture<DeepSeekCompletionResponse> executeAsync() {
+            return new DeepSeekCompletionCallHandler(client).handleRequestAsync(build(), false);
+        }
+
+        /**
+         * Like {@link #executeAsync()}, but retries with exponential backoff on retryable status codes.
+         * The delay between attempts is scheduled, not slept.
+         */
+        public CompletableFuture<DeepSeekCompletionResponse> executeWithExponentialBackoffAsync() {
+            return new DeepSeekCompletionCallHandler(client).handleRequestAsync(build(), true);
+        }
+
+        /**
+         * Builds the request and starts a {@link DeepSeekConversation} with its messages, for a dialog over
+         * several calls that reuses the parameters and the serialized history.
+         */
+        public DeepSeekConversation conversation() {
+            return new DeepSeekConversation(client, build());
+        }
+
+        /**
+         * Executes the request in streaming mode. Every chunk is passed to the listener as soon as it
+         * arrives; the returned response is assembled from all chunks once the stream has finished.
+         * Set {@link #streamOptions(DeepSeekStreamOptions)} to include the usage statistics in the final chunk.
+         */
+        public DeepSeekCompletionResponse executeStreaming(DeepSeekCompletionStreamListener listener) {
+            return new DeepSeekCompletionCallHandler(client).handleStreamingRequest(build(Boolean.TRUE), listener, false);
+        }
+
+        /**
+         * Like {@link #executeStreaming(DeepSeekCompletionStreamListener)}, but retries with exponential backoff
+         * if the server rejects the request with a retryable status code.
+         */
+        public DeepSeekCompletionResponse executeStreamingWithExponentialBackoff(DeepSeekCompletionStreamListener listener) {
+            return new DeepSeekCompletionCallHandler(client).handleStreamingRequest(build(Boolean.TRUE), listener, true);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,252 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import de.entwicklertraining.api.base.ApiClient;
+import de.entwicklertraining.deepseek4j.DeepSeekToolDefinition;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONString;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Serializes a {@link DeepSeekCompletionRequest} with Jackson's streaming generator directly into UTF-8 bytes,
+ * without building an intermediate JSONObject tree.
+ * <p>
+ * The output is canonical: object keys are written in lexicographic order, without whitespace. The same request
+ * content therefore always produces byte-identical bodies, which keeps the prompt prefix stable for DeepSeek's
+ * context cache and makes the body usable as a cache key.
+ * <p>
+ * The serialized form of a tool definition is computed once per {@link DeepSeekToolDefinition} instance and
+ * reused for every request (and every turn of the tool loop) that contains it. Output buffers are pooled.
+ * <p>
+ * For a {@link DeepSeekConversation}, the body is assembled from parts that are serialized only once: the
+ * parameters around the message array ({@link #writeEnvelope}) and each message ({@link #writeMessage}).
+ */
+final class DeepSeekCompletionRequestWriter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int BUFFER_POOL_SIZE = 16;
+    private static final BlockingQueue<ByteArrayBuilder> BUFFER_POOL = new ArrayBlockingQueue<>(BUFFER_POOL_SIZE);
+    // Tool definitions are immutable once built; weak keys let unused definitions be collected
+    private static final Map<DeepSeekToolDefinition, String> TOOL_FRAGMENTS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // Only numbers and booleans precede the messages, so the first occurrence is the field itself
+    private static final byte[] MESSAGES_FIELD = "\"messages\":[".getBytes(StandardCharsets.US_ASCII);
+
+    private DeepSeekCompletionRequestWriter() {
+    }
+
+    static byte[] write(DeepSeekCompletionRequest request) {
+        return write(generator -> writeRequest(generator, request, request.messages()));
+    }
+
+    /**
+     * Writes the request with an empty message array and splits it there.
+     *
+     * @return The bytes up to and including the opening bracket of the messages, and the bytes from the closing bracket.
+     */
+    static byte[][] writeEnvelope(DeepSeekCompletionRequest request) {
+        byte[] body = write(generator -> writeRequest(generator, request, List.of()));
+        int split = indexOf(body, MESSAGES_FIELD) + MESSAGES_FIELD.length;
+        return new byte[][]{Arrays.copyOfRange(body, 0, split), Arrays.copyOfRange(body, split, body.length)};
+    }
+
+    /**
+     * Writes a single message in the same canonical form as inside a request body.
+     */
+    static byte[] writeMessage(JSONObject message) {
+        return write(generator -> writeValue(generator, message));
+    }
+
+    /**
+     * Concatenates an envelope and the first {@code count} serialized messages into a body, with a single copy.
+     */
+    static byte[] join(byte[] prefix, byte[][] messages, int count, byte[] suffix) {
+        int length = prefix.length + suffix.length + Math.max(0, count - 1);
+        for (int i = 0; i < count; i++) {
+            length += messages[i].length;
+        }
+        byte[] body = new byte[length];
+        System.arraycopy(prefix, 0, body, 0, prefix.length);
+        int position = prefix.length;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                body[position++] = ',';
+            }
+            System.arraycopy(messages[i], 0, body, position, messages[i].length);
+            position += messages[i].length;
+        }
+        System.arraycopy(suffix, 0, body, position, suffix.length);
+        return body;
+    }
+
+    private interface Content {
+        void writeTo(JsonGenerator generator) throws IOException;
+    }
+
+    private static byte[] write(Content content) {
+        ByteArrayBuilder buffer = BUFFER_POOL.poll();
+        if (buffer == null) {
+            buffer = new ByteArrayBuilder(4096);
+        }
+        try {
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(buffer)) {
+                content.writeTo(generator);
+            }
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new ApiClient.ApiClientException("Could not serialize request: " + e.getMessage(), e);
+        } finally {
+            buffer.reset();
+            BUFFER_POOL.offer(buffer);
+        }
+    }
+
+    /**
+     * Writes the fields in lexicographic order, like every other object.
+     */
+    private static void writeRequest(JsonGenerator generator, DeepSeekCompletionRequest request, List<JSONObject> messages) throws IOException {
+        generator.writeStartObject();
+        if (request.frequencyPenalty() != null) {
+            generator.writeNumberField("frequency_penalty", request.frequencyPenalty());
+        }
+        if (request.logprobs() != null) {
+            generator.writeBooleanField("logprobs", request.logprobs());
+        }
+        if (request.maxTokens() != null) {
+            generator.writeNumberField("max_tokens", request.maxTokens());
+        }
+        generator.writeArrayFieldStart("messages");
+        for (JSONObject message : messages) {
+            writeValue(generator, message);
+        }
+        generator.writeEndArray();
+        generator.writeFieldName("model");
+        writeValue(generator, request.model());
+        if (request.presencePenalty() != null) {
+            generator.writeNumberField("presence_penalty", request.presencePenalty());
+        }
+        if (request.responseFormat() != null) {
+            generator.writeFieldName("response_format");
+            writeValue(generator, request.responseFormat().toJson());
+        }
+        if (request.stop() != null) {
+            generator.writeFieldName("stop");
+            writeValue(generator, request.stop());
+        }
+        if (request.stream() != null) {
+            generator.writeBooleanField("stream", request.stream());
+        }
+        if (request.streamOptions() != null) {
+            JSONObject streamOptions = request.streamOptions().toJson();
+            // Only add if the object is not empty
+            if (streamOptions.length() > 0) {
+                generator.writeFieldName("stream_options");
+                writeValue(generator, streamOptions);
+            }
+        }
+        if (request.temperature() != null) {
+            generator.writeNumberField("temperature", request.temperature());
+        }
+        if (request.toolChoice() != null) {
+            generator.writeFieldName("tool_choice");
+            writeValue(generator, request.toolChoice());
+        }
+        List<DeepSeekToolDefinition> tools = request.tools();
+        if (tools != null && !tools.isEmpty()) {
+            generator.writeArrayFieldStart("tools");
+            for (DeepSeekToolDefinition tool : tools) {
+                generator.writeRawValue(TOOL_FRAGMENTS.computeIfAbsent(tool, DeepSeekCompletionRequestWriter::serializeTool));
+            }
+            generator.writeEndArray();
+        }
+        if (request.topLogprobs() != null) {
+            generator.writeNumberField("top_logprobs", request.topLogprobs());
+        }
+        if (request.topP() != null) {
+            generator.writeNumberField("top_p", request.topP());
+        }
+        generator.writeEndObject();
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        outer:
+        for (int i = 0; i <= bytes.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (bytes[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        throw new IllegalStateException("Serialized request has no messages field.");
+    }
+
+    private static String serializeTool(DeepSeekToolDefinition tool) {
+        StringWriter out = new StringWriter(512);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            writeValue(generator, tool.toJson());
+        } catch (IOException e) {
+            throw new ApiClient.ApiClientException("Could not serialize tool '" + tool.name() + "': " + e.getMessage(), e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes an org.json value (JSONObject, JSONArray, String, Number, Boolean, NULL) or a value
+     * org.json would wrap (Map, Collection, array).
+     */
+    static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null || JSONObject.NULL.equals(value)) {
+            generator.writeNull();
+        } else if (value instanceof String string) {
+            generator.writeString(string);
+        } else if (value instanceof JSONObject object) {
+            String[] keys = object.keySet().toArray(new String[0]);
+            Arrays.sort(keys);
+            generator.writeStartObject();
+            for (String key : keys) {
+                generator.writeFieldName(key);
+                writeValue(generator, object.opt(key));
+            }
+            generator.writeEndObject();
+        } else if (value instanceof JSONArray array) {
+            generator.writeStartArray();
+            for (int i = 0; i < array.length(); i++) {
+                writeValue(generator, array.opt(i));
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Boolean bool) {
+            generator.writeBoolean(bool);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            generator.writeNumber(((Number) value).doubleValue());
+        } else if (value instanceof BigDecimal decimal) {
+            generator.writeNumber(decimal);
+        } else if (value instanceof BigInteger integer) {
+            generator.writeNumber(integer);
+        } else if (value instanceof JSONString jsonString) {
+            generator.writeRawValue(jsonString.toJSONString());
+        } else if (value instanceof Map || value instanceof Collection || value.getClass().isArray()) {
+            writeValue(generator, JSONObject.wrap(value));
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+}
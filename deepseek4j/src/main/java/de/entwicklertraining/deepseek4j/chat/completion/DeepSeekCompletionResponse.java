@@ -11,9 +11,22 @@ import java.util.List;
 /**
  * Represents a response from the DeepSeek Chat Completion API.
  * Provides methods to access various parts of the response data.
+ * <p>
+ * Responses received from the API are parsed once into immutable typed objects; the JSONObject returned by
+ * {@link #getJson()} is only built when it is requested. Log probabilities are parsed on first access.
  */
 public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekCompletionRequest> {
 
+    private final String body;
+    private final String id;
+    private final String object;
+    private final long created;
+    private final String model;
+    private final String systemFingerprint;
+    private final List<Choice> choices;
+    private final Usage usage;
+    private final boolean hasError;
+
     /**
      * Constructs a DeepSeekCompletionResponse.
      *
@@ -22,6 +35,60 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
      */
     public DeepSeekCompletionResponse(JSONObject json, DeepSeekCompletionRequest request) {
         super(json, request);
+        this.body = null;
+        this.id = json.optString("id", null);
+        this.object = json.optString("object", null);
+        this.created = json.optLong("created", 0L);
+        this.model = json.optString("model", null);
+        this.systemFingerprint = json.optString("system_fingerprint", null);
+        JSONArray choicesArray = json.optJSONArray("choices");
+        List<Choice> parsedChoices = new ArrayList<>();
+        if (choicesArray != null) {
+            for (int i = 0; i < choicesArray.length(); i++) {
+                JSONObject choiceJson = choicesArray.optJSONObject(i);
+                if (choiceJson != null) {
+                    parsedChoices.add(new Choice(choiceJson));
+                }
+            }
+        }
+        this.choices = List.copyOf(parsedChoices);
+        JSONObject usageJson = json.optJSONObject("usage");
+        this.usage = (usageJson != null) ? new Usage(usageJson) : null;
+        this.hasError = json.has("error");
+    }
+
+    /**
+     * Constructs a DeepSeekCompletionResponse from the response body, parsed in a single pass.
+     */
+    DeepSeekCompletionResponse(String body, DeepSeekCompletionRequest request) {
+        this(body, DeepSeekCompletionResponseParser.parse(body), request);
+    }
+
+    private DeepSeekCompletionResponse(String body, DeepSeekCompletionResponseParser.ParsedResponse parsed, DeepSeekCompletionRequest request) {
+        super(() -> new JSONObject(body), request);
+        this.body = body;
+        this.id = parsed.id();
+        this.object = parsed.object();
+        this.created = parsed.created();
+        this.model = parsed.model();
+        this.systemFingerprint = parsed.systemFingerprint();
+        this.choices = parsed.choices();
+        this.usage = parsed.usage();
+        this.hasError = parsed.hasError();
+    }
+
+    /**
+     * @return true if the response contains an "error" field.
+     */
+    boolean hasError() {
+        return hasError;
+    }
+
+    /**
+     * @return The response as JSON string, without building a JSONObject if the response was parsed from its body.
+     */
+    String toJsonString() {
+        return (body != null) ? body : getJson().toString();
     }
 
     // Top-Level Fields Getters [cite: 21]
@@ -31,7 +98,7 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
      * @return The ID string, or null if not present. [cite: 30]
      */
     public String getId() {
-        return getJson().optString("id", null); // [cite: 30]
+        return id; // [cite: 30]
     }
 
     /**
@@ -39,7 +106,7 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
      * @return The object type string, or null if not present.
      */
     public String getObject() {
-        return getJson().optString("object", null);
+        return object;
     }
 
     /**
@@ -47,7 +114,7 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
      * @return The creation timestamp, or 0 if not present.
      */
     public long getCreated() {
-        return getJson().optLong("created", 0L);
+        return created;
     }
 
     /**
@@ -55,7 +122,7 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
      * @return The model ID string, or null if not present.
      */
     public String getModel() {
-        return getJson().optString("model", null);
+        return model;
     }
 
     /**
@@ -63,26 +130,15 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
      * @return The system fingerprint string, or null if not present.
      */
     public String getSystemFingerprint() {
-        return getJson().optString("system_fingerprint", null);
+        return systemFingerprint;
     }
 
     /**
      * Gets the list of chat completion choices.
-     * @return A list of Choice objects, or an empty list if not present or invalid. [cite: 31, 32]
+     * @return An unmodifiable list of Choice objects, or an empty list if not present or invalid. [cite: 31, 32]
      */
     public List<Choice> getChoices() {
-        JSONArray choicesArray = getJson().optJSONArray("choices"); // [cite: 31]
-        if (choicesArray == null) {
-            return Collections.emptyList(); // [cite: 32]
-        }
-        List<Choice> choices = new ArrayList<>(); // [cite: 33]
-        for (int i = 0; i < choicesArray.length(); i++) { // [cite: 34]
-            JSONObject choiceJson = choicesArray.optJSONObject(i); // [cite: 34]
-            if (choiceJson != null) {
-                choices.add(new Choice(choiceJson)); // [cite: 35]
-            }
-        }
-        return choices; // [cite: 36]
+        return choices;
     }
 
     /**
@@ -90,8 +146,7 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
      * @return A Usage object, or null if the "usage" field is not present or invalid. [cite: 27]
      */
     public Usage getUsage() {
-        JSONObject usageJson = getJson().optJSONObject("usage");
-        return (usageJson != null) ? new Usage(usageJson) : null;
+        return usage;
     }
 
     /**
@@ -99,11 +154,8 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
      * @return The content string, or null if no choices or message content exists.
      */
     public String assistantMessage() {
-        return getChoices().stream()
-                .findFirst()
-                .map(Choice::getMessage)
-                .map(Message::getContent)
-                .orElse(null);
+        Message message = choices.isEmpty() ? null : choices.get(0).getMessage();
+        return (message != null) ? message.getContent() : null;
     }
 
     /**
@@ -111,10 +163,7 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
      * @return The finish reason string (e.g., "stop", "tool_calls"), or null if no choices exist.
      */
     public String finishReason() {
-        return getChoices().stream()
-                .findFirst()
-                .map(Choice::getFinishReason)
-                .orElse(null);
+        return choices.isEmpty() ? null : choices.get(0).getFinishReason();
     }
 
     // --- Helper Classes [cite: 22] ---
@@ -123,28 +172,42 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
      * Represents a single choice in the chat completion response. [cite: 23]
      */
     public static class Choice {
-        private final JSONObject json;
+        private final int index;
+        private final String finishReason;
+        private final Message message;
+        private final Logprobs logprobs;
 
         Choice(JSONObject json) { // [cite: 35]
-            this.json = (json != null) ? json : new JSONObject();
+            json = (json != null) ? json : new JSONObject();
+            this.index = json.optInt("index", 0);
+            this.finishReason = json.optString("finish_reason", null);
+            JSONObject messageJson = json.optJSONObject("message");
+            this.message = (messageJson != null) ? new Message(messageJson) : null;
+            JSONObject logprobsJson = json.optJSONObject("logprobs");
+            this.logprobs = (logprobsJson != null) ? new Logprobs(logprobsJson) : null;
+        }
+
+        Choice(int index, String finishReason, Message message, Logprobs logprobs) {
+            this.index = index;
+            this.finishReason = finishReason;
+            this.message = message;
+            this.logprobs = logprobs;
         }
 
         public int getIndex() {
-            return json.optInt("index", 0);
+            return index;
         }
 
         public String getFinishReason() {
-            return json.optString("finish_reason", null);
+            return finishReason;
         }
 
         public Message getMessage() {
-            JSONObject messageJson = json.optJSONObject("message");
-            return (messageJson != null) ? new Message(messageJson) : null;
+            return message;
         }
 
         public Logprobs getLogprobs() {
-            JSONObject logprobsJson = json.optJSONObject("logprobs");
-            return (logprobsJson != null) ? new Logprobs(logprobsJson) : null;
+            return logprobs;
         }
     }
 
@@ -152,14 +215,38 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
      * Represents a message within a choice, including content and potential tool calls. [cite: 23]
      */
     public static class Message {
-        private final JSONObject json;
+        private final String role;
+        private final String content;
+        private final String reasoningContent;
+        private final List<ToolCall> toolCalls;
 
         Message(JSONObject json) {
-            this.json = (json != null) ? json : new JSONObject();
+            json = (json != null) ? json : new JSONObject();
+            this.role = json.optString("role", null);
+            this.content = json.optString("content", null);
+            this.reasoningContent = json.optString("reasoning_content", null);
+            JSONArray toolCallsArray = json.optJSONArray("tool_calls");
+            List<ToolCall> parsedToolCalls = new ArrayList<>();
+            if (toolCallsArray != null) {
+                for (int i = 0; i < toolCallsArray.length(); i++) {
+                    JSONObject toolCallJson = toolCallsArray.optJSONObject(i);
+                    if (toolCallJson != null) {
+                        parsedToolCalls.add(new ToolCall(toolCallJson));
+                    }
+                }
+            }
+            this.toolCalls = List.copyOf(parsedToolCalls);
+        }
+
+        Message(String role, String content, String reasoningContent, List<ToolCall> toolCalls) {
+            this.role = role;
+            this.content = content;
+            this.reasoningContent = reasoningContent;
+            this.toolCalls = toolCalls;
         }
 
         public String getRole() {
-            return json.optString("role", null);
+            return role;
         }
 
         /**
@@ -167,7 +254,7 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
          * Note: For deepseek-reasoner, this might be combined content if reasoning_content is present.
          */
         public String getContent() {
-            return json.optString("content", null);
+            return content;
         }
 
         /**
@@ -175,23 +262,32 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
          * @return Reasoning content string, or null if not present.
          */
         public String getReasoningContent() {
-            return json.optString("reasoning_content", null); // [cite: 23]
+            return reasoningContent; // [cite: 23]
         }
 
 
         public List<ToolCall> getToolCalls() {
-            JSONArray toolCallsArray = json.optJSONArray("tool_calls");
-            if (toolCallsArray == null) {
-                return Collections.emptyList();
+            return toolCalls;
+        }
+
+        /**
+         * Returns the message in the form used in the "messages" array of a request.
+         */
+        public JSONObject toJson() {
+            JSONObject json = new JSONObject();
+            json.put("role", role);
+            json.put("content", (content != null) ? content : JSONObject.NULL);
+            if (reasoningContent != null) {
+                json.put("reasoning_content", reasoningContent);
             }
-            List<ToolCall> toolCalls = new ArrayList<>();
-            for (int i = 0; i < toolCallsArray.length(); i++) {
-                JSONObject toolCallJson = toolCallsArray.optJSONObject(i);
-                if (toolCallJson != null) {
-                    toolCalls.add(new ToolCall(toolCallJson));
+            if (!toolCalls.isEmpty()) {
+                JSONArray toolCallsArray = new JSONArray();
+                for (ToolCall toolCall : toolCalls) {
+                    toolCallsArray.put(toolCall.toJson());
                 }
+                json.put("tool_calls", toolCallsArray);
             }
-            return toolCalls;
+            return json;
         }
     }
 
@@ -199,24 +295,47 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
      * Represents a tool call requested by the model. [cite: 24]
      */
     public static class ToolCall {
-        private final JSONObject json;
+        private final String id;
+        private final String type;
+        private final FunctionCall function;
 
         ToolCall(JSONObject json) {
-            this.json = (json != null) ? json : new JSONObject();
+            json = (json != null) ? json : new JSONObject();
+            this.id = json.optString("id", null);
+            this.type = json.optString("type", null);
+            JSONObject functionJson = json.optJSONObject("function");
+            this.function = (functionJson != null) ? new FunctionCall(functionJson) : null;
+        }
+
+        ToolCall(String id, String type, FunctionCall function) {
+            this.id = id;
+            this.type = type;
+            this.function = function;
         }
 
         public String getId() {
-            return json.optString("id", null);
+            return id;
         }
 
         /** Always "function" for now. */
         public String getType() {
-            return json.optString("type", null);
+            return type;
         }
 
         public FunctionCall getFunction() {
-            JSONObject functionJson = json.optJSONObject("function");
-            return (functionJson != null) ? new FunctionCall(functionJson) : null;
+            return function;
+        }
+
+        JSONObject toJson() {
+            JSONObject json = new JSONObject();
+            json.put("id", id);
+            json.put("type", type);
+            if (function != null) {
+                json.put("function", new JSONObject()
+                        .put("name", function.getName())
+                        .put("arguments", function.getArguments()));
+            }
+            return json;
         }
     }
 
@@ -224,19 +343,27 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
      * Represents the function details within a tool call. [cite: 24]
      */
     public static class FunctionCall {
-        private final JSONObject json;
+        private final String name;
+        private final String arguments;
 
         FunctionCall(JSONObject json) {
-            this.json = (json != null) ? json : new JSONObject();
+            json = (json != null) ? json : new JSONObject();
+            this.name = json.optString("name", null);
+            this.arguments = json.optString("arguments", null);
+        }
+
+        FunctionCall(String name, String arguments) {
+            this.name = name;
+            this.arguments = arguments;
         }
 
         public String getName() {
-            return json.optString("name", null);
+            return name;
         }
 
         /** The arguments as a JSON string. */
         public String getArguments() {
-            return json.optString("arguments", null);
+            return arguments;
         }
 
         /**
@@ -260,15 +387,42 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
 
     /**
      * Represents log probability information for the completion. [cite: 25]
+     * <p>
+     * The token list is materialized on the first call of {@link #getContent()}.
      */
     public static class Logprobs {
         private final JSONObject json;
+        // Position of the logprobs object in the response body, if the response was parsed from its body
+        private final String body;
+        private final int start;
+        private final int end;
+        private volatile List<TokenLogprob> content;
 
         Logprobs(JSONObject json) {
             this.json = (json != null) ? json : new JSONObject();
+            this.body = null;
+            this.start = 0;
+            this.end = 0;
+        }
+
+        Logprobs(String body, int start, int end) {
+            this.json = null;
+            this.body = body;
+            this.start = start;
+            this.end = end;
         }
 
         public List<TokenLogprob> getContent() {
+            List<TokenLogprob> result = content;
+            if (result == null) {
+                // Racing threads compute equal lists, so no lock is needed
+                result = (json != null) ? readContent(json) : DeepSeekCompletionResponseParser.parseLogprobsContent(body, start, end);
+                content = result;
+            }
+            return result;
+        }
+
+        private static List<TokenLogprob> readContent(JSONObject json) {
             JSONArray contentArray = json.optJSONArray("content");
             if (contentArray == null) {
                 return Collections.emptyList();
@@ -280,7 +434,7 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
                     content.add(new TokenLogprob(tokenLogprobJson));
                 }
             }
-            return content;
+            return List.copyOf(content);
         }
     }
 
@@ -288,50 +442,52 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
      * Represents log probability information for a single token. [cite: 25]
      */
     public static class TokenLogprob {
-        private final JSONObject json;
+        private final String token;
+        private final double logprob;
+        private final List<Integer> bytes;
+        private final List<TopTokenLogprob> topLogprobs;
 
         TokenLogprob(JSONObject json) {
-            this.json = (json != null) ? json : new JSONObject();
+            json = (json != null) ? json : new JSONObject();
+            this.token = json.optString("token", null);
+            // Use optDouble which returns NaN if not found or not a number
+            this.logprob = json.optDouble("logprob", Double.NaN);
+            this.bytes = readBytes(json.optJSONArray("bytes"));
+            JSONArray topLogprobsArray = json.optJSONArray("top_logprobs");
+            List<TopTokenLogprob> parsedTopLogprobs = new ArrayList<>();
+            if (topLogprobsArray != null) {
+                for (int i = 0; i < topLogprobsArray.length(); i++) {
+                    JSONObject topTokenLogprobJson = topLogprobsArray.optJSONObject(i);
+                    if (topTokenLogprobJson != null) {
+                        parsedTopLogprobs.add(new TopTokenLogprob(topTokenLogprobJson));
+                    }
+                }
+            }
+            this.topLogprobs = List.copyOf(parsedTopLogprobs);
+        }
+
+        TokenLogprob(String token, double logprob, List<Integer> bytes, List<TopTokenLogprob> topLogprobs) {
+            this.token = token;
+            this.logprob = logprob;
+            this.bytes = bytes;
+            this.topLogprobs = topLogprobs;
         }
 
         public String getToken() {
-            return json.optString("token", null);
+            return token;
         }
 
         public double getLogprob() {
-            // Use optDouble which returns NaN if not found or not a number
-            return json.optDouble("logprob", Double.NaN);
+            return logprob;
         }
 
         /** List of integers representing the UTF-8 bytes sequence. */
         public List<Integer> getBytes() {
-            JSONArray bytesArray = json.optJSONArray("bytes");
-            if (bytesArray == null) {
-                // Handle null array case: return empty list or null as appropriate
-                return Collections.emptyList(); // Or return null if that's preferred
-            }
-            List<Integer> bytesList = new ArrayList<>();
-            for (int i = 0; i < bytesArray.length(); i++) {
-                // Use optInt or getInt depending on whether you expect non-integers
-                // optInt provides a default if the value is missing or not an int
-                bytesList.add(bytesArray.optInt(i));
-            }
-            return bytesList;
+            return bytes;
         }
 
 
         public List<TopTokenLogprob> getTopLogprobs() {
-            JSONArray topLogprobsArray = json.optJSONArray("top_logprobs");
-            if (topLogprobsArray == null) {
-                return Collections.emptyList();
-            }
-            List<TopTokenLogprob> topLogprobs = new ArrayList<>();
-            for (int i = 0; i < topLogprobsArray.length(); i++) {
-                JSONObject topTokenLogprobJson = topLogprobsArray.optJSONObject(i);
-                if (topTokenLogprobJson != null) {
-                    topLogprobs.add(new TopTokenLogprob(topTokenLogprobJson));
-                }
-            }
             return topLogprobs;
         }
     }
@@ -340,35 +496,34 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
      * Represents log probability information for one of the top alternative tokens. [cite: 26]
      */
     public static class TopTokenLogprob {
-        private final JSONObject json;
+        private final String token;
+        private final double logprob;
+        private final List<Integer> bytes;
 
         TopTokenLogprob(JSONObject json) {
-            this.json = (json != null) ? json : new JSONObject();
+            json = (json != null) ? json : new JSONObject();
+            this.token = json.optString("token", null);
+            this.logprob = json.optDouble("logprob", Double.NaN);
+            this.bytes = readBytes(json.optJSONArray("bytes"));
+        }
+
+        TopTokenLogprob(String token, double logprob, List<Integer> bytes) {
+            this.token = token;
+            this.logprob = logprob;
+            this.bytes = bytes;
         }
 
         public String getToken() {
-            return json.optString("token", null);
+            return token;
         }
 
         public double getLogprob() {
-            return json.optDouble("logprob", Double.NaN);
+            return logprob;
         }
 
         /** List of integers representing the UTF-8 bytes sequence. */
         public List<Integer> getBytes() {
-            JSONArray bytesArray = json.optJSONArray("bytes");
-            if (bytesArray == null) {
-                return Collections.emptyList();
-            }
-            // Efficient conversion if primitive array is acceptable upstream
-            // return IntStream.range(0, bytesArray.length()).map(bytesArray::optInt).boxed().collect(Collectors.toList());
-
-            // More conventional loop:
-            List<Integer> bytesList = new ArrayList<>();
-            for (int i = 0; i < bytesArray.length(); i++) {
-                bytesList.add(bytesArray.optInt(i));
-            }
-            return bytesList;
+            return bytes;
         }
     }
 
@@ -377,32 +532,54 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
      * Represents usage statistics for the API call. [cite: 27]
      */
     public static class Usage {
-        private final JSONObject json;
+        private final int completionTokens;
+        private final int promptTokens;
+        private final int promptCacheHitTokens;
+        private final int promptCacheMissTokens;
+        private final int totalTokens;
+        private final CompletionTokensDetails completionTokensDetails;
 
         Usage(JSONObject json) {
-            this.json = (json != null) ? json : new JSONObject();
+            json = (json != null) ? json : new JSONObject();
+            this.completionTokens = json.optInt("completion_tokens", 0);
+            this.promptTokens = json.optInt("prompt_tokens", 0);
+            this.promptCacheHitTokens = json.optInt("prompt_cache_hit_tokens", 0);
+            this.promptCacheMissTokens = json.optInt("prompt_cache_miss_tokens", 0);
+            this.totalTokens = json.optInt("total_tokens", 0);
+            JSONObject detailsJson = json.optJSONObject("completion_tokens_details");
+            this.completionTokensDetails = (detailsJson != null) ? new CompletionTokensDetails(detailsJson) : null;
+        }
+
+        Usage(int completionTokens, int promptTokens, int promptCacheHitTokens, int promptCacheMissTokens,
+              int totalTokens, CompletionTokensDetails completionTokensDetails) {
+            this.completionTokens = completionTokens;
+            this.promptTokens = promptTokens;
+            this.promptCacheHitTokens = promptCacheHitTokens;
+            this.promptCacheMissTokens = promptCacheMissTokens;
+            this.totalTokens = totalTokens;
+            this.completionTokensDetails = completionTokensDetails;
         }
 
         public int getCompletionTokens() {
-            return json.optInt("completion_tokens", 0);
+            return completionTokens;
         }
 
         public int getPromptTokens() {
-            return json.optInt("prompt_tokens", 0);
+            return promptTokens;
         }
 
         /** Gets the number of prompt tokens served from cache. */
         public int getPromptCacheHitTokens() {
-            return json.optInt("prompt_cache_hit_tokens", 0);
+            return promptCacheHitTokens;
         }
 
         /** Gets the number of prompt tokens not served from cache. */
         public int getPromptCacheMissTokens() {
-            return json.optInt("prompt_cache_miss_tokens", 0);
+            return promptCacheMissTokens;
         }
 
         public int getTotalTokens() {
-            return json.optInt("total_tokens", 0);
+            return totalTokens;
         }
 
         /**
@@ -410,8 +587,7 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
          * @return A CompletionTokensDetails object, or null if not present. [cite: 27]
          */
         public CompletionTokensDetails getCompletionTokensDetails() {
-            JSONObject detailsJson = json.optJSONObject("completion_tokens_details");
-            return (detailsJson != null) ? new CompletionTokensDetails(detailsJson) : null;
+            return completionTokensDetails;
         }
     }
 
@@ -419,10 +595,14 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
      * Represents detailed token counts within the completion usage. Currently only includes reasoning_tokens. [cite: 27]
      */
     public static class CompletionTokensDetails {
-        private final JSONObject json;
+        private final int reasoningTokens;
 
         CompletionTokensDetails(JSONObject json) {
-            this.json = (json != null) ? json : new JSONObject();
+            this.reasoningTokens = (json != null) ? json.optInt("reasoning_tokens", 0) : 0;
+        }
+
+        CompletionTokensDetails(int reasoningTokens) {
+            this.reasoningTokens = reasoningTokens;
         }
 
         /**
@@ -430,7 +610,18 @@ public final class DeepSeekCompletionResponse extends DeepSeekResponse<DeepSeekC
          * @return The count of reasoning tokens, or 0 if not present. [cite: 27]
          */
         public int getReasoningTokens() {
-            return json.optInt("reasoning_tokens", 0);
+            return reasoningTokens;
+        }
+    }
+
+    private static List<Integer> readBytes(JSONArray bytesArray) {
+        if (bytesArray == null) {
+            return Collections.emptyList();
+        }
+        List<Integer> bytesList = new ArrayList<>();
+        for (int i = 0; i < bytesArray.length(); i++) {
+            bytesList.add(bytesArray.optInt(i));
         }
+        return List.copyOf(bytesList);
     }
-}
\ No newline at end of file
+}
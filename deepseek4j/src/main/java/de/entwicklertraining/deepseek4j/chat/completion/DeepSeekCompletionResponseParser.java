@@ -0,0 +1,364 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import de.entwicklertraining.api.base.ApiClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a chat completion body in a single pass with Jackson's streaming parser, directly into the typed
+ * classes of {@link DeepSeekCompletionResponse}. No JSONObject tree is built.
+ * <p>
+ * The "logprobs" object of a choice can be much larger than the rest of the response. It is only skipped
+ * and its position in the body remembered; it is parsed when {@link DeepSeekCompletionResponse.Logprobs#getContent()}
+ * is called for the first time.
+ * <p>
+ * Unknown fields are skipped. Values of an unexpected type are read like the org.json {@code opt*} methods
+ * read them: as null, 0 or NaN.
+ */
+final class DeepSeekCompletionResponseParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * The top-level fields of a response.
+     */
+    record ParsedResponse(String id, String object, long created, String model, String systemFingerprint,
+                          List<DeepSeekCompletionResponse.Choice> choices, DeepSeekCompletionResponse.Usage usage,
+                          boolean hasError) {}
+
+    private DeepSeekCompletionResponseParser() {
+    }
+
+    static ParsedResponse parse(String body) {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new ApiClient.ApiResponseUnusableException("DeepSeek API response is not a JSON object: " + body);
+            }
+            String id = null;
+            String object = null;
+            long created = 0L;
+            String model = null;
+            String systemFingerprint = null;
+            List<DeepSeekCompletionResponse.Choice> choices = List.of();
+            DeepSeekCompletionResponse.Usage usage = null;
+            boolean hasError = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "id" -> id = readString(parser);
+                    case "object" -> object = readString(parser);
+                    case "created" -> created = readLong(parser);
+                    case "model" -> model = readString(parser);
+                    case "system_fingerprint" -> systemFingerprint = readString(parser);
+                    case "choices" -> choices = readChoices(parser, body);
+                    case "usage" -> usage = readUsage(parser);
+                    case "error" -> {
+                        hasError = true;
+                        parser.skipChildren();
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            return new ParsedResponse(id, object, created, model, systemFingerprint, choices, usage, hasError);
+        } catch (IOException e) {
+            throw new ApiClient.ApiResponseUnusableException("Could not parse DeepSeek API response: " + e.getMessage() + ". Response: " + body);
+        }
+    }
+
+    /**
+     * Parses the "content" array of a logprobs object that starts and ends at the given char offsets of the body.
+     */
+    static List<DeepSeekCompletionResponse.TokenLogprob> parseLogprobsContent(String body, int start, int end) {
+        try (JsonParser parser = JSON_FACTORY.createParser(body.substring(start, end))) {
+            List<DeepSeekCompletionResponse.TokenLogprob> content = List.of();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return content;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("content".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                    List<DeepSeekCompletionResponse.TokenLogprob> tokens = new ArrayList<>();
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        if (parser.currentToken() == JsonToken.START_OBJECT) {
+                            tokens.add(readTokenLogprob(parser));
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    content = List.copyOf(tokens);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return content;
+        } catch (IOException e) {
+            throw new ApiClient.ApiResponseUnusableException("Could not parse logprobs of DeepSeek API response: " + e.getMessage());
+        }
+    }
+
+    private static List<DeepSeekCompletionResponse.Choice> readChoices(JsonParser parser, String body) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return List.of();
+        }
+        List<DeepSeekCompletionResponse.Choice> choices = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() == JsonToken.START_OBJECT) {
+                choices.add(readChoice(parser, body));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return List.copyOf(choices);
+    }
+
+    private static DeepSeekCompletionResponse.Choice readChoice(JsonParser parser, String body) throws IOException {
+        int index = 0;
+        String finishReason = null;
+        DeepSeekCompletionResponse.Message message = null;
+        DeepSeekCompletionResponse.Logprobs logprobs = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "index" -> index = readInt(parser);
+                case "finish_reason" -> finishReason = readString(parser);
+                case "message" -> message = (parser.currentToken() == JsonToken.START_OBJECT) ? readMessage(parser) : skip(parser);
+                case "logprobs" -> {
+                    if (parser.currentToken() == JsonToken.START_OBJECT) {
+                        int start = (int) parser.currentTokenLocation().getCharOffset();
+                        parser.skipChildren();
+                        int end = (int) parser.currentLocation().getCharOffset();
+                        logprobs = new DeepSeekCompletionResponse.Logprobs(body, start, end);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return new DeepSeekCompletionResponse.Choice(index, finishReason, message, logprobs);
+    }
+
+    private static DeepSeekCompletionResponse.Message readMessage(JsonParser parser) throws IOException {
+        String role = null;
+        String content = null;
+        String reasoningContent = null;
+        List<DeepSeekCompletionResponse.ToolCall> toolCalls = List.of();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "role" -> role = readString(parser);
+                case "content" -> content = readString(parser);
+                case "reasoning_content" -> reasoningContent = readString(parser);
+                case "tool_calls" -> toolCalls = readToolCalls(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new DeepSeekCompletionResponse.Message(role, content, reasoningContent, toolCalls);
+    }
+
+    private static List<DeepSeekCompletionResponse.ToolCall> readToolCalls(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return List.of();
+        }
+        List<DeepSeekCompletionResponse.ToolCall> toolCalls = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String id = null;
+            String type = null;
+            DeepSeekCompletionResponse.FunctionCall function = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "id" -> id = readString(parser);
+                    case "type" -> type = readString(parser);
+                    case "function" -> function = (parser.currentToken() == JsonToken.START_OBJECT) ? readFunctionCall(parser) : skip(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            toolCalls.add(new DeepSeekCompletionResponse.ToolCall(id, type, function));
+        }
+        return List.copyOf(toolCalls);
+    }
+
+    private static DeepSeekCompletionResponse.FunctionCall readFunctionCall(JsonParser parser) throws IOException {
+        String name = null;
+        String arguments = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "name" -> name = readString(parser);
+                case "arguments" -> arguments = readString(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new DeepSeekCompletionResponse.FunctionCall(name, arguments);
+    }
+
+    private static DeepSeekCompletionResponse.Usage readUsage(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        int completionTokens = 0;
+        int promptTokens = 0;
+        int promptCacheHitTokens = 0;
+        int promptCacheMissTokens = 0;
+        int totalTokens = 0;
+        DeepSeekCompletionResponse.CompletionTokensDetails details = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "completion_tokens" -> completionTokens = readInt(parser);
+                case "prompt_tokens" -> promptTokens = readInt(parser);
+                case "prompt_cache_hit_tokens" -> promptCacheHitTokens = readInt(parser);
+                case "prompt_cache_miss_tokens" -> promptCacheMissTokens = readInt(parser);
+                case "total_tokens" -> totalTokens = readInt(parser);
+                case "completion_tokens_details" -> details = readCompletionTokensDetails(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new DeepSeekCompletionResponse.Usage(completionTokens, promptTokens, promptCacheHitTokens,
+                promptCacheMissTokens, totalTokens, details);
+    }
+
+    private static DeepSeekCompletionResponse.CompletionTokensDetails readCompletionTokensDetails(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        int reasoningTokens = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("reasoning_tokens".equals(field)) {
+                reasoningTokens = readInt(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new DeepSeekCompletionResponse.CompletionTokensDetails(reasoningTokens);
+    }
+
+    private static DeepSeekCompletionResponse.TokenLogprob readTokenLogprob(JsonParser parser) throws IOException {
+        String token = null;
+        double logprob = Double.NaN;
+        List<Integer> bytes = List.of();
+        List<DeepSeekCompletionResponse.TopTokenLogprob> topLogprobs = List.of();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "token" -> token = readString(parser);
+                case "logprob" -> logprob = readDouble(parser);
+                case "bytes" -> bytes = readBytes(parser);
+                case "top_logprobs" -> {
+                    if (parser.currentToken() != JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                        break;
+                    }
+                    List<DeepSeekCompletionResponse.TopTokenLogprob> alternatives = new ArrayList<>();
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        if (parser.currentToken() == JsonToken.START_OBJECT) {
+                            alternatives.add(readTopTokenLogprob(parser));
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    topLogprobs = List.copyOf(alternatives);
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return new DeepSeekCompletionResponse.TokenLogprob(token, logprob, bytes, topLogprobs);
+    }
+
+    private static DeepSeekCompletionResponse.TopTokenLogprob readTopTokenLogprob(JsonParser parser) throws IOException {
+        String token = null;
+        double logprob = Double.NaN;
+        List<Integer> bytes = List.of();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "token" -> token = readString(parser);
+                case "logprob" -> logprob = readDouble(parser);
+                case "bytes" -> bytes = readBytes(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new DeepSeekCompletionResponse.TopTokenLogprob(token, logprob, bytes);
+    }
+
+    private static List<Integer> readBytes(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return List.of();
+        }
+        List<Integer> bytes = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            bytes.add(readInt(parser));
+        }
+        return List.copyOf(bytes);
+    }
+
+    private static <T> T skip(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        return null;
+    }
+
+    private static String readString(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getText();
+    }
+
+    private static long readLong(JsonParser parser) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT -> parser.getLongValue();
+            case VALUE_NUMBER_FLOAT -> (long) parser.getDoubleValue();
+            case START_OBJECT, START_ARRAY -> {
+                parser.skipChildren();
+                yield 0L;
+            }
+            default -> 0L;
+        };
+    }
+
+    private static int readInt(JsonParser parser) throws IOException {
+        return (int) readLong(parser);
+    }
+
+    private static double readDouble(JsonParser parser) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+            case START_OBJECT, START_ARRAY -> {
+                parser.skipChildren();
+                yield Double.NaN;
+            }
+            default -> Double.NaN;
+        };
+    }
+}
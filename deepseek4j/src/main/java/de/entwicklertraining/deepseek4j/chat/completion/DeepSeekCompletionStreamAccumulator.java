@@ -0,0 +1,193 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the chunks of a streamed chat completion and assembles them into the JSON structure
+ * of a regular (non-streamed) chat completion response, so that the result can be handled
+ * exactly like the response of a non-streaming request.
+ */
+final class DeepSeekCompletionStreamAccumulator {
+
+    private String id;
+    private long created;
+    private String model;
+    private String systemFingerprint;
+    private JSONObject usage;
+    private final Map<Integer, ChoiceState> choices = new TreeMap<>();
+
+    void accept(DeepSeekCompletionChunk chunk) {
+        JSONObject json = chunk.getJson();
+        if (id == null) {
+            id = json.optString("id", null);
+            created = json.optLong("created", 0L);
+            model = json.optString("model", null);
+        }
+        if (json.has("system_fingerprint") && !json.isNull("system_fingerprint")) {
+            systemFingerprint = json.getString("system_fingerprint");
+        }
+        JSONObject chunkUsage = json.optJSONObject("usage");
+        if (chunkUsage != null) {
+            usage = chunkUsage;
+        }
+
+        JSONArray choicesArray = json.optJSONArray("choices");
+        if (choicesArray == null) {
+            return;
+        }
+        for (int i = 0; i < choicesArray.length(); i++) {
+            JSONObject choiceJson = choicesArray.optJSONObject(i);
+            if (choiceJson != null) {
+                choices.computeIfAbsent(choiceJson.optInt("index", 0), ChoiceState::new).accept(choiceJson);
+            }
+        }
+    }
+
+    /**
+     * Returns the assembled response in the format of a "chat.completion" object.
+     */
+    JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("object", "chat.completion");
+        json.put("created", created);
+        json.put("model", model);
+        if (systemFingerprint != null) {
+            json.put("system_fingerprint", systemFingerprint);
+        }
+        JSONArray choicesArray = new JSONArray();
+        for (ChoiceState choice : choices.values()) {
+            choicesArray.put(choice.toJson());
+        }
+        json.put("choices", choicesArray);
+        if (usage != null) {
+            json.put("usage", usage);
+        }
+        return json;
+    }
+
+    private static final class ChoiceState {
+        private final int index;
+        private String role;
+        private final StringBuilder content = new StringBuilder();
+        private final StringBuilder reasoningContent = new StringBuilder();
+        private boolean hasContent;
+        private boolean hasReasoningContent;
+        private final Map<Integer, ToolCallState> toolCalls = new TreeMap<>();
+        private JSONArray logprobsContent;
+        private String finishReason;
+
+        private ChoiceState(int index) {
+            this.index = index;
+        }
+
+        private void accept(JSONObject choiceJson) {
+            JSONObject delta = choiceJson.optJSONObject("delta");
+            if (delta != null) {
+                String deltaRole = delta.optString("role", null);
+                if (deltaRole != null) {
+                    role = deltaRole;
+                }
+                String deltaContent = delta.optString("content", null);
+                if (deltaContent != null) {
+                    content.append(deltaContent);
+                    hasContent = true;
+                }
+                String deltaReasoning = delta.optString("reasoning_content", null);
+                if (deltaReasoning != null) {
+                    reasoningContent.append(deltaReasoning);
+                    hasReasoningContent = true;
+                }
+                JSONArray deltaToolCalls = delta.optJSONArray("tool_calls");
+                if (deltaToolCalls != null) {
+                    for (int i = 0; i < deltaToolCalls.length(); i++) {
+                        JSONObject toolCallDelta = deltaToolCalls.optJSONObject(i);
+                        if (toolCallDelta != null) {
+                            toolCalls.computeIfAbsent(toolCallDelta.optInt("index", 0), k -> new ToolCallState())
+                                    .accept(toolCallDelta);
+                        }
+                    }
+                }
+            }
+
+            JSONObject logprobs = choiceJson.optJSONObject("logprobs");
+            JSONArray logprobsDelta = (logprobs != null) ? logprobs.optJSONArray("content") : null;
+            if (logprobsDelta != null) {
+                if (logprobsContent == null) {
+                    logprobsContent = new JSONArray();
+                }
+                logprobsContent.putAll(logprobsDelta);
+            }
+
+            String choiceFinishReason = choiceJson.optString("finish_reason", null);
+            if (choiceFinishReason != null) {
+                finishReason = choiceFinishReason;
+            }
+        }
+
+        private JSONObject toJson() {
+            JSONObject message = new JSONObject();
+            message.put("role", role != null ? role : "assistant");
+            message.put("content", hasContent ? content.toString() : JSONObject.NULL);
+            if (hasReasoningContent) {
+                message.put("reasoning_content", reasoningContent.toString());
+            }
+            if (!toolCalls.isEmpty()) {
+                JSONArray toolCallsArray = new JSONArray();
+                for (ToolCallState toolCall : toolCalls.values()) {
+                    toolCallsArray.put(toolCall.toJson());
+                }
+                message.put("tool_calls", toolCallsArray);
+            }
+
+            JSONObject choice = new JSONObject();
+            choice.put("index", index);
+            choice.put("message", message);
+            choice.put("logprobs", logprobsContent != null ? new JSONObject().put("content", logprobsContent) : JSONObject.NULL);
+            choice.put("finish_reason", finishReason != null ? finishReason : JSONObject.NULL);
+            return choice;
+        }
+    }
+
+    private static final class ToolCallState {
+        private String id;
+        private String type;
+        private String name;
+        private final StringBuilder arguments = new StringBuilder();
+
+        private void accept(JSONObject toolCallDelta) {
+            String deltaId = toolCallDelta.optString("id", null);
+            if (deltaId != null) {
+                id = deltaId;
+            }
+            String deltaType = toolCallDelta.optString("type", null);
+            if (deltaType != null) {
+                type = deltaType;
+            }
+            JSONObject function = toolCallDelta.optJSONObject("function");
+            if (function != null) {
+                String deltaName = function.optString("name", null);
+                if (deltaName != null) {
+                    name = deltaName;
+                }
+                String deltaArguments = function.optString("arguments", null);
+                if (deltaArguments != null) {
+                    arguments.append(deltaArguments);
+                }
+            }
+        }
+
+        private JSONObject toJson() {
+            return new JSONObject()
+                    .put("id", id)
+                    .put("type", type != null ? type : "function")
+                    .put("function", new JSONObject()
+                            .put("name", name)
+                            .put("arguments", arguments.toString()));
+        }
+    }
+}
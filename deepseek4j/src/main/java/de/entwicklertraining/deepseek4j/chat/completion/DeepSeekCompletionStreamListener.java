@@ -0,0 +1,14 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+/**
+ * Receives the chunks of a streamed chat completion as soon as they arrive.
+ * The listener is invoked on the thread that reads the HTTP response, so it should return quickly.
+ */
+@FunctionalInterface
+public interface DeepSeekCompletionStreamListener {
+    /**
+     * Called for every chunk of the stream, including the final usage chunk
+     * if stream_options.include_usage was requested.
+     */
+    void onChunk(DeepSeekCompletionChunk chunk);
+}
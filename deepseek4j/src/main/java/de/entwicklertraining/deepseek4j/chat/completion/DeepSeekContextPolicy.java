@@ -0,0 +1,388 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import de.entwicklertraining.api.base.ApiClient;
+import de.entwicklertraining.deepseek4j.DeepSeekTokenService;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Fits the history of a chat completion into the context window of its model. Set it via
+ * {@link DeepSeekCompletionRequest.Builder#contextPolicy(DeepSeekContextPolicy)}; the call handler applies it before
+ * each send, so an oversized prompt is trimmed locally instead of being rejected by the server.
+ * <p>
+ * The token budget of a request is the context window of its model minus the output tokens it may generate
+ * ({@code max_tokens}, or the model's default). Prompt tokens are counted with {@link DeepSeekTokenService}.
+ * As long as the prompt is too large, the policy applies these steps in order:
+ * <ol>
+ *   <li>Optionally, the contents of the oldest tool results are replaced by a short placeholder.</li>
+ *   <li>Sliding window: the oldest messages are dropped. System messages can be pinned. The newest user message
+ *       and the newest message are always kept.</li>
+ *   <li>Optionally, the dropped messages are summarized by a callback and the summary replaces them as a system
+ *       message. A later summary also covers the previous one.</li>
+ * </ol>
+ * An assistant message with tool calls and the tool results answering it are kept or dropped together, so the
+ * trimmed request stays valid. If the prompt does not fit even then, an {@link ApiClient.ApiClientException}
+ * is thrown before anything is sent.
+ */
+public final class DeepSeekContextPolicy {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeepSeekContextPolicy.class);
+
+    /** The {@code name} of the system messages that hold a summary. */
+    public static final String SUMMARY_NAME = "conversation_summary";
+
+    private static final String DROPPED_TOOL_RESULT = "[Tool result removed to fit the context window]";
+    private static final int DEFAULT_CONTEXT_WINDOW = 128 * 1024;
+    // Default max_tokens of the models, reserved for the output if the request does not set it
+    private static final Map<String, Integer> DEFAULT_OUTPUT_TOKENS = Map.of(
+            "deepseek-chat", 4 * 1024,
+            "deepseek-reasoner", 32 * 1024
+    );
+    private static final int DEFAULT_OUTPUT_TOKENS_OTHER = 4 * 1024;
+
+    private final Map<String, Integer> contextWindows;
+    private final int defaultContextWindow;
+    private final boolean pinSystemMessages;
+    private final boolean dropOldToolResults;
+    private final Function<List<JSONObject>, String> summarizer;
+    private final int summaryReserveTokens;
+    private final DeepSeekTokenService tokenService;
+
+    private DeepSeekContextPolicy(Builder builder) {
+        this.contextWindows = Map.copyOf(builder.contextWindows);
+        this.defaultContextWindow = builder.defaultContextWindow;
+        this.pinSystemMessages = builder.pinSystemMessages;
+        this.dropOldToolResults = builder.dropOldToolResults;
+        this.summarizer = builder.summarizer;
+        this.summaryReserveTokens = builder.summaryReserveTokens;
+        this.tokenService = (builder.tokenService != null) ? builder.tokenService : DeepSeekTokenService.getInstance();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The maximum number of prompt tokens for the request.
+     */
+    public int budgetFor(DeepSeekCompletionRequest request) {
+        int contextWindow = contextWindows.getOrDefault(request.model(), defaultContextWindow);
+        int outputTokens = (request.maxTokens() != null)
+                ? request.maxTokens()
+                : DEFAULT_OUTPUT_TOKENS.getOrDefault(request.model(), DEFAULT_OUTPUT_TOKENS_OTHER);
+        return contextWindow - outputTokens;
+    }
+
+    /**
+     * Returns the messages of the request, trimmed to its budget. If the prompt already fits, the message list of
+     * the request itself is returned. The messages of the request are never modified.
+     *
+     * @throws ApiClient.ApiClientException if the prompt cannot be trimmed to the budget.
+     */
+    public List<JSONObject> apply(DeepSeekCompletionRequest request) {
+        int budget = budgetFor(request);
+        List<JSONObject> messages = request.messages();
+        // The conversation counts its messages as they are appended
+        DeepSeekConversation conversation = request.conversation();
+        int tokens = (conversation != null && conversation.messages() == messages)
+                ? conversation.promptTokens(tokenService)
+                : count(request, messages);
+        if (tokens <= budget) {
+            return messages;
+        }
+
+        List<List<JSONObject>> groups = groups(messages);
+        if (dropOldToolResults) {
+            groups = dropToolResults(request, groups, budget);
+            if (count(request, flatten(groups)) <= budget) {
+                logger.debug("Replaced old tool results to fit {} prompt tokens into the budget of {}.", tokens, budget);
+                return flatten(groups);
+            }
+        }
+
+        List<Integer> droppable = droppableGroups(groups);
+        boolean summarize = summarizer != null;
+        int drop = smallestDropCount(request, groups, droppable, 0, summarize ? budget - summaryReserveTokens : budget);
+        if (drop < 0 && summarize) {
+            // No room for a summary: only drop
+            summarize = false;
+            drop = smallestDropCount(request, groups, droppable, 0, budget);
+        }
+        if (drop < 0) {
+            throw tooLarge(request, tokens, budget);
+        }
+
+        List<JSONObject> dropped = new ArrayList<>();
+        for (int i = 0; i < drop; i++) {
+            dropped.addAll(groups.get(droppable.get(i)));
+        }
+        if (summarize) {
+            String summary = summarizer.apply(List.copyOf(dropped));
+            if (summary != null && !summary.isBlank()) {
+                // The summary takes the place of the first dropped message
+                JSONObject summaryMessage = new JSONObject().put("role", "system").put("name", SUMMARY_NAME).put("content", summary);
+                groups = new ArrayList<>(groups);
+                groups.set(droppable.get(0), List.of(summaryMessage));
+                droppable = droppable.subList(1, droppable.size());
+                drop--;
+                if (count(request, flatten(without(groups, droppable, drop))) > budget) {
+                    // The summary turned out longer than reserved: drop more, but keep the summary
+                    drop = smallestDropCount(request, groups, droppable, drop, budget);
+                    if (drop < 0) {
+                        throw tooLarge(request, tokens, budget);
+                    }
+                }
+            }
+        }
+
+        List<JSONObject> trimmed = flatten(without(groups, droppable, drop));
+        logger.debug("Trimmed the history from {} to {} messages to fit {} prompt tokens into the budget of {}.",
+                messages.size(), trimmed.size(), tokens, budget);
+        return trimmed;
+    }
+
+    private int count(DeepSeekCompletionRequest request, List<JSONObject> messages) {
+        return tokenService.newPromptTokenCounter(request.model(), request.tools()).addAll(messages).getPromptTokens();
+    }
+
+    /**
+     * Splits the history into the units that are kept or dropped together: an assistant message with tool calls
+     * plus the tool results that follow it, or a single message.
+     */
+    private static List<List<JSONObject>> groups(List<JSONObject> messages) {
+        List<List<JSONObject>> groups = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            JSONObject message = messages.get(i);
+            JSONArray toolCalls = message.optJSONArray("tool_calls");
+            if (!"assistant".equals(message.optString("role")) || toolCalls == null || toolCalls.isEmpty()) {
+                groups.add(List.of(message));
+                continue;
+            }
+            Set<String> toolCallIds = new HashSet<>();
+            for (int c = 0; c < toolCalls.length(); c++) {
+                toolCallIds.add(toolCalls.getJSONObject(c).optString("id"));
+            }
+            List<JSONObject> group = new ArrayList<>();
+            group.add(message);
+            while (i + 1 < messages.size() && "tool".equals(messages.get(i + 1).optString("role"))
+                    && toolCallIds.contains(messages.get(i + 1).optString("tool_call_id"))) {
+                group.add(messages.get(++i));
+            }
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    /**
+     * Replaces the contents of as few of the oldest tool results as necessary (all, if that is not enough).
+     * The tool results of the newest group are kept.
+     */
+    private List<List<JSONObject>> dropToolResults(DeepSeekCompletionRequest request, List<List<JSONObject>> groups, int budget) {
+        int candidates = 0;
+        for (int g = 0; g < groups.size() - 1; g++) {
+            for (JSONObject message : groups.get(g)) {
+                if ("tool".equals(message.optString("role"))) {
+                    candidates++;
+                }
+            }
+        }
+        int low = 1;
+        int high = candidates;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (count(request, flatten(withDroppedToolResults(groups, mid))) <= budget) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return withDroppedToolResults(groups, Math.min(low, candidates));
+    }
+
+    private static List<List<JSONObject>> withDroppedToolResults(List<List<JSONObject>> groups, int count) {
+        List<List<JSONObject>> result = new ArrayList<>(groups.size());
+        int remaining = count;
+        for (int g = 0; g < groups.size(); g++) {
+            List<JSONObject> group = groups.get(g);
+            if (remaining == 0 || g == groups.size() - 1) {
+                result.add(group);
+                continue;
+            }
+            List<JSONObject> replaced = new ArrayList<>(group.size());
+            for (JSONObject message : group) {
+                if (remaining > 0 && "tool".equals(message.optString("role"))) {
+                    remaining--;
+                    replaced.add(new JSONObject(message, JSONObject.getNames(message)).put("content", DROPPED_TOOL_RESULT));
+                } else {
+                    replaced.add(message);
+                }
+            }
+            result.add(replaced);
+        }
+        return result;
+    }
+
+    /**
+     * @return The indices of the groups that may be dropped, oldest first.
+     */
+    private List<Integer> droppableGroups(List<List<JSONObject>> groups) {
+        int lastUserGroup = -1;
+        for (int g = 0; g < groups.size(); g++) {
+            if ("user".equals(groups.get(g).get(0).optString("role"))) {
+                lastUserGroup = g;
+            }
+        }
+        List<Integer> droppable = new ArrayList<>();
+        for (int g = 0; g < groups.size() - 1; g++) {
+            JSONObject first = groups.get(g).get(0);
+            boolean pinned = pinSystemMessages && "system".equals(first.optString("role")) && !SUMMARY_NAME.equals(first.optString("name"));
+            if (g != lastUserGroup && !pinned) {
+                droppable.add(g);
+            }
+        }
+        return droppable;
+    }
+
+    /**
+     * Binary search for the fewest droppable groups (at least {@code minimum}) whose removal fits the prompt into
+     * the target. The token count shrinks with every dropped group.
+     *
+     * @return The number of groups to drop, or -1 if dropping all of them is not enough.
+     */
+    private int smallestDropCount(DeepSeekCompletionRequest request, List<List<JSONObject>> groups, List<Integer> droppable, int minimum, int target) {
+        if (count(request, flatten(without(groups, droppable, droppable.size()))) > target) {
+            return -1;
+        }
+        int low = Math.max(1, minimum);
+        int high = droppable.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (count(request, flatten(without(groups, droppable, mid))) <= target) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private static List<List<JSONObject>> without(List<List<JSONObject>> groups, List<Integer> droppable, int drop) {
+        Set<Integer> dropped = new HashSet<>(droppable.subList(0, drop));
+        List<List<JSONObject>> result = new ArrayList<>(groups.size() - drop);
+        for (int g = 0; g < groups.size(); g++) {
+            if (!dropped.contains(g)) {
+                result.add(groups.get(g));
+            }
+        }
+        return result;
+    }
+
+    private static List<JSONObject> flatten(List<List<JSONObject>> groups) {
+        List<JSONObject> messages = new ArrayList<>();
+        for (List<JSONObject> group : groups) {
+            messages.addAll(group);
+        }
+        return messages;
+    }
+
+    private static ApiClient.ApiClientException tooLarge(DeepSeekCompletionRequest request, int tokens, int budget) {
+        return new ApiClient.ApiClientException("Prompt of " + tokens + " tokens does not fit into the budget of " + budget
+                + " tokens for model '" + request.model() + "', even after trimming the history.");
+    }
+
+    public static final class Builder {
+        private final Map<String, Integer> contextWindows = new HashMap<>();
+        private int defaultContextWindow = DEFAULT_CONTEXT_WINDOW;
+        private boolean pinSystemMessages = true;
+        private boolean dropOldToolResults;
+        private Function<List<JSONObject>, String> summarizer;
+        private int summaryReserveTokens = 1024;
+        private DeepSeekTokenService tokenService;
+
+        private Builder() {
+        }
+
+        /**
+         * Context window (prompt plus output tokens) of a model. Defaults to 128K tokens for every model.
+         */
+        public Builder contextWindow(String model, int tokens) {
+            if (tokens < 1) {
+                throw new IllegalArgumentException("tokens must be at least 1.");
+            }
+            contextWindows.put(Objects.requireNonNull(model, "model"), tokens);
+            return this;
+        }
+
+        /**
+         * Context window of models without an explicit {@link #contextWindow(String, int)} (default 128K tokens).
+         */
+        public Builder defaultContextWindow(int tokens) {
+            if (tokens < 1) {
+                throw new IllegalArgumentException("tokens must be at least 1.");
+            }
+            this.defaultContextWindow = tokens;
+            return this;
+        }
+
+        /**
+         * Whether system messages are never dropped (default true). Summaries are not pinned.
+         */
+        public Builder pinSystemMessages(boolean pinSystemMessages) {
+            this.pinSystemMessages = pinSystemMessages;
+            return this;
+        }
+
+        /**
+         * Whether the contents of the oldest tool results are replaced by a placeholder before any message is
+         * dropped (default false). The tool calls and their results stay in the history.
+         */
+        public Builder dropOldToolResults(boolean dropOldToolResults) {
+            this.dropOldToolResults = dropOldToolResults;
+            return this;
+        }
+
+        /**
+         * Summarizes the dropped messages (oldest first); the summary replaces them as a system message named
+         * {@link #SUMMARY_NAME}. The callback runs on the thread that sends the request, so it may call DeepSeek
+         * itself. null (default) drops messages without a summary.
+         */
+        public Builder summarizer(Function<List<JSONObject>, String> summarizer) {
+            this.summarizer = summarizer;
+            return this;
+        }
+
+        /**
+         * Tokens kept free for the summary when deciding how much to drop (default 1024).
+         */
+        public Builder summaryReserveTokens(int summaryReserveTokens) {
+            if (summaryReserveTokens < 0) {
+                throw new IllegalArgumentException("summaryReserveTokens must not be negative.");
+            }
+            this.summaryReserveTokens = summaryReserveTokens;
+            return this;
+        }
+
+        /**
+         * The token service used for counting (default {@link DeepSeekTokenService#getInstance()}).
+         */
+        public Builder tokenService(DeepSeekTokenService tokenService) {
+            this.tokenService = tokenService;
+            return this;
+        }
+
+        public DeepSeekContextPolicy build() {
+            return new DeepSeekContextPolicy(this);
+        }
+    }
+}
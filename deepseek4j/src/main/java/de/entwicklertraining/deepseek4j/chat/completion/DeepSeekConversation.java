@@ -0,0 +1,291 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import de.entwicklertraining.deepseek4j.DeepSeekClient;
+import de.entwicklertraining.deepseek4j.DeepSeekPromptTokenCounter;
+import de.entwicklertraining.deepseek4j.DeepSeekTokenService;
+import org.json.JSONObject;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * A dialog with DeepSeek over several calls: the parameters of the request it was started with are frozen, and the
+ * messages form an append-only log. Every call sends the whole log and appends the answer (and, in the tool loop,
+ * the tool calls and their results), so the next call continues where the last one ended:
+ * <pre>{@code
+ * DeepSeekConversation conversation = DeepSeekCompletionRequest.builder(client)
+ *         .model("deepseek-chat")
+ *         .addSystemMessage("You are a helpful assistant.")
+ *         .conversation();
+ * conversation.addUserMessage("What is the capital of France?");
+ * conversation.execute();
+ * conversation.addUserMessage("And of Italy?");
+ * DeepSeekCompletionResponse response = conversation.execute();
+ * }</pre>
+ * Each message is serialized once, when it is appended, and the parts of the body around the message array once
+ * per conversation; a call only concatenates the bytes. Snapshots of the log ({@link #messages()}, the request of
+ * a turn) share it instead of copying it, and {@link #fork()} branches a conversation in constant time.
+ * <p>
+ * Appended messages must not be modified afterwards. A conversation is not thread-safe and runs one call at a
+ * time; forks of it are independent of each other. If a call fails, the messages it appended are discarded.
+ */
+public final class DeepSeekConversation {
+
+    private final DeepSeekClient client;
+    private final DeepSeekCompletionRequest template;
+    private final byte[] bodyPrefix;
+    private final byte[] bodySuffix;
+    private Snapshot messages;
+    private DeepSeekCompletionRequest request; // the request for the current messages, built on demand
+    private Supplier<Boolean> cancelSupplier; // replaces the template's during a call, or null
+    private DeepSeekPromptTokenCounter promptTokenCounter; // counts the messages once a context policy asked, or null
+    private DeepSeekTokenService promptTokenService;
+
+    public DeepSeekConversation(DeepSeekClient client, DeepSeekCompletionRequest request) {
+        this.client = Objects.requireNonNull(client, "client");
+        this.template = Objects.requireNonNull(request, "request");
+        byte[][] envelope = DeepSeekCompletionRequestWriter.writeEnvelope(request);
+        this.bodyPrefix = envelope[0];
+        this.bodySuffix = envelope[1];
+        this.messages = Snapshot.empty().appendAll(request.messages(), Map.of());
+    }
+
+    private DeepSeekConversation(DeepSeekConversation original) {
+        this.client = original.client;
+        this.template = original.template;
+        this.bodyPrefix = original.bodyPrefix;
+        this.bodySuffix = original.bodySuffix;
+        this.messages = original.messages;
+    }
+
+    /**
+     * Returns an independent conversation with the same parameters and messages. The log is shared until one of
+     * them appends to it.
+     */
+    public DeepSeekConversation fork() {
+        return new DeepSeekConversation(this);
+    }
+
+    public DeepSeekConversation append(JSONObject message) {
+        return appendAll(List.of(message));
+    }
+
+    public DeepSeekConversation appendAll(Collection<JSONObject> newMessages) {
+        if (!newMessages.isEmpty()) {
+            setMessages(messages.appendAll(newMessages, Map.of()));
+            if (promptTokenCounter != null) {
+                for (JSONObject message : newMessages) {
+                    promptTokenCounter.add(message);
+                }
+            }
+        }
+        return this;
+    }
+
+    public DeepSeekConversation addUserMessage(String content) {
+        return append(new JSONObject().put("role", "user").put("content", content));
+    }
+
+    /**
+     * Returns the messages as an immutable snapshot, which later appends do not change.
+     */
+    public List<JSONObject> messages() {
+        return messages;
+    }
+
+    public int size() {
+        return messages.size();
+    }
+
+    /**
+     * The request the conversation was started with, whose parameters are used for every call.
+     */
+    public DeepSeekCompletionRequest template() {
+        return template;
+    }
+
+    /**
+     * Returns the request that the next call sends: the parameters of the template with the current messages.
+     */
+    public DeepSeekCompletionRequest request() {
+        DeepSeekCompletionRequest current = request;
+        if (current == null) {
+            current = template.withMessages(messages, this, cancelSupplier);
+            request = current;
+        }
+        return current;
+    }
+
+    /**
+     * Sends the conversation, runs the tool loop and appends its messages. Returns the final response.
+     */
+    public DeepSeekCompletionResponse execute() {
+        return new DeepSeekCompletionCallHandler(client).handleRequest(this, false);
+    }
+
+    public DeepSeekCompletionResponse executeWithExponentialBackoff() {
+        return new DeepSeekCompletionCallHandler(client).handleRequest(this, true);
+    }
+
+    /**
+     * Like {@link #execute()}, without blocking the calling thread. Do not change the conversation until the
+     * returned future has completed.
+     */
+    public CompletableFuture<DeepSeekCompletionResponse> executeAsync() {
+        return new DeepSeekCompletionCallHandler(client).handleRequestAsync(this, false);
+    }
+
+    public CompletableFuture<DeepSeekCompletionResponse> executeWithExponentialBackoffAsync() {
+        return new DeepSeekCompletionCallHandler(client).handleRequestAsync(this, true);
+    }
+
+    /**
+     * Like {@link #execute()}, in streaming mode. Requires a template with {@code stream(true)}.
+     */
+    public DeepSeekCompletionResponse executeStreaming(DeepSeekCompletionStreamListener listener) {
+        return new DeepSeekCompletionCallHandler(client).handleStreamingRequest(this, listener, false);
+    }
+
+    public DeepSeekCompletionResponse executeStreamingWithExponentialBackoff(DeepSeekCompletionStreamListener listener) {
+        return new DeepSeekCompletionCallHandler(client).handleStreamingRequest(this, listener, true);
+    }
+
+    /**
+     * Replaces the messages, e.g. with a history trimmed by a {@link DeepSeekContextPolicy}. Messages that are
+     * kept are not serialized again.
+     */
+    void replaceMessages(List<JSONObject> newMessages) {
+        Map<JSONObject, byte[]> serialized = new IdentityHashMap<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            serialized.put(messages.get(i), messages.fragments[i]);
+        }
+        setMessages(Snapshot.empty().appendAll(newMessages, serialized));
+        promptTokenCounter = null;
+    }
+
+    /**
+     * Restores messages returned by {@link #messages()}, e.g. after a failed call.
+     */
+    void restore(List<JSONObject> snapshot) {
+        setMessages((Snapshot) snapshot);
+        promptTokenCounter = null;
+    }
+
+    /**
+     * Returns the prompt tokens of the current messages, counted with the given service. Appends keep the count up
+     * to date, so a turn only counts the messages it added; after a restore or replacement, all messages are
+     * counted again.
+     */
+    int promptTokens(DeepSeekTokenService tokenService) {
+        if (promptTokenCounter == null || promptTokenService != tokenService) {
+            promptTokenCounter = tokenService.newPromptTokenCounter(template.model(), template.tools()).addAll(messages);
+            promptTokenService = tokenService;
+        }
+        return promptTokenCounter.getPromptTokens();
+    }
+
+    /**
+     * Replaces the cancel supplier of the template in the requests of the conversation, or restores it (null).
+     */
+    void setCancelSupplier(Supplier<Boolean> cancelSupplier) {
+        if (this.cancelSupplier != cancelSupplier) {
+            this.cancelSupplier = cancelSupplier;
+            request = null;
+        }
+    }
+
+    byte[] writeBody(List<JSONObject> messages) {
+        if (messages instanceof Snapshot snapshot) {
+            return DeepSeekCompletionRequestWriter.join(bodyPrefix, snapshot.fragments, snapshot.size, bodySuffix);
+        }
+        return DeepSeekCompletionRequestWriter.write(template.withMessages(messages, null, null));
+    }
+
+    private void setMessages(Snapshot snapshot) {
+        if (snapshot != messages) {
+            messages = snapshot;
+            request = null;
+        }
+    }
+
+    /**
+     * The first {@code size} entries of a log. Entries below the size are never overwritten: a snapshot appends in
+     * place only if it ends where the log ends, otherwise it copies its entries into a new log. A snapshot keeps
+     * the arrays it was created with, so it stays valid when the log grows into new arrays.
+     */
+    private static final class Snapshot extends AbstractList<JSONObject> implements RandomAccess {
+
+        private final Log log;
+        private final JSONObject[] entries;
+        private final byte[][] fragments;
+        private final int size;
+
+        private Snapshot(Log log, JSONObject[] entries, byte[][] fragments, int size) {
+            this.log = log;
+            this.entries = entries;
+            this.fragments = fragments;
+            this.size = size;
+        }
+
+        private static Snapshot empty() {
+            Log log = new Log();
+            return new Snapshot(log, log.entries, log.fragments, 0);
+        }
+
+        @Override
+        public JSONObject get(int index) {
+            Objects.checkIndex(index, size);
+            return entries[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param serialized Already serialized forms of some of the messages.
+         */
+        private Snapshot appendAll(Collection<JSONObject> newMessages, Map<JSONObject, byte[]> serialized) {
+            // Serialize outside the lock; this is the only per-message work of a turn
+            JSONObject[] added = newMessages.toArray(new JSONObject[0]);
+            byte[][] addedFragments = new byte[added.length][];
+            for (int i = 0; i < added.length; i++) {
+                Objects.requireNonNull(added[i], "message");
+                byte[] fragment = serialized.get(added[i]);
+                addedFragments[i] = (fragment != null) ? fragment : DeepSeekCompletionRequestWriter.writeMessage(added[i]);
+            }
+            int newSize = size + added.length;
+            synchronized (log) {
+                Log target = log;
+                if (size != log.length) {
+                    // Another snapshot has already appended to the log: branch off
+                    target = new Log();
+                    target.entries = Arrays.copyOf(entries, Math.max(8, newSize));
+                    target.fragments = Arrays.copyOf(fragments, Math.max(8, newSize));
+                } else if (newSize > log.entries.length) {
+                    target.entries = Arrays.copyOf(log.entries, Math.max(newSize, log.entries.length * 2));
+                    target.fragments = Arrays.copyOf(log.fragments, Math.max(newSize, log.fragments.length * 2));
+                }
+                System.arraycopy(added, 0, target.entries, size, added.length);
+                System.arraycopy(addedFragments, 0, target.fragments, size, added.length);
+                target.length = newSize;
+                return new Snapshot(target, target.entries, target.fragments, newSize);
+            }
+        }
+    }
+
+    private static final class Log {
+        private JSONObject[] entries = new JSONObject[8];
+        private byte[][] fragments = new byte[8][];
+        private int length;
+    }
+}
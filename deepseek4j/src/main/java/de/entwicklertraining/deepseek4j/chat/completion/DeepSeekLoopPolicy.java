@@ -0,0 +1,228 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import de.entwicklertraining.api.base.ApiClient;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Bounds the tool loop of a chat completion in turns, time and money. Set it via
+ * {@link DeepSeekCompletionRequest.Builder#loopPolicy(DeepSeekLoopPolicy)}; without one, {@link #DEFAULT} applies
+ * (at most 4 turns, no other limits).
+ * <p>
+ * The limits are checked after every turn that asks for tool calls, before the tools are executed:
+ * <ul>
+ *   <li>{@link Builder#maxTurns(int) maxTurns}: the number of calls to DeepSeek.</li>
+ *   <li>{@link Builder#timeout(Duration) timeout}: the wall-clock time of all turns and tool calls together. A call
+ *       that is still running when it expires is canceled within about 100 ms, including an open stream, which is
+ *       closed without delivering further chunks; {@code maxExecutionTimeInSeconds} still bounds each call.</li>
+ *   <li>{@link Builder#maxTotalTokens(long) maxTotalTokens} and {@link Builder#maxCost(double, ToDoubleFunction)
+ *       maxCost}: the prompt and completion tokens of all turns, as reported in their
+ *       {@link DeepSeekCompletionResponse.Usage}. Turns without usage (streams without {@code include_usage})
+ *       count as 0.</li>
+ * </ul>
+ * Since usage is only known after a turn, the last turn can go beyond a token or cost budget; the policy only
+ * prevents the next one. When a limit is reached, an {@link ApiClient.ApiClientException} is thrown
+ * ({@link ApiClient.ApiTimeoutException} for the timeout), or, with {@link Builder#returnPartialResult(boolean)},
+ * the best response so far is returned. A {@link Builder#stopWhen(Predicate) stop condition} ends the loop the
+ * same way, but never throws.
+ * <p>
+ * When the loop stops early, the assistant message with the unanswered tool calls is not added to the history.
+ */
+public final class DeepSeekLoopPolicy {
+
+    /** At most 4 turns, without time or budget limits. */
+    public static final DeepSeekLoopPolicy DEFAULT = builder().build();
+
+    /** The limits of a policy. */
+    public enum Limit {
+        TURNS,
+        TIMEOUT,
+        TOKENS,
+        COST
+    }
+
+    /**
+     * The state of the loop after a turn that asked for tool calls.
+     *
+     * @param turn         The number of the turn, starting at 1.
+     * @param elapsed      The time since the loop started.
+     * @param totalTokens  The prompt and completion tokens of all turns so far.
+     * @param totalCost    The cost of all turns so far, or 0 without a cost function.
+     * @param lastResponse The response of this turn.
+     */
+    public record Progress(int turn, Duration elapsed, long totalTokens, double totalCost,
+                           DeepSeekCompletionResponse lastResponse) {
+    }
+
+    private final int maxTurns;
+    private final Duration timeout;
+    private final long maxTotalTokens;
+    private final double maxCost;
+    private final ToDoubleFunction<DeepSeekCompletionResponse.Usage> costFunction;
+    private final Predicate<Progress> stopCondition;
+    private final boolean returnPartialResult;
+
+    private DeepSeekLoopPolicy(Builder builder) {
+        this.maxTurns = builder.maxTurns;
+        this.timeout = builder.timeout;
+        this.maxTotalTokens = builder.maxTotalTokens;
+        this.maxCost = builder.maxCost;
+        this.costFunction = builder.costFunction;
+        this.stopCondition = builder.stopCondition;
+        this.returnPartialResult = builder.returnPartialResult;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int maxTurns() {
+        return maxTurns;
+    }
+
+    /**
+     * @return The time limit for the whole loop, or null.
+     */
+    public Duration timeout() {
+        return timeout;
+    }
+
+    /**
+     * @return The token budget, or {@link Long#MAX_VALUE} for none.
+     */
+    public long maxTotalTokens() {
+        return maxTotalTokens;
+    }
+
+    /**
+     * @return The cost budget, or {@link Double#POSITIVE_INFINITY} for none.
+     */
+    public double maxCost() {
+        return maxCost;
+    }
+
+    public boolean returnPartialResult() {
+        return returnPartialResult;
+    }
+
+    double costOf(DeepSeekCompletionResponse.Usage usage) {
+        return (costFunction != null) ? costFunction.applyAsDouble(usage) : 0.0;
+    }
+
+    boolean shouldStop(Progress progress) {
+        return stopCondition != null && stopCondition.test(progress);
+    }
+
+    /**
+     * @return The first limit the loop has reached, or null if it may run another turn.
+     */
+    Limit reachedLimit(Progress progress) {
+        if (progress.turn() >= maxTurns) {
+            return Limit.TURNS;
+        }
+        if (timeout != null && progress.elapsed().compareTo(timeout) >= 0) {
+            return Limit.TIMEOUT;
+        }
+        if (progress.totalTokens() >= maxTotalTokens) {
+            return Limit.TOKENS;
+        }
+        if (progress.totalCost() >= maxCost) {
+            return Limit.COST;
+        }
+        return null;
+    }
+
+    ApiClient.ApiClientException limitException(Limit limit, Progress progress, Throwable cause) {
+        return switch (limit) {
+            case TURNS -> new ApiClient.ApiClientException("Exceeded maximum of " + maxTurns + " DeepSeek call iterations without final stop.");
+            case TIMEOUT -> new ApiClient.ApiTimeoutException("Tool loop exceeded its timeout of " + timeout.toMillis() + " ms after " + progress.turn() + " turns.", cause);
+            case TOKENS -> new ApiClient.ApiClientException("Tool loop used " + progress.totalTokens() + " tokens in " + progress.turn() + " turns, exceeding its budget of " + maxTotalTokens + " tokens.");
+            case COST -> new ApiClient.ApiClientException("Tool loop cost " + progress.totalCost() + " in " + progress.turn() + " turns, exceeding its budget of " + maxCost + ".");
+        };
+    }
+
+    public static final class Builder {
+        private int maxTurns = 4;
+        private Duration timeout;
+        private long maxTotalTokens = Long.MAX_VALUE;
+        private double maxCost = Double.POSITIVE_INFINITY;
+        private ToDoubleFunction<DeepSeekCompletionResponse.Usage> costFunction;
+        private Predicate<Progress> stopCondition;
+        private boolean returnPartialResult;
+
+        private Builder() {
+        }
+
+        /**
+         * Maximum number of calls to DeepSeek (default 4).
+         */
+        public Builder maxTurns(int maxTurns) {
+            if (maxTurns < 1) {
+                throw new IllegalArgumentException("maxTurns must be at least 1.");
+            }
+            this.maxTurns = maxTurns;
+            return this;
+        }
+
+        /**
+         * Wall-clock time for the whole loop, including tool calls and retries. null (default) for no limit.
+         */
+        public Builder timeout(Duration timeout) {
+            if (timeout != null && (timeout.isNegative() || timeout.isZero())) {
+                throw new IllegalArgumentException("timeout must be positive.");
+            }
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * Budget of prompt plus completion tokens over all turns. No budget by default.
+         */
+        public Builder maxTotalTokens(long maxTotalTokens) {
+            if (maxTotalTokens < 1) {
+                throw new IllegalArgumentException("maxTotalTokens must be at least 1.");
+            }
+            this.maxTotalTokens = maxTotalTokens;
+            return this;
+        }
+
+        /**
+         * Budget in any currency over all turns. The cost of a turn is computed from its usage, e.g. from the
+         * prices per million cache-hit, cache-miss and output tokens of the model.
+         */
+        public Builder maxCost(double maxCost, ToDoubleFunction<DeepSeekCompletionResponse.Usage> costFunction) {
+            if (!(maxCost > 0)) {
+                throw new IllegalArgumentException("maxCost must be positive.");
+            }
+            this.maxCost = maxCost;
+            this.costFunction = Objects.requireNonNull(costFunction, "costFunction");
+            return this;
+        }
+
+        /**
+         * Ends the loop with the best response so far when the condition is true, e.g. when the model has already
+         * produced a good enough answer. Evaluated after every turn that asks for tool calls.
+         */
+        public Builder stopWhen(Predicate<Progress> stopCondition) {
+            this.stopCondition = stopCondition;
+            return this;
+        }
+
+        /**
+         * Whether reaching a limit returns the best response so far instead of throwing (default false). The best
+         * response is the last one with text content, or the last one if none has. A timeout before the first
+         * response always throws.
+         */
+        public Builder returnPartialResult(boolean returnPartialResult) {
+            this.returnPartialResult = returnPartialResult;
+            return this;
+        }
+
+        public DeepSeekLoopPolicy build() {
+            return new DeepSeekLoopPolicy(this);
+        }
+    }
+}
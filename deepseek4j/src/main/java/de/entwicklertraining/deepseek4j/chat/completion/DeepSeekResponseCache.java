@@ -0,0 +1,429 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import de.entwicklertraining.api.base.ApiClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local cache for the responses of deterministic chat completion requests. Set it via
+ * {@link de.entwicklertraining.deepseek4j.DeepSeekClient#setResponseCache(DeepSeekResponseCache)}.
+ * <p>
+ * Only requests with {@code temperature(0.0)} that are not streamed are cached. The key is the SHA-256 hash of the
+ * canonically serialized request body, so requests with the same content share an entry, independent of the order
+ * in which they were built. Every turn of the tool loop is cached separately.
+ * <p>
+ * The memory tier is a size-bounded LRU map. It is plain LRU without a frequency-based admission policy such
+ * as W-TinyLFU, which would need a frequency sketch or a dependency like Caffeine; a workload that scans more
+ * distinct requests than fit into memory should rely on the disk tier.
+ * <p>
+ * The optional disk tier stores one file per entry in a directory; it survives restarts and is consulted when the
+ * memory tier misses. Its total size is bounded by {@link Builder#maxDiskBytes(long) maxDiskBytes}. When a put
+ * exceeds the bound, and at least once per time-to-live while entries are written, a sweep on a background
+ * thread deletes the expired files and then the least recently used ones until the directory is at 90% of the
+ * bound. Entries expire after the time-to-live.
+ */
+public final class DeepSeekResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeepSeekResponseCache.class);
+    private static final String FILE_SUFFIX = ".response";
+    private static final long UNKNOWN = -1;
+
+    private record Entry(String responseBody, long createdAtMillis) {}
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Path diskDirectory;
+    private final long maxDiskBytes;
+    private final Map<String, Entry> memory;
+
+    private final AtomicLong diskBytes = new AtomicLong(UNKNOWN); // estimate, corrected by every sweep
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private volatile long lastSweepMillis = System.currentTimeMillis();
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder diskEvictions = new LongAdder();
+
+    private DeepSeekResponseCache(Builder builder) {
+        this.maxEntries = builder.maxEntries;
+        this.ttlMillis = (builder.ttl != null) ? builder.ttl.toMillis() : 0;
+        this.diskDirectory = builder.diskDirectory;
+        this.maxDiskBytes = builder.maxDiskBytes;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > DeepSeekResponseCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the cache key of the request, or null if the request is not cacheable.
+     */
+    String keyOf(DeepSeekCompletionRequest request) {
+        Double temperature = request.temperature();
+        if (temperature == null || temperature != 0.0 || Boolean.TRUE.equals(request.stream())) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(request.getBodyBytes());
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Returns the cached response for the key, or null on a miss.
+     */
+    DeepSeekCompletionResponse get(String key, DeepSeekCompletionRequest request) {
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (memory) {
+            entry = memory.get(key);
+            if (entry != null && isExpired(entry, now)) {
+                memory.remove(key);
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            memoryHits.increment();
+            return new DeepSeekCompletionResponse(entry.responseBody(), request);
+        }
+
+        entry = readFromDisk(key, now);
+        if (entry != null) {
+            diskHits.increment();
+            synchronized (memory) {
+                memory.put(key, entry);
+            }
+            return new DeepSeekCompletionResponse(entry.responseBody(), request);
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    void put(String key, DeepSeekCompletionResponse response) {
+        if (response.hasError()) {
+            return;
+        }
+        Entry entry = new Entry(response.toJsonString(), System.currentTimeMillis());
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        writeToDisk(key, entry);
+    }
+
+    /**
+     * Removes the cached response of the given request (from both tiers).
+     */
+    public void invalidate(DeepSeekCompletionRequest request) {
+        String key = keyOf(request);
+        if (key == null) {
+            return;
+        }
+        synchronized (memory) {
+            memory.remove(key);
+        }
+        if (diskDirectory != null) {
+            try {
+                Files.deleteIfExists(diskDirectory.resolve(key + FILE_SUFFIX));
+            } catch (IOException e) {
+                throw new ApiClient.ApiClientException("Could not delete cache entry " + key + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Removes all cached responses (from both tiers).
+     */
+    public void invalidateAll() {
+        synchronized (memory) {
+            memory.clear();
+        }
+        if (diskDirectory == null || !Files.isDirectory(diskDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(diskDirectory, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new ApiClient.ApiClientException("Could not clear cache directory " + diskDirectory + ": " + e.getMessage(), e);
+        }
+        diskBytes.set(0);
+    }
+
+    /**
+     * @return The number of entries in the memory tier.
+     */
+    public int size() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.sum();
+    }
+
+    public long getDiskHits() {
+        return diskHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of entries removed from the memory tier because it was full.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The number of files deleted from the disk tier because it was full or they had expired.
+     */
+    public long getDiskEvictions() {
+        return diskEvictions.sum();
+    }
+
+    /**
+     * @return The share of lookups answered from the cache, or 0 if there was no lookup yet.
+     */
+    public double getHitRatio() {
+        long hits = memoryHits.sum() + diskHits.sum();
+        long lookups = hits + misses.sum();
+        return lookups > 0 ? (double) hits / lookups : 0.0;
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return ttlMillis > 0 && now - entry.createdAtMillis() >= ttlMillis;
+    }
+
+    /**
+     * A disk entry consists of the creation time (first line) and the response body.
+     */
+    private Entry readFromDisk(String key, long now) {
+        if (diskDirectory == null) {
+            return null;
+        }
+        Path file = diskDirectory.resolve(key + FILE_SUFFIX);
+        try {
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            int newline = content.indexOf('\n');
+            Entry entry = new Entry(content.substring(newline + 1), Long.parseLong(content.substring(0, newline)));
+            if (isExpired(entry, now)) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            // The modification time orders the files for the LRU eviction of the sweep
+            Files.setLastModifiedTime(file, FileTime.fromMillis(now));
+            return entry;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable response cache entry {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, Entry entry) {
+        if (diskDirectory == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(diskDirectory);
+            // Write to a temporary file first, so that readers never see a partially written entry
+            Path tempFile = Files.createTempFile(diskDirectory, key, ".tmp");
+            Files.writeString(tempFile, entry.createdAtMillis() + "\n" + entry.responseBody(), StandardCharsets.UTF_8);
+            long written = Files.size(tempFile);
+            Files.move(tempFile, diskDirectory.resolve(key + FILE_SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long total = diskBytes.updateAndGet(bytes -> (bytes == UNKNOWN) ? UNKNOWN : bytes + written);
+            if (total == UNKNOWN || total > maxDiskBytes || (ttlMillis > 0 && entry.createdAtMillis() - lastSweepMillis >= ttlMillis)) {
+                sweepDiskAsync();
+            }
+        } catch (IOException e) {
+            // The response is still cached in memory, so a failing disk tier must not fail the request
+            logger.warn("Could not write response cache entry {} to {}: {}", key, diskDirectory, e.getMessage());
+        }
+    }
+
+    private void sweepDiskAsync() {
+        if (sweeping.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("deepseek-response-cache-sweep").start(() -> {
+                try {
+                    sweepDisk();
+                } finally {
+                    sweeping.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Deletes the expired files of the disk tier, then the least recently used ones until the tier is at 90% of
+     * its bound, and recounts its size.
+     */
+    void sweepDisk() {
+        long now = System.currentTimeMillis();
+        lastSweepMillis = now;
+        List<DiskFile> files = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(diskDirectory, "*" + FILE_SUFFIX)) {
+            for (Path file : stream) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (ttlMillis > 0 && isExpired(new Entry(null, readCreatedAt(file)), now)) {
+                        delete(file);
+                        continue;
+                    }
+                    files.add(new DiskFile(file, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                    total += attributes.size();
+                } catch (NoSuchFileException e) {
+                    // Deleted concurrently (invalidated or read after expiry)
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Deleting unreadable response cache entry {}: {}", file, e.getMessage());
+                    delete(file);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            diskBytes.set(0);
+            return;
+        } catch (IOException e) {
+            logger.warn("Could not sweep response cache directory {}: {}", diskDirectory, e.getMessage());
+            return;
+        }
+        if (total > maxDiskBytes) {
+            long target = maxDiskBytes / 10 * 9;
+            files.sort(Comparator.comparingLong(DiskFile::lastUsedMillis));
+            for (DiskFile file : files) {
+                if (total <= target) {
+                    break;
+                }
+                if (delete(file.path())) {
+                    total -= file.size();
+                }
+            }
+        }
+        diskBytes.set(total);
+    }
+
+    private boolean delete(Path file) {
+        try {
+            if (Files.deleteIfExists(file)) {
+                diskEvictions.increment();
+                return true;
+            }
+        } catch (IOException e) {
+            logger.warn("Could not delete response cache entry {}: {}", file, e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Reads the creation time, the first line of a disk entry.
+     */
+    private static long readCreatedAt(Path file) throws IOException {
+        try (var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line == null) {
+                throw new IOException("Empty cache entry");
+            }
+            return Long.parseLong(line);
+        }
+    }
+
+    private record DiskFile(Path path, long size, long lastUsedMillis) {}
+
+    public static final class Builder {
+        private int maxEntries = 1000;
+        private Duration ttl;
+        private Path diskDirectory;
+        private long maxDiskBytes = 256L * 1024 * 1024;
+
+        private Builder() {
+        }
+
+        /**
+         * Maximum number of entries in the memory tier (default 1000). The least recently used entry is evicted first.
+         */
+        public Builder maxEntries(int maxEntries) {
+            if (maxEntries < 1) {
+                throw new IllegalArgumentException("maxEntries must be at least 1.");
+            }
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * Time after which an entry expires. null (default) keeps entries until they are evicted or invalidated.
+         */
+        public Builder ttl(Duration ttl) {
+            if (ttl != null && (ttl.isNegative() || ttl.isZero())) {
+                throw new IllegalArgumentException("ttl must be positive.");
+            }
+            this.ttl = ttl;
+            return this;
+        }
+
+        /**
+         * Enables the disk tier in the given directory. The directory is created if necessary.
+         */
+        public Builder diskDirectory(Path diskDirectory) {
+            this.diskDirectory = diskDirectory;
+            return this;
+        }
+
+        /**
+         * Maximum total size of the files of the disk tier (default 256 MB). The least recently used files are
+         * deleted first.
+         */
+        public Builder maxDiskBytes(long maxDiskBytes) {
+            if (maxDiskBytes < 1) {
+                throw new IllegalArgumentException("maxDiskBytes must be at least 1.");
+            }
+            this.maxDiskBytes = maxDiskBytes;
+            return this;
+        }
+
+        public DeepSeekResponseCache build() {
+            return new DeepSeekResponseCache(this);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import de.entwicklertraining.deepseek4j.DeepSeekToolDefinition;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assembles streamed tool calls from their fragments. In a stream, the arguments of a tool call arrive
+ * as a sequence of "function.arguments" fragments that share the same index. As soon as the fragments of
+ * one tool call form a complete JSON object, the tool is started on the executor, while the model is still
+ * generating the rest of the turn. The handler later collects the already running results.
+ */
+final class DeepSeekToolCallAssembler {
+
+    private final Map<String, DeepSeekToolDefinition> toolMap;
+    private final DeepSeekToolCallExecutor toolCallExecutor;
+    private final Map<Integer, PartialToolCall> partialToolCalls = new HashMap<>();
+
+    DeepSeekToolCallAssembler(Map<String, DeepSeekToolDefinition> toolMap, DeepSeekToolCallExecutor toolCallExecutor) {
+        this.toolMap = toolMap;
+        this.toolCallExecutor = toolCallExecutor;
+    }
+
+    /**
+     * Feeds the tool call fragments of a chunk. Only the first choice is considered,
+     * because the tool loop continues the conversation with the first choice.
+     */
+    void accept(DeepSeekCompletionChunk chunk) {
+        JSONArray choices = chunk.getJson().optJSONArray("choices");
+        JSONObject firstChoice = (choices != null) ? choices.optJSONObject(0) : null;
+        if (firstChoice == null || firstChoice.optInt("index", 0) != 0) {
+            return;
+        }
+        JSONObject delta = firstChoice.optJSONObject("delta");
+        JSONArray toolCallDeltas = (delta != null) ? delta.optJSONArray("tool_calls") : null;
+        if (toolCallDeltas == null) {
+            return;
+        }
+        for (int i = 0; i < toolCallDeltas.length(); i++) {
+            JSONObject toolCallDelta = toolCallDeltas.optJSONObject(i);
+            if (toolCallDelta == null) continue;
+
+            PartialToolCall partial = partialToolCalls.computeIfAbsent(toolCallDelta.optInt("index", 0), k -> new PartialToolCall());
+            partial.accept(toolCallDelta);
+            if (partial.isReadyToStart()) {
+                partial.started = true;
+                DeepSeekToolCallExecutor.PendingToolCall pendingToolCall = DeepSeekToolCallExecutor.parse(partial.toJson(), toolMap);
+                if (pendingToolCall != null) {
+                    toolCallExecutor.start(pendingToolCall);
+                }
+            }
+        }
+    }
+
+    /**
+     * The fragments of one tool call, together with an incremental scanner that detects
+     * when the arguments form a complete JSON object.
+     */
+    private static final class PartialToolCall {
+        private String id;
+        private String name;
+        private final StringBuilder arguments = new StringBuilder();
+        private int depth;
+        private boolean inString;
+        private boolean escaped;
+        private boolean complete;
+        private boolean started;
+
+        private void accept(JSONObject toolCallDelta) {
+            String deltaId = toolCallDelta.optString("id", null);
+            if (deltaId != null) {
+                id = deltaId;
+            }
+            JSONObject function = toolCallDelta.optJSONObject("function");
+            if (function == null) {
+                return;
+            }
+            String deltaName = function.optString("name", null);
+            if (deltaName != null) {
+                name = deltaName;
+            }
+            String fragment = function.optString("arguments", null);
+            if (fragment != null) {
+                arguments.append(fragment);
+                scan(fragment);
+            }
+        }
+
+        /**
+         * Tracks object/array nesting outside of string literals. Only the new fragment is scanned,
+         * so the total effort is linear in the length of the arguments.
+         */
+        private void scan(String fragment) {
+            for (int i = 0; i < fragment.length() && !complete; i++) {
+                char c = fragment.charAt(i);
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (c == '\\') {
+                        escaped = true;
+                    } else if (c == '"') {
+                        inString = false;
+                    }
+                } else if (c == '"') {
+                    inString = true;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                    complete = depth == 0;
+                }
+            }
+        }
+
+        private boolean isReadyToStart() {
+            return complete && !started && id != null && name != null;
+        }
+
+        private JSONObject toJson() {
+            return new JSONObject()
+                    .put("id", id)
+                    .put("type", "function")
+                    .put("function", new JSONObject()
+                            .put("name", name)
+                            .put("arguments", arguments.toString()));
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import de.entwicklertraining.api.base.ApiClient;
+import de.entwicklertraining.deepseek4j.DeepSeekMetricsListener;
+import de.entwicklertraining.deepseek4j.DeepSeekToolCallContext;
+import de.entwicklertraining.deepseek4j.DeepSeekToolDefinition;
+import de.entwicklertraining.deepseek4j.DeepSeekToolResult;
+import de.entwicklertraining.deepseek4j.jfr.DeepSeekToolCallEvent;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes the tool calls requested by the model. All tool calls of a turn are started at once on the
+ * configured executor, so I/O-bound tools run concurrently. The resulting "tool" messages are always
+ * returned in the order of the tool calls, which keeps the conversation deterministic.
+ * Each invocation is recorded as a {@link DeepSeekToolCallEvent} if a Java Flight Recorder recording enables it.
+ */
+final class DeepSeekToolCallExecutor {
+
+    /**
+     * Used if the request does not specify an executor. Virtual threads keep blocking tools cheap.
+     */
+    static final ExecutorService DEFAULT_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private static final Logger logger = LoggerFactory.getLogger(DeepSeekToolCallExecutor.class);
+
+    private final ExecutorService executor;
+    private final DeepSeekMetricsListener metricsListener;
+    // Tool calls that were started ahead of time, e.g. while the turn was still being streamed
+    private final Map<String, CompletableFuture<JSONObject>> startedToolCalls = new ConcurrentHashMap<>();
+
+    DeepSeekToolCallExecutor(ExecutorService executor, DeepSeekMetricsListener metricsListener) {
+        this.executor = (executor != null) ? executor : DEFAULT_EXECUTOR;
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * A validated tool call, ready to be executed.
+     */
+    record PendingToolCall(String id, DeepSeekToolDefinition definition, JSONObject arguments) {}
+
+    /**
+     * Validates all entries of a "tool_calls" array. Entries without id or function are skipped.
+     */
+    static List<PendingToolCall> parseAll(JSONArray toolCallsArray, Map<String, DeepSeekToolDefinition> toolMap) {
+        List<PendingToolCall> pendingToolCalls = new ArrayList<>();
+        for (int i = 0; i < toolCallsArray.length(); i++) {
+            JSONObject toolCallObj = toolCallsArray.optJSONObject(i);
+            if (toolCallObj == null) continue; // Skip invalid entries
+
+            PendingToolCall pendingToolCall = parse(toolCallObj, toolMap);
+            if (pendingToolCall != null) {
+                pendingToolCalls.add(pendingToolCall);
+            }
+        }
+        return pendingToolCalls;
+    }
+
+    /**
+     * Validates a single tool call object. Returns null if it misses 'id' or 'function'.
+     */
+    static PendingToolCall parse(JSONObject toolCallObj, Map<String, DeepSeekToolDefinition> toolMap) {
+        String toolCallId = toolCallObj.optString("id", null);
+        JSONObject functionObj = toolCallObj.optJSONObject("function");
+
+        if (toolCallId == null || functionObj == null) {
+            logger.error("Invalid tool_call entry missing 'id' or 'function': {}", toolCallObj);
+            // Continuing is more robust than failing the whole conversation
+            return null;
+        }
+
+        String toolName = functionObj.optString("name", null);
+
+        if (toolName == null || toolName.isBlank()) {
+            throw new ApiClient.ApiResponseUnusableException(
+                    "Missing 'name' in tool call function object. " + toolCallObj
+            );
+        }
+        if (!toolMap.containsKey(toolName)) {
+            throw new ApiClient.ApiResponseUnusableException(
+                    "Unknown tool call name referenced by model: " + toolName
+            );
+        }
+
+        // Parse arguments
+        JSONObject args;
+        String argsString = functionObj.optString("arguments", null);
+        if (argsString == null) {
+            // Some functions might not require arguments
+            args = new JSONObject();
+            logger.warn("Missing 'arguments' string for tool call '{}'. Assuming empty arguments.", toolName);
+        } else {
+            try {
+                args = new JSONObject(argsString);
+            } catch (Exception e) {
+                throw new ApiClient.ApiResponseUnusableException(
+                        "Failed to parse arguments JSON string for tool call '" + toolName + "'. " +
+                                "Arguments: '" + argsString + "' Error: " + e.getMessage()
+                );
+            }
+        }
+
+        return new PendingToolCall(toolCallId, toolMap.get(toolName), args);
+    }
+
+    /**
+     * Executes all tool calls concurrently and blocks until all of them are finished.
+     * Returns the "tool" messages in the order of the given tool calls.
+     */
+    List<JSONObject> executeAll(List<PendingToolCall> pendingToolCalls) {
+        List<JSONObject> toolMessages = new ArrayList<>(pendingToolCalls.size());
+
+        // A single tool call without timeout does not benefit from another thread
+        if (pendingToolCalls.size() == 1 && pendingToolCalls.get(0).definition().timeoutInSeconds() == 0
+                && !startedToolCalls.containsKey(pendingToolCalls.get(0).id())) {
+            toolMessages.add(invoke(pendingToolCalls.get(0)));
+            return toolMessages;
+        }
+
+        List<CompletableFuture<JSONObject>> futures = new ArrayList<>(pendingToolCalls.size());
+        for (PendingToolCall pendingToolCall : pendingToolCalls) {
+            futures.add(startedOrSubmit(pendingToolCall));
+        }
+        try {
+            for (CompletableFuture<JSONObject> future : futures) {
+                toolMessages.add(future.join());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+        return toolMessages;
+    }
+
+    /**
+     * Non-blocking variant of {@link #executeAll(List)}: the returned future completes with the "tool"
+     * messages in the order of the given tool calls once all of them are finished. If one tool call
+     * fails, the others are cancelled.
+     */
+    CompletableFuture<List<JSONObject>> executeAllAsync(List<PendingToolCall> pendingToolCalls) {
+        List<CompletableFuture<JSONObject>> futures = new ArrayList<>(pendingToolCalls.size());
+        for (PendingToolCall pendingToolCall : pendingToolCalls) {
+            futures.add(startedOrSubmit(pendingToolCall));
+        }
+        for (CompletableFuture<JSONObject> future : futures) {
+            future.whenComplete((message, error) -> {
+                if (error != null) {
+                    futures.forEach(other -> other.cancel(true));
+                }
+            });
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            List<JSONObject> toolMessages = new ArrayList<>(futures.size());
+            for (CompletableFuture<JSONObject> future : futures) {
+                toolMessages.add(future.join());
+            }
+            return toolMessages;
+        });
+    }
+
+    /**
+     * Starts a tool call before the turn is complete. A later call of {@link #executeAll(List)} or
+     * {@link #executeAllAsync(List)} that contains a tool call with the same id uses this result
+     * instead of executing the tool a second time.
+     */
+    void start(PendingToolCall pendingToolCall) {
+        startedToolCalls.computeIfAbsent(pendingToolCall.id(), id -> submit(pendingToolCall));
+    }
+
+    /**
+     * Cancels all tool calls that were started ahead of time but not collected yet,
+     * e.g. because the stream of the turn failed.
+     */
+    void cancelStarted() {
+        startedToolCalls.values().forEach(future -> future.cancel(true));
+        startedToolCalls.clear();
+    }
+
+    private CompletableFuture<JSONObject> startedOrSubmit(PendingToolCall pendingToolCall) {
+        CompletableFuture<JSONObject> started = startedToolCalls.remove(pendingToolCall.id());
+        return (started != null) ? started : submit(pendingToolCall);
+    }
+
+    /**
+     * Starts a tool call on the executor. The returned future completes with the "tool" message,
+     * or exceptionally with an ApiTimeoutException if the tool exceeds its timeout.
+     */
+    CompletableFuture<JSONObject> submit(PendingToolCall pendingToolCall) {
+        CompletableFuture<JSONObject> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                result.complete(invoke(pendingToolCall));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        // Interrupt the tool if the result is no longer needed (timeout or cancellation)
+        result.whenComplete((message, error) -> {
+            if (error != null) {
+                task.cancel(true);
+            }
+        });
+
+        int timeoutInSeconds = pendingToolCall.definition().timeoutInSeconds();
+        if (timeoutInSeconds > 0) {
+            CompletableFuture.delayedExecutor(timeoutInSeconds, TimeUnit.SECONDS).execute(() ->
+                    result.completeExceptionally(new ApiClient.ApiTimeoutException(
+                            "Tool '" + pendingToolCall.definition().name() + "' did not finish within " + timeoutInSeconds + " seconds.")));
+        }
+        return result;
+    }
+
+    private JSONObject invoke(PendingToolCall pendingToolCall) {
+        String toolName = pendingToolCall.definition().name();
+        DeepSeekToolResult toolResult;
+        DeepSeekToolCallEvent event = new DeepSeekToolCallEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            toolResult = pendingToolCall.definition().callback().handle(new DeepSeekToolCallContext(pendingToolCall.arguments()));
+            if (toolResult == null || toolResult.content() == null) {
+                throw new IllegalStateException("Tool callback for '" + toolName + "' returned null result or null content.");
+            }
+        } catch (Exception e) {
+            reportToolCall(toolName, start, true);
+            commitToolCall(event, pendingToolCall, true);
+            // Catch exceptions from the tool implementation itself
+            logger.error("Exception occurred during execution of tool '{}': {}", toolName, e.getMessage(), e);
+            throw new ApiClient.ApiClientException("Error executing tool '" + toolName + "': " + e.getMessage(), e);
+        }
+        reportToolCall(toolName, start, false);
+        commitToolCall(event, pendingToolCall, false);
+
+        return new JSONObject()
+                .put("role", "tool")
+                .put("tool_call_id", pendingToolCall.id())
+                .put("content", toolResult.content());
+    }
+
+    private static void commitToolCall(DeepSeekToolCallEvent event, PendingToolCall pendingToolCall, boolean failed) {
+        if (event.shouldCommit()) {
+            event.toolName = pendingToolCall.definition().name();
+            event.toolCallId = pendingToolCall.id();
+            event.failed = failed;
+            event.commit();
+        }
+    }
+
+    private void reportToolCall(String toolName, long startNanos, boolean failed) {
+        if (metricsListener == null) {
+            return;
+        }
+        try {
+            metricsListener.onToolCall(toolName, System.nanoTime() - startNanos, failed);
+        } catch (RuntimeException e) {
+            logger.warn("Metrics listener failed: {}", e.getMessage(), e);
+        }
+    }
+}
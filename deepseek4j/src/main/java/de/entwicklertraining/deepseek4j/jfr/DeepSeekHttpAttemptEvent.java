@@ -0,0 +1,70 @@
+package de.entwicklertraining.deepseek4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One HTTP attempt of a {@code DeepSeekClient}, from waiting for the rate limiter until the response was read
+ * (or the attempt failed). Retries are separate events with a higher attempt number.
+ */
+@Name("de.entwicklertraining.deepseek4j.HttpAttempt")
+@Label("DeepSeek HTTP Attempt")
+@Category("DeepSeek4J")
+@Description("One HTTP attempt of a DeepSeek request, including retries")
+@Enabled(false)
+@StackTrace(false)
+public final class DeepSeekHttpAttemptEvent extends Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Streaming")
+    public boolean streaming;
+
+    @Label("Attempt")
+    @Description("1 for the first attempt, 2 for the first retry, ...")
+    public int attempt;
+
+    @Label("Backoff Delay")
+    @Description("Time slept before this attempt because the previous one was rejected with 429 or 503")
+    @Timespan(Timespan.MILLISECONDS)
+    public long backoffDelay;
+
+    @Label("Status Code")
+    @Description("0 if no response was received")
+    public int statusCode;
+
+    @Label("Request Bytes")
+    @DataAmount
+    public long requestBytes;
+
+    @Label("Response Bytes")
+    @DataAmount
+    public long responseBytes;
+
+    @Label("Queue Wait")
+    @Description("Time spent waiting for the client-side rate limiter")
+    @Timespan
+    public long queueWait;
+
+    @Label("Time To First Byte")
+    @Timespan
+    public long timeToFirstByte;
+
+    @Label("Error")
+    @Description("Class of the exception the attempt failed with")
+    public String error;
+
+    @Label("Retryable")
+    public boolean retryable;
+}
@@ -0,0 +1,29 @@
+package de.entwicklertraining.deepseek4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One invocation of a {@code DeepSeekToolsCallback}. The event is recorded on the thread that ran the callback,
+ * with its stack trace, so the time spent in tools shows up next to the samples of that thread.
+ */
+@Name("de.entwicklertraining.deepseek4j.ToolCall")
+@Label("DeepSeek Tool Call")
+@Category("DeepSeek4J")
+@Description("One invocation of a DeepSeek tool callback")
+@Enabled(false)
+public final class DeepSeekToolCallEvent extends Event {
+
+    @Label("Tool Name")
+    public String toolName;
+
+    @Label("Tool Call Id")
+    public String toolCallId;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,52 @@
+package de.entwicklertraining.deepseek4j.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One turn of the tool loop of a chat completion: sending the conversation and receiving the assistant message
+ * (with all retries). The tool calls requested by the turn are separate events.
+ */
+@Name("de.entwicklertraining.deepseek4j.Turn")
+@Label("DeepSeek Turn")
+@Category("DeepSeek4J")
+@Description("One turn of the tool loop of a DeepSeek chat completion")
+@Enabled(false)
+@StackTrace(false)
+public final class DeepSeekTurnEvent extends Event {
+
+    @Label("Model")
+    public String model;
+
+    @Label("Turn")
+    @Description("1 for the first request of a conversation, 2 after the first tool calls, ...")
+    public int turn;
+
+    @Label("Streaming")
+    public boolean streaming;
+
+    @Label("Finish Reason")
+    public String finishReason;
+
+    @Label("Tool Calls")
+    @Description("Number of tool calls requested by the assistant message")
+    public int toolCalls;
+
+    @Label("Prompt Tokens")
+    public int promptTokens;
+
+    @Label("Prompt Cache Hit Tokens")
+    public int promptCacheHitTokens;
+
+    @Label("Completion Tokens")
+    public int completionTokens;
+
+    @Label("Error")
+    @Description("Class of the exception the turn failed with")
+    public String error;
+}
@@ -5,6 +5,8 @@ import de.entwicklertraining.deepseek4j.DeepSeekClient;
 import de.entwicklertraining.deepseek4j.DeepSeekRequest;
 import org.json.JSONObject;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Represents a request to the DeepSeek Models API.
  * This endpoint lists the currently available models and provides basic information about each one.
@@ -61,5 +63,19 @@ public final class DeepSeekModelsRequest extends DeepSeekRequest<DeepSeekModelsR
         public DeepSeekModelsResponse executeWithExponentialBackoff() {
             return this.deepSeekClient.sendRequestWithExponentialBackoff(build());
         }
+
+        /**
+         * Sends the request without blocking the calling thread.
+         */
+        public CompletableFuture<DeepSeekModelsResponse> executeAsync() {
+            return this.deepSeekClient.sendRequestAsync(build());
+        }
+
+        /**
+         * Like {@link #executeAsync()}, but retries with exponential backoff on retryable status codes.
+         */
+        public CompletableFuture<DeepSeekModelsResponse> executeWithExponentialBackoffAsync() {
+            return this.deepSeekClient.sendRequestWithExponentialBackoffAsync(build());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,187 @@
+package de.entwicklertraining.deepseek4j.transport;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * {@link DeepSeekTransport} based on the JDK {@link HttpClient}.
+ * <p>
+ * With HTTP/2 (the default; DeepSeek negotiates it via ALPN), an {@link HttpClient} sends all concurrent requests
+ * to a host as streams of a single connection. A transport with {@link Builder#connections(int) connections(n)}
+ * creates n clients and distributes the requests over them in turn, so n multiplexed connections carry the whole
+ * load, instead of one socket per request. More than one connection helps when a single connection's stream
+ * limit or throughput becomes the bottleneck. With HTTP/1.1, each client keeps its own pool of keep-alive
+ * connections.
+ * <p>
+ * The callbacks of the clients (completing the futures, reading the bodies) run on the executor, which defaults to
+ * one virtual thread per task. Settings of the JDK client that are global to the JVM, such as the size of the
+ * HTTP/1.1 keep-alive pool, socket buffers and the keep-alive timeout, are set with the system properties
+ * {@code jdk.httpclient.connectionPoolSize}, {@code jdk.httpclient.sendBufferSize},
+ * {@code jdk.httpclient.receiveBufferSize} and {@code jdk.httpclient.keepalive.timeout}.
+ * <pre>{@code
+ * DeepSeekHttpClientTransport transport = DeepSeekHttpClientTransport.builder()
+ *         .connections(4)
+ *         .connectTimeout(Duration.ofSeconds(5))
+ *         .build();
+ * client.setTransport(transport);
+ * // ... on shutdown
+ * transport.close();
+ * }</pre>
+ */
+public final class DeepSeekHttpClientTransport implements DeepSeekTransport {
+
+    private final HttpClient[] clients;
+    private final ExecutorService ownedExecutor; // created by the transport and shut down on close, or null
+    private final boolean ownsClients;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private DeepSeekHttpClientTransport(HttpClient[] clients, ExecutorService ownedExecutor, boolean ownsClients) {
+        this.clients = clients;
+        this.ownedExecutor = ownedExecutor;
+        this.ownsClients = ownsClients;
+    }
+
+    private DeepSeekHttpClientTransport(Builder builder) {
+        ExecutorService createdExecutor = null;
+        Executor executor = builder.executor;
+        if (executor == null) {
+            createdExecutor = Executors.newVirtualThreadPerTaskExecutor();
+            executor = createdExecutor;
+        }
+        this.clients = new HttpClient[builder.connections];
+        for (int i = 0; i < clients.length; i++) {
+            HttpClient.Builder clientBuilder = HttpClient.newBuilder()
+                    .version(builder.version)
+                    .executor(executor);
+            if (builder.connectTimeout != null) {
+                clientBuilder.connectTimeout(builder.connectTimeout);
+            }
+            if (builder.customizer != null) {
+                builder.customizer.accept(clientBuilder);
+            }
+            clients[i] = clientBuilder.build();
+        }
+        this.ownedExecutor = createdExecutor;
+        this.ownsClients = true;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * A transport that sends everything with the given client. It is not closed by {@link #close()}.
+     */
+    public static DeepSeekHttpClientTransport wrap(HttpClient httpClient) {
+        return new DeepSeekHttpClientTransport(new HttpClient[]{Objects.requireNonNull(httpClient, "httpClient")}, null, false);
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        return nextClient().sendAsync(request, bodyHandler);
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+        return nextClient().send(request, bodyHandler);
+    }
+
+    /**
+     * The clients the requests are distributed over, one per connection (with HTTP/2).
+     */
+    public List<HttpClient> getHttpClients() {
+        return List.of(clients);
+    }
+
+    private HttpClient nextClient() {
+        if (clients.length == 1) {
+            return clients[0];
+        }
+        return clients[Math.floorMod(next.getAndIncrement(), clients.length)];
+    }
+
+    /**
+     * Closes the clients created by the transport, waiting for running exchanges, and shuts down its own executor.
+     */
+    @Override
+    public void close() {
+        if (ownsClients) {
+            for (HttpClient client : clients) {
+                client.close();
+            }
+        }
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    public static final class Builder {
+        private int connections = 1;
+        private HttpClient.Version version = HttpClient.Version.HTTP_2;
+        private Duration connectTimeout;
+        private Executor executor;
+        private Consumer<HttpClient.Builder> customizer;
+
+        private Builder() {
+        }
+
+        /**
+         * Number of clients, and so of HTTP/2 connections per host (default 1).
+         */
+        public Builder connections(int connections) {
+            if (connections < 1) {
+                throw new IllegalArgumentException("connections must be at least 1.");
+            }
+            this.connections = connections;
+            return this;
+        }
+
+        /**
+         * Preferred HTTP version (default HTTP/2, which falls back to HTTP/1.1 if the server does not support it).
+         */
+        public Builder version(HttpClient.Version version) {
+            this.version = Objects.requireNonNull(version, "version");
+            return this;
+        }
+
+        /**
+         * Timeout for establishing a connection. null (default) waits as long as the operating system does.
+         */
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Executor for the callbacks of the clients. It is not shut down by the transport.
+         * null (default) uses one virtual thread per task.
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Applies further settings to every client, e.g. a proxy or an SSL context.
+         */
+        public Builder customizer(Consumer<HttpClient.Builder> customizer) {
+            this.customizer = customizer;
+            return this;
+        }
+
+        public DeepSeekHttpClientTransport build() {
+            return new DeepSeekHttpClientTransport(this);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package de.entwicklertraining.deepseek4j.transport;
+
+import javax.net.ssl.SSLSession;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * {@link DeepSeekTransport} that hands every request to a handler in the same JVM instead of sending it over the
+ * network, for tests of code that uses a {@link de.entwicklertraining.deepseek4j.DeepSeekClient}:
+ * <pre>{@code
+ * DeepSeekInProcessTransport transport = new DeepSeekInProcessTransport(request ->
+ *         DeepSeekInProcessTransport.Response.json(200, "{\"choices\":[...]}"));
+ * client.setTransport(transport);
+ * // ... run the code under test
+ * assertEquals("/chat/completions", transport.getRequests().get(0).uri().getPath());
+ * }</pre>
+ * The handler runs on a virtual thread per request, so it may block, e.g. to simulate latency. An exception thrown
+ * by the handler fails the exchange like a network error. Streaming requests receive the whole body of the
+ * response as one chunk; for an event stream, return the events in Server-Sent Events format
+ * ({@link Response#eventStream(List)}).
+ */
+public final class DeepSeekInProcessTransport implements DeepSeekTransport {
+
+    /**
+     * A received request.
+     *
+     * @param body The request body, empty for GET requests.
+     */
+    public record Request(String method, URI uri, Map<String, List<String>> headers, byte[] body) {
+
+        public String bodyAsString() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return The first value of the header (case-insensitive), or null.
+         */
+        public String header(String name) {
+            for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(name) && !entry.getValue().isEmpty()) {
+                    return entry.getValue().get(0);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The response the handler returns.
+     */
+    public record Response(int statusCode, Map<String, List<String>> headers, byte[] body) {
+
+        public Response {
+            headers = Map.copyOf(headers);
+            Objects.requireNonNull(body, "body");
+        }
+
+        public static Response json(int statusCode, String body) {
+            return new Response(statusCode, Map.of("Content-Type", List.of("application/json")), body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * A stream of Server-Sent Events with the given data, terminated by {@code [DONE]}.
+         */
+        public static Response eventStream(List<String> events) {
+            StringBuilder body = new StringBuilder();
+            for (String event : events) {
+                body.append("data: ").append(event).append("\n\n");
+            }
+            body.append("data: [DONE]\n\n");
+            return new Response(200, Map.of("Content-Type", List.of("text/event-stream")), body.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private final Function<Request, Response> handler;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentLinkedQueue<Request> requests = new ConcurrentLinkedQueue<>();
+
+    public DeepSeekInProcessTransport(Function<Request, Response> handler) {
+        this.handler = Objects.requireNonNull(handler, "handler");
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest httpRequest, HttpResponse.BodyHandler<T> bodyHandler) {
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        var task = executor.submit(() -> {
+            try {
+                Request request = new Request(httpRequest.method(), httpRequest.uri(), httpRequest.headers().map(), readBody(httpRequest));
+                requests.add(request);
+                Response response = handler.apply(request);
+                T body = deliver(response, bodyHandler);
+                result.complete(new InProcessResponse<>(httpRequest, response.statusCode(), HttpHeaders.of(response.headers(), (name, value) -> true), body));
+            } catch (Throwable e) {
+                result.completeExceptionally(e instanceof IOException ? e : new IOException("In-process handler failed: " + e.getMessage(), e));
+            }
+        });
+        // Canceling the exchange interrupts the handler
+        result.whenComplete((response, error) -> task.cancel(true));
+        return result;
+    }
+
+    /**
+     * The requests received so far, in the order of their arrival.
+     */
+    public List<Request> getRequests() {
+        return List.copyOf(requests);
+    }
+
+    public void clearRequests() {
+        requests.clear();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static byte[] readBody(HttpRequest httpRequest) throws Exception {
+        Optional<HttpRequest.BodyPublisher> publisher = httpRequest.bodyPublisher();
+        if (publisher.isEmpty()) {
+            return new byte[0];
+        }
+        CompletableFuture<byte[]> body = new CompletableFuture<>();
+        publisher.get().subscribe(new Flow.Subscriber<>() {
+            private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                out.writeBytes(bytes);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                body.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                body.complete(out.toByteArray());
+            }
+        });
+        return body.get();
+    }
+
+    /**
+     * Feeds the body to the subscriber of the body handler, as the JDK client would, and waits for the result.
+     */
+    private static <T> T deliver(Response response, HttpResponse.BodyHandler<T> bodyHandler) throws Exception {
+        HttpHeaders headers = HttpHeaders.of(response.headers(), (name, value) -> true);
+        HttpResponse.BodySubscriber<T> subscriber = bodyHandler.apply(new HttpResponse.ResponseInfo() {
+            @Override
+            public int statusCode() {
+                return response.statusCode();
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return headers;
+            }
+
+            @Override
+            public HttpClient.Version version() {
+                return HttpClient.Version.HTTP_1_1;
+            }
+        });
+        AtomicBoolean delivered = new AtomicBoolean();
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n > 0 && delivered.compareAndSet(false, true)) {
+                    if (response.body().length > 0) {
+                        subscriber.onNext(List.of(ByteBuffer.wrap(response.body())));
+                    }
+                    subscriber.onComplete();
+                }
+            }
+
+            @Override
+            public void cancel() {
+                delivered.set(true);
+            }
+        });
+        return subscriber.getBody().toCompletableFuture().get();
+    }
+
+    private record InProcessResponse<T>(HttpRequest request, int statusCode, HttpHeaders headers, T body) implements HttpResponse<T> {
+
+        @Override
+        public Optional<HttpResponse<T>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return request.uri();
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_1_1;
+        }
+    }
+}
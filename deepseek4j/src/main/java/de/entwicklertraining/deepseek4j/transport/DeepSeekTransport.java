@@ -0,0 +1,73 @@
+package de.entwicklertraining.deepseek4j.transport;
+
+import de.entwicklertraining.deepseek4j.DeepSeekClient;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Carries the HTTP exchanges of a {@link DeepSeekClient} (see {@link DeepSeekClient#setTransport(DeepSeekTransport)}).
+ * The client builds the {@link HttpRequest} (URL, headers, serialized body) and interprets the response; the
+ * transport decides how it gets there: over which connections, on which threads, or without a network at all.
+ * <p>
+ * The methods have the signatures of {@link HttpClient}, so the body handlers of the client (which note when the
+ * headers arrived and read the body as bytes or as a stream of events) work with every transport.
+ * Implementations must be thread-safe.
+ * <p>
+ * Available implementations:
+ * <ul>
+ *   <li>{@link DeepSeekHttpClientTransport}: JDK {@link HttpClient} with HTTP/2, a configurable number of
+ *       multiplexed connections and executor (virtual threads by default).</li>
+ *   <li>{@link DeepSeekInProcessTransport}: routes every request to a handler in the same JVM, for tests.</li>
+ * </ul>
+ */
+public interface DeepSeekTransport extends AutoCloseable {
+
+    /**
+     * Sends the request without blocking. The future completes when the body handler has received the whole
+     * body (for an {@link java.io.InputStream} body: when the headers have arrived), or exceptionally with an
+     * {@link IOException} if the exchange failed. Canceling the future should abort the exchange.
+     */
+    <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler);
+
+    /**
+     * Blocking variant of {@link #sendAsync(HttpRequest, HttpResponse.BodyHandler)}.
+     */
+    default <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+        CompletableFuture<HttpResponse<T>> future = sendAsync(request, bodyHandler);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Releases the connections and threads the transport has created itself. The default does nothing.
+     */
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Returns a transport that sends everything with the given client, which stays owned by the caller
+     * ({@link #close()} does not close it).
+     */
+    static DeepSeekTransport of(HttpClient httpClient) {
+        return DeepSeekHttpClientTransport.wrap(httpClient);
+    }
+}
@@ -5,6 +5,8 @@ import de.entwicklertraining.deepseek4j.DeepSeekClient;
 import de.entwicklertraining.deepseek4j.DeepSeekRequest;
 import org.json.JSONObject;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Represents a request to the DeepSeek User Balance API.
  * This endpoint retrieves the current balance information for the authenticated user.
@@ -61,5 +63,19 @@ public final class DeepSeekUserBalanceRequest extends DeepSeekRequest<DeepSeekUs
         public DeepSeekUserBalanceResponse execute() {
             return client.sendRequest(build());
         }
+
+        /**
+         * Sends the request without blocking the calling thread.
+         */
+        public CompletableFuture<DeepSeekUserBalanceResponse> executeAsync() {
+            return client.sendRequestAsync(build());
+        }
+
+        /**
+         * Like {@link #executeAsync()}, but retries with exponential backoff on retryable status codes.
+         */
+        public CompletableFuture<DeepSeekUserBalanceResponse> executeWithExponentialBackoffAsync() {
+            return client.sendRequestWithExponentialBackoffAsync(build());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package de.entwicklertraining.deepseek4j;
+
+import de.entwicklertraining.api.base.ApiClientSettings;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionRequest;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionResponse;
+import de.entwicklertraining.deepseek4j.transport.DeepSeekInProcessTransport;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The before-send action runs once per logical request on every path, not once per retry.
+ */
+class DeepSeekBeforeSendActionTest {
+
+    enum Path { BLOCKING, ASYNC, STREAMING }
+
+    private final AtomicInteger beforeSendCalls = new AtomicInteger();
+    private final AtomicInteger exchanges = new AtomicInteger();
+    private DeepSeekInProcessTransport transport;
+    private DeepSeekClient client;
+
+    @BeforeEach
+    void setUp() {
+        // The first two attempts are throttled
+        transport = new DeepSeekInProcessTransport(request -> {
+            if (exchanges.incrementAndGet() <= 2) {
+                return DeepSeekInProcessTransport.Response.json(429, "{\"error\":{\"message\":\"Rate limit reached\"}}");
+            }
+            return new JSONObject(request.bodyAsString()).optBoolean("stream")
+                    ? DeepSeekInProcessTransport.Response.eventStream(List.of(chunk("Hello")))
+                    : DeepSeekInProcessTransport.Response.json(200, DeepSeekTestResponses.completion("Hello"));
+        });
+        ApiClientSettings settings = ApiClientSettings.builder()
+                .setBearerAuthenticationKey("test-key")
+                .maxRetries(5)
+                .initialDelayMs(10)
+                .beforeSend(request -> beforeSendCalls.incrementAndGet())
+                .build();
+        client = new DeepSeekClient(settings, "http://deepseek.test");
+        client.setTransport(transport);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+    }
+
+    private static String chunk(String content) {
+        JSONObject choice = new JSONObject().put("index", 0).put("delta", new JSONObject().put("content", content)).put("finish_reason", "stop");
+        return new JSONObject().put("id", "stream").put("object", "chat.completion.chunk").put("created", 0)
+                .put("model", "deepseek-chat").put("choices", new JSONArray().put(choice)).toString();
+    }
+
+    @ParameterizedTest
+    @EnumSource(Path.class)
+    void runsOnceAcrossRetries(Path path) throws Exception {
+        DeepSeekCompletionRequest.Builder builder = client.chat().completion().model("deepseek-chat").addUserMessage("Hi");
+
+        DeepSeekCompletionResponse response = switch (path) {
+            case BLOCKING -> builder.executeWithExponentialBackoff();
+            case ASYNC -> builder.executeWithExponentialBackoffAsync().get(5, TimeUnit.SECONDS);
+            case STREAMING -> builder.executeStreamingWithExponentialBackoff(chunk -> { });
+        };
+
+        assertThat(response.assistantMessage()).isEqualTo("Hello");
+        assertThat(exchanges).hasValue(3);
+        assertThat(beforeSendCalls).hasValue(1);
+    }
+}
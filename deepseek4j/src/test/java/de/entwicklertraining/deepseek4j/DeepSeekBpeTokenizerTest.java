@@ -0,0 +1,93 @@
+package de.entwicklertraining.deepseek4j;
+
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Golden test of the pure-Java BPE tokenizer against a small byte-level BPE vocabulary in the layout of DeepSeek's
+ * {@code tokenizer.json} (added special tokens, the digit/CJK/word Split pre-tokenizers, ByteLevel and a
+ * TemplateProcessing post-processor that adds the BOS token). The expected ids were produced by the native
+ * HuggingFace tokenizer; the native test re-checks them whenever the native library is available.
+ */
+class DeepSeekBpeTokenizerTest {
+
+    private static final String FIXTURE = "tokenizer-fixture.json";
+
+    private static String fixture;
+    private static DeepSeekBpeTokenizer tokenizer;
+
+    @BeforeAll
+    static void loadFixture() throws IOException {
+        try (InputStream in = DeepSeekBpeTokenizerTest.class.getClassLoader().getResourceAsStream(FIXTURE)) {
+            fixture = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        tokenizer = DeepSeekBpeTokenizer.parse(fixture);
+    }
+
+    static Stream<Arguments> golden() {
+        return Stream.of(
+                Arguments.of("The quick brown fox jumps over the lazy dog.", new long[]{88, 261, 319, 324, 326, 331, 334, 265, 337, 339, 50}),
+                Arguments.of("Hello, world!", new long[]{76, 105, 112, 112, 115, 48, 303, 37}),
+                Arguments.of("Dieser Text enthält deutsche Wörter: Straße, Größe.", new long[]{72, 109, 105, 119, 262, 358, 364, 369, 374, 62, 386, 48, 390, 50}),
+                Arguments.of("这是一个中文测试。", new long[]{236, 195, 157, 234, 156, 179, 274, 132, 274, 174, 274, 177, 234, 154, 139, 234, 185, 143, 236, 179, 153, 294}),
+                Arguments.of("function getWeather(city) { return 'sunny'; }", new long[]{106, 264, 103, 120, 269, 407, 44, 410, 45, 411, 416, 417, 287, 418, 419}),
+                Arguments.of("1234567 + 89 = 1234656", new long[]{53, 54, 55, 56, 57, 58, 59, 36, 47, 36, 60, 61, 36, 65, 36, 53, 54, 55, 56, 58, 57, 58}),
+                Arguments.of("  leading spaces and trailing   ", new long[]{36, 36, 112, 105, 101, 104, 263, 107, 36, 119, 116, 101, 103, 105, 119, 311, 260, 118, 101, 109, 112, 263, 107, 36, 36, 36}),
+                Arguments.of("line one\nline two\n\n\tindented", new long[]{112, 263, 105, 332, 114, 105, 14, 112, 263, 105, 260, 123, 115, 14, 14, 13, 263, 104, 267, 120, 105, 104}),
+                Arguments.of("<｜User｜>What is the weather?<｜Assistant｜>It is sunny.<｜end▁of▁sentence｜>", new long[]{2, 91, 108, 271, 346, 265, 340, 67, 3, 77, 120, 346, 347, 50, 1}),
+                Arguments.of("emoji 🙂 and symbols ©®™ and ümlauts", new long[]{105, 113, 115, 110, 109, 36, 244, 163, 157, 134, 311, 36, 119, 125, 113, 102, 115, 112, 119, 36, 198, 173, 198, 178, 230, 136, 166, 311, 392, 113, 280, 289, 119}),
+                Arguments.of("tokenization tokenizer the the the", new long[]{120, 115, 111, 267, 109, 126, 271, 269, 305, 262, 265, 265, 265}));
+    }
+
+    @ParameterizedTest
+    @MethodSource("golden")
+    void countsMatchGoldenIds(String text, long[] ids) {
+        assertThat(tokenizer.countTokens(text, false)).isEqualTo(ids.length);
+        // The template adds the BOS token
+        assertThat(tokenizer.countTokens(text, true)).isEqualTo(ids.length + 1);
+    }
+
+    @Test
+    void batchCountsMatchGoldenIds() {
+        List<Arguments> cases = golden().toList();
+        List<String> texts = cases.stream().map(arguments -> (String) arguments.get()[0]).toList();
+
+        int[] counts = tokenizer.countTokens(texts);
+
+        for (int i = 0; i < cases.size(); i++) {
+            assertThat(counts[i]).isEqualTo(((long[]) cases.get(i).get()[1]).length + 1);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("golden")
+    void nativeTokenizerProducesGoldenIds(String text, long[] ids) throws IOException {
+        HuggingFaceTokenizer nativeTokenizer;
+        try {
+            nativeTokenizer = HuggingFaceTokenizer.newInstance(new ByteArrayInputStream(fixture.getBytes(StandardCharsets.UTF_8)),
+                    Map.of("padding", "false", "truncation", "false"));
+        } catch (UnsatisfiedLinkError | IllegalStateException e) {
+            assumeTrue(false, "Native tokenizer not available: " + e);
+            return;
+        }
+        try (nativeTokenizer) {
+            assertThat(nativeTokenizer.encode(text, false, false).getIds()).containsExactly(ids);
+            assertThat(nativeTokenizer.encode(text, true, false).getIds()).hasSize(ids.length + 1).startsWith(0L);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package de.entwicklertraining.deepseek4j;
+
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionChunk;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionRequest;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionResponse;
+import de.entwicklertraining.deepseek4j.transport.DeepSeekInProcessTransport;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Parsing of the Server-Sent Events of streaming chat completions: keep-alive comments and blank lines are
+ * skipped, and the stream ends at {@code [DONE]}.
+ */
+class DeepSeekEventStreamTest {
+
+    private DeepSeekInProcessTransport transport;
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+    }
+
+    private DeepSeekClient client(String body) {
+        transport = new DeepSeekInProcessTransport(request -> new DeepSeekInProcessTransport.Response(200,
+                Map.of("Content-Type", List.of("text/event-stream")), body.getBytes(StandardCharsets.UTF_8)));
+        return DeepSeekTestResponses.client(transport);
+    }
+
+    private static String chunk(String content, String finishReason) {
+        JSONObject delta = new JSONObject().put("content", content);
+        JSONObject choice = new JSONObject().put("index", 0).put("delta", delta).put("finish_reason", finishReason == null ? JSONObject.NULL : finishReason);
+        return new JSONObject().put("id", "stream").put("object", "chat.completion.chunk").put("created", 0)
+                .put("model", "deepseek-chat").put("choices", new JSONArray().put(choice)).toString();
+    }
+
+    private static String usageChunk() {
+        return new JSONObject().put("id", "stream").put("object", "chat.completion.chunk").put("created", 0)
+                .put("model", "deepseek-chat").put("choices", new JSONArray())
+                .put("usage", new JSONObject().put("prompt_tokens", 10).put("completion_tokens", 3).put("total_tokens", 13)).toString();
+    }
+
+    private static DeepSeekCompletionRequest.Builder streamingRequest(DeepSeekClient client) {
+        return client.chat().completion().model("deepseek-chat").addUserMessage("Hi")
+                .streamOptions(DeepSeekCompletionRequest.DeepSeekStreamOptions.withUsage(true));
+    }
+
+    @Test
+    void skipsKeepAlivesAndStopsAtDone() {
+        String body = ": keep-alive\n\n"
+                + "\n\n"
+                + "data: " + chunk("It ", null) + "\n\n"
+                + ": keep-alive\n"
+                + "\n"
+                // No space after the colon, CRLF line endings
+                + "data:" + chunk("is ", null) + "\r\n\r\n"
+                + "data: " + chunk("sunny.", "stop") + "\n\n"
+                + ": keep-alive\n\n"
+                + "data: " + usageChunk() + "\n\n"
+                + "data: [DONE]\n\n"
+                // Anything after [DONE] is ignored
+                + "data: {not json\n\n";
+        DeepSeekClient client = client(body);
+        List<DeepSeekCompletionChunk> chunks = new ArrayList<>();
+
+        DeepSeekCompletionResponse response = streamingRequest(client).executeStreaming(chunks::add);
+
+        assertThat(chunks).hasSize(4);
+        assertThat(chunks).extracting(DeepSeekCompletionChunk::contentDelta).startsWith("It ", "is ", "sunny.");
+        assertThat(response.assistantMessage()).isEqualTo("It is sunny.");
+        assertThat(response.getChoices().get(0).getFinishReason()).isEqualTo("stop");
+        assertThat(response.getUsage().getTotalTokens()).isEqualTo(13);
+    }
+
+    @Test
+    void deliversRawEventDataWithoutDone() {
+        DeepSeekClient client = client(": keep-alive\n\ndata: {\"a\":1}\n\ndata: {\"b\":\ndata: 2}\n\ndata: [DONE]\n\n");
+        List<String> events = new ArrayList<>();
+
+        client.sendStreamingRequest(streamingRequest(client).stream(true).build(), events::add);
+
+        // Multi-line data is joined with a newline
+        assertThat(events).containsExactly("{\"a\":1}", "{\"b\":\n2}");
+    }
+
+    @Test
+    void lastEventWithoutTrailingBlankLineIsDelivered() {
+        DeepSeekClient client = client("data: " + chunk("Hello", "stop"));
+        List<DeepSeekCompletionChunk> chunks = new ArrayList<>();
+
+        DeepSeekCompletionResponse response = streamingRequest(client).executeStreaming(chunks::add);
+
+        assertThat(chunks).hasSize(1);
+        assertThat(response.assistantMessage()).isEqualTo("Hello");
+    }
+
+    @Test
+    void executeStreamingLeavesTheBuilderUnchanged() {
+        transport = new DeepSeekInProcessTransport(request -> new JSONObject(request.bodyAsString()).optBoolean("stream")
+                ? DeepSeekInProcessTransport.Response.eventStream(List.of(chunk("Streamed", "stop")))
+                : DeepSeekInProcessTransport.Response.json(200, DeepSeekTestResponses.completion("Not streamed")));
+        DeepSeekClient client = DeepSeekTestResponses.client(transport);
+        DeepSeekCompletionRequest.Builder builder = client.chat().completion().model("deepseek-chat").addUserMessage("Hi");
+
+        assertThat(builder.executeStreaming(chunk -> { }).assistantMessage()).isEqualTo("Streamed");
+        assertThat(builder.execute().assistantMessage()).isEqualTo("Not streamed");
+        assertThat(builder.build().stream()).isNull();
+    }
+}
@@ -0,0 +1,110 @@
+package de.entwicklertraining.deepseek4j;
+
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionResponse;
+import de.entwicklertraining.deepseek4j.transport.DeepSeekInProcessTransport;
+import de.entwicklertraining.deepseek4j.transport.DeepSeekTransport;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeepSeekRateLimiterTest {
+
+    private static DeepSeekRateLimiter singlePermitLimiter() {
+        return DeepSeekRateLimiter.builder().initialConcurrency(1).minConcurrency(1).maxConcurrency(1).build();
+    }
+
+    @Test
+    void releasesPermitWhenTransportThrowsSynchronously() throws Exception {
+        try (DeepSeekInProcessTransport inProcess = new DeepSeekInProcessTransport(
+                request -> DeepSeekInProcessTransport.Response.json(200, DeepSeekTestResponses.completion("ok")))) {
+            DeepSeekClient client = DeepSeekTestResponses.client(inProcess);
+            DeepSeekRateLimiter limiter = singlePermitLimiter();
+            client.setRateLimiter(limiter);
+            client.setTransport(new DeepSeekTransport() {
+                @Override
+                public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+                    throw new IllegalStateException("transport down");
+                }
+            });
+
+            CompletableFuture<DeepSeekCompletionResponse> failed = client.chat().completion().model("deepseek-chat").addUserMessage("hi").executeAsync();
+            assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("transport down");
+            assertThat(limiter.getInFlight()).isZero();
+
+            client.setTransport(inProcess);
+            DeepSeekCompletionResponse response = client.chat().completion().model("deepseek-chat").addUserMessage("hi").executeAsync().get(5, TimeUnit.SECONDS);
+            assertThat(response.assistantMessage()).isEqualTo("ok");
+            assertThat(limiter.getInFlight()).isZero();
+        }
+    }
+
+    @Test
+    void cancelingQueuedRequestWithdrawsItFromTheQueue() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (DeepSeekInProcessTransport transport = new DeepSeekInProcessTransport(request -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return DeepSeekInProcessTransport.Response.json(200, DeepSeekTestResponses.completion("ok"));
+        })) {
+            DeepSeekClient client = DeepSeekTestResponses.client(transport);
+            DeepSeekRateLimiter limiter = singlePermitLimiter();
+            client.setRateLimiter(limiter);
+
+            CompletableFuture<DeepSeekCompletionResponse> first = client.chat().completion().model("deepseek-chat").addUserMessage("first").executeAsync();
+            awaitTrue(() -> limiter.getInFlight() == 1);
+            CompletableFuture<DeepSeekCompletionResponse> second = client.chat().completion().model("deepseek-chat").addUserMessage("second").executeAsync();
+            awaitTrue(() -> limiter.getQueueLength() == 1);
+
+            second.cancel(true);
+            assertThat(limiter.getQueueLength()).isZero();
+            assertThat(limiter.getInFlight()).isEqualTo(1);
+
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS).assistantMessage()).isEqualTo("ok");
+            awaitTrue(() -> limiter.getInFlight() == 0);
+            assertThat(transport.getRequests()).hasSize(1);
+        }
+    }
+
+    @Test
+    void cancelingRunningRequestReleasesItsPermit() throws Exception {
+        try (DeepSeekInProcessTransport transport = new DeepSeekInProcessTransport(request -> {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return DeepSeekInProcessTransport.Response.json(200, DeepSeekTestResponses.completion("late"));
+        })) {
+            DeepSeekClient client = DeepSeekTestResponses.client(transport);
+            DeepSeekRateLimiter limiter = singlePermitLimiter();
+            client.setRateLimiter(limiter);
+
+            CompletableFuture<DeepSeekCompletionResponse> running = client.chat().completion().model("deepseek-chat").addUserMessage("slow").executeWithExponentialBackoffAsync();
+            awaitTrue(() -> limiter.getInFlight() == 1);
+            running.cancel(true);
+            awaitTrue(() -> limiter.getInFlight() == 0);
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within 5 seconds");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
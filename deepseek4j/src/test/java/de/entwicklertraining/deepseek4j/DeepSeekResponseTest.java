@@ -0,0 +1,72 @@
+package de.entwicklertraining.deepseek4j;
+
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionRequest;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionResponse;
+import de.entwicklertraining.deepseek4j.models.DeepSeekModelsRequest;
+import de.entwicklertraining.deepseek4j.transport.DeepSeekInProcessTransport;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeepSeekResponseTest {
+
+    private DeepSeekInProcessTransport transport;
+    private DeepSeekClient client;
+
+    /**
+     * A subclass written against the original API, which read the protected field directly.
+     */
+    private static final class FieldReadingResponse extends DeepSeekResponse<DeepSeekModelsRequest> {
+
+        FieldReadingResponse(JSONObject json, DeepSeekModelsRequest request) {
+            super(json, request);
+        }
+
+        String object() {
+            return json == null ? null : json.optString("object", null);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        transport = new DeepSeekInProcessTransport(request -> {
+            throw new IllegalStateException("The response tests do not send requests");
+        });
+        client = DeepSeekTestResponses.client(transport);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+    }
+
+    @Test
+    void responseWithoutJsonReturnsNull() {
+        FieldReadingResponse response = new FieldReadingResponse(null, DeepSeekModelsRequest.builder(client).build());
+
+        assertThat(response.getJson()).isNull();
+        assertThat(response.object()).isNull();
+    }
+
+    @Test
+    void subclassesCanReadTheProtectedField() {
+        JSONObject json = new JSONObject().put("object", "list");
+        FieldReadingResponse response = new FieldReadingResponse(json, DeepSeekModelsRequest.builder(client).build());
+
+        assertThat(response.object()).isEqualTo("list");
+        assertThat(response.getJson()).isSameAs(json);
+    }
+
+    @Test
+    void lazyJsonIsBuiltOnce() {
+        DeepSeekCompletionRequest request = client.chat().completion().model("deepseek-chat").addUserMessage("Hi").build();
+        DeepSeekCompletionResponse response = request.createResponse(DeepSeekTestResponses.completion("Hello"));
+
+        JSONObject json = response.getJson();
+        assertThat(json.getJSONArray("choices").getJSONObject(0).getJSONObject("message").getString("content")).isEqualTo("Hello");
+        assertThat(response.getJson()).isSameAs(json);
+    }
+}
@@ -0,0 +1,59 @@
+package de.entwicklertraining.deepseek4j;
+
+import com.sun.net.httpserver.HttpServer;
+import de.entwicklertraining.api.base.ApiClientSettings;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * A loopback HTTP server that answers every request with an event stream that never ends: it sends one content
+ * chunk per interval, for tests of deadlines and cancellation. The in-process transport cannot be used for
+ * this, because it delivers the body of a response in one piece.
+ */
+public final class DeepSeekStallingServer implements AutoCloseable {
+
+    private final HttpServer server;
+
+    public DeepSeekStallingServer(long intervalMs) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int i = 0; ; i++) {
+                    out.write(("data: " + chunk("chunk " + i + " ") + "\n\n").getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    Thread.sleep(intervalMs);
+                }
+            } catch (IOException | InterruptedException e) {
+                // The client has closed the stream, or the server is stopped
+            }
+        });
+        server.start();
+    }
+
+    public DeepSeekClient client() {
+        return new DeepSeekClient(ApiClientSettings.builder().setBearerAuthenticationKey("test-key").build(),
+                "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+    }
+
+    private static String chunk(String content) {
+        JSONObject choice = new JSONObject().put("index", 0).put("delta", new JSONObject().put("content", content)).put("finish_reason", JSONObject.NULL);
+        return new JSONObject().put("id", "stream").put("object", "chat.completion.chunk").put("created", 0)
+                .put("model", "deepseek-chat").put("choices", new JSONArray().put(choice)).toString();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,76 @@
+package de.entwicklertraining.deepseek4j;
+
+import de.entwicklertraining.api.base.ApiClient;
+import de.entwicklertraining.deepseek4j.chat.completion.DeepSeekCompletionChunk;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A stream that never ends is closed when {@code maxExecutionTimeInSeconds} has passed or the cancel supplier
+ * returns true, and no chunk reaches the listener once the call has failed.
+ */
+class DeepSeekStreamDeadlineTest {
+
+    private DeepSeekStallingServer server;
+    private DeepSeekClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new DeepSeekStallingServer(50);
+        client = server.client();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private static void assertNoChunksAfterFailure(List<DeepSeekCompletionChunk> chunks) throws InterruptedException {
+        int received = chunks.size();
+        assertThat(received).isPositive();
+        Thread.sleep(300);
+        assertThat(chunks).hasSize(received);
+    }
+
+    @Test
+    void maxExecutionTimeEndsAStallingStream() throws InterruptedException {
+        List<DeepSeekCompletionChunk> chunks = new CopyOnWriteArrayList<>();
+        long start = System.nanoTime();
+
+        assertThatThrownBy(() -> client.chat().completion().model("deepseek-chat").addUserMessage("Hi")
+                .maxExecutionTimeInSeconds(1)
+                .executeStreaming(chunks::add))
+                .isInstanceOf(ApiClient.ApiTimeoutException.class);
+
+        assertThat((System.nanoTime() - start) / 1_000_000).isBetween(900L, 3000L);
+        assertNoChunksAfterFailure(chunks);
+    }
+
+    @Test
+    void cancelSupplierEndsAStallingStreamWithBackoff() throws InterruptedException {
+        List<DeepSeekCompletionChunk> chunks = new CopyOnWriteArrayList<>();
+        AtomicBoolean canceled = new AtomicBoolean();
+
+        assertThatThrownBy(() -> client.chat().completion().model("deepseek-chat").addUserMessage("Hi")
+                .setCancelSupplier(canceled::get)
+                .executeStreamingWithExponentialBackoff(chunk -> {
+                    chunks.add(chunk);
+                    if (chunks.size() == 3) {
+                        canceled.set(true);
+                    }
+                }))
+                .isInstanceOf(ApiClient.ApiTimeoutException.class)
+                .hasMessageContaining("canceled");
+
+        assertThat(chunks.size()).isBetween(3, 6);
+        assertNoChunksAfterFailure(chunks);
+    }
+}
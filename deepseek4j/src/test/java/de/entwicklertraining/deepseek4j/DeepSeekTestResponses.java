@@ -0,0 +1,47 @@
+package de.entwicklertraining.deepseek4j;
+
+import de.entwicklertraining.api.base.ApiClientSettings;
+import de.entwicklertraining.deepseek4j.transport.DeepSeekInProcessTransport;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Canned DeepSeek responses and clients for tests that run against a {@link DeepSeekInProcessTransport}.
+ */
+public final class DeepSeekTestResponses {
+
+    private DeepSeekTestResponses() {
+    }
+
+    public static DeepSeekClient client(DeepSeekInProcessTransport transport) {
+        DeepSeekClient client = new DeepSeekClient(ApiClientSettings.builder().setBearerAuthenticationKey("test-key").build(), "http://deepseek.test");
+        client.setTransport(transport);
+        return client;
+    }
+
+    public static String completion(String content) {
+        return envelope(new JSONObject().put("role", "assistant").put("content", content), "stop").toString();
+    }
+
+    public static String toolCalls(String... nameAndArguments) {
+        JSONArray toolCalls = new JSONArray();
+        for (int i = 0; i < nameAndArguments.length; i += 2) {
+            toolCalls.put(new JSONObject()
+                    .put("id", "call_" + (i / 2))
+                    .put("type", "function")
+                    .put("function", new JSONObject().put("name", nameAndArguments[i]).put("arguments", nameAndArguments[i + 1])));
+        }
+        JSONObject message = new JSONObject().put("role", "assistant").put("content", "").put("tool_calls", toolCalls);
+        return envelope(message, "tool_calls").toString();
+    }
+
+    private static JSONObject envelope(JSONObject message, String finishReason) {
+        return new JSONObject()
+                .put("id", "test")
+                .put("object", "chat.completion")
+                .put("created", 0)
+                .put("model", "deepseek-chat")
+                .put("choices", new JSONArray().put(new JSONObject().put("index", 0).put("message", message).put("finish_reason", finishReason)))
+                .put("usage", new JSONObject().put("prompt_tokens", 10).put("completion_tokens", 5).put("total_tokens", 15));
+    }
+}
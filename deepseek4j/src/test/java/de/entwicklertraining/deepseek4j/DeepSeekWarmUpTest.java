@@ -0,0 +1,48 @@
+package de.entwicklertraining.deepseek4j;
+
+import de.entwicklertraining.deepseek4j.transport.DeepSeekInProcessTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class DeepSeekWarmUpTest {
+
+    private DeepSeekInProcessTransport transport;
+    private DeepSeekClient client;
+
+    @BeforeEach
+    void setUp() {
+        transport = new DeepSeekInProcessTransport(request -> DeepSeekInProcessTransport.Response.json(200, "{}"));
+        client = DeepSeekTestResponses.client(transport);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+    }
+
+    private static long selectorThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.isAlive() && thread.getName().endsWith("SelectorManager"))
+                .count();
+    }
+
+    @Test
+    void warmUpRunsCompletionsAndClosesItsScratchClient() {
+        long before = selectorThreads();
+
+        DeepSeekWarmUp.Result result = client.warmUp(DeepSeekWarmUp.builder().connections(2).iterations(10).build());
+
+        assertThat(result.connections()).isEqualTo(2);
+        assertThat(result.failedConnections()).isZero();
+        assertThat(result.iterations()).isEqualTo(10);
+        // The warm-up requests go through the client's transport, the completions do not
+        assertThat(transport.getRequests()).hasSize(2).allMatch(request -> request.method().equals("HEAD"));
+        await().atMost(Duration.ofSeconds(5)).until(() -> selectorThreads() <= before);
+    }
+}
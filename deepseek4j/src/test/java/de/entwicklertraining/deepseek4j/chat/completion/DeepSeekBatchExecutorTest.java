@@ -0,0 +1,114 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import de.entwicklertraining.deepseek4j.DeepSeekClient;
+import de.entwicklertraining.deepseek4j.DeepSeekTestResponses;
+import de.entwicklertraining.deepseek4j.transport.DeepSeekInProcessTransport;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeepSeekBatchExecutorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DeepSeekInProcessTransport transport;
+    private DeepSeekClient client;
+
+    @BeforeEach
+    void setUp() {
+        // Keep-alive blank lines before the body and a trailing newline, as DeepSeek sends them
+        transport = new DeepSeekInProcessTransport(request -> {
+            JSONArray messages = new JSONObject(request.bodyAsString()).getJSONArray("messages");
+            String question = messages.getJSONObject(messages.length() - 1).getString("content");
+            return DeepSeekInProcessTransport.Response.json(200, "\n\n" + DeepSeekTestResponses.completion("answer to " + question + "\nsecond line") + "\n");
+        });
+        client = DeepSeekTestResponses.client(transport);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+    }
+
+    private Stream<DeepSeekCompletionRequest> requests(String... questions) {
+        return Stream.of(questions).map(question -> client.chat().completion().model("deepseek-chat").addUserMessage(question).build());
+    }
+
+    private List<DeepSeekBatchExecutor.Result> run(Path checkpoint, String... questions) {
+        List<DeepSeekBatchExecutor.Result> results = new ArrayList<>();
+        DeepSeekBatchExecutor.builder(client)
+                .checkpointFile(checkpoint)
+                .order(DeepSeekBatchExecutor.Order.INPUT)
+                .maxConcurrency(2)
+                .build()
+                .execute(requests(questions), results::add);
+        return results;
+    }
+
+    @Test
+    void resumedRunRestoresResponsesFromCheckpoint() {
+        Path checkpoint = tempDir.resolve("batch.checkpoint");
+
+        List<DeepSeekBatchExecutor.Result> first = run(checkpoint, "a", "b", "c");
+        assertThat(first).allMatch(DeepSeekBatchExecutor.Result::isSuccess).noneMatch(DeepSeekBatchExecutor.Result::restored);
+        assertThat(transport.getRequests()).hasSize(3);
+
+        transport.clearRequests();
+        List<DeepSeekBatchExecutor.Result> second = run(checkpoint, "a", "b", "c");
+        assertThat(transport.getRequests()).isEmpty();
+        assertThat(second).allMatch(DeepSeekBatchExecutor.Result::isSuccess).allMatch(DeepSeekBatchExecutor.Result::restored);
+        assertThat(second).extracting(result -> result.response().assistantMessage())
+                .containsExactly("answer to a\nsecond line", "answer to b\nsecond line", "answer to c\nsecond line");
+        assertThat(second.get(0).response().getUsage().getTotalTokens()).isEqualTo(15);
+    }
+
+    @Test
+    void changedOrReorderedRequestsAreSentAgain() {
+        Path checkpoint = tempDir.resolve("batch.checkpoint");
+        run(checkpoint, "a", "b", "c");
+
+        transport.clearRequests();
+        List<DeepSeekBatchExecutor.Result> reordered = run(checkpoint, "b", "a", "c");
+        assertThat(transport.getRequests()).hasSize(2);
+        assertThat(reordered).extracting(DeepSeekBatchExecutor.Result::restored).containsExactly(false, false, true);
+        assertThat(reordered).extracting(result -> result.response().assistantMessage())
+                .containsExactly("answer to b\nsecond line", "answer to a\nsecond line", "answer to c\nsecond line");
+
+        // The latest entry of an index wins
+        transport.clearRequests();
+        List<DeepSeekBatchExecutor.Result> again = run(checkpoint, "b", "a", "c");
+        assertThat(transport.getRequests()).isEmpty();
+        assertThat(again).extracting(result -> result.response().assistantMessage())
+                .containsExactly("answer to b\nsecond line", "answer to a\nsecond line", "answer to c\nsecond line");
+    }
+
+    @Test
+    void incompleteLastLineIsDiscarded() throws IOException {
+        Path checkpoint = tempDir.resolve("batch.checkpoint");
+        run(checkpoint, "a", "b");
+        long completeSize = Files.size(checkpoint);
+        Files.writeString(checkpoint, "2\t0123abcd", StandardCharsets.US_ASCII, StandardOpenOption.APPEND);
+
+        transport.clearRequests();
+        List<DeepSeekBatchExecutor.Result> resumed = run(checkpoint, "a", "b", "c");
+        assertThat(resumed).extracting(DeepSeekBatchExecutor.Result::restored).containsExactly(true, true, false);
+        assertThat(transport.getRequests()).hasSize(1);
+        assertThat(Files.size(checkpoint)).isGreaterThan(completeSize);
+        assertThat(Files.readAllLines(checkpoint)).hasSize(3);
+    }
+}
@@ -0,0 +1,159 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import de.entwicklertraining.api.base.ApiClient;
+import de.entwicklertraining.deepseek4j.DeepSeekClient;
+import de.entwicklertraining.deepseek4j.DeepSeekTestResponses;
+import de.entwicklertraining.deepseek4j.DeepSeekTokenService;
+import de.entwicklertraining.deepseek4j.transport.DeepSeekInProcessTransport;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Whatever the policy drops, an assistant message with tool calls must be followed by exactly the results of its
+ * calls, and every tool result must answer a preceding tool call; otherwise the server rejects the request.
+ */
+class DeepSeekContextPolicyTest {
+
+    private static final String FILLER = " Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt.";
+
+    private DeepSeekInProcessTransport transport;
+    private DeepSeekClient client;
+
+    @BeforeEach
+    void setUp() {
+        transport = new DeepSeekInProcessTransport(request -> DeepSeekInProcessTransport.Response.json(200, DeepSeekTestResponses.completion("Done.")));
+        client = DeepSeekTestResponses.client(transport);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+    }
+
+    /**
+     * A system message, then rounds of question, two parallel tool calls with their results and an answer,
+     * then the newest question.
+     */
+    private static List<JSONObject> history(int rounds) {
+        List<JSONObject> messages = new ArrayList<>();
+        messages.add(new JSONObject().put("role", "system").put("content", "You are a helpful assistant."));
+        for (int r = 0; r < rounds; r++) {
+            messages.add(new JSONObject().put("role", "user").put("content", "Question " + r + "." + FILLER));
+            JSONArray toolCalls = new JSONArray();
+            for (String suffix : List.of("a", "b")) {
+                toolCalls.put(new JSONObject().put("id", "call_" + r + suffix).put("type", "function")
+                        .put("function", new JSONObject().put("name", "lookup").put("arguments", "{\"q\":\"" + r + suffix + "\"}")));
+            }
+            messages.add(new JSONObject().put("role", "assistant").put("content", "").put("tool_calls", toolCalls));
+            messages.add(new JSONObject().put("role", "tool").put("tool_call_id", "call_" + r + "a").put("content", "Result " + r + "a." + FILLER + FILLER));
+            messages.add(new JSONObject().put("role", "tool").put("tool_call_id", "call_" + r + "b").put("content", "Result " + r + "b." + FILLER + FILLER));
+            messages.add(new JSONObject().put("role", "assistant").put("content", "Answer " + r + "." + FILLER));
+        }
+        messages.add(new JSONObject().put("role", "user").put("content", "Final question." + FILLER));
+        return messages;
+    }
+
+    private DeepSeekCompletionRequest request(List<JSONObject> messages, DeepSeekContextPolicy policy) {
+        return client.chat().completion().model("deepseek-chat").maxTokens(100).addAllMessages(messages).contextPolicy(policy).build();
+    }
+
+    static void assertToolCallsPaired(List<JSONObject> messages) {
+        for (int i = 0; i < messages.size(); i++) {
+            JSONObject message = messages.get(i);
+            if ("tool".equals(message.optString("role"))) {
+                fail("Tool result " + message.optString("tool_call_id") + " at " + i + " does not follow its tool call: " + messages);
+            }
+            JSONArray toolCalls = message.optJSONArray("tool_calls");
+            if (toolCalls == null || toolCalls.isEmpty()) {
+                continue;
+            }
+            Set<String> expected = new HashSet<>();
+            for (int c = 0; c < toolCalls.length(); c++) {
+                expected.add(toolCalls.getJSONObject(c).getString("id"));
+            }
+            Set<String> answered = new HashSet<>();
+            while (i + 1 < messages.size() && "tool".equals(messages.get(i + 1).optString("role"))) {
+                answered.add(messages.get(++i).getString("tool_call_id"));
+            }
+            assertThat(answered).as("results of the tool calls at %d", i).isEqualTo(expected);
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({"false, false", "true, false", "false, true", "true, true"})
+    void keepsToolCallsAndResultsTogetherAtEveryBudget(boolean dropOldToolResults, boolean summarize) {
+        List<JSONObject> history = history(8);
+        int trimmed = 0;
+        for (int window = 200; window <= 3000; window += 25) {
+            DeepSeekContextPolicy.Builder builder = DeepSeekContextPolicy.builder()
+                    .defaultContextWindow(window)
+                    .dropOldToolResults(dropOldToolResults);
+            if (summarize) {
+                builder.summarizer(dropped -> "Summary of " + dropped.size() + " messages.").summaryReserveTokens(20);
+            }
+            DeepSeekContextPolicy policy = builder.build();
+            List<JSONObject> result;
+            try {
+                result = policy.apply(request(history, policy));
+            } catch (ApiClient.ApiClientException e) {
+                continue; // Does not fit at all
+            }
+            if (result.size() < history.size()) {
+                trimmed++;
+            }
+            assertToolCallsPaired(result);
+            assertThat(result.get(0).getString("content")).isEqualTo("You are a helpful assistant.");
+            assertThat(result.get(result.size() - 1)).isSameAs(history.get(history.size() - 1));
+        }
+        assertThat(trimmed).as("budgets that required dropping messages").isGreaterThan(5);
+    }
+
+    @Test
+    void sentRequestsKeepToolCallsAndResultsTogether() {
+        DeepSeekContextPolicy policy = DeepSeekContextPolicy.builder().defaultContextWindow(900).build();
+        List<JSONObject> history = history(8);
+
+        client.chat().completion().model("deepseek-chat").maxTokens(100).addAllMessages(history).contextPolicy(policy).execute();
+
+        assertThat(transport.getRequests()).hasSize(1);
+        JSONArray sent = new JSONObject(transport.getRequests().get(0).bodyAsString()).getJSONArray("messages");
+        List<JSONObject> messages = new ArrayList<>();
+        for (int i = 0; i < sent.length(); i++) {
+            messages.add(sent.getJSONObject(i));
+        }
+        assertThat(messages.size()).isLessThan(history.size());
+        assertToolCallsPaired(messages);
+    }
+
+    @Test
+    void conversationCountMatchesAFreshCountAfterAppendsRestoresAndForks() {
+        DeepSeekTokenService tokenService = DeepSeekTokenService.getInstance();
+        List<JSONObject> history = history(3);
+        DeepSeekConversation conversation = client.chat().completion().model("deepseek-chat").addAllMessages(history.subList(0, 4)).conversation();
+
+        assertThat(conversation.promptTokens(tokenService)).isEqualTo(tokenService.countPromptTokens(conversation.request()));
+        List<JSONObject> snapshot = conversation.messages();
+        for (JSONObject message : history.subList(4, history.size())) {
+            conversation.append(message);
+            assertThat(conversation.promptTokens(tokenService)).isEqualTo(tokenService.countPromptTokens(conversation.request()));
+        }
+        DeepSeekConversation fork = conversation.fork().addUserMessage("Another question.");
+        conversation.restore(snapshot);
+
+        assertThat(conversation.promptTokens(tokenService)).isEqualTo(tokenService.countPromptTokens(conversation.request()));
+        assertThat(fork.promptTokens(tokenService)).isEqualTo(tokenService.countPromptTokens(fork.request()));
+    }
+}
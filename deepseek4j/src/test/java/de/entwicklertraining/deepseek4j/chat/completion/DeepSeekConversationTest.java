@@ -0,0 +1,163 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import de.entwicklertraining.deepseek4j.DeepSeekClient;
+import de.entwicklertraining.deepseek4j.DeepSeekJsonSchema;
+import de.entwicklertraining.deepseek4j.DeepSeekTestResponses;
+import de.entwicklertraining.deepseek4j.DeepSeekToolDefinition;
+import de.entwicklertraining.deepseek4j.DeepSeekToolResult;
+import de.entwicklertraining.deepseek4j.transport.DeepSeekInProcessTransport;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The body of a conversation is assembled from the serialized messages of its log; it must be byte-identical to
+ * the body of a request built from scratch with the same messages, across forks, restores and tool loops.
+ */
+class DeepSeekConversationTest {
+
+    private final Deque<DeepSeekInProcessTransport.Response> responses = new ArrayDeque<>();
+    private DeepSeekInProcessTransport transport;
+    private DeepSeekClient client;
+    private DeepSeekToolDefinition tool;
+
+    @BeforeEach
+    void setUp() {
+        transport = new DeepSeekInProcessTransport(request -> {
+            synchronized (responses) {
+                return responses.removeFirst();
+            }
+        });
+        client = DeepSeekTestResponses.client(transport);
+        tool = DeepSeekToolDefinition.builder("get_weather")
+                .description("Get the weather of a city.")
+                .parameter("city", DeepSeekJsonSchema.stringSchema("Name of the city"), true)
+                .callback(context -> DeepSeekToolResult.of("Sunny in " + context.arguments().getString("city") + "."))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+    }
+
+    private DeepSeekCompletionRequest.Builder template() {
+        return client.chat().completion()
+                .model("deepseek-chat")
+                .temperature(0.3)
+                .maxTokens(256)
+                .addTool(tool)
+                .addSystemMessage("You are a helpful assistant.");
+    }
+
+    /**
+     * The body of a request built from scratch with the messages.
+     */
+    private byte[] expectedBody(List<JSONObject> messages) {
+        return client.chat().completion()
+                .model("deepseek-chat")
+                .temperature(0.3)
+                .maxTokens(256)
+                .addTool(tool)
+                .addAllMessages(messages)
+                .build()
+                .getBodyBytes();
+    }
+
+    private void assertBodyMatches(DeepSeekConversation conversation) {
+        assertThat(new String(conversation.request().getBodyBytes(), StandardCharsets.UTF_8))
+                .isEqualTo(new String(expectedBody(conversation.messages()), StandardCharsets.UTF_8));
+    }
+
+    private static JSONObject assistant(String content) {
+        return new JSONObject().put("role", "assistant").put("content", content);
+    }
+
+    @Test
+    void forksDivergeIndependently() {
+        DeepSeekConversation conversation = template().conversation();
+        conversation.addUserMessage("What is the weather in Berlin?").append(assistant("Sunny."));
+        List<JSONObject> beforeFork = conversation.messages();
+        byte[] bodyBeforeFork = conversation.request().getBodyBytes();
+
+        DeepSeekConversation fork = conversation.fork();
+        // The original appends in place, the fork has to copy: both write to the same positions of the log
+        conversation.addUserMessage("And in Paris?");
+        fork.addUserMessage("And in Rome?").append(assistant("Cloudy.")).addUserMessage("And tomorrow?");
+        conversation.append(assistant("Rainy."));
+
+        assertBodyMatches(conversation);
+        assertBodyMatches(fork);
+        assertThat(conversation.messages()).extracting(message -> message.getString("content"))
+                .endsWith("And in Paris?", "Rainy.");
+        assertThat(fork.messages()).extracting(message -> message.getString("content"))
+                .endsWith("And in Rome?", "Cloudy.", "And tomorrow?");
+        // Earlier snapshots are not affected by later appends
+        assertThat(beforeFork).hasSize(3);
+        assertThat(conversation.writeBody(beforeFork)).isEqualTo(bodyBeforeFork).isEqualTo(expectedBody(beforeFork));
+    }
+
+    @Test
+    void restoreReturnsToTheSnapshotByteForByte() {
+        DeepSeekConversation conversation = template().conversation();
+        conversation.addUserMessage("What is the weather in Berlin?");
+        List<JSONObject> snapshot = conversation.messages();
+        byte[] bodyAtSnapshot = conversation.request().getBodyBytes().clone();
+
+        conversation.append(assistant("Sunny.")).addUserMessage("And in Paris?");
+        DeepSeekConversation fork = conversation.fork();
+        conversation.restore(snapshot);
+
+        assertThat(conversation.request().getBodyBytes()).isEqualTo(bodyAtSnapshot);
+        // Appending after the restore must not overwrite the messages the fork still uses
+        conversation.addUserMessage("Never mind.");
+        assertBodyMatches(conversation);
+        assertBodyMatches(fork);
+        assertThat(fork.messages()).extracting(message -> message.getString("content")).endsWith("Sunny.", "And in Paris?");
+    }
+
+    @Test
+    void toolLoopAppendsMessagesThatSerializeLikeAFreshRequest() {
+        responses.add(DeepSeekInProcessTransport.Response.json(200, DeepSeekTestResponses.toolCalls("get_weather", "{\"city\":\"Berlin\"}")));
+        responses.add(DeepSeekInProcessTransport.Response.json(200, DeepSeekTestResponses.completion("It is sunny in Berlin.")));
+        DeepSeekConversation conversation = template().conversation();
+        conversation.addUserMessage("What is the weather in Berlin?");
+
+        DeepSeekCompletionResponse response = conversation.execute();
+
+        assertThat(response.assistantMessage()).isEqualTo("It is sunny in Berlin.");
+        assertThat(conversation.messages()).extracting(message -> message.getString("role"))
+                .containsExactly("system", "user", "assistant", "tool", "assistant");
+        List<DeepSeekInProcessTransport.Request> sent = transport.getRequests();
+        assertThat(sent).hasSize(2);
+        assertThat(sent.get(0).body()).isEqualTo(expectedBody(conversation.messages().subList(0, 2)));
+        assertThat(sent.get(1).body()).isEqualTo(expectedBody(conversation.messages().subList(0, 4)));
+        assertBodyMatches(conversation);
+    }
+
+    @Test
+    void failedCallLeavesTheConversationUnchanged() {
+        responses.add(DeepSeekInProcessTransport.Response.json(200, DeepSeekTestResponses.toolCalls("get_weather", "{\"city\":\"Berlin\"}")));
+        responses.add(DeepSeekInProcessTransport.Response.json(400, "{\"error\":{\"message\":\"Invalid request\"}}"));
+        DeepSeekConversation conversation = template().conversation();
+        conversation.addUserMessage("What is the weather in Berlin?");
+        List<JSONObject> before = conversation.messages();
+        byte[] bodyBefore = conversation.request().getBodyBytes().clone();
+
+        // The second turn of the tool loop fails
+        assertThatThrownBy(conversation::execute).isInstanceOf(RuntimeException.class);
+        assertThat(transport.getRequests()).hasSize(2);
+
+        assertThat(conversation.messages()).isEqualTo(before);
+        assertThat(conversation.request().getBodyBytes()).isEqualTo(bodyBefore);
+    }
+}
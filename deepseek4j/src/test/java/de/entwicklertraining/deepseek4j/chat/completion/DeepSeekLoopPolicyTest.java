@@ -0,0 +1,182 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import de.entwicklertraining.api.base.ApiClient;
+import de.entwicklertraining.deepseek4j.DeepSeekClient;
+import de.entwicklertraining.deepseek4j.DeepSeekStallingServer;
+import de.entwicklertraining.deepseek4j.DeepSeekTestResponses;
+import de.entwicklertraining.deepseek4j.DeepSeekToolDefinition;
+import de.entwicklertraining.deepseek4j.DeepSeekToolResult;
+import de.entwicklertraining.deepseek4j.transport.DeepSeekInProcessTransport;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The limits of a loop policy end the tool loop after the turn that reaches them, with an exception or the best
+ * response so far. The turn that is ended early leaves no unanswered tool calls in the history.
+ */
+class DeepSeekLoopPolicyTest {
+
+    private final List<String> responses = new ArrayList<>();
+    private final AtomicInteger toolCalls = new AtomicInteger();
+    private DeepSeekInProcessTransport transport;
+    private DeepSeekClient client;
+
+    @BeforeEach
+    void setUp() {
+        // Every turn asks for another tool call, unless a test has queued other responses
+        transport = new DeepSeekInProcessTransport(request -> {
+            synchronized (responses) {
+                String body = responses.isEmpty() ? DeepSeekTestResponses.toolCalls("lookup", "{}") : responses.remove(0);
+                return DeepSeekInProcessTransport.Response.json(200, body);
+            }
+        });
+        client = DeepSeekTestResponses.client(transport);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+    }
+
+    private DeepSeekConversation conversation(DeepSeekLoopPolicy policy) {
+        DeepSeekToolDefinition tool = DeepSeekToolDefinition.builder("lookup")
+                .description("Look something up.")
+                .callback(context -> {
+                    toolCalls.incrementAndGet();
+                    return DeepSeekToolResult.of("Nothing found.");
+                })
+                .build();
+        DeepSeekConversation conversation = client.chat().completion().model("deepseek-chat").addTool(tool).loopPolicy(policy).conversation();
+        conversation.addUserMessage("Look it up.");
+        return conversation;
+    }
+
+    /**
+     * A tool call response whose assistant message also has text content.
+     */
+    private static String toolCallsWithContent(String content) {
+        JSONObject response = new JSONObject(DeepSeekTestResponses.toolCalls("lookup", "{}"));
+        response.getJSONArray("choices").getJSONObject(0).getJSONObject("message").put("content", content);
+        return response.toString();
+    }
+
+    private static void assertNoUnansweredToolCalls(DeepSeekConversation conversation) {
+        List<JSONObject> messages = conversation.messages();
+        assertThat(messages.get(messages.size() - 1).has("tool_calls")).isFalse();
+        DeepSeekContextPolicyTest.assertToolCallsPaired(messages);
+    }
+
+    @Test
+    void maxTurnsThrowsAfterTheLastAllowedTurn() {
+        DeepSeekConversation conversation = conversation(DeepSeekLoopPolicy.builder().maxTurns(2).build());
+
+        assertThatThrownBy(conversation::execute)
+                .isInstanceOf(ApiClient.ApiClientException.class)
+                .hasMessageContaining("Exceeded maximum of 2");
+
+        assertThat(transport.getRequests()).hasSize(2);
+        // The tool calls of the last turn are not executed
+        assertThat(toolCalls).hasValue(1);
+    }
+
+    @Test
+    void tokenBudgetEndsTheLoopAfterTheTurnThatReachesIt() {
+        // Every turn uses 15 tokens
+        DeepSeekConversation conversation = conversation(DeepSeekLoopPolicy.builder().maxTotalTokens(30).build());
+
+        assertThatThrownBy(conversation::execute)
+                .isInstanceOf(ApiClient.ApiClientException.class)
+                .hasMessageContaining("Tool loop used 30 tokens in 2 turns");
+
+        assertThat(transport.getRequests()).hasSize(2);
+    }
+
+    @Test
+    void costBudgetReturnsThePartialResult() {
+        DeepSeekConversation conversation = conversation(DeepSeekLoopPolicy.builder()
+                .maxCost(0.04, usage -> usage.getTotalTokens() * 0.001)
+                .returnPartialResult(true)
+                .build());
+
+        DeepSeekCompletionResponse response = conversation.execute();
+
+        // 0.015 per turn: the third turn reaches the budget
+        assertThat(transport.getRequests()).hasSize(3);
+        assertThat(response.getChoices().get(0).getFinishReason()).isEqualTo("tool_calls");
+        assertThat(toolCalls).hasValue(2);
+        assertNoUnansweredToolCalls(conversation);
+    }
+
+    @Test
+    void partialResultPrefersTheLastResponseWithContent() {
+        responses.add(toolCallsWithContent("Let me check."));
+        responses.add(toolCallsWithContent("First partial answer."));
+        responses.add(toolCallsWithContent(""));
+        DeepSeekConversation conversation = conversation(DeepSeekLoopPolicy.builder().maxTurns(3).returnPartialResult(true).build());
+
+        DeepSeekCompletionResponse response = conversation.execute();
+
+        assertThat(response.assistantMessage()).isEqualTo("First partial answer.");
+        assertNoUnansweredToolCalls(conversation);
+    }
+
+    @Test
+    void stopConditionEndsTheLoopWithoutThrowing() {
+        List<Integer> turns = new CopyOnWriteArrayList<>();
+        DeepSeekConversation conversation = conversation(DeepSeekLoopPolicy.builder()
+                .stopWhen(progress -> {
+                    turns.add(progress.turn());
+                    return progress.totalTokens() >= 30;
+                })
+                .build());
+
+        DeepSeekCompletionResponse response = conversation.execute();
+
+        assertThat(turns).containsExactly(1, 2);
+        assertThat(response.getChoices().get(0).getFinishReason()).isEqualTo("tool_calls");
+        assertThat(toolCalls).hasValue(1);
+        assertNoUnansweredToolCalls(conversation);
+    }
+
+    @Test
+    void finalResponseWithinTheLimitsIsReturned() {
+        responses.add(DeepSeekTestResponses.toolCalls("lookup", "{}"));
+        responses.add(DeepSeekTestResponses.completion("Found it."));
+        DeepSeekConversation conversation = conversation(DeepSeekLoopPolicy.builder().maxTurns(2).maxTotalTokens(30).build());
+
+        assertThat(conversation.execute().assistantMessage()).isEqualTo("Found it.");
+        assertThat(conversation.messages()).extracting(message -> message.getString("role"))
+                .containsExactly("user", "assistant", "tool", "assistant");
+    }
+
+    @Test
+    void timeoutClosesAStallingStream() throws Exception {
+        try (DeepSeekStallingServer server = new DeepSeekStallingServer(50)) {
+            List<DeepSeekCompletionChunk> chunks = new CopyOnWriteArrayList<>();
+            long start = System.nanoTime();
+
+            assertThatThrownBy(() -> server.client().chat().completion().model("deepseek-chat").addUserMessage("Hi")
+                    .loopPolicy(DeepSeekLoopPolicy.builder().timeout(Duration.ofSeconds(1)).returnPartialResult(true).build())
+                    .executeStreaming(chunks::add))
+                    .isInstanceOf(ApiClient.ApiTimeoutException.class)
+                    .hasMessageContaining("Tool loop exceeded its timeout");
+
+            assertThat((System.nanoTime() - start) / 1_000_000).isBetween(900L, 3000L);
+            int received = chunks.size();
+            assertThat(received).isPositive();
+            Thread.sleep(300);
+            assertThat(chunks).hasSize(received);
+        }
+    }
+}
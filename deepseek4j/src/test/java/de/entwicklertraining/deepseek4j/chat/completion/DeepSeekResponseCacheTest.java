@@ -0,0 +1,124 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import de.entwicklertraining.deepseek4j.DeepSeekClient;
+import de.entwicklertraining.deepseek4j.DeepSeekTestResponses;
+import de.entwicklertraining.deepseek4j.transport.DeepSeekInProcessTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class DeepSeekResponseCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DeepSeekInProcessTransport transport;
+    private DeepSeekClient client;
+
+    @BeforeEach
+    void setUp() {
+        transport = new DeepSeekInProcessTransport(request -> {
+            throw new IllegalStateException("The cache tests do not send requests");
+        });
+        client = DeepSeekTestResponses.client(transport);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+    }
+
+    private DeepSeekCompletionRequest request(String question) {
+        return client.chat().completion().model("deepseek-chat").temperature(0.0).addUserMessage(question).build();
+    }
+
+    private String put(DeepSeekResponseCache cache, String question) {
+        DeepSeekCompletionRequest request = request(question);
+        String key = cache.keyOf(request);
+        cache.put(key, request.createResponse(DeepSeekTestResponses.completion("answer to " + question)));
+        return key;
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.filter(file -> file.toString().endsWith(".response")).toList();
+        }
+    }
+
+    private long totalBytes() throws IOException {
+        long total = 0;
+        for (Path file : files()) {
+            total += Files.size(file);
+        }
+        return total;
+    }
+
+    @Test
+    void diskTierStaysWithinItsBound() throws IOException {
+        DeepSeekResponseCache probe = DeepSeekResponseCache.builder().diskDirectory(tempDir.resolve("probe")).build();
+        put(probe, "q0");
+        long entryBytes;
+        try (Stream<Path> files = Files.list(tempDir.resolve("probe"))) {
+            entryBytes = Files.size(files.findFirst().orElseThrow());
+        }
+
+        DeepSeekResponseCache cache = DeepSeekResponseCache.builder().maxEntries(1).diskDirectory(tempDir).maxDiskBytes(entryBytes * 4).build();
+        for (int i = 0; i < 20; i++) {
+            put(cache, "q" + (i % 10));
+        }
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            cache.sweepDisk();
+            assertThat(totalBytes()).isLessThanOrEqualTo(entryBytes * 4);
+        });
+        assertThat(cache.getDiskEvictions()).isPositive();
+    }
+
+    @Test
+    void sweepEvictsLeastRecentlyUsedFilesFirst() throws IOException {
+        DeepSeekResponseCache cache = DeepSeekResponseCache.builder().maxEntries(1).diskDirectory(tempDir).build();
+        String a = put(cache, "a");
+        String b = put(cache, "b");
+        String c = put(cache, "c");
+        long entryBytes = Files.size(tempDir.resolve(a + ".response"));
+        long old = System.currentTimeMillis() - 60_000;
+        for (String key : List.of(a, b, c)) {
+            Files.setLastModifiedTime(tempDir.resolve(key + ".response"), FileTime.fromMillis(old));
+        }
+
+        // Reading "a" from disk makes it the most recently used entry
+        assertThat(cache.get(a, request("a"))).isNotNull();
+        assertThat(cache.getDiskHits()).isEqualTo(1);
+
+        DeepSeekResponseCache bounded = DeepSeekResponseCache.builder().diskDirectory(tempDir).maxDiskBytes(entryBytes + entryBytes / 2).build();
+        bounded.sweepDisk();
+
+        assertThat(files()).containsExactly(tempDir.resolve(a + ".response"));
+        assertThat(bounded.getDiskEvictions()).isEqualTo(2);
+    }
+
+    @Test
+    void sweepDeletesExpiredFiles() throws Exception {
+        DeepSeekResponseCache cache = DeepSeekResponseCache.builder().diskDirectory(tempDir).ttl(Duration.ofMillis(50)).build();
+        put(cache, "a");
+        put(cache, "b");
+        assertThat(files()).hasSize(2);
+
+        Thread.sleep(100);
+        cache.sweepDisk();
+
+        assertThat(files()).isEmpty();
+        assertThat(cache.getDiskEvictions()).isEqualTo(2);
+    }
+}
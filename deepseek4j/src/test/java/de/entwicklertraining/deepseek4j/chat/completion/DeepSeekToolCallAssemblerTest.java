@@ -0,0 +1,156 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import de.entwicklertraining.api.base.ApiClient;
+import de.entwicklertraining.deepseek4j.DeepSeekClient;
+import de.entwicklertraining.deepseek4j.DeepSeekTestResponses;
+import de.entwicklertraining.deepseek4j.DeepSeekToolDefinition;
+import de.entwicklertraining.deepseek4j.DeepSeekToolResult;
+import de.entwicklertraining.deepseek4j.transport.DeepSeekInProcessTransport;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A streamed tool call is started exactly when its arguments form a complete JSON object, however the fragments
+ * split strings, escapes and nested arrays. Starting it earlier would fail, because the arguments are parsed
+ * when the tool is started.
+ */
+class DeepSeekToolCallAssemblerTest {
+
+    private final List<JSONObject> invocations = new CopyOnWriteArrayList<>();
+    private DeepSeekToolCallExecutor executor;
+    private DeepSeekToolCallAssembler assembler;
+    private DeepSeekInProcessTransport transport;
+
+    @BeforeEach
+    void setUp() {
+        DeepSeekToolDefinition tool = DeepSeekToolDefinition.builder("lookup")
+                .description("Look something up.")
+                .callback(context -> {
+                    invocations.add(context.arguments());
+                    return DeepSeekToolResult.of("Found " + context.arguments().length() + " arguments.");
+                })
+                .build();
+        executor = new DeepSeekToolCallExecutor(null, null);
+        assembler = new DeepSeekToolCallAssembler(Map.of("lookup", tool), executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (transport != null) {
+            transport.close();
+        }
+    }
+
+    private static JSONObject toolCallDelta(int index, String id, String name, String arguments) {
+        JSONObject function = new JSONObject();
+        if (name != null) {
+            function.put("name", name);
+        }
+        function.put("arguments", arguments);
+        JSONObject delta = new JSONObject().put("index", index).put("function", function);
+        if (id != null) {
+            delta.put("id", id).put("type", "function");
+        }
+        return delta;
+    }
+
+    private static String chunkJson(JSONObject... toolCallDeltas) {
+        JSONObject delta = new JSONObject().put("tool_calls", new JSONArray(List.of(toolCallDeltas)));
+        JSONObject choice = new JSONObject().put("index", 0).put("delta", delta).put("finish_reason", JSONObject.NULL);
+        return new JSONObject().put("id", "stream").put("object", "chat.completion.chunk").put("created", 0)
+                .put("model", "deepseek-chat").put("choices", new JSONArray().put(choice)).toString();
+    }
+
+    private static DeepSeekCompletionChunk chunk(JSONObject... toolCallDeltas) {
+        return new DeepSeekCompletionChunk(new JSONObject(chunkJson(toolCallDeltas)));
+    }
+
+    /**
+     * Collects the result of a tool call; a call that was already started is not executed again.
+     */
+    private JSONObject collect(String id, String arguments) {
+        List<JSONObject> messages = executor.executeAll(DeepSeekToolCallExecutor.parseAll(
+                new JSONArray().put(new JSONObject().put("id", id).put("type", "function")
+                        .put("function", new JSONObject().put("name", "lookup").put("arguments", arguments))),
+                Map.of("lookup", DeepSeekToolDefinition.builder("lookup").callback(context -> {
+                    throw new AssertionError("Tool call " + id + " was not started ahead of time");
+                }).build())));
+        return messages.get(0);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"q\": \"a } b ] c\"}",
+            "{\"q\": \"say \\\"{hi}\\\"\", \"n\": 1}",
+            "{\"q\": \"\\\"}\", \"n\": 1}",
+            "{\"path\": \"C:\\\\temp\\\\\", \"depth\": 2}",
+            "{\"matrix\": [[1, [2, 3]], [], [[]]], \"tags\": [\"[\", \"]\", \"{\"]}",
+            "{\"nested\": {\"a\": {\"b\": [{\"c\": \"}}\"}]}}}",
+            "{}"
+    })
+    void startsWhenTheArgumentsAreCompleteAcrossSingleCharacterFragments(String arguments) {
+        assembler.accept(chunk(toolCallDelta(0, "call_0", "lookup", "")));
+        for (int i = 0; i < arguments.length(); i++) {
+            assembler.accept(chunk(toolCallDelta(0, null, null, arguments.substring(i, i + 1))));
+        }
+
+        JSONObject message = collect("call_0", arguments);
+
+        assertThat(message.getString("tool_call_id")).isEqualTo("call_0");
+        assertThat(invocations).hasSize(1);
+        assertThat(invocations.get(0).similar(new JSONObject(arguments))).isTrue();
+    }
+
+    @Test
+    void interleavedToolCallsAreAssembledByIndex() {
+        assembler.accept(chunk(toolCallDelta(0, "call_0", "lookup", "{\"q\": \"fir"), toolCallDelta(1, "call_1", "lookup", "{\"q\": [")));
+        assembler.accept(chunk(toolCallDelta(1, null, null, "\"}\"]")));
+        assembler.accept(chunk(toolCallDelta(0, null, null, "st\"}")));
+        assembler.accept(chunk(toolCallDelta(1, null, null, "}")));
+
+        collect("call_0", "{\"q\": \"first\"}");
+        collect("call_1", "{\"q\": [\"}\"]}");
+
+        assertThat(invocations).extracting(arguments -> arguments.get("q").toString())
+                .containsExactlyInAnyOrder("first", "[\"}\"]");
+    }
+
+    @Test
+    void unknownToolNameFailsWhenItsArgumentsAreComplete() {
+        assembler.accept(chunk(toolCallDelta(0, "call_0", "delete_everything", "{\"confirm\": ")));
+
+        assertThatThrownBy(() -> assembler.accept(chunk(toolCallDelta(0, null, null, "true}"))))
+                .isInstanceOf(ApiClient.ApiResponseUnusableException.class)
+                .hasMessageContaining("delete_everything");
+        assertThat(invocations).isEmpty();
+    }
+
+    @Test
+    void unknownToolNameEndsTheStreamedTurn() {
+        transport = new DeepSeekInProcessTransport(request -> DeepSeekInProcessTransport.Response.eventStream(List.of(
+                chunkJson(toolCallDelta(0, "call_0", "lookup", "{\"q\": \"x\"}")),
+                chunkJson(toolCallDelta(1, "call_1", "delete_everything", "{}")))));
+        DeepSeekClient client = DeepSeekTestResponses.client(transport);
+        DeepSeekToolDefinition tool = DeepSeekToolDefinition.builder("lookup")
+                .callback(context -> DeepSeekToolResult.of("Found."))
+                .build();
+
+        assertThatThrownBy(() -> client.chat().completion().model("deepseek-chat").addTool(tool).addUserMessage("Hi")
+                .executeStreaming(chunk -> { }))
+                .isInstanceOf(ApiClient.ApiResponseUnusableException.class)
+                .hasMessageContaining("delete_everything");
+        assertThat(transport.getRequests()).hasSize(1);
+    }
+}
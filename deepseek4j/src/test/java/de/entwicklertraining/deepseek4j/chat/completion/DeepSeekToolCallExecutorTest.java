@@ -0,0 +1,101 @@
+package de.entwicklertraining.deepseek4j.chat.completion;
+
+import de.entwicklertraining.api.base.ApiClient;
+import de.entwicklertraining.deepseek4j.DeepSeekToolDefinition;
+import de.entwicklertraining.deepseek4j.DeepSeekToolResult;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * The tool calls of a turn run concurrently, their results keep the order of the calls, and a tool that exceeds
+ * its timeout is interrupted.
+ */
+class DeepSeekToolCallExecutorTest {
+
+    private final DeepSeekToolCallExecutor executor = new DeepSeekToolCallExecutor(null, null);
+
+    /**
+     * Calls that all wait for each other, so they only finish if they run at the same time; the first call
+     * finishes last.
+     */
+    private static List<DeepSeekToolCallExecutor.PendingToolCall> concurrentCalls(int count) {
+        CountDownLatch allStarted = new CountDownLatch(count);
+        DeepSeekToolDefinition tool = DeepSeekToolDefinition.builder("wait")
+                .callback(context -> {
+                    int n = context.arguments().getInt("n");
+                    allStarted.countDown();
+                    try {
+                        if (!allStarted.await(5, TimeUnit.SECONDS)) {
+                            throw new IllegalStateException("Tool calls did not run concurrently");
+                        }
+                        Thread.sleep((count - n) * 50L);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(e);
+                    }
+                    return DeepSeekToolResult.of("Result " + n);
+                })
+                .build();
+        return IntStream.range(0, count)
+                .mapToObj(n -> new DeepSeekToolCallExecutor.PendingToolCall("call_" + n, tool, new JSONObject().put("n", n)))
+                .toList();
+    }
+
+    @Test
+    void resultsKeepTheOrderOfTheCalls() {
+        List<JSONObject> messages = executor.executeAll(concurrentCalls(4));
+
+        assertThat(messages).extracting(message -> message.getString("tool_call_id"))
+                .containsExactly("call_0", "call_1", "call_2", "call_3");
+        assertThat(messages).extracting(message -> message.getString("content"))
+                .containsExactly("Result 0", "Result 1", "Result 2", "Result 3");
+    }
+
+    @Test
+    void asyncResultsKeepTheOrderOfTheCalls() {
+        List<JSONObject> messages = executor.executeAllAsync(concurrentCalls(4)).join();
+
+        assertThat(messages).extracting(message -> message.getString("tool_call_id"))
+                .containsExactly("call_0", "call_1", "call_2", "call_3");
+    }
+
+    @Test
+    void toolExceedingItsTimeoutIsInterrupted() {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        DeepSeekToolDefinition slow = DeepSeekToolDefinition.builder("slow")
+                .timeoutInSeconds(1)
+                .callback(context -> {
+                    try {
+                        Thread.sleep(30_000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                        Thread.currentThread().interrupt();
+                    }
+                    return DeepSeekToolResult.of("Too late.");
+                })
+                .build();
+        DeepSeekToolDefinition fast = DeepSeekToolDefinition.builder("fast")
+                .callback(context -> DeepSeekToolResult.of("Done."))
+                .build();
+        long start = System.nanoTime();
+
+        assertThatThrownBy(() -> executor.executeAll(List.of(
+                new DeepSeekToolCallExecutor.PendingToolCall("call_0", fast, new JSONObject()),
+                new DeepSeekToolCallExecutor.PendingToolCall("call_1", slow, new JSONObject()))))
+                .isInstanceOf(ApiClient.ApiTimeoutException.class)
+                .hasMessageContaining("'slow' did not finish within 1 seconds");
+
+        assertThat((System.nanoTime() - start) / 1_000_000).isBetween(900L, 5000L);
+        await().atMost(Duration.ofSeconds(5)).until(() -> interrupted.getCount() == 0);
+    }
+}